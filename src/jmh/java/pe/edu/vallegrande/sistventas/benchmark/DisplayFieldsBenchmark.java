@@ -0,0 +1,92 @@
+package pe.edu.vallegrande.sistventas.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pe.edu.vallegrande.sistventas.dto.Purchase;
+import pe.edu.vallegrande.sistventas.dto.Reservation;
+import pe.edu.vallegrande.sistventas.dto.Sale;
+import pe.edu.vallegrande.sistventas.model.Person;
+import pe.edu.vallegrande.sistventas.model.Product;
+import pe.edu.vallegrande.sistventas.model.Supplier;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+// Campos de presentación de Sale, Purchase, Reservation (nombres y fecha) y Product (vencimiento):
+// lo que cuesta serializar una fila de cada uno. Ya no se calculan al cargar la entidad, así que
+// las filas que no se serializan no pagan nada.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DisplayFieldsBenchmark {
+
+    private Sale sale;
+    private Purchase purchase;
+    private Reservation reservation;
+    private Product product;
+
+    @Setup
+    public void setUp() {
+        Person client = person("Ana", "Lopez");
+        Person seller = person("Luis", "Quispe");
+        Date now = new Date();
+
+        sale = new Sale();
+        sale.setClient(client);
+        sale.setSeller(seller);
+        sale.setDateTime(now);
+
+        Supplier supplier = new Supplier();
+        supplier.setNames("Rosa");
+        supplier.setLastName("Huaman");
+        purchase = new Purchase();
+        purchase.setSupplier(supplier);
+        purchase.setSeller(seller);
+        purchase.setDateTime(now);
+
+        reservation = new Reservation();
+        reservation.setClient(client);
+        reservation.setSeller(seller);
+        reservation.setReservationDate(now);
+
+        product = new Product();
+        product.setDateExpiry(LocalDate.of(2026, 9, 15));
+    }
+
+    @Benchmark
+    public void sale(Blackhole blackhole) {
+        blackhole.consume(sale.getClientNames());
+        blackhole.consume(sale.getSellerNames());
+        blackhole.consume(sale.getFormattedDateTime());
+    }
+
+    @Benchmark
+    public void purchase(Blackhole blackhole) {
+        blackhole.consume(purchase.getSupplierNames());
+        blackhole.consume(purchase.getSellerNames());
+        blackhole.consume(purchase.getFormattedDateTime());
+    }
+
+    @Benchmark
+    public void reservation(Blackhole blackhole) {
+        blackhole.consume(reservation.getClientNames());
+        blackhole.consume(reservation.getSellerNames());
+        blackhole.consume(reservation.getFormattedDateTime());
+    }
+
+    @Benchmark
+    public String productDateExpiry() {
+        return product.getDateExpiryFormatted();
+    }
+
+    private static Person person(String names, String lastName) {
+        Person person = new Person();
+        person.setNames(names);
+        person.setLastName(lastName);
+        return person;
+    }
+}
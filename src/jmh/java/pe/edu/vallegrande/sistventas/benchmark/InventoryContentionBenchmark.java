@@ -0,0 +1,81 @@
+package pe.edu.vallegrande.sistventas.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pe.edu.vallegrande.sistventas.repository.ProductRepo;
+import pe.edu.vallegrande.sistventas.service.CatalogVersions;
+import pe.edu.vallegrande.sistventas.service.InventoryService;
+import pe.edu.vallegrande.sistventas.service.ProductIndex;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Muchas terminales vendiendo los mismos productos: 16 hilos descuentan stock de unos pocos SKU
+// "calientes" con InventoryService.decrementStock, cada venta en su propia transacción. La base de
+// datos es H2 en memoria detrás de un pool Hikari; el stub de ProductRepo ejecuta la misma
+// actualización condicional que la consulta JPQL del repositorio. Mide el costo del bloqueo de filas
+// en orden de id: con hotSkus = 1 todas las ventas se serializan sobre la misma fila.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class InventoryContentionBenchmark {
+    private static final String DECREMENT_SQL =
+            "UPDATE product SET stock = stock - ? WHERE id = ? AND stock >= ?";
+
+    @Param({"1", "4", "32"})
+    private int hotSkus;
+
+    // Líneas (productos distintos) por venta
+    @Param({"3"})
+    private int linesPerSale;
+
+    private HikariDataSource dataSource;
+    private InventoryService inventoryService;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup
+    public void setUp() {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:inventory" + System.nanoTime() + ";LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1");
+        config.setMaximumPoolSize(16);
+        dataSource = new HikariDataSource(config);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE product (id BIGINT PRIMARY KEY, stock DOUBLE PRECISION NOT NULL)");
+        // Stock de sobra: el benchmark mide contención, no ventas rechazadas
+        for (long id = 1; id <= hotSkus; id++) {
+            jdbcTemplate.update("INSERT INTO product (id, stock) VALUES (?, ?)", id, 1e12);
+        }
+        ProductRepo productRepo = RepositoryStubs.stub(ProductRepo.class, Map.of(
+                "decrementStock", args -> jdbcTemplate.update(DECREMENT_SQL, args[1], args[0], args[1]),
+                "findStockById", args -> Optional.ofNullable(jdbcTemplate.queryForObject(
+                        "SELECT stock FROM product WHERE id = ?", Double.class, args[0]))));
+        inventoryService = new InventoryService(productRepo, new ProductIndex(productRepo), jdbcTemplate,
+                new CatalogVersions());
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void decrementStock() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<Long, Double> quantities = new HashMap<>();
+        // Los ids llegan en cualquier orden; decrementStock los ordena antes de bloquear
+        while (quantities.size() < Math.min(linesPerSale, hotSkus)) {
+            quantities.put(1L + random.nextInt(hotSkus), 1.0 + random.nextInt(3));
+        }
+        transactionTemplate.executeWithoutResult(status -> inventoryService.decrementStock(quantities));
+    }
+}
@@ -0,0 +1,47 @@
+package pe.edu.vallegrande.sistventas.benchmark;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+// Stubs en memoria de los repositorios de Spring Data: cada método se responde con la función
+// registrada para su nombre; cualquier otro método lanza UnsupportedOperationException, así un
+// benchmark nunca mide por accidente una llamada que no esperaba
+final class RepositoryStubs {
+
+    private RepositoryStubs() {
+    }
+
+    static <T> T stub(Class<T> repository, Map<String, Function<Object[], Object>> answers) {
+        Object proxy = Proxy.newProxyInstance(repository.getClassLoader(), new Class<?>[]{repository},
+                (self, method, args) -> {
+                    switch (method.getName()) {
+                        case "toString":
+                            return repository.getSimpleName() + " stub";
+                        case "hashCode":
+                            return System.identityHashCode(self);
+                        case "equals":
+                            return self == args[0];
+                        default:
+                            Function<Object[], Object> answer = answers.get(method.getName());
+                            if (answer == null) {
+                                throw new UnsupportedOperationException(repository.getSimpleName() + "." + method.getName());
+                            }
+                            return answer.apply(args);
+                    }
+                });
+        return repository.cast(proxy);
+    }
+
+    // Asigna una dependencia inyectada por campo (@Autowired) en los servicios que no usan constructor
+    static void inject(Object target, String field, Object value) {
+        try {
+            Field declared = target.getClass().getDeclaredField(field);
+            declared.setAccessible(true);
+            declared.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot inject " + field + " into " + target.getClass().getSimpleName(), e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package pe.edu.vallegrande.sistventas.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pe.edu.vallegrande.sistventas.dto.Sale;
+import pe.edu.vallegrande.sistventas.dto.SaleDetail;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductPriceView;
+import pe.edu.vallegrande.sistventas.model.Product;
+import pe.edu.vallegrande.sistventas.repository.ProductRepo;
+import pe.edu.vallegrande.sistventas.service.ProductPriceResolver;
+import pe.edu.vallegrande.sistventas.service.SaleService;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// Cálculo de totales y actualización de detalles de SaleService con carritos de distinto tamaño.
+// Los precios salen de un ProductRepo en memoria; con la caché de ProductPriceResolver caliente
+// (calculateSaleTotals) o vaciada en cada operación (calculateSaleTotalsColdPrices).
+// updateSaleDetails modifica la venta, así que cada operación arma una nueva: buildSale mide
+// solo ese armado para restarlo.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaleServiceBenchmark {
+
+    @Param({"5", "50", "500"})
+    private int lines;
+
+    private SaleService saleService;
+    private ProductPriceResolver productPriceResolver;
+    private MethodHandle calculateSaleTotals;
+    private MethodHandle updateSaleDetails;
+    private Sale sale;
+    private List<SaleDetail> updatedDetails;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        Map<Long, Double> catalog = new HashMap<>();
+        for (long id = 1; id <= lines; id++) {
+            catalog.put(id, 1.5 + id % 10);
+        }
+        ProductRepo productRepo = RepositoryStubs.stub(ProductRepo.class, Map.of(
+                "findPricesByIdIn", args -> {
+                    List<ProductPriceView> views = new ArrayList<>();
+                    for (Object id : (Collection<?>) args[0]) {
+                        Double price = catalog.get((Long) id);
+                        if (price != null) {
+                            views.add(priceView((Long) id, price));
+                        }
+                    }
+                    return views;
+                }));
+        productPriceResolver = new ProductPriceResolver(productRepo);
+        saleService = new SaleService();
+        RepositoryStubs.inject(saleService, "productPriceResolver", productPriceResolver);
+
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(SaleService.class, MethodHandles.lookup());
+        calculateSaleTotals = lookup.findVirtual(SaleService.class, "calculateSaleTotals",
+                MethodType.methodType(void.class, Sale.class));
+        updateSaleDetails = lookup.findVirtual(SaleService.class, "updateSaleDetails",
+                MethodType.methodType(void.class, Sale.class, List.class));
+
+        sale = buildSale();
+        // Edición típica: se cambian cantidades, se quita una línea de cada diez y se agregan otras tantas
+        updatedDetails = new ArrayList<>();
+        for (long id = 1; id <= lines; id++) {
+            if (id % 10 != 0) {
+                updatedDetails.add(detail(id, id, 2.0));
+            }
+        }
+        for (long id = 1; id <= Math.max(1, lines / 10); id++) {
+            updatedDetails.add(detail(null, id, 1.0));
+        }
+    }
+
+    @Benchmark
+    public double calculateSaleTotals() throws Throwable {
+        calculateSaleTotals.invokeExact(saleService, sale);
+        return sale.getTotalSale();
+    }
+
+    @Benchmark
+    public double calculateSaleTotalsColdPrices() throws Throwable {
+        productPriceResolver.evictAll();
+        calculateSaleTotals.invokeExact(saleService, sale);
+        return sale.getTotalSale();
+    }
+
+    @Benchmark
+    public Sale buildSale() {
+        Sale fresh = new Sale();
+        List<SaleDetail> details = new ArrayList<>(lines);
+        for (long id = 1; id <= lines; id++) {
+            details.add(detail(id, id, 1.0));
+        }
+        fresh.setSaleDetails(details);
+        return fresh;
+    }
+
+    @Benchmark
+    public void updateSaleDetails(Blackhole blackhole) throws Throwable {
+        Sale fresh = buildSale();
+        updateSaleDetails.invokeExact(saleService, fresh, updatedDetails);
+        blackhole.consume(fresh.getSaleDetails().size());
+    }
+
+    private static SaleDetail detail(Long id, Long productId, double amount) {
+        Product product = new Product();
+        product.setId(productId);
+        SaleDetail detail = new SaleDetail();
+        detail.setId(id);
+        detail.setProduct(product);
+        detail.setAmount(amount);
+        return detail;
+    }
+
+    private static ProductPriceView priceView(Long id, Double price) {
+        return new ProductPriceView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Double getPriceUnit() {
+                return price;
+            }
+        };
+    }
+}
@@ -0,0 +1,132 @@
+package pe.edu.vallegrande.sistventas.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import pe.edu.vallegrande.sistventas.SistventasApplication;
+import pe.edu.vallegrande.sistventas.model.CategoryProduct;
+import pe.edu.vallegrande.sistventas.model.Product;
+import pe.edu.vallegrande.sistventas.repository.CategoryRepo;
+import pe.edu.vallegrande.sistventas.repository.ProductRepo;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// Peticiones por segundo de la aplicación completa (Tomcat, Spring MVC, JPA, Hikari con 10 conexiones)
+// con hilos de plataforma y con hilos virtuales (spring.threads.virtual.enabled, requiere JDK 21). 64
+// clientes piden GET /api/v1/products/active (20 productos, proyección). La base es H2 en memoria con el
+// perfil de pruebas; roundTripMillis agrega esa espera al preparar cada sentencia SQL, con la conexión
+// del pool tomada, como la ida y vuelta a Oracle por la red. Los contadores ok y rejected separan las
+// respuestas 200 de los 503 del límite de peticiones del modo virtual.
+// Correr con JAVA_HOME apuntando a un JDK 21:
+//   mvn -P benchmark test-compile exec:exec -Djmh.include=VirtualThreadRequest
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(64)
+public class VirtualThreadRequestBenchmark {
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    @Param({"0", "20"})
+    private long roundTripMillis;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest request;
+
+    // Respuestas por tipo, sumadas entre los hilos cliente
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Responses {
+        public long ok;
+        public long rejected;
+    }
+
+    // Espera de cada sentencia; se activa después de cargar los datos
+    private static volatile long delayMillis;
+
+    @Setup
+    public void setUp() {
+        delayMillis = 0;
+        context = new SpringApplicationBuilder(SistventasApplication.class)
+                .profiles("test")
+                .properties("server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "logging.level.root=WARN")
+                .initializers(applicationContext -> applicationContext.getBeanFactory().addBeanPostProcessor(
+                        new BeanPostProcessor() {
+                            @Override
+                            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                                return bean instanceof HikariDataSource dataSource ? withRoundTrip(dataSource) : bean;
+                            }
+                        }))
+                .run();
+        CategoryRepo categoryRepo = context.getBean(CategoryRepo.class);
+        ProductRepo productRepo = context.getBean(ProductRepo.class);
+        CategoryProduct category = categoryRepo.save(new CategoryProduct(null, "Abarrotes", "Benchmark", "A"));
+        for (int n = 1; n <= 20; n++) {
+            productRepo.save(new Product(null, "B" + n, "Producto " + n, "Benchmark", category, 1.5 + n, "UND",
+                    LocalDate.now().plusYears(1), 100.0, "A"));
+        }
+        delayMillis = roundTripMillis;
+
+        String port = context.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/products/active")).GET().build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int activeProducts(Responses responses) throws IOException, InterruptedException {
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status == 200) {
+            responses.ok++;
+        } else {
+            responses.rejected++;
+        }
+        return status;
+    }
+
+    // Las conexiones del pool esperan delayMillis en cada prepareStatement antes de delegar
+    private static DataSource withRoundTrip(DataSource dataSource) {
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection connection = super.getConnection();
+                return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                        (proxy, method, args) -> {
+                            if (delayMillis > 0 && method.getName().startsWith("prepare")) {
+                                Thread.sleep(delayMillis);
+                            }
+                            try {
+                                return method.invoke(connection, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        });
+            }
+        };
+    }
+}
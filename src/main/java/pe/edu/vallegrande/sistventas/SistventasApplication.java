@@ -1,12 +1,23 @@
 package pe.edu.vallegrande.sistventas;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.context.annotation.Bean;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import pe.edu.vallegrande.sistventas.config.RequestPermitFilter;
+
+import java.time.Duration;
 
 @SpringBootApplication
+@EnableCaching
+@EnableScheduling
 public class SistventasApplication {
 
 	public static void main(String[] args) {
@@ -25,5 +36,20 @@ public class SistventasApplication {
 			}
 		};
 	}
-}
 
+	// Modo de hilos virtuales (spring.threads.virtual.enabled=true, JDK 21+): Tomcat atiende cada petición
+	// en un hilo virtual y deja de limitar la concurrencia. Este filtro la limita al tamaño del pool de
+	// conexiones a Oracle; lo que no consigue permiso en permit-timeout recibe 503 en lugar de esperar
+	// conexión hasta el timeout de Hikari. El permiso cubre también la parte asíncrona de las exportaciones
+	// (RequestPermitFilter). Con hilos de plataforma no se registra (ya limita max-threads).
+	@Bean
+	@ConditionalOnThreading(Threading.VIRTUAL)
+	public FilterRegistrationBean<RequestPermitFilter> virtualThreadRequestLimiter(
+			@Value("${virtual-threads.request-permits:10}") int permits,
+			@Value("${virtual-threads.permit-timeout:PT5S}") Duration permitTimeout) {
+		FilterRegistrationBean<RequestPermitFilter> registration =
+				new FilterRegistrationBean<>(new RequestPermitFilter(permits, permitTimeout));
+		registration.addUrlPatterns("/api/*");
+		return registration;
+	}
+}
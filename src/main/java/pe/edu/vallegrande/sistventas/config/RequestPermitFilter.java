@@ -0,0 +1,86 @@
+package pe.edu.vallegrande.sistventas.config;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Limita las peticiones simultáneas en el modo de hilos virtuales (ver SistventasApplication). El permiso
+// se toma en el despacho inicial y dura toda la petición: si el controlador la pasa a modo asíncrono
+// (StreamingResponseBody de las exportaciones, que sigue leyendo de Oracle en otro hilo) se libera recién
+// cuando termina el procesamiento asíncrono, no al volver del controlador. Los despachos asíncronos
+// posteriores no vuelven a pasar por el filtro.
+public class RequestPermitFilter extends OncePerRequestFilter {
+    private final Semaphore semaphore;
+    private final Duration permitTimeout;
+
+    public RequestPermitFilter(int permits, Duration permitTimeout) {
+        this.semaphore = new Semaphore(permits, true);
+        this.permitTimeout = permitTimeout;
+    }
+
+    public int availablePermits() {
+        return semaphore.availablePermits();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = semaphore.tryAcquire(permitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        boolean handedOff = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // onComplete llega también después de un timeout o un error del procesamiento asíncrono
+                request.getAsyncContext().addListener(new ReleaseOnComplete());
+                handedOff = true;
+            }
+        } finally {
+            if (!handedOff) {
+                semaphore.release();
+            }
+        }
+    }
+
+    private class ReleaseOnComplete implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            semaphore.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Un nuevo startAsync reemplaza los listeners: se vuelve a registrar para no perder la liberación
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package pe.edu.vallegrande.sistventas.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Timer "sistventas.service.invocations" alrededor de cada método público de las clases @Service, con tags
+// service, method y exception (None si terminó bien, como en los repositorios). Junto con
+// spring.data.repository.invocations (repositorios) y hikaricp.connections.* (pool) permite ver en
+// /actuator/metrics dónde se va el tiempo de una petición. Las llamadas internas de un servicio a sí
+// mismo no pasan por el proxy y no se miden. Los @Component del paquete service (ProductIndex,
+// ProductPriceResolver...) quedan fuera: son búsquedas en memoria que el proxy y el Timer encarecerían. Los
+// Timer se registran una vez por método y excepción y luego se reutilizan.
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+    private static final String METRIC_NAME = "sistventas.service.invocations";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    private record TimerKey(Class<?> service, String method, String exception) {
+    }
+
+    @Autowired
+    public ServiceMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * pe.edu.vallegrande.sistventas.service..*(..)) && within(@org.springframework.stereotype.Service *)")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "None";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            TimerKey key = new TimerKey(joinPoint.getSignature().getDeclaringType(), joinPoint.getSignature().getName(), exception);
+            sample.stop(timers.computeIfAbsent(key, this::register));
+        }
+    }
+
+    private Timer register(TimerKey key) {
+        return Timer.builder(METRIC_NAME)
+                .description("Service method invocations")
+                .tag("service", key.service().getSimpleName())
+                .tag("method", key.method())
+                .tag("exception", key.exception())
+                .register(meterRegistry);
+    }
+}
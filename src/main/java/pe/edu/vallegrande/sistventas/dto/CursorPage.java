@@ -0,0 +1,18 @@
+package pe.edu.vallegrande.sistventas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Página basada en cursor (keyset): el cliente envía nextCursor como lastId en la siguiente petición
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPage<T> {
+    private List<T> content;
+    private int size;
+    private Long nextCursor;
+    private boolean hasNext;
+}
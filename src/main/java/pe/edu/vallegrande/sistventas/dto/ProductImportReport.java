@@ -0,0 +1,28 @@
+package pe.edu.vallegrande.sistventas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Resultado de una importación masiva de productos con los errores por fila
+@Data
+@NoArgsConstructor
+public class ProductImportReport {
+    private int totalRows;
+    private int imported;
+    private int failed;
+    // true si hubo más errores de los que se guardan en el reporte
+    private boolean errorsTruncated;
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+        private int row;
+        private String message;
+    }
+}
@@ -7,9 +7,8 @@ import lombok.NoArgsConstructor;
 import pe.edu.vallegrande.sistventas.model.PaymentMethod;
 import pe.edu.vallegrande.sistventas.model.Person;
 import pe.edu.vallegrande.sistventas.model.Supplier;
+import pe.edu.vallegrande.sistventas.util.DisplayFormats;
 
-import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 
@@ -17,21 +16,53 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "purchase")
+@NamedEntityGraphs({
+        // Vista de listado: cabecera con sus relaciones; los detalles se cargan por lotes
+        @NamedEntityGraph(name = "Purchase.list", attributeNodes = {
+                @NamedAttributeNode("supplier"),
+                @NamedAttributeNode("seller"),
+                @NamedAttributeNode("paymentMethod")
+        }),
+        // Vista de detalle: cabecera, detalles, producto y categoría en una sola consulta
+        @NamedEntityGraph(name = "Purchase.detail", attributeNodes = {
+                @NamedAttributeNode("supplier"),
+                @NamedAttributeNode("seller"),
+                @NamedAttributeNode("paymentMethod"),
+                @NamedAttributeNode(value = "purchaseDetails", subgraph = "purchaseDetails.product")
+        }, subgraphs = {
+                @NamedSubgraph(name = "purchaseDetails.product", attributeNodes = @NamedAttributeNode(value = "product", subgraph = "product.category")),
+                @NamedSubgraph(name = "product.category", attributeNodes = @NamedAttributeNode("categoryProduct"))
+        }),
+        // Vista de reporte: cabecera, detalles y producto (sin categoría)
+        @NamedEntityGraph(name = "Purchase.report", attributeNodes = {
+                @NamedAttributeNode("supplier"),
+                @NamedAttributeNode("seller"),
+                @NamedAttributeNode("paymentMethod"),
+                @NamedAttributeNode(value = "purchaseDetails", subgraph = "purchaseDetails.product")
+        }, subgraphs = {
+                @NamedSubgraph(name = "purchaseDetails.product", attributeNodes = @NamedAttributeNode("product"))
+        })
+})
+@Table(name = "purchase", indexes = {
+        @Index(name = "idx_purchase_active_id", columnList = "active, id DESC"),
+        // Date-range scans of the accounting CSV export
+        @Index(name = "idx_purchase_active_date", columnList = "active, date_time")
+})
 public class Purchase {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "purchase_seq")
+    @SequenceGenerator(name = "purchase_seq", sequenceName = "purchase_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "supplier_id", nullable = false)
     private Supplier supplier;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "seller_id", nullable = false)
     private Person seller;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "payment_method_id", nullable = false)
     private PaymentMethod paymentMethod;
 
@@ -45,15 +76,6 @@ public class Purchase {
     @OneToMany(mappedBy = "purchase", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<PurchaseDetail> purchaseDetails;
 
-    @Transient
-    private String supplierNames;
-
-    @Transient
-    private String sellerNames;
-
-    @Transient
-    private String formattedDateTime;
-
     @Column(name = "total_purchase")
     private Double totalPurchase;
 
@@ -64,24 +86,16 @@ public class Purchase {
         }
     }
 
-    @PostLoad
-    @PostPersist
-    @PostUpdate
-    private void setTransientFields() {
-        if (supplier != null) {
-            this.supplierNames = supplier.getNames() + " " + supplier.getLastName();
-        }
-        if (seller != null) {
-            this.sellerNames = seller.getNames() + " " + seller.getLastName();
-        }
-        if (dateTime != null) {
-            this.formattedDateTime = formatDate(dateTime);
-        }
+    // Campos de presentación: se calculan al serializar (o al pedirlos), no al cargar cada fila
+    public String getSupplierNames() {
+        return supplier == null ? null : DisplayFormats.fullName(supplier.getNames(), supplier.getLastName());
     }
 
-    private String formatDate(Date date) {
-        SimpleDateFormat formatter = new SimpleDateFormat("dd-MMM-yyyy HH:mm");
-        return formatter.format(date);
+    public String getSellerNames() {
+        return seller == null ? null : DisplayFormats.fullName(seller.getNames(), seller.getLastName());
     }
 
+    public String getFormattedDateTime() {
+        return DisplayFormats.dateTime(dateTime);
+    }
 }
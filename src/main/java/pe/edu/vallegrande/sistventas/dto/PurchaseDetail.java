@@ -11,18 +11,22 @@ import pe.edu.vallegrande.sistventas.model.Product;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "purchase_detail")
+@Table(name = "purchase_detail", indexes = {
+        // Join from purchase to its lines (Oracle does not index foreign keys on its own)
+        @Index(name = "idx_purchase_detail_purchase", columnList = "purchase_id")
+})
 public class PurchaseDetail {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "purchase_detail_seq")
+    @SequenceGenerator(name = "purchase_detail_seq", sequenceName = "purchase_detail_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "purchase_id", nullable = false)
     @JsonBackReference
     private Purchase purchase;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
@@ -6,8 +6,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import pe.edu.vallegrande.sistventas.model.Person;
 import pe.edu.vallegrande.sistventas.model.PaymentMethod;
+import pe.edu.vallegrande.sistventas.util.DisplayFormats;
 
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 
@@ -15,21 +15,53 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "reservation")
+@NamedEntityGraphs({
+        // List view: header with its relations; details are loaded in batches
+        @NamedEntityGraph(name = "Reservation.list", attributeNodes = {
+                @NamedAttributeNode("client"),
+                @NamedAttributeNode("seller"),
+                @NamedAttributeNode("paymentMethod")
+        }),
+        // Detail view: header, details, product and category in a single query
+        @NamedEntityGraph(name = "Reservation.detail", attributeNodes = {
+                @NamedAttributeNode("client"),
+                @NamedAttributeNode("seller"),
+                @NamedAttributeNode("paymentMethod"),
+                @NamedAttributeNode(value = "reservationDetails", subgraph = "reservationDetails.product")
+        }, subgraphs = {
+                @NamedSubgraph(name = "reservationDetails.product", attributeNodes = @NamedAttributeNode(value = "product", subgraph = "product.category")),
+                @NamedSubgraph(name = "product.category", attributeNodes = @NamedAttributeNode("categoryProduct"))
+        }),
+        // Report view: header, details and product (no category)
+        @NamedEntityGraph(name = "Reservation.report", attributeNodes = {
+                @NamedAttributeNode("client"),
+                @NamedAttributeNode("seller"),
+                @NamedAttributeNode("paymentMethod"),
+                @NamedAttributeNode(value = "reservationDetails", subgraph = "reservationDetails.product")
+        }, subgraphs = {
+                @NamedSubgraph(name = "reservationDetails.product", attributeNodes = @NamedAttributeNode("product"))
+        })
+})
+@Table(name = "reservation", indexes = {
+        @Index(name = "idx_reservation_active_id", columnList = "active, id DESC"),
+        // Lets the hold sweeper find expired pending holds without scanning the table
+        @Index(name = "idx_reservation_hold", columnList = "hold_status, hold_expires_at")
+})
 public class Reservation {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservation_seq")
+    @SequenceGenerator(name = "reservation_seq", sequenceName = "reservation_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "client_id", nullable = false)
     private Person client;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "seller_id", nullable = false)
     private Person seller;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "payment_method_id", nullable = false)
     private PaymentMethod paymentMethod;
 
@@ -43,18 +75,18 @@ public class Reservation {
     @OneToMany(mappedBy = "reservation", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ReservationDetail> reservationDetails;
 
-    @Transient
-    private String clientNames;
-
-    @Transient
-    private String sellerNames;
-
-    @Transient
-    private String formattedDateTime;
-
     @Column(name = "total_reservation")
     private Double totalReservation;
 
+    // Stock hold: 'P' pending (released at holdExpiresAt unless confirmed), 'C' confirmed, 'R' released.
+    // Null for reservations created before stock holds existed, which never took stock.
+    @Column(name = "hold_status", length = 1)
+    private String holdStatus;
+
+    @Column(name = "hold_expires_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date holdExpiresAt;
+
     @PrePersist
     protected void onCreate() {
         if (reservationDate == null) {
@@ -62,23 +94,16 @@ public class Reservation {
         }
     }
 
-    @PostLoad
-    @PostPersist
-    @PostUpdate
-    private void setTransientFields() {
-        if (client != null) {
-            this.clientNames = client.getNames() + " " + client.getLastName();
-        }
-        if (seller != null) {
-            this.sellerNames = seller.getNames() + " " + seller.getLastName();
-        }
-        if (reservationDate != null) {
-            this.formattedDateTime = formatDate(reservationDate);
-        }
+    // Display fields: computed at serialization time (or on demand), not when each row is loaded
+    public String getClientNames() {
+        return client == null ? null : DisplayFormats.fullName(client.getNames(), client.getLastName());
+    }
+
+    public String getSellerNames() {
+        return seller == null ? null : DisplayFormats.fullName(seller.getNames(), seller.getLastName());
     }
 
-    private String formatDate(Date date) {
-        SimpleDateFormat formatter = new SimpleDateFormat("dd-MMM-yyyy HH:mm");
-        return formatter.format(date);
+    public String getFormattedDateTime() {
+        return DisplayFormats.dateTime(reservationDate);
     }
 }
\ No newline at end of file
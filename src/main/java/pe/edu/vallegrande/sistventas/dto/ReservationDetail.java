@@ -14,15 +14,16 @@ import pe.edu.vallegrande.sistventas.model.Product;
 @Table(name = "reservation_detail")
 public class ReservationDetail {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservation_detail_seq")
+    @SequenceGenerator(name = "reservation_detail_seq", sequenceName = "reservation_detail_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "reservation_id", nullable = false)
     @JsonBackReference
     private Reservation reservation;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
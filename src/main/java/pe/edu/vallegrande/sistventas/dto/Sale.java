@@ -6,9 +6,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import pe.edu.vallegrande.sistventas.model.Person;
 import pe.edu.vallegrande.sistventas.model.PaymentMethod;
+import pe.edu.vallegrande.sistventas.util.DisplayFormats;
 
-import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 
@@ -16,21 +15,53 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "sale")
+@NamedEntityGraphs({
+        // Vista de listado: cabecera con sus relaciones; los detalles se cargan por lotes
+        @NamedEntityGraph(name = "Sale.list", attributeNodes = {
+                @NamedAttributeNode("client"),
+                @NamedAttributeNode("seller"),
+                @NamedAttributeNode("paymentMethod")
+        }),
+        // Vista de detalle: cabecera, detalles, producto y categoría en una sola consulta
+        @NamedEntityGraph(name = "Sale.detail", attributeNodes = {
+                @NamedAttributeNode("client"),
+                @NamedAttributeNode("seller"),
+                @NamedAttributeNode("paymentMethod"),
+                @NamedAttributeNode(value = "saleDetails", subgraph = "saleDetails.product")
+        }, subgraphs = {
+                @NamedSubgraph(name = "saleDetails.product", attributeNodes = @NamedAttributeNode(value = "product", subgraph = "product.category")),
+                @NamedSubgraph(name = "product.category", attributeNodes = @NamedAttributeNode("categoryProduct"))
+        }),
+        // Vista de reporte: cabecera, detalles y producto (sin categoría)
+        @NamedEntityGraph(name = "Sale.report", attributeNodes = {
+                @NamedAttributeNode("client"),
+                @NamedAttributeNode("seller"),
+                @NamedAttributeNode("paymentMethod"),
+                @NamedAttributeNode(value = "saleDetails", subgraph = "saleDetails.product")
+        }, subgraphs = {
+                @NamedSubgraph(name = "saleDetails.product", attributeNodes = @NamedAttributeNode("product"))
+        })
+})
+@Table(name = "sale", indexes = {
+        @Index(name = "idx_sale_active_id", columnList = "active, id DESC"),
+        // Cubre los GROUP BY por rango de fechas de las estadísticas de ventas (sin leer la tabla)
+        @Index(name = "idx_sale_active_date", columnList = "active, date_time, seller_id, payment_method_id, total_sale")
+})
 public class Sale {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sale_seq")
+    @SequenceGenerator(name = "sale_seq", sequenceName = "sale_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "client_id", nullable = false)
     private Person client;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "seller_id", nullable = false)
     private Person seller;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "payment_method_id", nullable = false)
     private PaymentMethod paymentMethod;
 
@@ -44,15 +75,6 @@ public class Sale {
     @OneToMany(mappedBy = "sale", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<SaleDetail> saleDetails;
 
-    @Transient
-    private String clientNames;
-
-    @Transient
-    private String sellerNames;
-
-    @Transient
-    private String formattedDateTime;
-
     @Column(name = "total_sale")
     private Double totalSale;
 
@@ -63,23 +85,16 @@ public class Sale {
         }
     }
 
-    @PostLoad
-    @PostPersist
-    @PostUpdate
-    private void setTransientFields() {
-        if (client != null) {
-            this.clientNames = client.getNames() + " " + client.getLastName();
-        }
-        if (seller != null) {
-            this.sellerNames = seller.getNames() + " " + seller.getLastName();
-        }
-        if (dateTime != null) {
-            this.formattedDateTime = formatDate(dateTime);
-        }
+    // Campos de presentación: se calculan al serializar (o al pedirlos), no al cargar cada fila
+    public String getClientNames() {
+        return client == null ? null : DisplayFormats.fullName(client.getNames(), client.getLastName());
+    }
+
+    public String getSellerNames() {
+        return seller == null ? null : DisplayFormats.fullName(seller.getNames(), seller.getLastName());
     }
 
-    private String formatDate(Date date) {
-        SimpleDateFormat formatter = new SimpleDateFormat("dd-MMM-yyyy HH:mm");
-        return formatter.format(date);
+    public String getFormattedDateTime() {
+        return DisplayFormats.dateTime(dateTime);
     }
 }
@@ -0,0 +1,60 @@
+package pe.edu.vallegrande.sistventas.dto;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// Agregado diario de ventas activas por vendedor, método de pago y categoría de producto.
+// Lo mantiene SaleDailySummaryService en la misma transacción que cada cambio de venta.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@IdClass(SaleDailySummary.Key.class)
+@Table(name = "sale_daily_summary")
+public class SaleDailySummary {
+    @Id
+    @Column(name = "summary_date", nullable = false)
+    private LocalDate summaryDate;
+
+    @Id
+    @Column(name = "seller_id", nullable = false)
+    private Long sellerId;
+
+    @Id
+    @Column(name = "payment_method_id", nullable = false)
+    private Long paymentMethodId;
+
+    @Id
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId;
+
+    // Suma de los subtotales de las líneas de esta categoría
+    @Column(name = "total_amount", nullable = false)
+    private Double totalAmount;
+
+    // Suma de las cantidades vendidas
+    @Column(name = "quantity", nullable = false)
+    private Double quantity;
+
+    @Column(name = "line_count", nullable = false)
+    private Long lineCount;
+
+    // Ventas con al menos una línea de esta categoría (una venta con varias categorías cuenta en cada una)
+    @Column(name = "sale_count", nullable = false)
+    private Long saleCount;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate summaryDate;
+        private Long sellerId;
+        private Long paymentMethodId;
+        private Long categoryId;
+    }
+}
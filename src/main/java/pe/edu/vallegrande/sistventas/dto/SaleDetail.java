@@ -5,24 +5,30 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import pe.edu.vallegrande.sistventas.model.Product;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "sale_detail")
+@Table(name = "sale_detail", indexes = {
+        // Unión de la venta con sus líneas (Oracle no indexa solo las claves foráneas); con la categoría
+        // registrada cubre también el GROUP BY por categoría
+        @Index(name = "idx_sale_detail_sale", columnList = "sale_id, category_id, product_id, amount, subtotal_sale")
+})
 public class SaleDetail {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sale_detail_seq")
+    @SequenceGenerator(name = "sale_detail_seq", sequenceName = "sale_detail_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "sale_id", nullable = false)
     @JsonBackReference
     private Sale sale;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
@@ -31,4 +37,10 @@ public class SaleDetail {
 
     @Column(name = "subtotal_sale", nullable = true)
     private Double subtotalSale;
+
+    // Categoría del producto al momento de la venta: el agregado diario suma y resta con ella aunque el
+    // producto cambie de categoría después (la asigna el servicio, no el cliente)
+    @Column(name = "category_id")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long categoryId;
 }
@@ -0,0 +1,18 @@
+package pe.edu.vallegrande.sistventas.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Solicitud de lote de comprobantes: una lista de ids o un rango de fechas (inclusive, formato yyyy-MM-dd)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SaleReportBundleRequest {
+    private List<Long> saleIds;
+    private LocalDate from;
+    private LocalDate to;
+}
@@ -0,0 +1,25 @@
+package pe.edu.vallegrande.sistventas.dto.projection;
+
+import pe.edu.vallegrande.sistventas.util.DisplayFormats;
+
+import java.time.LocalDate;
+
+// Fila del listado de clientes y vendedores: sin salario ni contraseña.
+// Se arma desde la consulta JPQL; la fecha de nacimiento se formatea al serializar, no al leer la fila
+public record PersonSummary(Long id,
+                            String rolPerson,
+                            String typeDocument,
+                            String numberDocument,
+                            String names,
+                            String lastName,
+                            String cellPhone,
+                            String email,
+                            LocalDate birthdate,
+                            String sellerRol,
+                            String sellerUser,
+                            String active) {
+
+    public String getBirthdateFormatted() {
+        return DisplayFormats.date(birthdate);
+    }
+}
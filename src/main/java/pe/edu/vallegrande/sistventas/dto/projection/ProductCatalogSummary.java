@@ -0,0 +1,22 @@
+package pe.edu.vallegrande.sistventas.dto.projection;
+
+import pe.edu.vallegrande.sistventas.util.DisplayFormats;
+
+import java.time.LocalDate;
+
+// Fila del catálogo de productos para los POS: como ProductSummary pero sin el stock, que cambia con
+// cada venta y se consulta aparte. Así el ETag del catálogo solo cambia cuando cambian los productos
+public record ProductCatalogSummary(Long id,
+                                    String code,
+                                    String name,
+                                    Long categoryId,
+                                    String categoryName,
+                                    Double priceUnit,
+                                    String unitSale,
+                                    LocalDate dateExpiry,
+                                    String active) {
+
+    public String getDateExpiryFormatted() {
+        return DisplayFormats.date(dateExpiry);
+    }
+}
@@ -0,0 +1,7 @@
+package pe.edu.vallegrande.sistventas.dto.projection;
+
+// Proyección mínima de producto: id y id de su categoría
+public interface ProductCategoryView {
+    Long getId();
+    Long getCategoryId();
+}
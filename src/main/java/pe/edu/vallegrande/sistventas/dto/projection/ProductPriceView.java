@@ -0,0 +1,7 @@
+package pe.edu.vallegrande.sistventas.dto.projection;
+
+// Proyección mínima de producto: solo id y precio unitario
+public interface ProductPriceView {
+    Long getId();
+    Double getPriceUnit();
+}
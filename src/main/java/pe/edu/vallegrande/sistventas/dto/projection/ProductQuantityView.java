@@ -0,0 +1,7 @@
+package pe.edu.vallegrande.sistventas.dto.projection;
+
+// Proyección mínima de una línea de detalle: producto y cantidad
+public interface ProductQuantityView {
+    Long getProductId();
+    Double getAmount();
+}
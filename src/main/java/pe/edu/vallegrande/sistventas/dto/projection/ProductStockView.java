@@ -0,0 +1,7 @@
+package pe.edu.vallegrande.sistventas.dto.projection;
+
+// Proyección mínima de producto: solo id y stock
+public interface ProductStockView {
+    Long getId();
+    Double getStock();
+}
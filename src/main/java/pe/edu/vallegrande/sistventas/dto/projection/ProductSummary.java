@@ -0,0 +1,23 @@
+package pe.edu.vallegrande.sistventas.dto.projection;
+
+import pe.edu.vallegrande.sistventas.util.DisplayFormats;
+
+import java.time.LocalDate;
+
+// Fila del listado de productos: datos del producto con el nombre de su categoría.
+// Se arma desde la consulta JPQL; el vencimiento se formatea al serializar, no al leer la fila
+public record ProductSummary(Long id,
+                             String code,
+                             String name,
+                             Long categoryId,
+                             String categoryName,
+                             Double priceUnit,
+                             String unitSale,
+                             LocalDate dateExpiry,
+                             Double stock,
+                             String active) {
+
+    public String getDateExpiryFormatted() {
+        return DisplayFormats.date(dateExpiry);
+    }
+}
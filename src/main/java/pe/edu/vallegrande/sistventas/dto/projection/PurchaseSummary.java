@@ -0,0 +1,21 @@
+package pe.edu.vallegrande.sistventas.dto.projection;
+
+import pe.edu.vallegrande.sistventas.util.DisplayFormats;
+
+import java.util.Date;
+
+// Fila del listado de compras: solo cabecera y nombres, sin detalles ni datos de las personas.
+// Se arma desde la consulta JPQL; la fecha se formatea al serializar, no al leer la fila
+public record PurchaseSummary(Long id,
+                              Date dateTime,
+                              String nameCompany,
+                              String supplierNames,
+                              String sellerNames,
+                              String paymentMethodName,
+                              Double totalPurchase,
+                              String active) {
+
+    public String getFormattedDateTime() {
+        return DisplayFormats.dateTime(dateTime);
+    }
+}
@@ -0,0 +1,20 @@
+package pe.edu.vallegrande.sistventas.dto.projection;
+
+import pe.edu.vallegrande.sistventas.util.DisplayFormats;
+
+import java.util.Date;
+
+// Reservation list row: header and names only, without details or person data.
+// Built by the JPQL query; the date is formatted when serialized, not when the row is read
+public record ReservationSummary(Long id,
+                                 Date reservationDate,
+                                 String clientNames,
+                                 String sellerNames,
+                                 String paymentMethodName,
+                                 Double totalReservation,
+                                 String active) {
+
+    public String getFormattedDateTime() {
+        return DisplayFormats.dateTime(reservationDate);
+    }
+}
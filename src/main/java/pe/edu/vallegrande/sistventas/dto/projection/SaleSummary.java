@@ -0,0 +1,20 @@
+package pe.edu.vallegrande.sistventas.dto.projection;
+
+import pe.edu.vallegrande.sistventas.util.DisplayFormats;
+
+import java.util.Date;
+
+// Fila del listado de ventas: solo cabecera y nombres, sin detalles ni datos de las personas.
+// Se arma desde la consulta JPQL; la fecha se formatea al serializar, no al leer la fila
+public record SaleSummary(Long id,
+                          Date dateTime,
+                          String clientNames,
+                          String sellerNames,
+                          String paymentMethodName,
+                          Double totalSale,
+                          String active) {
+
+    public String getFormattedDateTime() {
+        return DisplayFormats.dateTime(dateTime);
+    }
+}
@@ -0,0 +1,5 @@
+package pe.edu.vallegrande.sistventas.dto.stats;
+
+// Total vendido de una categoría de producto; saleCount cuenta las ventas con al menos una línea de ella
+public record SalesCategoryTotal(Long id, String name, long saleCount, long lineCount, double quantity, double total) {
+}
@@ -0,0 +1,5 @@
+package pe.edu.vallegrande.sistventas.dto.stats;
+
+// Total de ventas activas de un grupo (vendedor o método de pago)
+public record SalesGroupTotal(Long id, String name, long saleCount, double total) {
+}
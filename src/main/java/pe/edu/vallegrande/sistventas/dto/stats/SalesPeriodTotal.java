@@ -0,0 +1,7 @@
+package pe.edu.vallegrande.sistventas.dto.stats;
+
+import java.time.LocalDate;
+
+// Total de ventas activas de un periodo (día, semana ISO o mes), identificado por su primer día
+public record SalesPeriodTotal(LocalDate periodStart, long saleCount, double total) {
+}
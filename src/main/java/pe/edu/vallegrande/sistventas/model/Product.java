@@ -1,10 +1,11 @@
 package pe.edu.vallegrande.sistventas.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import lombok.Setter;
+import pe.edu.vallegrande.sistventas.util.DisplayFormats;
 
 import java.time.LocalDate;
 
@@ -12,11 +13,13 @@ import java.time.LocalDate;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Table(name = "product")
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -47,12 +50,8 @@ public class Product {
     @Column(columnDefinition = "CHAR(1) DEFAULT 'A'")
     private String active;
 
-    // Campo adicional para almacenar la fecha de expiración formateada
-    @Setter
-    @Transient
-    private String dateExpiryFormatted;
-
-
-
-
+    // Fecha de expiración formateada: se calcula al serializar (o al pedirla), no al cargar cada fila
+    public String getDateExpiryFormatted() {
+        return DisplayFormats.date(dateExpiry);
+    }
 }
@@ -1,4 +1,7 @@
 package pe.edu.vallegrande.sistventas.repository;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,5 +15,20 @@ public interface CategoryRepo extends JpaRepository<CategoryProduct, Long>{
     Optional<CategoryProduct> findCategoryProductByName(String name);
     @Query("SELECT c FROM CategoryProduct c WHERE lower(c.name) = lower(:name)")
     Optional<CategoryProduct> findCategoryProductByNameIgnoreCase(@Param("name") String name);
+    // Listados en caché: las categorias cambian pocas veces al mes (ver spring.cache.* en properties)
+    @Cacheable("categories")
     List<CategoryProduct> findByActive(String active);
+    @Override
+    @Cacheable("categories")
+    List<CategoryProduct> findAll(Sort sort);
+    // Toda escritura invalida los listados en caché
+    @Override
+    @CacheEvict(value = "categories", allEntries = true)
+    <S extends CategoryProduct> S save(S entity);
+    @Override
+    @CacheEvict(value = "categories", allEntries = true)
+    <S extends CategoryProduct> List<S> saveAll(Iterable<S> entities);
+    @Override
+    @CacheEvict(value = "categories", allEntries = true)
+    void deleteById(Long id);
 }
@@ -1,10 +1,28 @@
 package pe.edu.vallegrande.sistventas.repository;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import pe.edu.vallegrande.sistventas.model.PaymentMethod;
 
 import java.util.List;
 
 public interface PaymentMethodRepo extends JpaRepository<PaymentMethod, Long> {
+    // Listados en caché: los métodos de pago casi no cambian (ver spring.cache.* en properties)
+    @Cacheable("paymentMethods")
     List<PaymentMethod> findByActive(String active);
+    @Override
+    @Cacheable("paymentMethods")
+    List<PaymentMethod> findAll(Sort sort);
+    // Toda escritura invalida los listados en caché
+    @Override
+    @CacheEvict(value = "paymentMethods", allEntries = true)
+    <S extends PaymentMethod> S save(S entity);
+    @Override
+    @CacheEvict(value = "paymentMethods", allEntries = true)
+    <S extends PaymentMethod> List<S> saveAll(Iterable<S> entities);
+    @Override
+    @CacheEvict(value = "paymentMethods", allEntries = true)
+    void deleteById(Long id);
 }
@@ -1,7 +1,10 @@
 package pe.edu.vallegrande.sistventas.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import pe.edu.vallegrande.sistventas.dto.projection.PersonSummary;
 import pe.edu.vallegrande.sistventas.model.Person;
 
 import java.util.List;
@@ -11,4 +14,14 @@ public interface PersonRepo extends JpaRepository<Person, Long> {
     List<Person> findByRolPersonAndNumberDocument(String rolPerson, String numberDocument);
     List<Person> findByRolPerson(String rolPerson);
     List<Person> findByRolPersonAndActive(String rolPerson, String active);
+    // Listado liviano de personas por rol (proyección, sin salario ni contraseña) en orden descendente
+    @Query("SELECT new pe.edu.vallegrande.sistventas.dto.projection.PersonSummary(p.id, p.rolPerson, p.typeDocument, p.numberDocument, p.names, " +
+            "p.lastName, p.cellPhone, p.email, p.birthdate, p.sellerRol, p.sellerUser, p.active) " +
+            "FROM Person p WHERE p.rolPerson = :rolPerson ORDER BY p.id DESC")
+    List<PersonSummary> findSummariesByRolPerson(@Param("rolPerson") String rolPerson);
+    // Listado liviano de personas por rol y estado (proyección) en orden descendente
+    @Query("SELECT new pe.edu.vallegrande.sistventas.dto.projection.PersonSummary(p.id, p.rolPerson, p.typeDocument, p.numberDocument, p.names, " +
+            "p.lastName, p.cellPhone, p.email, p.birthdate, p.sellerRol, p.sellerUser, p.active) " +
+            "FROM Person p WHERE p.rolPerson = :rolPerson AND p.active = :active ORDER BY p.id DESC")
+    List<PersonSummary> findSummariesByRolPersonAndActive(@Param("rolPerson") String rolPerson, @Param("active") String active);
 }
@@ -1,14 +1,22 @@
 package pe.edu.vallegrande.sistventas.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductCatalogSummary;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductCategoryView;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductPriceView;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductStockView;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductSummary;
 import pe.edu.vallegrande.sistventas.model.Person;
 import pe.edu.vallegrande.sistventas.model.Product;
 import pe.edu.vallegrande.sistventas.model.Supplier;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +27,43 @@ public interface ProductRepo  extends JpaRepository<Product, Long>{
     @Query("SELECT p FROM Product p WHERE lower(p.name) = lower(:name)")
     Optional<Product> findByNameIgnoreCase(@Param("name") String name);
     List<Product> findByActive(String active);
+    // Listado liviano de todos los productos (proyección) en orden descendente
+    @Query("SELECT new pe.edu.vallegrande.sistventas.dto.projection.ProductSummary(p.id, p.code, p.name, c.id, c.name, p.priceUnit, " +
+            "p.unitSale, p.dateExpiry, p.stock, p.active) " +
+            "FROM Product p JOIN p.categoryProduct c ORDER BY p.id DESC")
+    List<ProductSummary> findAllSummaries();
+    // Listado liviano de productos por estado (proyección) en orden descendente
+    @Query("SELECT new pe.edu.vallegrande.sistventas.dto.projection.ProductSummary(p.id, p.code, p.name, c.id, c.name, p.priceUnit, " +
+            "p.unitSale, p.dateExpiry, p.stock, p.active) " +
+            "FROM Product p JOIN p.categoryProduct c WHERE p.active = :active ORDER BY p.id DESC")
+    List<ProductSummary> findSummariesByActive(@Param("active") String active);
+    // Catálogo por estado, sin el stock (proyección) en orden descendente
+    @Query("SELECT new pe.edu.vallegrande.sistventas.dto.projection.ProductCatalogSummary(p.id, p.code, p.name, c.id, c.name, " +
+            "p.priceUnit, p.unitSale, p.dateExpiry, p.active) " +
+            "FROM Product p JOIN p.categoryProduct c WHERE p.active = :active ORDER BY p.id DESC")
+    List<ProductCatalogSummary> findCatalogByActive(@Param("active") String active);
+    // Stock de los productos por estado (proyección) en orden descendente
+    @Query("SELECT p.id AS id, p.stock AS stock FROM Product p WHERE p.active = :active ORDER BY p.id DESC")
+    List<ProductStockView> findStocksByActive(@Param("active") String active);
+    // Precios unitarios de varios productos en una sola consulta
+    @Query("SELECT p.id AS id, p.priceUnit AS priceUnit FROM Product p WHERE p.id IN :ids")
+    List<ProductPriceView> findPricesByIdIn(@Param("ids") Collection<Long> ids);
+    // Categoría de varios productos en una sola consulta
+    @Query("SELECT p.id AS id, p.categoryProduct.id AS categoryId FROM Product p WHERE p.id IN :ids")
+    List<ProductCategoryView> findCategoriesByIdIn(@Param("ids") Collection<Long> ids);
+    // Códigos y nombres ya registrados, usados por la importación masiva
+    @Query("SELECT p.code FROM Product p WHERE p.code IN :codes")
+    List<String> findExistingCodes(@Param("codes") Collection<String> codes);
+    // Los nombres se reciben y se devuelven en minúsculas
+    @Query("SELECT lower(p.name) FROM Product p WHERE lower(p.name) IN :names")
+    List<String> findExistingNames(@Param("names") Collection<String> names);
+    // Descuento atómico de stock: solo afecta la fila si alcanza el stock (0 filas = stock insuficiente)
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE product SET stock = stock - :quantity WHERE id = :id AND stock >= :quantity", nativeQuery = true)
+    int decrementStock(@Param("id") Long id, @Param("quantity") Double quantity);
+    @Query("SELECT p.stock FROM Product p WHERE p.id = :id")
+    Optional<Double> findStockById(@Param("id") Long id);
     // Buscar productos por fecha de vencimiento dentro de un rango dado
     List<Product> findByDateExpiryBetween(LocalDate startDate, LocalDate endDate);
     // Buscar productos con stock menor que un valor dado
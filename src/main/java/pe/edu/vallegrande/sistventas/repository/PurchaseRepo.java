@@ -1,12 +1,74 @@
 package pe.edu.vallegrande.sistventas.repository;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import pe.edu.vallegrande.sistventas.dto.Purchase;
+import pe.edu.vallegrande.sistventas.dto.projection.PurchaseSummary;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface PurchaseRepo extends JpaRepository<Purchase, Long> {
+    // Listado completo con proveedor, vendedor y método de pago en la misma consulta
+    @Override
+    @EntityGraph("Purchase.list")
+    List<Purchase> findAll();
+
+    // Búsqueda por ID usada en actualizaciones y cambios de estado
+    @Override
+    @EntityGraph("Purchase.list")
+    Optional<Purchase> findById(Long id);
+
+    // Compra con todos sus detalles, productos y categorías para la vista de detalle
+    @EntityGraph("Purchase.detail")
+    Optional<Purchase> findDetailById(Long id);
+
+    // Compra con sus detalles y productos para los reportes
+    @EntityGraph("Purchase.report")
+    Optional<Purchase> findReportById(Long id);
+
     // Nuevo método para encontrar compras por estado
+    @EntityGraph("Purchase.list")
     List<Purchase> findByActive(String active);
 
+    // Listado liviano de compras (proyección) en orden descendente
+    @Query("SELECT new pe.edu.vallegrande.sistventas.dto.projection.PurchaseSummary(p.id, p.dateTime, su.nameCompany, CONCAT(su.names, ' ', su.lastName), " +
+            "CONCAT(v.names, ' ', v.lastName), pm.name, p.totalPurchase, p.active) " +
+            "FROM Purchase p JOIN p.supplier su JOIN p.seller v JOIN p.paymentMethod pm ORDER BY p.id DESC")
+    List<PurchaseSummary> findAllSummaries();
+
+    // Listado liviano de compras por estado (proyección) en orden descendente
+    @Query("SELECT new pe.edu.vallegrande.sistventas.dto.projection.PurchaseSummary(p.id, p.dateTime, su.nameCompany, CONCAT(su.names, ' ', su.lastName), " +
+            "CONCAT(v.names, ' ', v.lastName), pm.name, p.totalPurchase, p.active) " +
+            "FROM Purchase p JOIN p.supplier su JOIN p.seller v JOIN p.paymentMethod pm " +
+            "WHERE p.active = :active ORDER BY p.id DESC")
+    List<PurchaseSummary> findSummariesByActive(@Param("active") String active);
+
+    // Página liviana por estado (proyección, modo offset); el orden lo da el Pageable y usa el índice (active, id desc)
+    @Query(value = "SELECT new pe.edu.vallegrande.sistventas.dto.projection.PurchaseSummary(p.id, p.dateTime, su.nameCompany, CONCAT(su.names, ' ', su.lastName), " +
+            "CONCAT(v.names, ' ', v.lastName), pm.name, p.totalPurchase, p.active) " +
+            "FROM Purchase p JOIN p.supplier su JOIN p.seller v JOIN p.paymentMethod pm " +
+            "WHERE p.active = :active",
+            countQuery = "SELECT COUNT(p) FROM Purchase p WHERE p.active = :active")
+    Page<PurchaseSummary> findSummariesByActive(@Param("active") String active, Pageable pageable);
+
+    // Primera página por cursor (proyección): las compras más recientes del estado dado
+    @Query("SELECT new pe.edu.vallegrande.sistventas.dto.projection.PurchaseSummary(p.id, p.dateTime, su.nameCompany, CONCAT(su.names, ' ', su.lastName), " +
+            "CONCAT(v.names, ' ', v.lastName), pm.name, p.totalPurchase, p.active) " +
+            "FROM Purchase p JOIN p.supplier su JOIN p.seller v JOIN p.paymentMethod pm " +
+            "WHERE p.active = :active ORDER BY p.id DESC")
+    List<PurchaseSummary> findSummariesByActive(@Param("active") String active, Limit limit);
+
+    // Páginas siguientes por cursor (keyset, proyección): compras con id menor al último visto
+    @Query("SELECT new pe.edu.vallegrande.sistventas.dto.projection.PurchaseSummary(p.id, p.dateTime, su.nameCompany, CONCAT(su.names, ' ', su.lastName), " +
+            "CONCAT(v.names, ' ', v.lastName), pm.name, p.totalPurchase, p.active) " +
+            "FROM Purchase p JOIN p.supplier su JOIN p.seller v JOIN p.paymentMethod pm " +
+            "WHERE p.active = :active AND p.id < :lastId ORDER BY p.id DESC")
+    List<PurchaseSummary> findSummariesByActiveAndIdLessThan(@Param("active") String active, @Param("lastId") Long lastId, Limit limit);
+
 }
@@ -1,7 +1,16 @@
 package pe.edu.vallegrande.sistventas.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import pe.edu.vallegrande.sistventas.dto.ReservationDetail;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductQuantityView;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface ReservationDetailRepo extends JpaRepository<ReservationDetail, Long> {
+    // Reserved quantities of several reservations, without loading details or products
+    @Query("SELECT d.product.id AS productId, d.amount AS amount FROM ReservationDetail d WHERE d.reservation.id IN :reservationIds")
+    List<ProductQuantityView> findQuantitiesByReservationIds(@Param("reservationIds") Collection<Long> reservationIds);
 }
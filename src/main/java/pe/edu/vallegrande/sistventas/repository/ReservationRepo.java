@@ -1,11 +1,114 @@
 package pe.edu.vallegrande.sistventas.repository;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import pe.edu.vallegrande.sistventas.dto.Reservation;
+import pe.edu.vallegrande.sistventas.dto.projection.ReservationSummary;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 public interface ReservationRepo extends JpaRepository<Reservation, Long> {
+    // Full list with client, seller and payment method in the same query
+    @Override
+    @EntityGraph("Reservation.list")
+    List<Reservation> findAll();
+
+    // Lookup by ID used by updates and status changes
+    @Override
+    @EntityGraph("Reservation.list")
+    Optional<Reservation> findById(Long id);
+
+    // Lookup by ID that locks the reservation row (FOR UPDATE) until the transaction ends, so an
+    // update and the hold sweeper never change the same reservation at the same time
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Reservation r WHERE r.id = :id")
+    Optional<Reservation> findForUpdateById(@Param("id") Long id);
+
+    // Reservation with all its details, products and categories for the detail view
+    @EntityGraph("Reservation.detail")
+    Optional<Reservation> findDetailById(Long id);
+
+    // Reservation with its details and products for reports
+    @EntityGraph("Reservation.report")
+    Optional<Reservation> findReportById(Long id);
+
     // Method to find reservations by active status
+    @EntityGraph("Reservation.list")
     List<Reservation> findByActive(String active);
-}
\ No newline at end of file
+
+    // Lightweight reservation list (projection) in descending order
+    @Query("SELECT new pe.edu.vallegrande.sistventas.dto.projection.ReservationSummary(r.id, r.reservationDate, CONCAT(c.names, ' ', c.lastName), " +
+            "CONCAT(v.names, ' ', v.lastName), pm.name, r.totalReservation, r.active) " +
+            "FROM Reservation r JOIN r.client c JOIN r.seller v JOIN r.paymentMethod pm ORDER BY r.id DESC")
+    List<ReservationSummary> findAllSummaries();
+
+    // Lightweight reservation list by status (projection) in descending order
+    @Query("SELECT new pe.edu.vallegrande.sistventas.dto.projection.ReservationSummary(r.id, r.reservationDate, CONCAT(c.names, ' ', c.lastName), " +
+            "CONCAT(v.names, ' ', v.lastName), pm.name, r.totalReservation, r.active) " +
+            "FROM Reservation r JOIN r.client c JOIN r.seller v JOIN r.paymentMethod pm " +
+            "WHERE r.active = :active ORDER BY r.id DESC")
+    List<ReservationSummary> findSummariesByActive(@Param("active") String active);
+
+    // Lightweight page by status (projection, offset mode); ordered by the Pageable, backed by the (active, id desc) index
+    @Query(value = "SELECT new pe.edu.vallegrande.sistventas.dto.projection.ReservationSummary(r.id, r.reservationDate, CONCAT(c.names, ' ', c.lastName), " +
+            "CONCAT(v.names, ' ', v.lastName), pm.name, r.totalReservation, r.active) " +
+            "FROM Reservation r JOIN r.client c JOIN r.seller v JOIN r.paymentMethod pm " +
+            "WHERE r.active = :active",
+            countQuery = "SELECT COUNT(r) FROM Reservation r WHERE r.active = :active")
+    Page<ReservationSummary> findSummariesByActive(@Param("active") String active, Pageable pageable);
+
+    // First cursor page (projection): most recent reservations for the given status
+    @Query("SELECT new pe.edu.vallegrande.sistventas.dto.projection.ReservationSummary(r.id, r.reservationDate, CONCAT(c.names, ' ', c.lastName), " +
+            "CONCAT(v.names, ' ', v.lastName), pm.name, r.totalReservation, r.active) " +
+            "FROM Reservation r JOIN r.client c JOIN r.seller v JOIN r.paymentMethod pm " +
+            "WHERE r.active = :active ORDER BY r.id DESC")
+    List<ReservationSummary> findSummariesByActive(@Param("active") String active, Limit limit);
+
+    // Next cursor pages (keyset, projection): reservations with an id lower than the last one seen
+    @Query("SELECT new pe.edu.vallegrande.sistventas.dto.projection.ReservationSummary(r.id, r.reservationDate, CONCAT(c.names, ' ', c.lastName), " +
+            "CONCAT(v.names, ' ', v.lastName), pm.name, r.totalReservation, r.active) " +
+            "FROM Reservation r JOIN r.client c JOIN r.seller v JOIN r.paymentMethod pm " +
+            "WHERE r.active = :active AND r.id < :lastId ORDER BY r.id DESC")
+    List<ReservationSummary> findSummariesByActiveAndIdLessThan(@Param("active") String active, @Param("lastId") Long lastId, Limit limit);
+
+    // Expired pending holds, oldest first (backed by the (hold_status, hold_expires_at) index)
+    @Query("SELECT r.id FROM Reservation r WHERE r.holdStatus = 'P' AND r.holdExpiresAt <= :now ORDER BY r.holdExpiresAt")
+    List<Long> findExpiredHoldIds(@Param("now") Date now, Limit limit);
+
+    // Locks the given reservations whose hold is still pending and expired, so a concurrent
+    // confirmation or cancellation waits for the sweeper and then sees the released hold
+    @Query(value = "SELECT id FROM reservation WHERE id IN (:ids) AND hold_status = 'P' AND hold_expires_at <= :now FOR UPDATE",
+            nativeQuery = true)
+    List<Number> lockExpiredHolds(@Param("ids") Collection<Long> ids, @Param("now") Date now);
+
+    // Confirms a pending hold that has not expired yet (0 rows = not pending or already expired)
+    @Modifying
+    @Query("UPDATE Reservation r SET r.holdStatus = 'C', r.holdExpiresAt = NULL " +
+            "WHERE r.id = :id AND r.active = 'A' AND r.holdStatus = 'P' AND r.holdExpiresAt > :now")
+    int confirmHold(@Param("id") Long id, @Param("now") Date now);
+
+    // Cancels reservations and marks their holds released; only the caller that gets the rows
+    // updated gives the stock back, so cancellation and expiry never release twice
+    @Modifying
+    @Query("UPDATE Reservation r SET r.active = 'I', r.holdStatus = 'R', r.holdExpiresAt = NULL " +
+            "WHERE r.id IN :ids AND r.active = 'A' AND r.holdStatus IN ('P', 'C')")
+    int releaseHolds(@Param("ids") Collection<Long> ids);
+
+    // Reactivates a cancelled reservation with a confirmed hold (0 rows = it was not inactive, or it
+    // still holds its stock, so the caller never takes the stock a second time)
+    @Modifying
+    @Query("UPDATE Reservation r SET r.active = 'A', r.holdStatus = 'C', r.holdExpiresAt = NULL " +
+            "WHERE r.id = :id AND r.active = 'I' AND (r.holdStatus IS NULL OR r.holdStatus = 'R')")
+    int reactivateWithHold(@Param("id") Long id);
+}
@@ -0,0 +1,12 @@
+package pe.edu.vallegrande.sistventas.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import pe.edu.vallegrande.sistventas.dto.SaleDailySummary;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SaleDailySummaryRepo extends JpaRepository<SaleDailySummary, SaleDailySummary.Key> {
+    // Filas del agregado para un rango de días (unos cientos por mes)
+    List<SaleDailySummary> findBySummaryDateBetweenOrderBySummaryDate(LocalDate from, LocalDate to);
+}
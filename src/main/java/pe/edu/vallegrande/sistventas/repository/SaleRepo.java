@@ -1,12 +1,79 @@
 package pe.edu.vallegrande.sistventas.repository;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import pe.edu.vallegrande.sistventas.dto.Sale;
+import pe.edu.vallegrande.sistventas.dto.projection.SaleSummary;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 public interface SaleRepo extends JpaRepository<Sale, Long> {
+    // Listado completo con cliente, vendedor y método de pago en la misma consulta
+    @Override
+    @EntityGraph("Sale.list")
+    List<Sale> findAll();
+
+    // Búsqueda por ID usada en actualizaciones y cambios de estado
+    @Override
+    @EntityGraph("Sale.list")
+    Optional<Sale> findById(Long id);
+
+    // Venta con todos sus detalles, productos y categorías para la vista de detalle
+    @EntityGraph("Sale.detail")
+    Optional<Sale> findDetailById(Long id);
+
+    // Venta con sus detalles y productos para los reportes
+    @EntityGraph("Sale.report")
+    Optional<Sale> findReportById(Long id);
+
     // Nuevo método para encontrar ventas por estado
+    @EntityGraph("Sale.list")
     List<Sale> findByActive(String active);
 
+    // Listado liviano de ventas (proyección) en orden descendente
+    @Query("SELECT new pe.edu.vallegrande.sistventas.dto.projection.SaleSummary(s.id, s.dateTime, CONCAT(c.names, ' ', c.lastName), " +
+            "CONCAT(v.names, ' ', v.lastName), pm.name, s.totalSale, s.active) " +
+            "FROM Sale s JOIN s.client c JOIN s.seller v JOIN s.paymentMethod pm ORDER BY s.id DESC")
+    List<SaleSummary> findAllSummaries();
+
+    // Listado liviano de ventas por estado (proyección) en orden descendente
+    @Query("SELECT new pe.edu.vallegrande.sistventas.dto.projection.SaleSummary(s.id, s.dateTime, CONCAT(c.names, ' ', c.lastName), " +
+            "CONCAT(v.names, ' ', v.lastName), pm.name, s.totalSale, s.active) " +
+            "FROM Sale s JOIN s.client c JOIN s.seller v JOIN s.paymentMethod pm " +
+            "WHERE s.active = :active ORDER BY s.id DESC")
+    List<SaleSummary> findSummariesByActive(@Param("active") String active);
+
+    // Página liviana por estado (proyección, modo offset); el orden lo da el Pageable y usa el índice (active, id desc)
+    @Query(value = "SELECT new pe.edu.vallegrande.sistventas.dto.projection.SaleSummary(s.id, s.dateTime, CONCAT(c.names, ' ', c.lastName), " +
+            "CONCAT(v.names, ' ', v.lastName), pm.name, s.totalSale, s.active) " +
+            "FROM Sale s JOIN s.client c JOIN s.seller v JOIN s.paymentMethod pm " +
+            "WHERE s.active = :active",
+            countQuery = "SELECT COUNT(s) FROM Sale s WHERE s.active = :active")
+    Page<SaleSummary> findSummariesByActive(@Param("active") String active, Pageable pageable);
+
+    // Primera página por cursor (proyección): las ventas más recientes del estado dado
+    @Query("SELECT new pe.edu.vallegrande.sistventas.dto.projection.SaleSummary(s.id, s.dateTime, CONCAT(c.names, ' ', c.lastName), " +
+            "CONCAT(v.names, ' ', v.lastName), pm.name, s.totalSale, s.active) " +
+            "FROM Sale s JOIN s.client c JOIN s.seller v JOIN s.paymentMethod pm " +
+            "WHERE s.active = :active ORDER BY s.id DESC")
+    List<SaleSummary> findSummariesByActive(@Param("active") String active, Limit limit);
+
+    // Páginas siguientes por cursor (keyset, proyección): ventas con id menor al último visto
+    @Query("SELECT new pe.edu.vallegrande.sistventas.dto.projection.SaleSummary(s.id, s.dateTime, CONCAT(c.names, ' ', c.lastName), " +
+            "CONCAT(v.names, ' ', v.lastName), pm.name, s.totalSale, s.active) " +
+            "FROM Sale s JOIN s.client c JOIN s.seller v JOIN s.paymentMethod pm " +
+            "WHERE s.active = :active AND s.id < :lastId ORDER BY s.id DESC")
+    List<SaleSummary> findSummariesByActiveAndIdLessThan(@Param("active") String active, @Param("lastId") Long lastId, Limit limit);
+
+    // Ids de las ventas activas de un rango [from, to) en orden cronológico (lote de comprobantes)
+    @Query("SELECT s.id FROM Sale s WHERE s.active = 'A' AND s.dateTime >= :from AND s.dateTime < :to " +
+            "ORDER BY s.dateTime, s.id")
+    List<Long> findActiveIdsByDateTimeRange(@Param("from") Date from, @Param("to") Date to, Limit limit);
 }
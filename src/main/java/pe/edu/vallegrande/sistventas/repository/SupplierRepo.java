@@ -1,5 +1,7 @@
 package pe.edu.vallegrande.sistventas.repository;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import pe.edu.vallegrande.sistventas.model.Supplier;
@@ -10,5 +12,20 @@ import java.util.Optional;
 public interface SupplierRepo extends JpaRepository<Supplier, Long> {
     Optional<Supplier> findSupplierByNumberDocument(String numberDocument);
     List<Supplier> findByNumberDocument(String numberDocument);
+    // Listados en caché: los proveedores cambian pocas veces al mes (ver spring.cache.* en properties)
+    @Cacheable("suppliers")
     List<Supplier> findByActive(String active);
+    @Override
+    @Cacheable("suppliers")
+    List<Supplier> findAll();
+    // Toda escritura invalida los listados en caché
+    @Override
+    @CacheEvict(value = "suppliers", allEntries = true)
+    <S extends Supplier> S save(S entity);
+    @Override
+    @CacheEvict(value = "suppliers", allEntries = true)
+    <S extends Supplier> List<S> saveAll(Iterable<S> entities);
+    @Override
+    @CacheEvict(value = "suppliers", allEntries = true)
+    void deleteById(Long id);
 }
@@ -0,0 +1,26 @@
+package pe.edu.vallegrande.sistventas.rest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import pe.edu.vallegrande.sistventas.service.CacheStatsService;
+
+import java.util.Map;
+
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("api/v1/cache")
+public class CacheController {
+    private final CacheStatsService cacheStatsService;
+
+    @Autowired
+    public CacheController(CacheStatsService cacheStatsService) {
+        this.cacheStatsService = cacheStatsService;
+    }
+
+    // Endpoint para consultar aciertos/fallos de las cachés de datos de referencia
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(cacheStatsService.getCacheStats());
+    }
+}
@@ -1,13 +1,6 @@
 package pe.edu.vallegrande.sistventas.rest;
 import net.sf.jasperreports.engine.JRException;
-import net.sf.jasperreports.engine.JasperExportManager;
-import net.sf.jasperreports.engine.JasperFillManager;
-import net.sf.jasperreports.engine.JasperPrint;
 import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
-import net.sf.jasperreports.engine.export.ooxml.JRXlsxExporter;
-import net.sf.jasperreports.export.SimpleExporterInput;
-import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
-import net.sf.jasperreports.export.SimpleXlsxExporterConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
@@ -18,32 +11,37 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pe.edu.vallegrande.sistventas.model.CategoryProduct;
 import pe.edu.vallegrande.sistventas.model.reports.CategoryReportData;
+import pe.edu.vallegrande.sistventas.service.CatalogVersions;
+import pe.edu.vallegrande.sistventas.service.CatalogVersions.Catalog;
 import pe.edu.vallegrande.sistventas.service.CategoryService;
+import pe.edu.vallegrande.sistventas.service.ExcelExportService;
+import pe.edu.vallegrande.sistventas.service.ReportDataService;
+import pe.edu.vallegrande.sistventas.service.ReportService;
 
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
-import java.math.BigDecimal;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @CrossOrigin(origins = "*")
 @RestController
 @RequestMapping("api/v1/categories")
 public class CategoryController {
     private final CategoryService categoryService;
+    private final ReportService reportService;
+    private final ReportDataService reportDataService;
+    private final ExcelExportService excelExportService;
+    private final CatalogVersions catalogVersions;
     private static final Logger logger = LoggerFactory.getLogger(CategoryController.class);
 
     @Autowired
-    public CategoryController(CategoryService categoryService){
+    public CategoryController(CategoryService categoryService, ReportService reportService, ReportDataService reportDataService,
+                              ExcelExportService excelExportService, CatalogVersions catalogVersions){
         this.categoryService = categoryService;
+        this.reportService = reportService;
+        this.reportDataService = reportDataService;
+        this.excelExportService = excelExportService;
+        this.catalogVersions = catalogVersions;
     }
 
     // Endpoint para obtener el recuento total de categorías
@@ -52,10 +50,10 @@ public class CategoryController {
         return categoryService.countCategories();
     }
 
-    // Endpoint para listar todas las categorias
+    // Endpoint para listar todas las categorias (304 si no hubo cambios)
     @GetMapping
-    public ResponseEntity<List<CategoryProduct>> getAllCategories() {
-        return categoryService.getCategories();
+    public ResponseEntity<List<CategoryProduct>> getAllCategories(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return catalogVersions.conditional(ifNoneMatch, categoryService::getCategories, Catalog.CATEGORIES);
     }
     // Endpoint para buscar una persona por número de documento y rol "V"
     @GetMapping("/exists")
@@ -68,16 +66,16 @@ public class CategoryController {
         }
     }
 
-    // Endpoint para listar categorias activos
+    // Endpoint para listar categorias activos (304 si no hubo cambios)
     @GetMapping("/active")
-    public ResponseEntity<List<CategoryProduct>> getActiveCategories() {
-        return categoryService.getActiveCategories();
+    public ResponseEntity<List<CategoryProduct>> getActiveCategories(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return catalogVersions.conditional(ifNoneMatch, categoryService::getActiveCategories, Catalog.CATEGORIES);
     }
 
-    // Endpoint para listar categorias inactivos
+    // Endpoint para listar categorias inactivos (304 si no hubo cambios)
     @GetMapping("/inactive")
-    public ResponseEntity<List<CategoryProduct>> getInactiveCategories() {
-        return categoryService.getInactiveCategories();
+    public ResponseEntity<List<CategoryProduct>> getInactiveCategories(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return catalogVersions.conditional(ifNoneMatch, categoryService::getInactiveCategories, Catalog.CATEGORIES);
     }
 
     // Endpoint para obtener un cliente por su ID
@@ -131,48 +129,22 @@ public class CategoryController {
     @GetMapping("/report")
     public ResponseEntity<byte[]> generateReport() {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_category.jasper");
             // Obtener los datos para el reporte
-            ResponseEntity<List<CategoryProduct>> responseEntity = this.categoryService.getActiveCategories();
-            List<CategoryProduct> categories = responseEntity.getBody();
-            // Convertir los objetos Person a ClientReportData
-            List<CategoryReportData> categoryReportData = categories.stream()
-                    .map(category -> {
-                        CategoryReportData data = new CategoryReportData();
-                        data.setID(BigDecimal.valueOf(category.getId()));
-                        data.setNAME(category.getName());
-                        data.setDESCRIPTION(category.getDescription());
-                        return data;
-                    })
-                    .collect(Collectors.toList());
+            List<CategoryReportData> categoryReportData = this.reportDataService.getCategories(true);
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(categoryReportData);
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-            // Exportar el reporte a un array de bytes
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JasperExportManager.exportReportToPdfStream(jasperPrint, byteArrayOutputStream);
+            // Llenar el reporte con la plantilla en caché y exportarlo a PDF
+            byte[] report = reportService.exportPdf("report_category", dataSource);
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("category_report.pdf").build());
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
         } catch (JRException e) {
             logger.error("Error generating report: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
-        } catch (ParserConfigurationException e) {
-            logger.error("Error configuring document builder: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new byte[0]);
         } catch (Exception e) {
             logger.error("Unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -183,55 +155,22 @@ public class CategoryController {
     @GetMapping("/report/excel")
     public ResponseEntity<byte[]> generateExcelReport() {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_category.jasper");
             // Obtener los datos para el reporte
-            ResponseEntity<List<CategoryProduct>> responseEntity = this.categoryService.getActiveCategories();
-            List<CategoryProduct> categories = responseEntity.getBody();
-            // Convertir los objetos Person a ClientReportData
-            List<CategoryReportData> categoryReportData = categories.stream()
-                    .map(category -> {
-                        CategoryReportData data = new CategoryReportData();
-                        data.setID(BigDecimal.valueOf(category.getId()));
-                        data.setNAME(category.getName());
-                        data.setDESCRIPTION(category.getDescription());
-                        return data;
-                    })
-                    .collect(Collectors.toList());
+            List<CategoryReportData> categoryReportData = this.reportDataService.getCategories(true);
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(categoryReportData);
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-            // Exportar el reporte a un array de bytes en formato XLSX
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JRXlsxExporter exporter = new JRXlsxExporter();
-            SimpleExporterInput exporterInput = new SimpleExporterInput(jasperPrint);
-            SimpleOutputStreamExporterOutput exporterOutput = new SimpleOutputStreamExporterOutput(byteArrayOutputStream);
-            SimpleXlsxExporterConfiguration configuration = new SimpleXlsxExporterConfiguration();
-            exporter.setExporterInput(exporterInput);
-            exporter.setExporterOutput(exporterOutput);
-            exporter.setConfiguration(configuration);
-            exporter.exportReport();
+            // Llenar el reporte con la plantilla en caché y exportarlo a XLSX
+            byte[] report = reportService.exportXlsx("report_category", dataSource);
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("client_report.xlsx").build());
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
         } catch (JRException e) {
             logger.error("Error generating report: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
-        } catch (ParserConfigurationException e) {
-            logger.error("Error configuring document builder: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new byte[0]);
         } catch (Exception e) {
             logger.error("Unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -243,48 +182,22 @@ public class CategoryController {
     @GetMapping("/inactive/report")
     public ResponseEntity<byte[]> generateReportInactive() {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_category.jasper");
             // Obtener los datos para el reporte
-            ResponseEntity<List<CategoryProduct>> responseEntity = this.categoryService.getInactiveCategories();
-            List<CategoryProduct> categories = responseEntity.getBody();
-            // Convertir los objetos Person a ClientReportData
-            List<CategoryReportData> categoryReportData = categories.stream()
-                    .map(category -> {
-                        CategoryReportData data = new CategoryReportData();
-                        data.setID(BigDecimal.valueOf(category.getId()));
-                        data.setNAME(category.getName());
-                        data.setDESCRIPTION(category.getDescription());
-                        return data;
-                    })
-                    .collect(Collectors.toList());
+            List<CategoryReportData> categoryReportData = this.reportDataService.getCategories(false);
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(categoryReportData);
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-            // Exportar el reporte a un array de bytes
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JasperExportManager.exportReportToPdfStream(jasperPrint, byteArrayOutputStream);
+            // Llenar el reporte con la plantilla en caché y exportarlo a PDF
+            byte[] report = reportService.exportPdf("report_category", dataSource);
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("client_report.pdf").build());
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
         } catch (JRException e) {
             logger.error("Error generating report: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
-        } catch (ParserConfigurationException e) {
-            logger.error("Error configuring document builder: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new byte[0]);
         } catch (Exception e) {
             logger.error("Unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -294,59 +207,32 @@ public class CategoryController {
     @GetMapping("inactive/report/excel")
     public ResponseEntity<byte[]> generateExcelReportInactive() {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_category.jasper");
             // Obtener los datos para el reporte
-            ResponseEntity<List<CategoryProduct>> responseEntity = this.categoryService.getInactiveCategories();
-            List<CategoryProduct> categories = responseEntity.getBody();
-            // Convertir los objetos Person a ClientReportData
-            List<CategoryReportData> categoryReportData = categories.stream()
-                    .map(category -> {
-                        CategoryReportData data = new CategoryReportData();
-                        data.setID(BigDecimal.valueOf(category.getId()));
-                        data.setNAME(category.getName());
-                        data.setDESCRIPTION(category.getDescription());
-                        return data;
-                    })
-                    .collect(Collectors.toList());
+            List<CategoryReportData> categoryReportData = this.reportDataService.getCategories(false);
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(categoryReportData);
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-            // Exportar el reporte a un array de bytes en formato XLSX
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JRXlsxExporter exporter = new JRXlsxExporter();
-            SimpleExporterInput exporterInput = new SimpleExporterInput(jasperPrint);
-            SimpleOutputStreamExporterOutput exporterOutput = new SimpleOutputStreamExporterOutput(byteArrayOutputStream);
-            SimpleXlsxExporterConfiguration configuration = new SimpleXlsxExporterConfiguration();
-            exporter.setExporterInput(exporterInput);
-            exporter.setExporterOutput(exporterOutput);
-            exporter.setConfiguration(configuration);
-            exporter.exportReport();
+            // Llenar el reporte con la plantilla en caché y exportarlo a XLSX
+            byte[] report = reportService.exportXlsx("report_category", dataSource);
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("client_report.xlsx").build());
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
         } catch (JRException e) {
             logger.error("Error generating report: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
-        } catch (ParserConfigurationException e) {
-            logger.error("Error configuring document builder: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new byte[0]);
         } catch (Exception e) {
             logger.error("Unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
         }
     }
+
+    // Exportación a Excel en streaming (SXSSF, sin Jasper) para listas grandes; active = A o I
+    @GetMapping("/export/excel")
+    public ResponseEntity<StreamingResponseBody> exportExcel(@RequestParam(defaultValue = "A") String active) {
+        return this.excelExportService.download(ExcelExportService.Dataset.CATEGORIES, active, "category_export.xlsx");
+    }
 }
@@ -1,11 +1,7 @@
 package pe.edu.vallegrande.sistventas.rest;
 
-import net.sf.jasperreports.engine.*;
+import net.sf.jasperreports.engine.JRException;
 import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
-import net.sf.jasperreports.engine.export.ooxml.JRXlsxExporter;
-import net.sf.jasperreports.export.SimpleExporterInput;
-import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
-import net.sf.jasperreports.export.SimpleXlsxExporterConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
@@ -13,32 +9,34 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pe.edu.vallegrande.sistventas.model.reports.ClientReportData;
+import pe.edu.vallegrande.sistventas.dto.projection.PersonSummary;
 import pe.edu.vallegrande.sistventas.model.Person;
 import pe.edu.vallegrande.sistventas.service.ClientService;
+import pe.edu.vallegrande.sistventas.service.ExcelExportService;
+import pe.edu.vallegrande.sistventas.service.ReportDataService;
+import pe.edu.vallegrande.sistventas.service.ReportService;
 
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
-import java.math.BigDecimal;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @CrossOrigin(origins = "*")
 @RestController
 @RequestMapping("api/v1/clients")
 public class ClientController {
     private final ClientService clientService;
+    private final ReportService reportService;
+    private final ReportDataService reportDataService;
+    private final ExcelExportService excelExportService;
     private static final Logger logger = LoggerFactory.getLogger(ClientController.class);
 
     @Autowired
-    public ClientController(ClientService clientService){
+    public ClientController(ClientService clientService, ReportService reportService, ReportDataService reportDataService,
+                            ExcelExportService excelExportService){
         this.clientService = clientService;
+        this.reportService = reportService;
+        this.reportDataService = reportDataService;
+        this.excelExportService = excelExportService;
     }
     // Endpoint para listar todas las personas
     @GetMapping
@@ -57,20 +55,20 @@ public class ClientController {
     }
     // Endpoint para listar todos los clientes
     @GetMapping("/list")
-    public List<Person> getAllClients() {
+    public List<PersonSummary> getAllClients() {
         return this.clientService.getClients();
     }
 
     // Endpoint para listar clientes activos
     @GetMapping("/active")
-    public List<Person> getActiveClients() {
-        return this.clientService.getActiveClients();
+    public List<PersonSummary> getActiveClients() {
+        return this.clientService.getActiveClientSummaries();
     }
 
     // Endpoint para listar clientes inactivos
     @GetMapping("/inactive")
-    public List<Person> getInactiveClients() {
-        return this.clientService.getInactiveClients();
+    public List<PersonSummary> getInactiveClients() {
+        return this.clientService.getInactiveClientSummaries();
     }
 
     // Endpoint para obtener un cliente por su ID
@@ -124,52 +122,22 @@ public class ClientController {
     @GetMapping("/report")
     public ResponseEntity<byte[]> generateReport() {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_client.jasper");
             // Obtener los datos para el reporte
-            List<Person> clients = this.clientService.getActiveClients();
-            // Convertir los objetos Person a ClientReportData
-            List<ClientReportData> clientReportData = clients.stream()
-                    .map(client -> {
-                        ClientReportData data = new ClientReportData();
-                        data.setID(BigDecimal.valueOf(client.getId()));
-                        data.setTYPE_DOCUMENT(client.getTypeDocument());
-                        data.setNUMBER_DOCUMENT(client.getNumberDocument());
-                        data.setNAMES(client.getNames());
-                        data.setLAST_NAME(client.getLastName());
-                        data.setCELL_PHONE(client.getCellPhone());
-                        data.setEMAIL(client.getEmail());
-                        data.setBIRTHDATE(client.getBirthdateFormatted());
-                        return data;
-                    })
-                    .collect(Collectors.toList());
+            List<ClientReportData> clientReportData = this.reportDataService.getClients(true);
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(clientReportData);
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-            // Exportar el reporte a un array de bytes
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JasperExportManager.exportReportToPdfStream(jasperPrint, byteArrayOutputStream);
+            // Llenar el reporte con la plantilla en caché y exportarlo a PDF
+            byte[] report = reportService.exportPdf("report_client", dataSource);
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("client_report.pdf").build());
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
         } catch (JRException e) {
             logger.error("Error generating report: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
-        } catch (ParserConfigurationException e) {
-            logger.error("Error configuring document builder: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new byte[0]);
         } catch (Exception e) {
             logger.error("Unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -179,59 +147,22 @@ public class ClientController {
     @GetMapping("/report/excel")
     public ResponseEntity<byte[]> generateExcelReport() {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_client.jasper");
             // Obtener los datos para el reporte
-            List<Person> clients = this.clientService.getActiveClients();
-            // Convertir los objetos Person a ClientReportData
-            List<ClientReportData> clientReportData = clients.stream()
-                    .map(client -> {
-                        ClientReportData data = new ClientReportData();
-                        data.setID(BigDecimal.valueOf(client.getId()));
-                        data.setTYPE_DOCUMENT(client.getTypeDocument());
-                        data.setNUMBER_DOCUMENT(client.getNumberDocument());
-                        data.setNAMES(client.getNames());
-                        data.setLAST_NAME(client.getLastName());
-                        data.setCELL_PHONE(client.getCellPhone());
-                        data.setEMAIL(client.getEmail());
-                        data.setBIRTHDATE(client.getBirthdateFormatted());
-                        return data;
-                    })
-                    .collect(Collectors.toList());
+            List<ClientReportData> clientReportData = this.reportDataService.getClients(true);
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(clientReportData);
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-            // Exportar el reporte a un array de bytes en formato XLSX
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JRXlsxExporter exporter = new JRXlsxExporter();
-            SimpleExporterInput exporterInput = new SimpleExporterInput(jasperPrint);
-            SimpleOutputStreamExporterOutput exporterOutput = new SimpleOutputStreamExporterOutput(byteArrayOutputStream);
-            SimpleXlsxExporterConfiguration configuration = new SimpleXlsxExporterConfiguration();
-            exporter.setExporterInput(exporterInput);
-            exporter.setExporterOutput(exporterOutput);
-            exporter.setConfiguration(configuration);
-            exporter.exportReport();
+            // Llenar el reporte con la plantilla en caché y exportarlo a XLSX
+            byte[] report = reportService.exportXlsx("report_client", dataSource);
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("client_report.xlsx").build());
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
         } catch (JRException e) {
             logger.error("Error generating report: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
-        } catch (ParserConfigurationException e) {
-            logger.error("Error configuring document builder: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new byte[0]);
         } catch (Exception e) {
             logger.error("Unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -243,52 +174,22 @@ public class ClientController {
     @GetMapping("/inactive/report")
     public ResponseEntity<byte[]> generateReportInactive() {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_client.jasper");
             // Obtener los datos para el reporte
-            List<Person> clients = this.clientService.getActiveClients();
-            // Convertir los objetos Person a ClientReportData
-            List<ClientReportData> clientReportData = clients.stream()
-                    .map(client -> {
-                        ClientReportData data = new ClientReportData();
-                        data.setID(BigDecimal.valueOf(client.getId()));
-                        data.setTYPE_DOCUMENT(client.getTypeDocument());
-                        data.setNUMBER_DOCUMENT(client.getNumberDocument());
-                        data.setNAMES(client.getNames());
-                        data.setLAST_NAME(client.getLastName());
-                        data.setCELL_PHONE(client.getCellPhone());
-                        data.setEMAIL(client.getEmail());
-                        data.setBIRTHDATE(client.getBirthdateFormatted());
-                        return data;
-                    })
-                    .collect(Collectors.toList());
+            List<ClientReportData> clientReportData = this.reportDataService.getClients(false);
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(clientReportData);
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-            // Exportar el reporte a un array de bytes
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JasperExportManager.exportReportToPdfStream(jasperPrint, byteArrayOutputStream);
+            // Llenar el reporte con la plantilla en caché y exportarlo a PDF
+            byte[] report = reportService.exportPdf("report_client", dataSource);
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("client_report.pdf").build());
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
         } catch (JRException e) {
             logger.error("Error generating report: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
-        } catch (ParserConfigurationException e) {
-            logger.error("Error configuring document builder: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new byte[0]);
         } catch (Exception e) {
             logger.error("Unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -298,67 +199,32 @@ public class ClientController {
     @GetMapping("inactive/report/excel")
     public ResponseEntity<byte[]> generateExcelReportInactive() {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_client.jasper");
             // Obtener los datos para el reporte
-            List<Person> clients = this.clientService.getActiveClients();
-            // Convertir los objetos Person a ClientReportData
-            List<ClientReportData> clientReportData = clients.stream()
-                    .map(client -> {
-                        ClientReportData data = new ClientReportData();
-                        data.setID(BigDecimal.valueOf(client.getId()));
-                        data.setTYPE_DOCUMENT(client.getTypeDocument());
-                        data.setNUMBER_DOCUMENT(client.getNumberDocument());
-                        data.setNAMES(client.getNames());
-                        data.setLAST_NAME(client.getLastName());
-                        data.setCELL_PHONE(client.getCellPhone());
-                        data.setEMAIL(client.getEmail());
-                        data.setBIRTHDATE(client.getBirthdateFormatted());
-                        return data;
-                    })
-                    .collect(Collectors.toList());
+            List<ClientReportData> clientReportData = this.reportDataService.getClients(false);
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(clientReportData);
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-            // Exportar el reporte a un array de bytes en formato XLSX
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JRXlsxExporter exporter = new JRXlsxExporter();
-            SimpleExporterInput exporterInput = new SimpleExporterInput(jasperPrint);
-            SimpleOutputStreamExporterOutput exporterOutput = new SimpleOutputStreamExporterOutput(byteArrayOutputStream);
-            SimpleXlsxExporterConfiguration configuration = new SimpleXlsxExporterConfiguration();
-            exporter.setExporterInput(exporterInput);
-            exporter.setExporterOutput(exporterOutput);
-            exporter.setConfiguration(configuration);
-            exporter.exportReport();
+            // Llenar el reporte con la plantilla en caché y exportarlo a XLSX
+            byte[] report = reportService.exportXlsx("report_client", dataSource);
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("client_report.xlsx").build());
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
         } catch (JRException e) {
             logger.error("Error generating report: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
-        } catch (ParserConfigurationException e) {
-            logger.error("Error configuring document builder: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new byte[0]);
         } catch (Exception e) {
             logger.error("Unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
         }
     }
-}
-
-
-
 
+    // Exportación a Excel en streaming (SXSSF, sin Jasper) para listas grandes; active = A o I
+    @GetMapping("/export/excel")
+    public ResponseEntity<StreamingResponseBody> exportExcel(@RequestParam(defaultValue = "A") String active) {
+        return this.excelExportService.download(ExcelExportService.Dataset.CLIENTS, active, "client_export.xlsx");
+    }
+}
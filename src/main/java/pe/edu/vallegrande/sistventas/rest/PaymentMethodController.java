@@ -1,9 +1,12 @@
 package pe.edu.vallegrande.sistventas.rest;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import pe.edu.vallegrande.sistventas.model.PaymentMethod;
+import pe.edu.vallegrande.sistventas.service.CatalogVersions;
+import pe.edu.vallegrande.sistventas.service.CatalogVersions.Catalog;
 import pe.edu.vallegrande.sistventas.service.PaymentMethodService;
 
 import java.util.List;
@@ -13,28 +16,30 @@ import java.util.List;
 @RequestMapping("api/v1/paymentMethod")
 public class PaymentMethodController {
     private final PaymentMethodService paymentMethodService;
+    private final CatalogVersions catalogVersions;
 
     @Autowired
-    public PaymentMethodController(PaymentMethodService paymentMethodService){
+    public PaymentMethodController(PaymentMethodService paymentMethodService, CatalogVersions catalogVersions){
         this.paymentMethodService = paymentMethodService;
+        this.catalogVersions = catalogVersions;
     }
 
-    // Endpoint para listar todas las categorias
+    // Endpoint para listar todas las categorias (304 si no hubo cambios)
     @GetMapping
-    public ResponseEntity<List<PaymentMethod>> getAllPayment() {
-        return paymentMethodService.getPaymentMethod();
+    public ResponseEntity<List<PaymentMethod>> getAllPayment(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return catalogVersions.conditional(ifNoneMatch, paymentMethodService::getPaymentMethod, Catalog.PAYMENT_METHODS);
     }
 
-    // Endpoint para listar categorias activos
+    // Endpoint para listar categorias activos (304 si no hubo cambios)
     @GetMapping("/active")
-    public ResponseEntity<List<PaymentMethod>> getActivePayment() {
-        return paymentMethodService.getActivePayment();
+    public ResponseEntity<List<PaymentMethod>> getActivePayment(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return catalogVersions.conditional(ifNoneMatch, paymentMethodService::getActivePayment, Catalog.PAYMENT_METHODS);
     }
 
-    // Endpoint para listar categorias inactivos
+    // Endpoint para listar categorias inactivos (304 si no hubo cambios)
     @GetMapping("/inactive")
-    public ResponseEntity<List<PaymentMethod>> getInactivePayment() {
-        return paymentMethodService.getInactivePayment();
+    public ResponseEntity<List<PaymentMethod>> getInactivePayment(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return catalogVersions.conditional(ifNoneMatch, paymentMethodService::getInactivePayment, Catalog.PAYMENT_METHODS);
     }
 
     // Endpoint para obtener un cliente por su ID
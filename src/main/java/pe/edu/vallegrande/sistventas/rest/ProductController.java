@@ -1,14 +1,7 @@
 package pe.edu.vallegrande.sistventas.rest;
 
 import net.sf.jasperreports.engine.JRException;
-import net.sf.jasperreports.engine.JasperExportManager;
-import net.sf.jasperreports.engine.JasperFillManager;
-import net.sf.jasperreports.engine.JasperPrint;
 import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
-import net.sf.jasperreports.engine.export.ooxml.JRXlsxExporter;
-import net.sf.jasperreports.export.SimpleExporterInput;
-import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
-import net.sf.jasperreports.export.SimpleXlsxExporterConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,40 +12,55 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import pe.edu.vallegrande.sistventas.dto.ProductImportReport;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductCatalogSummary;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductStockView;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductSummary;
 import pe.edu.vallegrande.sistventas.model.Product;
 import pe.edu.vallegrande.sistventas.model.reports.ProductReportData;
+import pe.edu.vallegrande.sistventas.service.CatalogVersions;
+import pe.edu.vallegrande.sistventas.service.CatalogVersions.Catalog;
+import pe.edu.vallegrande.sistventas.service.ExcelExportService;
+import pe.edu.vallegrande.sistventas.service.ProductImportService;
 import pe.edu.vallegrande.sistventas.service.ProductService;
+import pe.edu.vallegrande.sistventas.service.ReportDataService;
+import pe.edu.vallegrande.sistventas.service.ReportService;
 
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
-import java.math.BigDecimal;
+import java.io.IOException;
 import java.net.URI;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @CrossOrigin(origins = "*")
 @RestController
 @RequestMapping("api/v1/products")
 public class ProductController {
     private final ProductService productService;
+    private final ProductImportService productImportService;
+    private final ReportService reportService;
+    private final ReportDataService reportDataService;
+    private final ExcelExportService excelExportService;
+    private final CatalogVersions catalogVersions;
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
     @Autowired
-    public ProductController(ProductService productService){
+    public ProductController(ProductService productService, ProductImportService productImportService, ReportService reportService, ReportDataService reportDataService,
+                             ExcelExportService excelExportService, CatalogVersions catalogVersions){
         this.productService = productService;
+        this.productImportService = productImportService;
+        this.reportService = reportService;
+        this.reportDataService = reportDataService;
+        this.excelExportService = excelExportService;
+        this.catalogVersions = catalogVersions;
     }
-    // Listado completo de productos
+    // Listado completo de productos (304 si el catálogo y el stock no cambiaron desde el ETag del cliente)
     @GetMapping
-    public ResponseEntity<List<Product>> getProducts() {
-        return productService.getProducts();
+    public ResponseEntity<List<ProductSummary>> getProducts(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return catalogVersions.conditional(ifNoneMatch, productService::getProducts, Catalog.PRODUCTS, Catalog.CATEGORIES,
+                Catalog.STOCK);
     }
     // Endpoint para buscar un producto por nombre
     @GetMapping("/exists")
@@ -71,16 +79,33 @@ public class ProductController {
         return productService.getProductByCode(code);
     }
 
-    // Endpoint para listar productos activos
+    // Endpoint para listar productos activos con su stock (304 si no hubo cambios). Trae el stock, así
+    // que su ETag cambia con cada venta; los POS que consultan seguido usan /active/catalog y /active/stock
     @GetMapping("/active")
-    public ResponseEntity<List<Product>> getActiveProducts() {
-        return productService.getActiveProducts();
+    public ResponseEntity<List<ProductSummary>> getActiveProducts(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return catalogVersions.conditional(ifNoneMatch, productService::getActiveProductSummaries,
+                Catalog.PRODUCTS, Catalog.CATEGORIES, Catalog.STOCK);
     }
 
-    // Endpoint para listar productos inactivos
+    // Endpoint para el catálogo de productos activos sin stock (consultado por los POS; 304 mientras no
+    // cambien los productos ni las categorías, aunque haya ventas)
+    @GetMapping("/active/catalog")
+    public ResponseEntity<List<ProductCatalogSummary>> getActiveCatalog(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return catalogVersions.conditional(ifNoneMatch, productService::getActiveCatalog, Catalog.PRODUCTS, Catalog.CATEGORIES);
+    }
+
+    // Endpoint para el stock de los productos activos (id y stock; 304 si no hubo movimientos ni cambios
+    // de productos)
+    @GetMapping("/active/stock")
+    public ResponseEntity<List<ProductStockView>> getActiveStocks(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return catalogVersions.conditional(ifNoneMatch, productService::getActiveStocks, Catalog.PRODUCTS, Catalog.STOCK);
+    }
+
+    // Endpoint para listar productos inactivos (304 si no hubo cambios)
     @GetMapping("/inactive")
-    public ResponseEntity<List<Product>> getInactiveProducts() {
-        return productService.getInactiveProducts();
+    public ResponseEntity<List<ProductSummary>> getInactiveProducts(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return catalogVersions.conditional(ifNoneMatch, productService::getInactiveProductSummaries,
+                Catalog.PRODUCTS, Catalog.CATEGORIES, Catalog.STOCK);
     }
 
     //listado por ID
@@ -114,6 +139,26 @@ public class ProductController {
             return response;
         }
     }
+    //Importación masiva de productos desde un archivo CSV o XLSX
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Object> importProducts(@RequestParam("file") MultipartFile file) {
+        HashMap<String, Object> responseData = new HashMap<>();
+        try {
+            ProductImportReport report = productImportService.importProducts(file);
+            responseData.put("mensaje", "Importación finalizada");
+            responseData.put("data", report);
+            return new ResponseEntity<>(responseData, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            responseData.put("error", true);
+            responseData.put("mensaje", e.getMessage());
+            return new ResponseEntity<>(responseData, HttpStatus.BAD_REQUEST);
+        } catch (IOException e) {
+            logger.error("Error reading import file: {}", e.getMessage(), e);
+            responseData.put("error", true);
+            responseData.put("mensaje", "No se pudo leer el archivo");
+            return new ResponseEntity<>(responseData, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
     //actualizar producto por ID
     @PutMapping("/{productId}")
     public ResponseEntity<Object> updateProductById(@PathVariable("productId") Long id, @RequestBody Product updatedProduct) {
@@ -154,55 +199,22 @@ public class ProductController {
     @GetMapping("/report")
     public ResponseEntity<byte[]> generateReport() {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_product.jasper");
             // Obtener los datos para el reporte
-            ResponseEntity<List<Product>> responseEntity = this.productService.getActiveProducts();
-            List<Product> products = responseEntity.getBody();
-            // Formato de fecha deseado
-            // Convertir los objetos Product a ProductReportData
-            List<ProductReportData> productReportData = products.stream()
-                    .map(product -> {
-                        ProductReportData data = new ProductReportData();
-                        data.setPRODUCT_ID(BigDecimal.valueOf(product.getId()));
-                        data.setPRODUCT_NAME(product.getName());
-                        data.setCATEGORY_NAME(product.getCategoryProduct().getName()); // Obtener solo el nombre de la categoría
-                        data.setPRICE_UNIT(BigDecimal.valueOf(product.getPriceUnit()));
-                        data.setUNIT_SALE(product.getUnitSale());
-                        // Convertir LocalDate a String utilizando el formato especificado
-                        data.setDATE_EXPIRY(product.getDateExpiryFormatted());
-                        data.setSTOCK(BigDecimal.valueOf(product.getStock()));
-                        data.setACTIVE(product.getActive());
-                        return data;
-                    })
-                    .collect(Collectors.toList());
+            List<ProductReportData> productReportData = this.reportDataService.getProducts(true);
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(productReportData);
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-            // Exportar el reporte a un array de bytes
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JasperExportManager.exportReportToPdfStream(jasperPrint, byteArrayOutputStream);
+            // Llenar el reporte con la plantilla en caché y exportarlo a PDF
+            byte[] report = reportService.exportPdf("report_product", dataSource);
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("category_report.pdf").build());
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
         } catch (JRException e) {
             logger.error("Error generating report: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
-        } catch (ParserConfigurationException e) {
-            logger.error("Error configuring document builder: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new byte[0]);
         } catch (Exception e) {
             logger.error("Unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -213,61 +225,22 @@ public class ProductController {
     @GetMapping("/report/excel")
     public ResponseEntity<byte[]> generateExcelReport() {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_product.jasper");
             // Obtener los datos para el reporte
-            ResponseEntity<List<Product>> responseEntity = this.productService.getActiveProducts();
-            List<Product> products = responseEntity.getBody();
-            // Convertir los objetos Product a ProductReportData
-            List<ProductReportData> productReportData = products.stream()
-                    .map(product -> {
-                        ProductReportData data = new ProductReportData();
-                        data.setPRODUCT_ID(BigDecimal.valueOf(product.getId()));
-                        data.setPRODUCT_NAME(product.getName());
-                        data.setCATEGORY_NAME(product.getCategoryProduct().getName()); // Obtener solo el nombre de la categoría
-                        data.setPRICE_UNIT(BigDecimal.valueOf(product.getPriceUnit()));
-                        data.setUNIT_SALE(product.getUnitSale());
-                        // Convertir LocalDate a String utilizando el formato especificado
-                        data.setDATE_EXPIRY(product.getDateExpiryFormatted());
-                        data.setSTOCK(BigDecimal.valueOf(product.getStock()));
-                        data.setACTIVE(product.getActive());
-                        return data;
-                    })
-                    .collect(Collectors.toList());
+            List<ProductReportData> productReportData = this.reportDataService.getProducts(true);
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(productReportData);
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-            // Exportar el reporte a un array de bytes en formato XLSX
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JRXlsxExporter exporter = new JRXlsxExporter();
-            SimpleExporterInput exporterInput = new SimpleExporterInput(jasperPrint);
-            SimpleOutputStreamExporterOutput exporterOutput = new SimpleOutputStreamExporterOutput(byteArrayOutputStream);
-            SimpleXlsxExporterConfiguration configuration = new SimpleXlsxExporterConfiguration();
-            exporter.setExporterInput(exporterInput);
-            exporter.setExporterOutput(exporterOutput);
-            exporter.setConfiguration(configuration);
-            exporter.exportReport();
+            // Llenar el reporte con la plantilla en caché y exportarlo a XLSX
+            byte[] report = reportService.exportXlsx("report_product", dataSource);
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("client_report.xlsx").build());
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
         } catch (JRException e) {
             logger.error("Error generating report: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
-        } catch (ParserConfigurationException e) {
-            logger.error("Error configuring document builder: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new byte[0]);
         } catch (Exception e) {
             logger.error("Unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -279,54 +252,22 @@ public class ProductController {
     @GetMapping("/inactive/report")
     public ResponseEntity<byte[]> generateReportInactive() {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_product.jasper");
             // Obtener los datos para el reporte
-            ResponseEntity<List<Product>> responseEntity = this.productService.getActiveProducts();
-            List<Product> products = responseEntity.getBody();
-            // Convertir los objetos Product a ProductReportData
-            List<ProductReportData> productReportData = products.stream()
-                    .map(product -> {
-                        ProductReportData data = new ProductReportData();
-                        data.setPRODUCT_ID(BigDecimal.valueOf(product.getId()));
-                        data.setPRODUCT_NAME(product.getName());
-                        data.setCATEGORY_NAME(product.getCategoryProduct().getName()); // Obtener solo el nombre de la categoría
-                        data.setPRICE_UNIT(BigDecimal.valueOf(product.getPriceUnit()));
-                        data.setUNIT_SALE(product.getUnitSale());
-                        // Convertir LocalDate a String utilizando el formato especificado
-                        data.setDATE_EXPIRY(product.getDateExpiryFormatted());
-                        data.setSTOCK(BigDecimal.valueOf(product.getStock()));
-                        data.setACTIVE(product.getActive());
-                        return data;
-                    })
-                    .collect(Collectors.toList());
+            List<ProductReportData> productReportData = this.reportDataService.getProducts(false);
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(productReportData);
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-            // Exportar el reporte a un array de bytes
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JasperExportManager.exportReportToPdfStream(jasperPrint, byteArrayOutputStream);
+            // Llenar el reporte con la plantilla en caché y exportarlo a PDF
+            byte[] report = reportService.exportPdf("report_product", dataSource);
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("client_report.pdf").build());
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
         } catch (JRException e) {
             logger.error("Error generating report: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
-        } catch (ParserConfigurationException e) {
-            logger.error("Error configuring document builder: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new byte[0]);
         } catch (Exception e) {
             logger.error("Unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -336,65 +277,32 @@ public class ProductController {
     @GetMapping("inactive/report/excel")
     public ResponseEntity<byte[]> generateExcelReportInactive() {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_product.jasper");
             // Obtener los datos para el reporte
-            ResponseEntity<List<Product>> responseEntity = this.productService.getActiveProducts();
-            List<Product> products = responseEntity.getBody();
-            // Convertir los objetos Product a ProductReportData
-            List<ProductReportData> productReportData = products.stream()
-                    .map(product -> {
-                        ProductReportData data = new ProductReportData();
-                        data.setPRODUCT_ID(BigDecimal.valueOf(product.getId()));
-                        data.setPRODUCT_NAME(product.getName());
-                        data.setCATEGORY_NAME(product.getCategoryProduct().getName()); // Obtener solo el nombre de la categoría
-                        data.setPRICE_UNIT(BigDecimal.valueOf(product.getPriceUnit()));
-                        data.setUNIT_SALE(product.getUnitSale());
-                        // Convertir LocalDate a String utilizando el formato especificado
-                        data.setDATE_EXPIRY(product.getDateExpiryFormatted());
-                        data.setSTOCK(BigDecimal.valueOf(product.getStock()));
-                        data.setACTIVE(product.getActive());
-                        return data;
-                    })
-                    .collect(Collectors.toList());
+            List<ProductReportData> productReportData = this.reportDataService.getProducts(false);
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(productReportData);
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-            // Exportar el reporte a un array de bytes en formato XLSX
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JRXlsxExporter exporter = new JRXlsxExporter();
-            SimpleExporterInput exporterInput = new SimpleExporterInput(jasperPrint);
-            SimpleOutputStreamExporterOutput exporterOutput = new SimpleOutputStreamExporterOutput(byteArrayOutputStream);
-            SimpleXlsxExporterConfiguration configuration = new SimpleXlsxExporterConfiguration();
-            exporter.setExporterInput(exporterInput);
-            exporter.setExporterOutput(exporterOutput);
-            exporter.setConfiguration(configuration);
-            exporter.exportReport();
+            // Llenar el reporte con la plantilla en caché y exportarlo a XLSX
+            byte[] report = reportService.exportXlsx("report_product", dataSource);
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("client_report.xlsx").build());
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
         } catch (JRException e) {
             logger.error("Error generating report: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
-        } catch (ParserConfigurationException e) {
-            logger.error("Error configuring document builder: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new byte[0]);
         } catch (Exception e) {
             logger.error("Unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
         }
     }
+
+    // Exportación a Excel en streaming (SXSSF, sin Jasper) para listas grandes; active = A o I
+    @GetMapping("/export/excel")
+    public ResponseEntity<StreamingResponseBody> exportExcel(@RequestParam(defaultValue = "A") String active) {
+        return this.excelExportService.download(ExcelExportService.Dataset.PRODUCTS, active, "product_export.xlsx");
+    }
 }
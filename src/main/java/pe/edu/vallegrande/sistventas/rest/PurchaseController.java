@@ -1,36 +1,31 @@
 package pe.edu.vallegrande.sistventas.rest;
 
 import net.sf.jasperreports.engine.JRException;
-import net.sf.jasperreports.engine.JasperExportManager;
-import net.sf.jasperreports.engine.JasperFillManager;
-import net.sf.jasperreports.engine.JasperPrint;
 import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
-import net.sf.jasperreports.engine.export.ooxml.JRXlsxExporter;
-import net.sf.jasperreports.export.SimpleExporterInput;
-import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
-import net.sf.jasperreports.export.SimpleXlsxExporterConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pe.edu.vallegrande.sistventas.dto.CursorPage;
 import pe.edu.vallegrande.sistventas.dto.Purchase;
-import pe.edu.vallegrande.sistventas.dto.PurchaseDetail;
+import pe.edu.vallegrande.sistventas.dto.projection.PurchaseSummary;
 import pe.edu.vallegrande.sistventas.dto.reports.PurchaseReportData;
+import pe.edu.vallegrande.sistventas.service.CsvExportService;
+import pe.edu.vallegrande.sistventas.service.IdempotencyService;
+import pe.edu.vallegrande.sistventas.service.InventoryService;
 import pe.edu.vallegrande.sistventas.service.PurchaseService;
+import pe.edu.vallegrande.sistventas.service.ReportDataService;
+import pe.edu.vallegrande.sistventas.service.ReportService;
 
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
-import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.*;
 @CrossOrigin(origins = "*")
 @RestController
@@ -40,9 +35,21 @@ public class PurchaseController {
     @Autowired
     private PurchaseService purchaseService;
 
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private ReportDataService reportDataService;
+
+    @Autowired
+    private CsvExportService csvExportService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     // Endpoint para obtener todas las compras
     @GetMapping
-    public List<Purchase> getAllPurchases() {
+    public List<PurchaseSummary> getAllPurchases() {
         return purchaseService.getAllPurchases();
     }
 
@@ -54,10 +61,12 @@ public class PurchaseController {
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
-    // Endpoint para crear una nueva compra
+    // Endpoint para crear una nueva compra; con Idempotency-Key los reintentos devuelven la compra ya creada
     @PostMapping
-    public Purchase createPurchase(@RequestBody Purchase purchase) {
-        return purchaseService.createPurchase(purchase);
+    public ResponseEntity<Object> createPurchase(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                                 @RequestBody Purchase purchase) {
+        return idempotencyService.execute("purchase", idempotencyKey, purchase,
+                () -> ResponseEntity.ok(purchaseService.createPurchase(purchase)));
     }
 
     // Endpoint para actualizar una compra
@@ -68,6 +77,9 @@ public class PurchaseController {
             return ResponseEntity.ok(updatedPurchase);
         } catch (PurchaseService.ResourceNotFoundException e) {
             return ResponseEntity.notFound().build();
+        } catch (InventoryService.InsufficientStockException e) {
+            // La reducción dejaría el stock en negativo (mercadería ya vendida)
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(null);
         } catch (Exception e) {
             logger.error("Error updating purchase: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -79,7 +91,12 @@ public class PurchaseController {
     public ResponseEntity<Void> deletePurchase(@PathVariable Long id) {
         Optional<Purchase> purchase = purchaseService.getPurchaseById(id);
         if (purchase.isPresent()) {
-            purchaseService.deletePurchase(id);
+            try {
+                purchaseService.deletePurchase(id);
+            } catch (InventoryService.InsufficientStockException e) {
+                // Lo recibido ya se vendió: retirarlo dejaría el stock en negativo
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
             return ResponseEntity.ok().build();
         } else {
             return ResponseEntity.notFound().build();
@@ -88,23 +105,31 @@ public class PurchaseController {
 
     // Nuevo endpoint para obtener compras por estado
     @GetMapping("/status/{active}")
-    public List<Purchase> getPurchasesByActiveStatus(@PathVariable String active) {
+    public List<PurchaseSummary> getPurchasesByActiveStatus(@PathVariable String active) {
         return purchaseService.getPurchasesByActiveStatus(active);
     }
 
     // Nuevo endpoint para obtener compras por estado con paginación
     @GetMapping("/status/{active}/page")
-    public Page<Purchase> getPurchasesPageableByActiveStatus(@PathVariable String active, Pageable pageable) {
+    public Page<PurchaseSummary> getPurchasesPageableByActiveStatus(@PathVariable String active, Pageable pageable) {
         return purchaseService.getPurchasesPageableByActiveStatus(active, pageable);
     }
 
+    // Endpoint para obtener compras por estado con paginación por cursor (keyset)
+    @GetMapping("/status/{active}/cursor")
+    public CursorPage<PurchaseSummary> getPurchasesByCursor(@PathVariable String active,
+                                                            @RequestParam(required = false) Long lastId,
+                                                            @RequestParam(defaultValue = "20") int size) {
+        return purchaseService.getPurchasesByCursor(active, lastId, size);
+    }
+
     // Endpoint para eliminar lógicamente una compra (cambia el estado a 'I')
     @PutMapping("/delete/{id}")
     public ResponseEntity<Purchase> logicalDeletePurchase(@PathVariable Long id) {
         try {
             Purchase purchase = purchaseService.logicalDeletPurchase(id);
             return ResponseEntity.ok(purchase);
-        } catch (PurchaseService.ResourceConflictException e) {
+        } catch (PurchaseService.ResourceConflictException | InventoryService.InsufficientStockException e) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(null);
         } catch (PurchaseService.ResourceNotFoundException e) {
             return ResponseEntity.notFound().build();
@@ -129,17 +154,8 @@ public class PurchaseController {
     @GetMapping("/report/{id}")
     public ResponseEntity<byte[]> generateReport(@PathVariable Long id) {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_compraUnitaria.jasper");
-
             // Obtener la compra por ID
-            Optional<Purchase> optionalPurchase = this.purchaseService.getPurchaseById(id);
+            Optional<Purchase> optionalPurchase = this.purchaseService.getPurchaseReportById(id);
 
             if (optionalPurchase.isEmpty()) {
                 // Si no se encuentra la compra, devolver error 404
@@ -149,37 +165,13 @@ public class PurchaseController {
             Purchase purchase = optionalPurchase.get();
 
             // Convertir los objetos Purchase a PurchaseReportData
-            List<PurchaseReportData> purchaseReportData = new ArrayList<>();
-            for (PurchaseDetail detail : purchase.getPurchaseDetails()) {
-                PurchaseReportData data = new PurchaseReportData();
-                data.setID_COMPRA(BigDecimal.valueOf(purchase.getId()));
-                data.setEMPRESA(detail.getPurchase().getSupplier().getNameCompany());
-                String formattedDate = purchase.getFormattedDateTime();
-                data.setFECHA_COMPRA(formattedDate);
-                data.setPROVEEDOR(purchase.getSupplier().getNames() + " " + purchase.getSupplier().getLastName());
-                data.setVENDEDOR(purchase.getSeller().getNames() + " " + purchase.getSeller().getLastName());
-                data.setPRODUCTO(detail.getProduct().getName());
-                data.setTIPO_PAGO(detail.getPurchase().getPaymentMethod().getName());
-                data.setCANTIDAD(BigDecimal.valueOf(detail.getAmount()));
-                data.setPRECIO_UNITARIO(BigDecimal.valueOf(detail.getPriceUnit()));
-                // Calcular el subtotal como la multiplicación de la cantidad por el precio unitario
-                BigDecimal subtotal = BigDecimal.valueOf(detail.getAmount())
-                        .multiply(BigDecimal.valueOf(detail.getPriceUnit()));
-                data.setSUBTOTAL(subtotal);
-                data.setTOTAL(BigDecimal.valueOf(detail.getPurchase().getTotalPurchase()));
-                purchaseReportData.add(data);
-            }
+            List<PurchaseReportData> purchaseReportData = this.reportDataService.getPurchaseLines(purchase);
 
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(purchaseReportData);
 
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-
-            // Exportar el reporte a un array de bytes
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JasperExportManager.exportReportToPdfStream(jasperPrint, byteArrayOutputStream);
+            // Llenar el reporte con la plantilla en caché y exportarlo a PDF
+            byte[] report = reportService.exportPdf("report_compraUnitaria", dataSource);
 
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
@@ -187,9 +179,9 @@ public class PurchaseController {
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("purchase_report.pdf").build());
 
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
 
-        } catch (JRException | ParserConfigurationException e) {
+        } catch (JRException e) {
             // Manejar las excepciones y devolver el estado adecuado
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new byte[0]);
         }
@@ -199,17 +191,8 @@ public class PurchaseController {
     @GetMapping("/report/excel/{id}")
     public ResponseEntity<byte[]> generateExcelReport(@PathVariable Long id) {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_compraUnitaria.jasper");
-
             // Obtener la compra por ID
-            Optional<Purchase> optionalPurchase = this.purchaseService.getPurchaseById(id);
+            Optional<Purchase> optionalPurchase = this.purchaseService.getPurchaseReportById(id);
 
             if (optionalPurchase.isEmpty()) {
                 // Si no se encuentra la compra, devolver error 404
@@ -219,42 +202,13 @@ public class PurchaseController {
             Purchase purchase = optionalPurchase.get();
 
             // Convertir los objetos Purchase a PurchaseReportData
-            List<PurchaseReportData> purchaseReportData = new ArrayList<>();
-            for (PurchaseDetail detail : purchase.getPurchaseDetails()) {
-                PurchaseReportData data = new PurchaseReportData();
-                data.setID_COMPRA(BigDecimal.valueOf(purchase.getId()));
-                data.setEMPRESA(detail.getPurchase().getSupplier().getNameCompany());
-                String formattedDate = purchase.getFormattedDateTime();
-                data.setFECHA_COMPRA(formattedDate);
-                data.setPROVEEDOR(purchase.getSupplier().getNames() + " " + purchase.getSupplier().getLastName());
-                data.setVENDEDOR(purchase.getSeller().getNames() + " " + purchase.getSeller().getLastName());
-                data.setPRODUCTO(detail.getProduct().getName());
-                data.setTIPO_PAGO(detail.getPurchase().getPaymentMethod().getName());
-                data.setCANTIDAD(BigDecimal.valueOf(detail.getAmount()));
-                data.setPRECIO_UNITARIO(BigDecimal.valueOf(detail.getPriceUnit()));
-                // Calcular el subtotal como la multiplicación de la cantidad por el precio unitario
-                BigDecimal subtotal = BigDecimal.valueOf(detail.getAmount())
-                        .multiply(BigDecimal.valueOf(detail.getPriceUnit()));
-                data.setSUBTOTAL(subtotal);
-                data.setTOTAL(BigDecimal.valueOf(detail.getPurchase().getTotalPurchase()));
-                purchaseReportData.add(data);
-            }
+            List<PurchaseReportData> purchaseReportData = this.reportDataService.getPurchaseLines(purchase);
 
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(purchaseReportData);
 
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-
-            // Exportar el reporte a un array de bytes en formato XLSX
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JRXlsxExporter exporter = new JRXlsxExporter();
-            exporter.setExporterInput(new SimpleExporterInput(jasperPrint));
-            exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(byteArrayOutputStream));
-            SimpleXlsxExporterConfiguration configuration = new SimpleXlsxExporterConfiguration();
-            exporter.setConfiguration(configuration);
-            exporter.exportReport();
+            // Llenar el reporte con la plantilla en caché y exportarlo a XLSX
+            byte[] report = reportService.exportXlsx("report_compraUnitaria", dataSource);
 
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
@@ -262,11 +216,20 @@ public class PurchaseController {
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("purchase_report.xlsx").build());
 
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
 
-        } catch (JRException | ParserConfigurationException e) {
+        } catch (JRException e) {
             // Manejar las excepciones y devolver el estado adecuado
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new byte[0]);
         }
     }
+
+    // Exportación contable a CSV de las líneas de compra de un rango de fechas; gzip=true comprime la respuesta
+    @GetMapping("/export.csv")
+    public ResponseEntity<StreamingResponseBody> exportCsv(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                           @RequestParam(defaultValue = "false") boolean gzip) {
+        String filename = "purchases_" + from + "_" + to + ".csv";
+        return this.csvExportService.download(CsvExportService.Dataset.PURCHASE_LINES, from, to, gzip, filename);
+    }
 }
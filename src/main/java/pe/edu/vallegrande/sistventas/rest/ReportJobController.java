@@ -0,0 +1,102 @@
+package pe.edu.vallegrande.sistventas.rest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import pe.edu.vallegrande.sistventas.service.ReportJobService;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("api/v1/report-jobs")
+public class ReportJobController {
+    private final ReportJobService reportJobService;
+
+    @Autowired
+    public ReportJobController(ReportJobService reportJobService) {
+        this.reportJobService = reportJobService;
+    }
+
+    // Encolar un reporte: type = product, client, seller, supplier o category; format = pdf o xlsx; active = A o I
+    @PostMapping
+    public ResponseEntity<Object> submit(@RequestParam String type,
+                                         @RequestParam(defaultValue = "pdf") String format,
+                                         @RequestParam(defaultValue = "A") String active) {
+        ReportJobService.ReportType reportType;
+        ReportJobService.ReportFormat reportFormat;
+        try {
+            reportType = ReportJobService.ReportType.valueOf(type.toUpperCase(Locale.ROOT));
+            reportFormat = ReportJobService.ReportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, "Tipo o formato de reporte no válido");
+        }
+        if (!"A".equals(active) && !"I".equals(active)) {
+            return error(HttpStatus.BAD_REQUEST, "Estado no válido, use A o I");
+        }
+        try {
+            ReportJobService.ReportJob job = reportJobService.submit(reportType, reportFormat, active);
+            return ResponseEntity.accepted()
+                    .location(ServletUriComponentsBuilder.fromCurrentRequest().replaceQuery(null)
+                            .path("/{id}").buildAndExpand(job.getId()).toUri())
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(errorBody("La cola de reportes está llena, intente más tarde"));
+        }
+    }
+
+    // Estado de un trabajo
+    @GetMapping("/{id}")
+    public ResponseEntity<Object> getJob(@PathVariable String id) {
+        Optional<ReportJobService.ReportJob> job = reportJobService.getJob(id);
+        if (job.isEmpty()) {
+            return error(HttpStatus.NOT_FOUND, "Trabajo de reporte no encontrado o vencido");
+        }
+        return ResponseEntity.ok(job.get());
+    }
+
+    // Descarga del archivo generado; 409 mientras el trabajo no haya terminado
+    @GetMapping("/{id}/download")
+    public ResponseEntity<Object> download(@PathVariable String id) {
+        Optional<ReportJobService.ReportJob> optionalJob = reportJobService.getJob(id);
+        if (optionalJob.isEmpty()) {
+            return error(HttpStatus.NOT_FOUND, "Trabajo de reporte no encontrado o vencido");
+        }
+        ReportJobService.ReportJob job = optionalJob.get();
+        if (job.getStatus() == ReportJobService.JobStatus.FAILED) {
+            return error(HttpStatus.INTERNAL_SERVER_ERROR, "Error al generar el reporte: " + job.getError());
+        }
+        if (job.getStatus() != ReportJobService.JobStatus.DONE) {
+            return error(HttpStatus.CONFLICT, "El reporte aún no está listo (" + job.getStatus() + ")");
+        }
+        FileSystemResource file = new FileSystemResource(job.getFile());
+        if (!file.exists()) {
+            return error(HttpStatus.NOT_FOUND, "Trabajo de reporte no encontrado o vencido");
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(job.getFormat().getMediaType());
+        headers.setContentDisposition(ContentDisposition.attachment().filename(job.getFilename()).build());
+        return new ResponseEntity<>(file, headers, HttpStatus.OK);
+    }
+
+    private ResponseEntity<Object> error(HttpStatus status, String message) {
+        return new ResponseEntity<>(errorBody(message), status);
+    }
+
+    private HashMap<String, Object> errorBody(String message) {
+        HashMap<String, Object> responseData = new HashMap<>();
+        responseData.put("error", true);
+        responseData.put("mensaje", message);
+        return responseData;
+    }
+}
@@ -1,11 +1,7 @@
 package pe.edu.vallegrande.sistventas.rest;
 
-import net.sf.jasperreports.engine.*;
+import net.sf.jasperreports.engine.JRException;
 import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
-import net.sf.jasperreports.engine.export.ooxml.JRXlsxExporter;
-import net.sf.jasperreports.export.SimpleExporterInput;
-import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
-import net.sf.jasperreports.export.SimpleXlsxExporterConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,18 +12,16 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import pe.edu.vallegrande.sistventas.dto.CursorPage;
 import pe.edu.vallegrande.sistventas.dto.Reservation;
-import pe.edu.vallegrande.sistventas.dto.ReservationDetail;
+import pe.edu.vallegrande.sistventas.dto.projection.ReservationSummary;
 import pe.edu.vallegrande.sistventas.dto.reports.ReservationReportData;
+import pe.edu.vallegrande.sistventas.service.IdempotencyService;
+import pe.edu.vallegrande.sistventas.service.InventoryService;
+import pe.edu.vallegrande.sistventas.service.ReportDataService;
+import pe.edu.vallegrande.sistventas.service.ReportService;
 import pe.edu.vallegrande.sistventas.service.ReservationService;
 
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
-import java.math.BigDecimal;
 import java.util.*;
 
 @CrossOrigin(origins = "*")
@@ -39,9 +33,18 @@ public class ReservationController {
     @Autowired
     private ReservationService reservationService;
 
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private ReportDataService reportDataService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     // Endpoint to get all reservations
     @GetMapping
-    public List<Reservation> getAllReservations() {
+    public List<ReservationSummary> getAllReservations() {
         return reservationService.getAllReservations();
     }
 
@@ -53,10 +56,23 @@ public class ReservationController {
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
-    // Endpoint to create a new reservation
+    // Endpoint to create a new reservation; retries with the same Idempotency-Key get the original response
     @PostMapping
-    public Reservation createReservation(@RequestBody Reservation reservation) {
-        return reservationService.createReservation(reservation);
+    public ResponseEntity<Object> createReservation(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                                    @RequestBody Reservation reservation) {
+        return idempotencyService.execute("reservation", idempotencyKey, reservation, () -> {
+            try {
+                return ResponseEntity.ok(reservationService.createReservation(reservation));
+            } catch (InventoryService.InsufficientStockException e) {
+                HashMap<String, Object> responseData = new HashMap<>();
+                responseData.put("error", true);
+                responseData.put("mensaje", "Stock insuficiente para el producto " + e.getProductId());
+                responseData.put("productId", e.getProductId());
+                responseData.put("requested", e.getRequested());
+                responseData.put("available", e.getAvailable());
+                return new ResponseEntity<>(responseData, HttpStatus.CONFLICT);
+            }
+        });
     }
 
     // Endpoint to update a reservation
@@ -67,6 +83,8 @@ public class ReservationController {
             return ResponseEntity.ok(updatedReservation);
         } catch (ReservationService.ResourceNotFoundException e) {
             return ResponseEntity.notFound().build();
+        } catch (InventoryService.InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (Exception e) {
             logger.error("Error updating reservation: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -87,16 +105,24 @@ public class ReservationController {
 
     // New endpoint to get reservations by active status
     @GetMapping("/status/{active}")
-    public List<Reservation> getReservationsByActiveStatus(@PathVariable String active) {
+    public List<ReservationSummary> getReservationsByActiveStatus(@PathVariable String active) {
         return reservationService.getReservationsByStatus(active);
     }
 
     // New endpoint to get reservations by active status with pagination
     @GetMapping("/status/{active}/page")
-    public Page<Reservation> getReservationsPageableByActiveStatus(@PathVariable String active, Pageable pageable) {
+    public Page<ReservationSummary> getReservationsPageableByActiveStatus(@PathVariable String active, Pageable pageable) {
         return reservationService.getReservationsPageableByStatus(active, pageable);
     }
 
+    // Endpoint to get reservations by active status with cursor (keyset) pagination
+    @GetMapping("/status/{active}/cursor")
+    public CursorPage<ReservationSummary> getReservationsByCursor(@PathVariable String active,
+                                                                  @RequestParam(required = false) Long lastId,
+                                                                  @RequestParam(defaultValue = "20") int size) {
+        return reservationService.getReservationsByCursor(active, lastId, size);
+    }
+
     // Endpoint to logically delete a reservation (change status to 'canceled')
     @PutMapping("/delete/{id}")
     public ResponseEntity<Reservation> logicalDeleteReservation(@PathVariable Long id) {
@@ -116,7 +142,7 @@ public class ReservationController {
         try {
             Reservation reservation = reservationService.logicalConfirmReservation(id);
             return ResponseEntity.ok(reservation);
-        } catch (ReservationService.ResourceConflictException e) {
+        } catch (ReservationService.ResourceConflictException | InventoryService.InsufficientStockException e) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(null);
         } catch (ReservationService.ResourceNotFoundException e) {
             return ResponseEntity.notFound().build();
@@ -127,14 +153,7 @@ public class ReservationController {
     @GetMapping("/report/{id}")
     public ResponseEntity<byte[]> generateReservationReport(@PathVariable Long id) {
         try {
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_reservaUnitaria.jasper");
-
-            Optional<Reservation> optionalReservation = this.reservationService.getReservationById(id);
+            Optional<Reservation> optionalReservation = this.reservationService.getReservationReportById(id);
 
             if (optionalReservation.isEmpty()) {
                 return ResponseEntity.notFound().build();
@@ -142,39 +161,19 @@ public class ReservationController {
 
             Reservation reservation = optionalReservation.get();
 
-            List<ReservationReportData> reservationReportData = new ArrayList<>();
-            for (ReservationDetail detail : reservation.getReservationDetails()) {
-                ReservationReportData data = new ReservationReportData();
-                data.setRESERVATION_ID(BigDecimal.valueOf(reservation.getId()));
-                data.setRESERVATION_DATE(reservation.getFormattedDateTime());
-                data.setCLIENT_NAME(reservation.getClient().getNames() + " " + reservation.getClient().getLastName());
-                data.setSELLER_NAME(reservation.getSeller().getNames() + " " + reservation.getSeller().getLastName());
-                data.setPRODUCT_NAME(detail.getProduct().getName());
-                data.setUNIT_SALE(detail.getProduct().getUnitSale());
-                data.setPAYMENT_METHOD(reservation.getPaymentMethod().getName());
-                data.setQUANTITY(BigDecimal.valueOf(detail.getAmount()));
-                data.setPRICE_UNIT(BigDecimal.valueOf(detail.getProduct().getPriceUnit()));
-                data.setSUBTOTAL_PRODUCT(BigDecimal.valueOf(detail.getSubtotalReservation()));
-                data.setTOTAL(BigDecimal.valueOf(reservation.getTotalReservation()));
-
-                reservationReportData.add(data);
-            }
+            List<ReservationReportData> reservationReportData = this.reportDataService.getReservationLines(reservation);
 
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(reservationReportData);
 
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JasperExportManager.exportReportToPdfStream(jasperPrint, byteArrayOutputStream);
+            byte[] report = reportService.exportPdf("report_reservaUnitaria", dataSource);
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("reservation_report.pdf").build());
 
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
 
-        } catch (JRException | ParserConfigurationException e) {
+        } catch (JRException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new byte[0]);
         }
     }
@@ -183,14 +182,7 @@ public class ReservationController {
     @GetMapping("/report/excel/{id}")
     public ResponseEntity<byte[]> generateExcelReservationReport(@PathVariable Long id) {
         try {
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_reservaUnitaria.jasper");
-
-            Optional<Reservation> optionalReservation = this.reservationService.getReservationById(id);
+            Optional<Reservation> optionalReservation = this.reservationService.getReservationReportById(id);
 
             if (optionalReservation.isEmpty()) {
                 return ResponseEntity.notFound().build();
@@ -198,44 +190,19 @@ public class ReservationController {
 
             Reservation reservation = optionalReservation.get();
 
-            List<ReservationReportData> reservationReportData = new ArrayList<>();
-            for (ReservationDetail detail : reservation.getReservationDetails()) {
-                ReservationReportData data = new ReservationReportData();
-                data.setRESERVATION_ID(BigDecimal.valueOf(reservation.getId()));
-                data.setRESERVATION_DATE(reservation.getFormattedDateTime());
-                data.setCLIENT_NAME(reservation.getClient().getNames() + " " + reservation.getClient().getLastName());
-                data.setSELLER_NAME(reservation.getSeller().getNames() + " " + reservation.getSeller().getLastName());
-                data.setPRODUCT_NAME(detail.getProduct().getName());
-                data.setUNIT_SALE(detail.getProduct().getUnitSale());
-                data.setPAYMENT_METHOD(reservation.getPaymentMethod().getName());
-                data.setQUANTITY(BigDecimal.valueOf(detail.getAmount()));
-                data.setPRICE_UNIT(BigDecimal.valueOf(detail.getProduct().getPriceUnit()));
-                data.setSUBTOTAL_PRODUCT(BigDecimal.valueOf(detail.getSubtotalReservation()));
-                data.setTOTAL(BigDecimal.valueOf(reservation.getTotalReservation()));
-
-                reservationReportData.add(data);
-            }
+            List<ReservationReportData> reservationReportData = this.reportDataService.getReservationLines(reservation);
 
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(reservationReportData);
 
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JRXlsxExporter exporter = new JRXlsxExporter();
-            exporter.setExporterInput(new SimpleExporterInput(jasperPrint));
-            exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(byteArrayOutputStream));
-            SimpleXlsxExporterConfiguration configuration = new SimpleXlsxExporterConfiguration();
-            exporter.setConfiguration(configuration);
-            exporter.exportReport();
+            byte[] report = reportService.exportXlsx("report_reservaUnitaria", dataSource);
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("reservation_report.xlsx").build());
 
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
 
-        } catch (JRException | ParserConfigurationException e) {
+        } catch (JRException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new byte[0]);
         }
     }
@@ -1,37 +1,39 @@
 package pe.edu.vallegrande.sistventas.rest;
 
-import net.sf.jasperreports.engine.*;
+import net.sf.jasperreports.engine.JRException;
 import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
-import net.sf.jasperreports.engine.export.ooxml.JRXlsxExporter;
-import net.sf.jasperreports.export.SimpleExporterInput;
-import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
-import net.sf.jasperreports.export.SimpleXlsxExporterConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pe.edu.vallegrande.sistventas.dto.CursorPage;
 import pe.edu.vallegrande.sistventas.dto.Sale;
-import pe.edu.vallegrande.sistventas.dto.SaleDetail;
+import pe.edu.vallegrande.sistventas.dto.SaleDailySummary;
+import pe.edu.vallegrande.sistventas.dto.SaleReportBundleRequest;
+import pe.edu.vallegrande.sistventas.dto.projection.SaleSummary;
 import pe.edu.vallegrande.sistventas.dto.reports.SaleReportData;
+import pe.edu.vallegrande.sistventas.service.CsvExportService;
+import pe.edu.vallegrande.sistventas.service.IdempotencyService;
+import pe.edu.vallegrande.sistventas.service.InventoryService;
+import pe.edu.vallegrande.sistventas.service.ReportDataService;
+import pe.edu.vallegrande.sistventas.service.ReportService;
+import pe.edu.vallegrande.sistventas.service.SaleDailySummaryService;
+import pe.edu.vallegrande.sistventas.service.SaleReportBundleService;
 import pe.edu.vallegrande.sistventas.service.SaleService;
 
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 @CrossOrigin(origins = "*")
 @RestController
 @RequestMapping("/api/sales")
@@ -41,9 +43,27 @@ public class SaleController {
     @Autowired
     private SaleService saleService;
 
+    @Autowired
+    private SaleDailySummaryService saleDailySummaryService;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private CsvExportService csvExportService;
+
+    @Autowired
+    private ReportDataService reportDataService;
+
+    @Autowired
+    private SaleReportBundleService saleReportBundleService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     // Endpoint para obtener todas las ventas
     @GetMapping
-    public List<Sale> getAllSales() {
+    public List<SaleSummary> getAllSales() {
         return saleService.getAllSales();
     }
 
@@ -55,10 +75,23 @@ public class SaleController {
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
-    // Endpoint para crear una nueva venta
+    // Endpoint para crear una nueva venta; con Idempotency-Key los reintentos devuelven la venta ya creada
     @PostMapping
-    public Sale createSale(@RequestBody Sale sale) {
-        return saleService.createSale(sale);
+    public ResponseEntity<Object> createSale(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                             @RequestBody Sale sale) {
+        return idempotencyService.execute("sale", idempotencyKey, sale, () -> {
+            try {
+                return ResponseEntity.ok(saleService.createSale(sale));
+            } catch (InventoryService.InsufficientStockException e) {
+                HashMap<String, Object> responseData = new HashMap<>();
+                responseData.put("error", true);
+                responseData.put("mensaje", "Stock insuficiente para el producto " + e.getProductId());
+                responseData.put("productId", e.getProductId());
+                responseData.put("requested", e.getRequested());
+                responseData.put("available", e.getAvailable());
+                return new ResponseEntity<>(responseData, HttpStatus.CONFLICT);
+            }
+        });
     }
 
     // Endpoint para actualizar una venta
@@ -69,6 +102,9 @@ public class SaleController {
             return ResponseEntity.ok(updatedSale);
         } catch (SaleService.ResourceNotFoundException e) {
             return ResponseEntity.notFound().build();
+        } catch (InventoryService.InsufficientStockException e) {
+            // Las cantidades nuevas superan el stock disponible
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(null);
         } catch (Exception e) {
             logger.error("Error updating sale: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -89,16 +125,47 @@ public class SaleController {
 
     // Nuevo endpoint para obtener ventas por estado
     @GetMapping("/status/{active}")
-    public List<Sale> getSalesByActiveStatus(@PathVariable String active) {
+    public List<SaleSummary> getSalesByActiveStatus(@PathVariable String active) {
         return saleService.getSalesByActiveStatus(active);
     }
 
     // Nuevo endpoint para obtener ventas por estado con paginación
     @GetMapping("/status/{active}/page")
-    public Page<Sale> getSalesPageableByActiveStatus(@PathVariable String active, Pageable pageable) {
+    public Page<SaleSummary> getSalesPageableByActiveStatus(@PathVariable String active, Pageable pageable) {
         return saleService.getSalesPageableByActiveStatus(active, pageable);
     }
 
+    // Endpoint para obtener ventas por estado con paginación por cursor (keyset)
+    @GetMapping("/status/{active}/cursor")
+    public CursorPage<SaleSummary> getSalesByCursor(@PathVariable String active,
+                                                    @RequestParam(required = false) Long lastId,
+                                                    @RequestParam(defaultValue = "20") int size) {
+        return saleService.getSalesByCursor(active, lastId, size);
+    }
+
+    // Endpoint para consultar el agregado diario de ventas (día, vendedor, método de pago, categoría)
+    @GetMapping("/summary")
+    public List<SaleDailySummary> getDailySummary(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                  @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return saleDailySummaryService.getSummaries(from, to);
+    }
+
+    // Endpoint para reconstruir el agregado diario desde las ventas (carga inicial o corrección)
+    @PostMapping("/summary/rebuild")
+    public ResponseEntity<Object> rebuildDailySummary(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        HashMap<String, Object> responseData = new HashMap<>();
+        if (from.isAfter(to)) {
+            responseData.put("error", true);
+            responseData.put("mensaje", "La fecha inicial no puede ser posterior a la final");
+            return new ResponseEntity<>(responseData, HttpStatus.BAD_REQUEST);
+        }
+        int rows = saleDailySummaryService.rebuild(from, to);
+        responseData.put("mensaje", "Agregado diario reconstruido");
+        responseData.put("rows", rows);
+        return new ResponseEntity<>(responseData, HttpStatus.OK);
+    }
+
     // Endpoint para eliminar lógicamente una venta (cambia el estado a 'I')
     @PutMapping("/delete/{id}")
     public ResponseEntity<Sale> logicalDeleteSale(@PathVariable Long id) {
@@ -118,7 +185,7 @@ public class SaleController {
         try {
             Sale sale = saleService.logicalActivateSale(id);
             return ResponseEntity.ok(sale);
-        } catch (SaleService.ResourceConflictException e) {
+        } catch (SaleService.ResourceConflictException | InventoryService.InsufficientStockException e) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(null);
         } catch (SaleService.ResourceNotFoundException e) {
             return ResponseEntity.notFound().build();
@@ -129,17 +196,8 @@ public class SaleController {
     @GetMapping("/report/{id}")
     public ResponseEntity<byte[]> generateSaleReport(@PathVariable Long id) {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-
-            // Cargar el archivo de diseño del reporte de venta unitaria
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_ventaUnitaria.jasper");
-
             // Obtener la venta por ID
-            Optional<Sale> optionalSale = this.saleService.getSaleById(id);
+            Optional<Sale> optionalSale = this.saleService.getSaleReportById(id);
 
             if (optionalSale.isEmpty()) {
                 // Si no se encuentra la venta, devolver error 404
@@ -149,35 +207,13 @@ public class SaleController {
             Sale sale = optionalSale.get();
 
             // Convertir los objetos Sale a SaleReportData
-            List<SaleReportData> saleReportData = new ArrayList<>();
-            for (SaleDetail detail : sale.getSaleDetails()) {
-                SaleReportData data = new SaleReportData();
-                data.setSALE_ID(BigDecimal.valueOf(sale.getId()));
-                String formattedDate = sale.getFormattedDateTime();
-                data.setSALE_DATE(formattedDate);
-                data.setCLIENT_NAME(sale.getClient().getNames() + " " + sale.getClient().getLastName());
-                data.setSELLER_NAME(sale.getSeller().getNames() + " " + sale.getSeller().getLastName());
-                data.setPRODUCT_NAME(detail.getProduct().getName());
-                data.setUNIT_SALE(detail.getProduct().getUnitSale());
-                data.setPAYMENT_METHOD(detail.getSale().getPaymentMethod().getName());
-                data.setQUANTITY(BigDecimal.valueOf(detail.getAmount()));
-                data.setPRICE_UNIT(BigDecimal.valueOf(detail.getProduct().getPriceUnit()));
-                data.setSUBTOTAL_PRODUCT(BigDecimal.valueOf(detail.getSubtotalSale()));
-                data.setTOTAL(BigDecimal.valueOf(detail.getSale().getTotalSale()));
-
-                saleReportData.add(data);
-            }
+            List<SaleReportData> saleReportData = this.reportDataService.getSaleLines(sale);
 
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(saleReportData);
 
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-
-            // Exportar el reporte a un array de bytes en formato PDF
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JasperExportManager.exportReportToPdfStream(jasperPrint, byteArrayOutputStream);
+            // Llenar el reporte con la plantilla en caché y exportarlo a PDF
+            byte[] report = reportService.exportPdf("report_ventaUnitaria", dataSource);
 
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
@@ -185,29 +221,54 @@ public class SaleController {
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("sale_report.pdf").build());
 
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
 
-        } catch (JRException | ParserConfigurationException e) {
+        } catch (JRException e) {
             // Manejar las excepciones y devolver el estado adecuado
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new byte[0]);
         }
     }
 
+    // Lote de comprobantes de varias ventas (ids o rango de fechas), generados en paralelo:
+    // format = pdf devuelve un solo PDF combinado, format = zip un PDF por venta a medida que terminan
+    @PostMapping("/report/bundle")
+    public ResponseEntity<StreamingResponseBody> generateSaleReportBundle(@RequestBody SaleReportBundleRequest request,
+                                                                          @RequestParam(defaultValue = "pdf") String format) {
+        boolean byIds = request.getSaleIds() != null && !request.getSaleIds().isEmpty();
+        boolean byRange = request.getFrom() != null && request.getTo() != null && !request.getFrom().isAfter(request.getTo());
+        if ((!byIds && !byRange) || !("pdf".equals(format) || "zip".equals(format))) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<Long> saleIds = this.saleReportBundleService.resolveSaleIds(request.getSaleIds(), request.getFrom(), request.getTo());
+        if (saleIds.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (saleIds.size() > this.saleReportBundleService.getMaxSales()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if ("zip".equals(format)) {
+            headers.setContentType(MediaType.parseMediaType("application/zip"));
+            headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("sale_reports.zip").build());
+            return new ResponseEntity<>(out -> this.saleReportBundleService.writeZip(saleIds, out), headers, HttpStatus.OK);
+        }
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("sale_reports.pdf").build());
+        return new ResponseEntity<>(out -> {
+            try {
+                this.saleReportBundleService.writeMergedPdf(saleIds, out);
+            } catch (JRException e) {
+                throw new IOException("Error generating sale report bundle", e);
+            }
+        }, headers, HttpStatus.OK);
+    }
+
     // Endpoint para generar reporte en Excel
     @GetMapping("/report/excel/{id}")
     public ResponseEntity<byte[]> generateExcelSaleReport(@PathVariable Long id) {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-
-            // Cargar el archivo de diseño del reporte de venta unitaria
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_ventaUnitaria.jasper");
-
             // Obtener la venta por ID
-            Optional<Sale> optionalSale = this.saleService.getSaleById(id);
+            Optional<Sale> optionalSale = this.saleService.getSaleReportById(id);
 
             if (optionalSale.isEmpty()) {
                 // Si no se encuentra la venta, devolver error 404
@@ -217,40 +278,13 @@ public class SaleController {
             Sale sale = optionalSale.get();
 
             // Convertir los objetos Sale a SaleReportData
-            List<SaleReportData> saleReportData = new ArrayList<>();
-            for (SaleDetail detail : sale.getSaleDetails()) {
-                SaleReportData data = new SaleReportData();
-                data.setSALE_ID(BigDecimal.valueOf(sale.getId()));
-                String formattedDate = sale.getFormattedDateTime();
-                data.setSALE_DATE(formattedDate);
-                data.setCLIENT_NAME(sale.getClient().getNames() + " " + sale.getClient().getLastName());
-                data.setSELLER_NAME(sale.getSeller().getNames() + " " + sale.getSeller().getLastName());
-                data.setPRODUCT_NAME(detail.getProduct().getName());
-                data.setUNIT_SALE(detail.getProduct().getUnitSale());
-                data.setPAYMENT_METHOD(detail.getSale().getPaymentMethod().getName());
-                data.setQUANTITY(BigDecimal.valueOf(detail.getAmount()));
-                data.setPRICE_UNIT(BigDecimal.valueOf(detail.getProduct().getPriceUnit()));
-                data.setSUBTOTAL_PRODUCT(BigDecimal.valueOf(detail.getSubtotalSale()));
-                data.setTOTAL(BigDecimal.valueOf(detail.getSale().getTotalSale()));
-
-                saleReportData.add(data);
-            }
+            List<SaleReportData> saleReportData = this.reportDataService.getSaleLines(sale);
 
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(saleReportData);
 
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-
-            // Exportar el reporte a un array de bytes en formato XLSX
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JRXlsxExporter exporter = new JRXlsxExporter();
-            exporter.setExporterInput(new SimpleExporterInput(jasperPrint));
-            exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(byteArrayOutputStream));
-            SimpleXlsxExporterConfiguration configuration = new SimpleXlsxExporterConfiguration();
-            exporter.setConfiguration(configuration);
-            exporter.exportReport();
+            // Llenar el reporte con la plantilla en caché y exportarlo a XLSX
+            byte[] report = reportService.exportXlsx("report_ventaUnitaria", dataSource);
 
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
@@ -258,11 +292,20 @@ public class SaleController {
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("sale_report.xlsx").build());
 
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
 
-        } catch (JRException | ParserConfigurationException e) {
+        } catch (JRException e) {
             // Manejar las excepciones y devolver el estado adecuado
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new byte[0]);
         }
     }
+
+    // Exportación contable a CSV de las líneas de venta de un rango de fechas; gzip=true comprime la respuesta
+    @GetMapping("/export.csv")
+    public ResponseEntity<StreamingResponseBody> exportCsv(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                           @RequestParam(defaultValue = "false") boolean gzip) {
+        String filename = "sales_" + from + "_" + to + ".csv";
+        return this.csvExportService.download(CsvExportService.Dataset.SALE_LINES, from, to, gzip, filename);
+    }
 }
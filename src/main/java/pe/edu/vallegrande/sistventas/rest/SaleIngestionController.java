@@ -0,0 +1,73 @@
+package pe.edu.vallegrande.sistventas.rest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import pe.edu.vallegrande.sistventas.dto.Sale;
+import pe.edu.vallegrande.sistventas.service.IdempotencyService;
+import pe.edu.vallegrande.sistventas.service.SaleIngestionService;
+
+import java.util.HashMap;
+import java.util.Optional;
+
+// Endpoints de la ingesta diferida de ventas; solo existen con sale.ingestion.enabled=true
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/sales/ingest")
+@ConditionalOnProperty(name = "sale.ingestion.enabled", havingValue = "true")
+public class SaleIngestionController {
+    private final SaleIngestionService saleIngestionService;
+    private final IdempotencyService idempotencyService;
+
+    @Autowired
+    public SaleIngestionController(SaleIngestionService saleIngestionService, IdempotencyService idempotencyService) {
+        this.saleIngestionService = saleIngestionService;
+        this.idempotencyService = idempotencyService;
+    }
+
+    // Recibe una venta: 202 con el id provisional, 400 si no es válida, 503 si la cola está llena
+    @PostMapping
+    public ResponseEntity<Object> ingestSale(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+                                             @RequestBody Sale sale) {
+        return idempotencyService.execute("sale-ingest", idempotencyKey, sale, () -> {
+            try {
+                SaleIngestionService.IngestionStatus status = saleIngestionService.accept(sale);
+                return ResponseEntity.accepted()
+                        .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                                .path("/{id}").buildAndExpand(status.provisionalId()).toUri())
+                        .body(status);
+            } catch (SaleIngestionService.InvalidSaleException e) {
+                return error(HttpStatus.BAD_REQUEST, e.getMessage());
+            } catch (SaleIngestionService.QueueFullException e) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .body(errorBody(e.getMessage()));
+            }
+        });
+    }
+
+    // Estado de una venta recibida: QUEUED, COMMITTED (con el id definitivo), REJECTED o FAILED (se reintenta)
+    @GetMapping("/{provisionalId}")
+    public ResponseEntity<Object> getStatus(@PathVariable String provisionalId) {
+        Optional<SaleIngestionService.IngestionStatus> status = saleIngestionService.getStatus(provisionalId);
+        if (status.isEmpty()) {
+            return error(HttpStatus.NOT_FOUND, "Venta no encontrada o estado vencido");
+        }
+        return ResponseEntity.ok(status.get());
+    }
+
+    private ResponseEntity<Object> error(HttpStatus status, String message) {
+        return new ResponseEntity<>(errorBody(message), status);
+    }
+
+    private HashMap<String, Object> errorBody(String message) {
+        HashMap<String, Object> responseData = new HashMap<>();
+        responseData.put("error", true);
+        responseData.put("mensaje", message);
+        return responseData;
+    }
+}
@@ -0,0 +1,74 @@
+package pe.edu.vallegrande.sistventas.rest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import pe.edu.vallegrande.sistventas.service.SaleStatsService;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.function.BiFunction;
+
+@CrossOrigin(origins = "*")
+@RestController
+@RequestMapping("/api/sales/stats")
+public class SaleStatsController {
+    private final SaleStatsService saleStatsService;
+
+    @Autowired
+    public SaleStatsController(SaleStatsService saleStatsService) {
+        this.saleStatsService = saleStatsService;
+    }
+
+    // Endpoint para totales por periodo: granularity = day, week o month
+    @GetMapping("/period")
+    public ResponseEntity<Object> getTotalsByPeriod(@RequestParam(defaultValue = "day") String granularity,
+                                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        SaleStatsService.Granularity parsed;
+        try {
+            parsed = SaleStatsService.Granularity.valueOf(granularity.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return badRequest("Granularidad no válida, use day, week o month");
+        }
+        return inRange(from, to, (start, end) -> saleStatsService.getTotalsByPeriod(parsed, start, end));
+    }
+
+    // Endpoint para totales por vendedor
+    @GetMapping("/seller")
+    public ResponseEntity<Object> getTotalsBySeller(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return inRange(from, to, saleStatsService::getTotalsBySeller);
+    }
+
+    // Endpoint para totales por método de pago
+    @GetMapping("/payment-method")
+    public ResponseEntity<Object> getTotalsByPaymentMethod(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                           @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return inRange(from, to, saleStatsService::getTotalsByPaymentMethod);
+    }
+
+    // Endpoint para totales por categoría de producto
+    @GetMapping("/category")
+    public ResponseEntity<Object> getTotalsByCategory(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return inRange(from, to, saleStatsService::getTotalsByCategory);
+    }
+
+    private ResponseEntity<Object> inRange(LocalDate from, LocalDate to, BiFunction<LocalDate, LocalDate, Object> query) {
+        if (from.isAfter(to)) {
+            return badRequest("La fecha inicial no puede ser posterior a la final");
+        }
+        return ResponseEntity.ok(query.apply(from, to));
+    }
+
+    private ResponseEntity<Object> badRequest(String message) {
+        HashMap<String, Object> responseData = new HashMap<>();
+        responseData.put("error", true);
+        responseData.put("mensaje", message);
+        return new ResponseEntity<>(responseData, HttpStatus.BAD_REQUEST);
+    }
+}
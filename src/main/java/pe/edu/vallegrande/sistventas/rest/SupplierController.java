@@ -1,13 +1,6 @@
 package pe.edu.vallegrande.sistventas.rest;
 import net.sf.jasperreports.engine.JRException;
-import net.sf.jasperreports.engine.JasperExportManager;
-import net.sf.jasperreports.engine.JasperFillManager;
-import net.sf.jasperreports.engine.JasperPrint;
 import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
-import net.sf.jasperreports.engine.export.ooxml.JRXlsxExporter;
-import net.sf.jasperreports.export.SimpleExporterInput;
-import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
-import net.sf.jasperreports.export.SimpleXlsxExporterConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
@@ -18,31 +11,32 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pe.edu.vallegrande.sistventas.model.Supplier;
 import pe.edu.vallegrande.sistventas.model.reports.SupplierReportData;
+import pe.edu.vallegrande.sistventas.service.ExcelExportService;
+import pe.edu.vallegrande.sistventas.service.ReportDataService;
+import pe.edu.vallegrande.sistventas.service.ReportService;
 import pe.edu.vallegrande.sistventas.service.SupplierService;
 
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
-import java.math.BigDecimal;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 @CrossOrigin(origins = "*")
 @RestController
 @RequestMapping("api/v1/suppliers")
 public class SupplierController {
     private final SupplierService supplierService;
+    private final ReportService reportService;
+    private final ReportDataService reportDataService;
+    private final ExcelExportService excelExportService;
     private static final Logger logger = LoggerFactory.getLogger(SupplierController.class);
 
     @Autowired
-    public SupplierController(SupplierService supplierService){
+    public SupplierController(SupplierService supplierService, ReportService reportService, ReportDataService reportDataService,
+                              ExcelExportService excelExportService){
         this.supplierService = supplierService;
+        this.reportService = reportService;
+        this.reportDataService = reportDataService;
+        this.excelExportService = excelExportService;
     }
 
     // Endpoint para listar todas los proveedores
@@ -124,51 +118,22 @@ public class SupplierController {
     @GetMapping("/report")
     public ResponseEntity<byte[]> generateReport() {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_supplier.jasper");
             // Obtener los datos para el reporte
-            List<Supplier> suppliers = this.supplierService.getActiveSuppliers();
-            // Convertir los objetos Person a ClientReportData
-            List<SupplierReportData> supplierReportData = suppliers.stream()
-                    .map(supplier -> {
-                        SupplierReportData data = new SupplierReportData();
-                        data.setID(BigDecimal.valueOf(supplier.getId()));
-                        data.setRUC(supplier.getRuc());
-                        data.setNAME_COMPANY(supplier.getNameCompany());
-                        data.setNAMES(supplier.getNames());
-                        data.setLAST_NAME(supplier.getLastName());
-                        data.setCELL_PHONE(supplier.getCellPhone());
-                        data.setEMAIL(supplier.getEmail());
-                        return data;
-                    })
-                    .collect(Collectors.toList());
+            List<SupplierReportData> supplierReportData = this.reportDataService.getSuppliers(true);
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(supplierReportData);
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-            // Exportar el reporte a un array de bytes
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JasperExportManager.exportReportToPdfStream(jasperPrint, byteArrayOutputStream);
+            // Llenar el reporte con la plantilla en caché y exportarlo a PDF
+            byte[] report = reportService.exportPdf("report_supplier", dataSource);
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("client_report.pdf").build());
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
         } catch (JRException e) {
             logger.error("Error generating report: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
-        } catch (ParserConfigurationException e) {
-            logger.error("Error configuring document builder: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new byte[0]);
         } catch (Exception e) {
             logger.error("Unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -178,58 +143,22 @@ public class SupplierController {
     @GetMapping("/report/excel")
     public ResponseEntity<byte[]> generateExcelReport() {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_supplier.jasper");
             // Obtener los datos para el reporte
-            List<Supplier> suppliers = this.supplierService.getActiveSuppliers();
-            // Convertir los objetos Person a ClientReportData
-            List<SupplierReportData> supplierReportData = suppliers.stream()
-                    .map(supplier -> {
-                        SupplierReportData data = new SupplierReportData();
-                        data.setID(BigDecimal.valueOf(supplier.getId()));
-                        data.setRUC(supplier.getRuc());
-                        data.setNAME_COMPANY(supplier.getNameCompany());
-                        data.setNAMES(supplier.getNames());
-                        data.setLAST_NAME(supplier.getLastName());
-                        data.setCELL_PHONE(supplier.getCellPhone());
-                        data.setEMAIL(supplier.getEmail());
-                        return data;
-                    })
-                    .collect(Collectors.toList());
+            List<SupplierReportData> supplierReportData = this.reportDataService.getSuppliers(true);
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(supplierReportData);
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-            // Exportar el reporte a un array de bytes en formato XLSX
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JRXlsxExporter exporter = new JRXlsxExporter();
-            SimpleExporterInput exporterInput = new SimpleExporterInput(jasperPrint);
-            SimpleOutputStreamExporterOutput exporterOutput = new SimpleOutputStreamExporterOutput(byteArrayOutputStream);
-            SimpleXlsxExporterConfiguration configuration = new SimpleXlsxExporterConfiguration();
-            exporter.setExporterInput(exporterInput);
-            exporter.setExporterOutput(exporterOutput);
-            exporter.setConfiguration(configuration);
-            exporter.exportReport();
+            // Llenar el reporte con la plantilla en caché y exportarlo a XLSX
+            byte[] report = reportService.exportXlsx("report_supplier", dataSource);
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("client_report.xlsx").build());
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
         } catch (JRException e) {
             logger.error("Error generating report: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
-        } catch (ParserConfigurationException e) {
-            logger.error("Error configuring document builder: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new byte[0]);
         } catch (Exception e) {
             logger.error("Unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -241,51 +170,22 @@ public class SupplierController {
     @GetMapping("/inactive/report")
     public ResponseEntity<byte[]> generateReportInactive() {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_supplier.jasper");
             // Obtener los datos para el reporte
-            List<Supplier> suppliers = this.supplierService.getInactiveSuppliers();
-            // Convertir los objetos Person a ClientReportData
-            List<SupplierReportData> supplierReportData = suppliers.stream()
-                    .map(supplier -> {
-                        SupplierReportData data = new SupplierReportData();
-                        data.setID(BigDecimal.valueOf(supplier.getId()));
-                        data.setRUC(supplier.getRuc());
-                        data.setNAME_COMPANY(supplier.getNameCompany());
-                        data.setNAMES(supplier.getNames());
-                        data.setLAST_NAME(supplier.getLastName());
-                        data.setCELL_PHONE(supplier.getCellPhone());
-                        data.setEMAIL(supplier.getEmail());
-                        return data;
-                    })
-                    .collect(Collectors.toList());
+            List<SupplierReportData> supplierReportData = this.reportDataService.getSuppliers(false);
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(supplierReportData);
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-            // Exportar el reporte a un array de bytes
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JasperExportManager.exportReportToPdfStream(jasperPrint, byteArrayOutputStream);
+            // Llenar el reporte con la plantilla en caché y exportarlo a PDF
+            byte[] report = reportService.exportPdf("report_supplier", dataSource);
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("client_report.pdf").build());
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
         } catch (JRException e) {
             logger.error("Error generating report: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
-        } catch (ParserConfigurationException e) {
-            logger.error("Error configuring document builder: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new byte[0]);
         } catch (Exception e) {
             logger.error("Unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -295,62 +195,32 @@ public class SupplierController {
     @GetMapping("inactive/report/excel")
     public ResponseEntity<byte[]> generateExcelReportInactive() {
         try {
-            // Configurar el DocumentBuilderFactory manualmente
-            System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
-            DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-            dbf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            DocumentBuilder db = dbf.newDocumentBuilder();
-            // Cargar el archivo de diseño del reporte
-            InputStream reportStream = this.getClass().getResourceAsStream("/reports/report_supplier.jasper");
             // Obtener los datos para el reporte
-            List<Supplier> suppliers = this.supplierService.getInactiveSuppliers();
-            // Convertir los objetos Person a ClientReportData
-            List<SupplierReportData> supplierReportData = suppliers.stream()
-                    .map(supplier -> {
-                        SupplierReportData data = new SupplierReportData();
-                        data.setID(BigDecimal.valueOf(supplier.getId()));
-                        data.setRUC(supplier.getRuc());
-                        data.setNAME_COMPANY(supplier.getNameCompany());
-                        data.setNAMES(supplier.getNames());
-                        data.setLAST_NAME(supplier.getLastName());
-                        data.setCELL_PHONE(supplier.getCellPhone());
-                        data.setEMAIL(supplier.getEmail());
-                        return data;
-                    })
-                    .collect(Collectors.toList());
+            List<SupplierReportData> supplierReportData = this.reportDataService.getSuppliers(false);
             // Crear el origen de datos para el reporte
             JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(supplierReportData);
-            // Llenar el reporte con los datos
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(reportStream, parameters, dataSource);
-            // Exportar el reporte a un array de bytes en formato XLSX
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            JRXlsxExporter exporter = new JRXlsxExporter();
-            SimpleExporterInput exporterInput = new SimpleExporterInput(jasperPrint);
-            SimpleOutputStreamExporterOutput exporterOutput = new SimpleOutputStreamExporterOutput(byteArrayOutputStream);
-            SimpleXlsxExporterConfiguration configuration = new SimpleXlsxExporterConfiguration();
-            exporter.setExporterInput(exporterInput);
-            exporter.setExporterOutput(exporterOutput);
-            exporter.setConfiguration(configuration);
-            exporter.exportReport();
+            // Llenar el reporte con la plantilla en caché y exportarlo a XLSX
+            byte[] report = reportService.exportXlsx("report_supplier", dataSource);
             // Establecer los encabezados de la respuesta HTTP
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
             headers.setContentDisposition(org.springframework.http.ContentDisposition.attachment().filename("client_report.xlsx").build());
             // Devolver el reporte como respuesta
-            return new ResponseEntity<>(byteArrayOutputStream.toByteArray(), headers, HttpStatus.OK);
+            return new ResponseEntity<>(report, headers, HttpStatus.OK);
         } catch (JRException e) {
             logger.error("Error generating report: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
-        } catch (ParserConfigurationException e) {
-            logger.error("Error configuring document builder: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new byte[0]);
         } catch (Exception e) {
             logger.error("Unexpected error: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new byte[0]);
         }
     }
+
+    // Exportación a Excel en streaming (SXSSF, sin Jasper) para listas grandes; active = A o I
+    @GetMapping("/export/excel")
+    public ResponseEntity<StreamingResponseBody> exportExcel(@RequestParam(defaultValue = "A") String active) {
+        return this.excelExportService.download(ExcelExportService.Dataset.SUPPLIERS, active, "supplier_export.xlsx");
+    }
 }
@@ -0,0 +1,88 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Versión por colección del catálogo para los ETag de los listados que consultan los POS. Cada
+// escritura incrementa la versión de su colección después del commit, y la versión se lee antes de
+// consultar: en la carrera, un ETag viejo con datos nuevos solo cuesta una descarga de más (nunca
+// se responde 304 con datos desactualizados). Las versiones viven en memoria, igual que las cachés
+// de referencia: con varias instancias cada una debe recibir sus propias escrituras.
+// El stock tiene su propia versión (STOCK): cambia con cada venta, reserva y compra, así que el catálogo
+// de los POS (/products/active/catalog) no lo incluye y sigue respondiendo 304 durante el día; el stock
+// se consulta aparte (/products/active/stock). Los listados que sí traen el stock dependen de las dos.
+@Component
+public class CatalogVersions {
+
+    public enum Catalog { PRODUCTS, CATEGORIES, PAYMENT_METHODS, STOCK }
+
+    // Distingue los ETag de un arranque a otro (las versiones vuelven a cero)
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<Catalog, AtomicLong> versions = new EnumMap<>(Catalog.class);
+
+    public CatalogVersions() {
+        for (Catalog catalog : Catalog.values()) {
+            versions.put(catalog, new AtomicLong());
+        }
+    }
+
+    // Marca la colección como modificada; dentro de una transacción, recién al confirmarla
+    public void bump(Catalog catalog) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    versions.get(catalog).incrementAndGet();
+                }
+            });
+        } else {
+            versions.get(catalog).incrementAndGet();
+        }
+    }
+
+    // ETag fuerte de un listado que depende de las colecciones indicadas
+    public String etag(Catalog... catalogs) {
+        StringBuilder etag = new StringBuilder("\"").append(epoch);
+        for (Catalog catalog : catalogs) {
+            etag.append('-').append(versions.get(catalog).get());
+        }
+        return etag.append('"').toString();
+    }
+
+    // GET condicional: 304 sin ejecutar la consulta si If-None-Match coincide con la versión actual;
+    // en otro caso, la respuesta de la consulta con su ETag
+    public <T> ResponseEntity<T> conditional(String ifNoneMatch, Supplier<ResponseEntity<T>> query, Catalog... catalogs) {
+        String etag = etag(catalogs);
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        ResponseEntity<T> response = query.get();
+        return ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders()).eTag(etag)
+                .body(response.getBody());
+    }
+
+    // If-None-Match admite una lista de ETag, "*" y ETag débiles (W/"..."), que se comparan sin el prefijo
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
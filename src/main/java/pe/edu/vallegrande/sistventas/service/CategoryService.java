@@ -10,6 +10,7 @@ import org.springframework.stereotype.Service;
 import pe.edu.vallegrande.sistventas.model.CategoryProduct;
 import pe.edu.vallegrande.sistventas.model.Person;
 import pe.edu.vallegrande.sistventas.repository.CategoryRepo;
+import pe.edu.vallegrande.sistventas.service.CatalogVersions.Catalog;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -17,9 +18,13 @@ import java.util.stream.Collectors;
 public class CategoryService {
     HashMap<String, Object> datos;
     private final CategoryRepo categoryRepo;
+    private final CatalogVersions catalogVersions;
+    private final ProductIndex productIndex;
     @Autowired
-    public CategoryService(CategoryRepo categoryRepo){
+    public CategoryService(CategoryRepo categoryRepo, CatalogVersions catalogVersions, ProductIndex productIndex){
         this.categoryRepo = categoryRepo;
+        this.catalogVersions = catalogVersions;
+        this.productIndex = productIndex;
     }
     // Listado completo de todas las categorias en orden descendente
     public ResponseEntity<List<CategoryProduct>> getCategories() {
@@ -70,7 +75,8 @@ public class CategoryService {
     // Listado con paginador en vendedores activos
     public Page<CategoryProduct> listPageableCategoriesA(Pageable pageable){
         // Obtiene todos los vendedores activos
-        List<CategoryProduct> allActiveCategory = this.categoryRepo.findByActive("A");
+        // Copia: la lista del repositorio viene de la caché compartida y no debe ordenarse en sitio
+        List<CategoryProduct> allActiveCategory = new ArrayList<>(this.categoryRepo.findByActive("A"));
         // Ordena toda la lista por ID
         allActiveCategory.sort(Comparator.comparing(CategoryProduct::getId).reversed());
         // Aplica la paginación
@@ -84,7 +90,8 @@ public class CategoryService {
     // Listado con paginador en vendedores inactivos
     public Page<CategoryProduct> listPageableCategoriesI(Pageable pageable){
         // Obtiene todos los vendedores inactivos
-        List<CategoryProduct> allInactiveCategories = this.categoryRepo.findByActive("I");
+        // Copia: la lista del repositorio viene de la caché compartida y no debe ordenarse en sitio
+        List<CategoryProduct> allInactiveCategories = new ArrayList<>(this.categoryRepo.findByActive("I"));
         // Ordena toda la lista por ID
         allInactiveCategories.sort(Comparator.comparing(CategoryProduct::getId).reversed());
         // Aplica la paginación
@@ -110,6 +117,8 @@ public class CategoryService {
         }
         // Si no existe, insertar una nueva categoria
         CategoryProduct savedCategory = categoryRepo.save(category);
+        // Nueva versión de las categorías (y de los productos, que las incluyen) para el ETag
+        catalogVersions.bump(Catalog.CATEGORIES);
         HashMap<String, Object> responseData = new HashMap<>();
         responseData.put("mensaje", "Se guardó con éxito");
         responseData.put("data", savedCategory);
@@ -125,6 +134,8 @@ public class CategoryService {
             updateExistingCategory(existingCategory, updateCategory);
             // Guardar la categoria actualizado en la base de datos
             categoryRepo.save(existingCategory);
+            productIndex.refreshCategory(existingCategory); // Los productos indexados muestran el nombre nuevo
+            catalogVersions.bump(Catalog.CATEGORIES);
             datos.put("mensaje", "Categoria actualizado con éxito");
             datos.put("data", existingCategory);
             return new ResponseEntity<>(datos, HttpStatus.OK);
@@ -150,6 +161,7 @@ public class CategoryService {
             return new ResponseEntity<>(datos, HttpStatus.CONFLICT);
         }
         categoryRepo.deleteById(id);
+        catalogVersions.bump(Catalog.CATEGORIES);
         datos.put("mensaje","Categoria eliminado");
         return new ResponseEntity<>(datos, HttpStatus.ACCEPTED);
     }
@@ -165,6 +177,8 @@ public class CategoryService {
             existingCategory.setActive("I");
             // Guardar la categoria actualizado en la base de datos
             categoryRepo.save(existingCategory);
+            productIndex.refreshCategory(existingCategory);
+            catalogVersions.bump(Catalog.CATEGORIES);
             return ResponseEntity.ok("{\"message\": \"Categoria marcado como inactivo.\"}");
         } else {
             return ResponseEntity.notFound().build();
@@ -180,6 +194,8 @@ public class CategoryService {
             }
             category.setActive("A");
             categoryRepo.save(category);
+            productIndex.refreshCategory(category);
+            catalogVersions.bump(Catalog.CATEGORIES);
             return ResponseEntity.ok("{\"message\": \"Categoria activado correctamente.\"}");
         } else {
             return ResponseEntity.notFound().build();
@@ -6,10 +6,11 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.sistventas.dto.projection.PersonSummary;
 import pe.edu.vallegrande.sistventas.model.Person;
 import pe.edu.vallegrande.sistventas.repository.PersonRepo;
+import pe.edu.vallegrande.sistventas.util.DisplayFormats;
 
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -22,10 +23,7 @@ public class ClientService {
     // Método para formatear la fecha de nacimiento
     private Person formatDateOfBirth(Person person) {
         if (person != null && person.getBirthdate() != null) {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MMM-yyyy");
-            String formattedDate = person.getBirthdate().format(formatter);
-            formattedDate = formattedDate.replace(".", ""); // Eliminar el punto después del mes
-            person.setBirthdateFormatted(formattedDate);
+            person.setBirthdateFormatted(DisplayFormats.date(person.getBirthdate()));
         }
         return person;
     }
@@ -37,12 +35,17 @@ public class ClientService {
     public List<Person> getExistingClients(String numberDocument) {
         return personRepo.findByRolPersonAndNumberDocument("C", numberDocument);
     }
-    // Listar clientes activos (rolPerson = "C")
-    public List<Person> getClients() {
-        return this.personRepo.findByRolPerson("C").stream()
-                .map(this::formatDateOfBirth)
-                .sorted(Comparator.comparing(Person::getId).reversed())
-                .collect(Collectors.toList());
+    // Listar clientes (rolPerson = "C"), proyección de listado
+    public List<PersonSummary> getClients() {
+        return this.personRepo.findSummariesByRolPerson("C");
+    }
+    // Listado liviano de clientes activos (proyección)
+    public List<PersonSummary> getActiveClientSummaries() {
+        return this.personRepo.findSummariesByRolPersonAndActive("C", "A");
+    }
+    // Listado liviano de clientes inactivos (proyección)
+    public List<PersonSummary> getInactiveClientSummaries() {
+        return this.personRepo.findSummariesByRolPersonAndActive("C", "I");
     }
     // Listar clientes activos (rolPerson = "C")
     public List<Person> getActiveClients() {
@@ -0,0 +1,208 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+// Exportación contable a CSV de las líneas de venta y de compra de un rango de fechas. Las filas se leen
+// de un cursor JDBC de solo avance y se escriben una a una en la respuesta (con gzip opcional), así que
+// la memoria no depende del número de líneas. Solo se exportan ventas y compras activas.
+@Service
+public class CsvExportService {
+    private static final int FETCH_SIZE = 2000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // BOM UTF-8 para que Excel reconozca las tildes al abrir el archivo
+    private static final char BOM = '\uFEFF';
+    private static final MediaType CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    public enum ValueKind { TEXT, NUMBER, DATE_TIME }
+
+    public record Column(String header, String name, ValueKind kind) {
+    }
+
+    // Exportaciones disponibles; los parámetros de cada consulta son el inicio y el fin (exclusivo) del rango
+    public enum Dataset {
+        // sale_detail no guarda el precio unitario: se deriva del subtotal cobrado, no del precio actual del catálogo
+        SALE_LINES("SELECT s.id AS sale_id, s.date_time, c.number_document AS client_document, " +
+                "c.names || ' ' || c.last_name AS client_name, v.names || ' ' || v.last_name AS seller_name, " +
+                "pm.name AS payment_method, p.code AS product_code, p.name AS product_name, d.amount, " +
+                "ROUND(d.subtotal_sale / NULLIF(d.amount, 0), 6) AS price_unit, d.subtotal_sale AS subtotal, s.total_sale AS total " +
+                "FROM sale s JOIN sale_detail d ON d.sale_id = s.id JOIN product p ON p.id = d.product_id " +
+                "JOIN person c ON c.id = s.client_id JOIN person v ON v.id = s.seller_id " +
+                "JOIN payment_method pm ON pm.id = s.payment_method_id " +
+                "WHERE s.active = 'A' AND s.date_time >= ? AND s.date_time < ? ORDER BY s.date_time, s.id, d.id",
+                List.of(new Column("sale_id", "sale_id", ValueKind.NUMBER),
+                        new Column("date_time", "date_time", ValueKind.DATE_TIME),
+                        new Column("client_document", "client_document", ValueKind.TEXT),
+                        new Column("client_name", "client_name", ValueKind.TEXT),
+                        new Column("seller_name", "seller_name", ValueKind.TEXT),
+                        new Column("payment_method", "payment_method", ValueKind.TEXT),
+                        new Column("product_code", "product_code", ValueKind.TEXT),
+                        new Column("product_name", "product_name", ValueKind.TEXT),
+                        new Column("quantity", "amount", ValueKind.NUMBER),
+                        new Column("price_unit", "price_unit", ValueKind.NUMBER),
+                        new Column("subtotal", "subtotal", ValueKind.NUMBER),
+                        new Column("sale_total", "total", ValueKind.NUMBER))),
+        PURCHASE_LINES("SELECT pu.id AS purchase_id, pu.date_time, su.ruc AS supplier_ruc, " +
+                "su.name_company AS supplier_name, v.names || ' ' || v.last_name AS seller_name, " +
+                "pm.name AS payment_method, p.code AS product_code, p.name AS product_name, d.amount, " +
+                "d.price_unit, d.subtotal_purchase AS subtotal, pu.total_purchase AS total " +
+                "FROM purchase pu JOIN purchase_detail d ON d.purchase_id = pu.id JOIN product p ON p.id = d.product_id " +
+                "JOIN supplier su ON su.id = pu.supplier_id JOIN person v ON v.id = pu.seller_id " +
+                "JOIN payment_method pm ON pm.id = pu.payment_method_id " +
+                "WHERE pu.active = 'A' AND pu.date_time >= ? AND pu.date_time < ? ORDER BY pu.date_time, pu.id, d.id",
+                List.of(new Column("purchase_id", "purchase_id", ValueKind.NUMBER),
+                        new Column("date_time", "date_time", ValueKind.DATE_TIME),
+                        new Column("supplier_ruc", "supplier_ruc", ValueKind.TEXT),
+                        new Column("supplier_name", "supplier_name", ValueKind.TEXT),
+                        new Column("seller_name", "seller_name", ValueKind.TEXT),
+                        new Column("payment_method", "payment_method", ValueKind.TEXT),
+                        new Column("product_code", "product_code", ValueKind.TEXT),
+                        new Column("product_name", "product_name", ValueKind.TEXT),
+                        new Column("quantity", "amount", ValueKind.NUMBER),
+                        new Column("price_unit", "price_unit", ValueKind.NUMBER),
+                        new Column("subtotal", "subtotal", ValueKind.NUMBER),
+                        new Column("purchase_total", "total", ValueKind.NUMBER)));
+
+        private final String sql;
+        private final List<Column> columns;
+
+        Dataset(String sql, List<Column> columns) {
+            this.sql = sql;
+            this.columns = columns;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CsvExportService(DataSource dataSource) {
+        // JdbcTemplate propio con un fetch size alto: menos viajes a la base de datos por millón de filas
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    // Respuesta de descarga; con gzip = true el cuerpo va comprimido (Content-Encoding: gzip)
+    public ResponseEntity<StreamingResponseBody> download(Dataset dataset, LocalDate from, LocalDate to,
+                                                          boolean gzip, String filename) {
+        if (from.isAfter(to)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(CSV);
+        headers.setContentDisposition(ContentDisposition.attachment().filename(filename).build());
+        if (gzip) {
+            headers.add(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return new ResponseEntity<>(out -> export(dataset, from, to, gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out),
+                headers, HttpStatus.OK);
+    }
+
+    // Escribe las líneas del rango [from, to] (días completos) en el flujo de salida y lo cierra
+    public void export(Dataset dataset, LocalDate from, LocalDate to, OutputStream out) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            writer.write(BOM);
+            writeHeader(writer, dataset.columns);
+            StringBuilder line = new StringBuilder(256);
+            try {
+                jdbcTemplate.query(dataset.sql, (RowCallbackHandler) rs -> {
+                    line.setLength(0);
+                    appendRow(line, rs, dataset.columns);
+                    try {
+                        writer.append(line);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+            } catch (UncheckedIOException e) {
+                // El cliente cortó la descarga: se deja de leer el cursor
+                throw e.getCause();
+            }
+        }
+    }
+
+    private void writeHeader(Writer writer, List<Column> columns) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(columns.get(i).header());
+        }
+        writer.write("\r\n");
+    }
+
+    private void appendRow(StringBuilder line, ResultSet rs, List<Column> columns) throws SQLException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            Column column = columns.get(i);
+            switch (column.kind()) {
+                case NUMBER -> {
+                    BigDecimal value = rs.getBigDecimal(column.name());
+                    if (value != null) {
+                        line.append(value.stripTrailingZeros().toPlainString());
+                    }
+                }
+                case DATE_TIME -> {
+                    Timestamp value = rs.getTimestamp(column.name());
+                    if (value != null) {
+                        DATE_TIME_FORMAT.formatTo(value.toLocalDateTime(), line);
+                    }
+                }
+                default -> appendText(line, rs.getString(column.name()));
+            }
+        }
+        line.append("\r\n");
+    }
+
+    // Texto según RFC 4180: entre comillas solo si contiene separador, comillas o saltos de línea.
+    // Un texto que empieza con =, +, -, @, tabulación o retorno de carro lleva un apóstrofo delante para
+    // que Excel no lo evalúe como fórmula (nombres de clientes, productos y proveedores los escribe el usuario)
+    private static void appendText(StringBuilder line, String value) {
+        if (value == null) {
+            return;
+        }
+        if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,191 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+// Exportación a Excel de los maestros (productos, clientes, vendedores, proveedores, categorías) sin
+// pasar por Jasper: las filas se leen de un cursor JDBC y se escriben con SXSSF, que solo mantiene en
+// memoria una ventana de ROW_WINDOW filas y vuelca el resto a un temporal comprimido. El consumo de
+// heap no depende del número de filas; el .xlsx se escribe al final directamente en la respuesta.
+@Service
+public class ExcelExportService {
+    private static final int ROW_WINDOW = 100;
+    private static final int FETCH_SIZE = 500;
+    private static final String DATE_FORMAT = "dd-mmm-yyyy";
+    private static final MediaType XLSX =
+            MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+    public enum CellKind { TEXT, NUMBER, DATE }
+
+    // Columna del Excel: encabezado, columna del SELECT y tipo de celda
+    public record Column(String header, String name, CellKind kind) {
+    }
+
+    // Maestros exportables; el único parámetro de cada consulta es el estado (A/I)
+    public enum Dataset {
+        PRODUCTS("Productos",
+                "SELECT p.id, p.code, p.name, c.name AS category_name, p.price_unit, p.unit_sale, " +
+                "p.date_expiry, p.stock, p.active FROM product p " +
+                "JOIN category_product c ON c.id = p.category_product_id WHERE p.active = ? ORDER BY p.id DESC",
+                List.of(new Column("ID", "id", CellKind.NUMBER),
+                        new Column("CÓDIGO", "code", CellKind.TEXT),
+                        new Column("PRODUCTO", "name", CellKind.TEXT),
+                        new Column("CATEGORÍA", "category_name", CellKind.TEXT),
+                        new Column("PRECIO UNITARIO", "price_unit", CellKind.NUMBER),
+                        new Column("UNIDAD", "unit_sale", CellKind.TEXT),
+                        new Column("VENCIMIENTO", "date_expiry", CellKind.DATE),
+                        new Column("STOCK", "stock", CellKind.NUMBER),
+                        new Column("ESTADO", "active", CellKind.TEXT))),
+        CLIENTS("Clientes",
+                "SELECT id, type_document, number_document, names, last_name, cell_phone, email, birthdate " +
+                "FROM person WHERE rol_person = 'C' AND active = ? ORDER BY id DESC",
+                List.of(new Column("ID", "id", CellKind.NUMBER),
+                        new Column("TIPO DOCUMENTO", "type_document", CellKind.TEXT),
+                        new Column("N° DOCUMENTO", "number_document", CellKind.TEXT),
+                        new Column("NOMBRES", "names", CellKind.TEXT),
+                        new Column("APELLIDOS", "last_name", CellKind.TEXT),
+                        new Column("CELULAR", "cell_phone", CellKind.TEXT),
+                        new Column("EMAIL", "email", CellKind.TEXT),
+                        new Column("NACIMIENTO", "birthdate", CellKind.DATE))),
+        // Sin la contraseña del vendedor: una hoja de cálculo se comparte con facilidad
+        SELLERS("Vendedores",
+                "SELECT id, type_document, number_document, names, last_name, cell_phone, email, salary, seller_user " +
+                "FROM person WHERE rol_person = 'V' AND active = ? ORDER BY id DESC",
+                List.of(new Column("ID", "id", CellKind.NUMBER),
+                        new Column("TIPO DOCUMENTO", "type_document", CellKind.TEXT),
+                        new Column("N° DOCUMENTO", "number_document", CellKind.TEXT),
+                        new Column("NOMBRES", "names", CellKind.TEXT),
+                        new Column("APELLIDOS", "last_name", CellKind.TEXT),
+                        new Column("CELULAR", "cell_phone", CellKind.TEXT),
+                        new Column("EMAIL", "email", CellKind.TEXT),
+                        new Column("SALARIO", "salary", CellKind.NUMBER),
+                        new Column("USUARIO", "seller_user", CellKind.TEXT))),
+        SUPPLIERS("Proveedores",
+                "SELECT id, ruc, name_company, names, last_name, cell_phone, email " +
+                "FROM supplier WHERE active = ? ORDER BY id DESC",
+                List.of(new Column("ID", "id", CellKind.NUMBER),
+                        new Column("RUC", "ruc", CellKind.TEXT),
+                        new Column("EMPRESA", "name_company", CellKind.TEXT),
+                        new Column("NOMBRES", "names", CellKind.TEXT),
+                        new Column("APELLIDOS", "last_name", CellKind.TEXT),
+                        new Column("CELULAR", "cell_phone", CellKind.TEXT),
+                        new Column("EMAIL", "email", CellKind.TEXT))),
+        CATEGORIES("Categorías",
+                "SELECT id, name, description FROM category_product WHERE active = ? ORDER BY id DESC",
+                List.of(new Column("ID", "id", CellKind.NUMBER),
+                        new Column("NOMBRE", "name", CellKind.TEXT),
+                        new Column("DESCRIPCIÓN", "description", CellKind.TEXT)));
+
+        private final String sheetName;
+        private final String sql;
+        private final List<Column> columns;
+
+        Dataset(String sheetName, String sql, List<Column> columns) {
+            this.sheetName = sheetName;
+            this.sql = sql;
+            this.columns = columns;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public ExcelExportService(DataSource dataSource) {
+        // JdbcTemplate propio: el fetch size solo aplica a estas lecturas secuenciales
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    // Respuesta de descarga: el Excel se genera mientras se envía, fuera del hilo de la petición
+    public ResponseEntity<StreamingResponseBody> download(Dataset dataset, String active, String filename) {
+        if (!"A".equals(active) && !"I".equals(active)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(XLSX);
+        headers.setContentDisposition(ContentDisposition.attachment().filename(filename).build());
+        return new ResponseEntity<>(out -> export(dataset, active, out), headers, HttpStatus.OK);
+    }
+
+    // Escribe el maestro completo con el estado indicado en el flujo de salida
+    public void export(Dataset dataset, String active, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            SXSSFSheet sheet = workbook.createSheet(dataset.sheetName);
+            writeHeader(workbook, sheet, dataset.columns);
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat(DATE_FORMAT));
+            jdbcTemplate.query(dataset.sql, (RowCallbackHandler) rs ->
+                    writeRow(sheet.createRow(sheet.getLastRowNum() + 1), rs, dataset.columns, dateStyle), active);
+            workbook.write(out);
+        } finally {
+            // Borra los temporales de la ventana de filas
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private void writeHeader(Workbook workbook, SXSSFSheet sheet, List<Column> columns) {
+        Font bold = workbook.createFont();
+        bold.setBold(true);
+        CellStyle headerStyle = workbook.createCellStyle();
+        headerStyle.setFont(bold);
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < columns.size(); i++) {
+            Cell cell = header.createCell(i);
+            cell.setCellValue(columns.get(i).header());
+            cell.setCellStyle(headerStyle);
+            // Ancho fijo: autoSizeColumn necesitaría todas las filas en memoria
+            sheet.setColumnWidth(i, 20 * 256);
+        }
+        sheet.createFreezePane(0, 1);
+    }
+
+    private void writeRow(Row row, ResultSet rs, List<Column> columns, CellStyle dateStyle) throws SQLException {
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            switch (column.kind()) {
+                case NUMBER -> {
+                    double value = rs.getDouble(column.name());
+                    if (!rs.wasNull()) {
+                        row.createCell(i).setCellValue(value);
+                    }
+                }
+                case DATE -> {
+                    Date value = rs.getDate(column.name());
+                    if (value != null) {
+                        Cell cell = row.createCell(i);
+                        cell.setCellValue(value.toLocalDate());
+                        cell.setCellStyle(dateStyle);
+                    }
+                }
+                default -> {
+                    String value = rs.getString(column.name());
+                    if (value != null) {
+                        row.createCell(i).setCellValue(value);
+                    }
+                }
+            }
+        }
+    }
+}
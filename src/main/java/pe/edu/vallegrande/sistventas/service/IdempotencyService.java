@@ -0,0 +1,260 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// Idempotency-Key para la creación de ventas, compras y reservas: los reintentos de un POS con la misma
+// clave reciben la respuesta original (estado, cuerpo JSON y Location) sin volver a ejecutar la operación, y las
+// peticiones simultáneas con la misma clave esperan a la primera. Las respuestas se guardan en una caché
+// acotada que expira (idempotency.ttl); con idempotency.jdbc.enabled la tabla idempotency_key
+// (db/oracle/007) las comparte entre instancias. Los errores 5xx y las excepciones no se guardan: el
+// siguiente reintento vuelve a ejecutar la operación.
+@Service
+public class IdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    public static final String HEADER = "Idempotency-Key";
+    private static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final long POLL_MILLIS = 100;
+
+    private static final String RELEASE_EXPIRED_SQL = "DELETE FROM idempotency_key WHERE id = ? AND expires_at < ?";
+    private static final String CLAIM_SQL = "INSERT INTO idempotency_key (id, request_hash, expires_at) VALUES (?, ?, ?)";
+    private static final String FIND_SQL = "SELECT request_hash, status, body, location FROM idempotency_key WHERE id = ?";
+    private static final String COMPLETE_SQL = "UPDATE idempotency_key SET status = ?, body = ?, location = ?, expires_at = ? WHERE id = ?";
+    private static final String RELEASE_SQL = "DELETE FROM idempotency_key WHERE id = ?";
+    private static final String PURGE_SQL = "DELETE FROM idempotency_key WHERE expires_at < ?";
+
+    // Respuesta de una operación: huella de la petición, estado HTTP (0 = aún en curso), cuerpo JSON y la
+    // cabecera Location (el recurso creado o, en la ingesta, dónde consultar el estado); las demás cabeceras
+    // no se guardan
+    private record StoredResponse(String requestHash, int status, String body, String location) {
+        boolean inProgress() {
+            return status == 0;
+        }
+    }
+
+    // La petición original terminó sin respuesta guardada; quien la esperaba vuelve a intentarlo
+    private static class AbandonedException extends RuntimeException {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final Duration inFlightTimeout;
+    private final boolean jdbcEnabled;
+    // Por clave: la respuesta guardada o la petición en curso (futuro aún sin completar)
+    private final Cache<String, CompletableFuture<StoredResponse>> responses;
+
+    @Autowired
+    public IdempotencyService(ObjectMapper objectMapper, JdbcTemplate jdbcTemplate,
+                              @Value("${idempotency.ttl:PT24H}") Duration ttl,
+                              @Value("${idempotency.max-keys:10000}") long maxKeys,
+                              @Value("${idempotency.in-flight-timeout:PT30S}") Duration inFlightTimeout,
+                              @Value("${idempotency.jdbc.enabled:false}") boolean jdbcEnabled) {
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.inFlightTimeout = inFlightTimeout;
+        this.jdbcEnabled = jdbcEnabled;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // Ejecuta la operación una sola vez por clave (operation separa ventas, compras y reservas). Sin clave
+    // se ejecuta siempre; con una clave ya usada para otra petición se responde 422
+    public ResponseEntity<Object> execute(String operation, String key, Object request,
+                                          Supplier<ResponseEntity<Object>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            return error(HttpStatus.BAD_REQUEST, "La Idempotency-Key no puede superar " + MAX_KEY_LENGTH + " caracteres");
+        }
+        String id = operation + ":" + key;
+        String requestHash = hash(request);
+        long deadline = System.nanoTime() + inFlightTimeout.toNanos();
+        while (true) {
+            CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> existing = responses.asMap().putIfAbsent(id, mine);
+            if (existing == null) {
+                return runAsOwner(id, requestHash, mine, action, deadline);
+            }
+            try {
+                return replay(existing.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS), requestHash);
+            } catch (ExecutionException e) {
+                // La original falló: este reintento pasa a ejecutarla
+            } catch (TimeoutException e) {
+                return inProgress();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return inProgress();
+            }
+        }
+    }
+
+    // Borra de la tabla compartida las claves vencidas (en memoria expiran solas)
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval:PT10M}")
+    public void purgeExpired() {
+        if (jdbcEnabled) {
+            jdbcTemplate.update(PURGE_SQL, Timestamp.from(Instant.now()));
+        }
+    }
+
+    private ResponseEntity<Object> runAsOwner(String id, String requestHash, CompletableFuture<StoredResponse> mine,
+                                              Supplier<ResponseEntity<Object>> action, long deadline) {
+        StoredResponse stored;
+        try {
+            StoredResponse shared = jdbcEnabled ? claim(id, requestHash, deadline) : null;
+            if (shared != null) {
+                // Otra instancia tiene la clave: su respuesta, o 409/422 si sigue en curso o es otra petición
+                if (shared.inProgress()) {
+                    abandon(id, mine, false);
+                } else {
+                    mine.complete(shared);
+                }
+                return replay(shared, requestHash);
+            }
+            ResponseEntity<Object> response = action.get();
+            if (response.getStatusCode().is5xxServerError()) {
+                abandon(id, mine, jdbcEnabled);
+                return response;
+            }
+            URI location = response.getHeaders().getLocation();
+            stored = new StoredResponse(requestHash, response.getStatusCode().value(),
+                    objectMapper.writeValueAsString(response.getBody()), location == null ? null : location.toString());
+        } catch (JsonProcessingException e) {
+            abandon(id, mine, jdbcEnabled);
+            throw new IllegalStateException("Error serializing idempotent response " + id, e);
+        } catch (RuntimeException e) {
+            abandon(id, mine, jdbcEnabled);
+            throw e;
+        }
+        if (jdbcEnabled) {
+            try {
+                jdbcTemplate.update(COMPLETE_SQL, stored.status(), stored.body(), stored.location(),
+                        Timestamp.from(Instant.now().plus(ttl)), id);
+            } catch (DataAccessException e) {
+                // La operación ya se confirmó: se responde igual y esta instancia conserva la respuesta
+                logger.warn("No se pudo guardar la respuesta idempotente {}: {}", id, e.getMessage());
+            }
+        }
+        mine.complete(stored);
+        return toResponse(stored, false);
+    }
+
+    // Reserva la clave en la tabla compartida (la PK hace de candado entre instancias). Devuelve null si
+    // esta instancia ejecuta la operación, o la fila de la otra instancia: terminada, de otra petición o
+    // aún en curso al vencer el plazo. Una fila en curso cuyo expires_at pasó se da por abandonada
+    private StoredResponse claim(String id, String requestHash, long deadline) {
+        while (true) {
+            jdbcTemplate.update(RELEASE_EXPIRED_SQL, id, Timestamp.from(Instant.now()));
+            try {
+                jdbcTemplate.update(CLAIM_SQL, id, requestHash, Timestamp.from(Instant.now().plus(inFlightTimeout)));
+                return null;
+            } catch (DuplicateKeyException e) {
+                StoredResponse shared = jdbcTemplate.query(FIND_SQL, rs -> rs.next()
+                        ? new StoredResponse(rs.getString("request_hash"), rs.getInt("status"), rs.getString("body"),
+                                rs.getString("location"))
+                        : null, id);
+                if (shared != null && (!shared.inProgress() || !shared.requestHash().equals(requestHash)
+                        || System.nanoTime() >= deadline)) {
+                    return shared;
+                }
+            }
+            // En curso en otra instancia (o recién liberada): se consulta de nuevo
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new StoredResponse(requestHash, 0, null, null);
+            }
+        }
+    }
+
+    // Libera la clave para que el siguiente intento ejecute la operación
+    private void abandon(String id, CompletableFuture<StoredResponse> mine, boolean releaseShared) {
+        responses.asMap().remove(id, mine);
+        if (releaseShared) {
+            try {
+                jdbcTemplate.update(RELEASE_SQL, id);
+            } catch (DataAccessException e) {
+                // Vence sola en expires_at
+                logger.warn("No se pudo liberar la clave idempotente {}: {}", id, e.getMessage());
+            }
+        }
+        mine.completeExceptionally(new AbandonedException());
+    }
+
+    private ResponseEntity<Object> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            return error(HttpStatus.UNPROCESSABLE_ENTITY, "La Idempotency-Key ya se usó con otra solicitud");
+        }
+        if (stored.inProgress()) {
+            return inProgress();
+        }
+        return toResponse(stored, true);
+    }
+
+    // El cuerpo ya es JSON: se envía tal cual, igual en la respuesta original que en las repetidas
+    private ResponseEntity<Object> toResponse(StoredResponse stored, boolean replayed) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.status()).contentType(MediaType.APPLICATION_JSON);
+        if (stored.location() != null) {
+            builder.header(HttpHeaders.LOCATION, stored.location());
+        }
+        if (replayed) {
+            builder.header(REPLAYED_HEADER, "true");
+        }
+        return builder.body(stored.body());
+    }
+
+    private ResponseEntity<Object> inProgress() {
+        HashMap<String, Object> responseData = new HashMap<>();
+        responseData.put("error", true);
+        responseData.put("mensaje", "Una solicitud con la misma Idempotency-Key aún está en proceso");
+        return ResponseEntity.status(HttpStatus.CONFLICT).header(HttpHeaders.RETRY_AFTER, "1").body(responseData);
+    }
+
+    private ResponseEntity<Object> error(HttpStatus status, String message) {
+        HashMap<String, Object> responseData = new HashMap<>();
+        responseData.put("error", true);
+        responseData.put("mensaje", message);
+        return new ResponseEntity<>(responseData, status);
+    }
+
+    // Huella SHA-256 del cuerpo de la petición, para detectar una clave reutilizada con otros datos
+    private String hash(Object request) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Error hashing idempotent request", e);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import pe.edu.vallegrande.sistventas.repository.ProductRepo;
+import pe.edu.vallegrande.sistventas.service.CatalogVersions.Catalog;
+
+import java.sql.Statement;
+import java.util.*;
+import java.util.function.Function;
+
+// Movimientos de stock con actualizaciones condicionales en la base de datos (sin leer-modificar-escribir),
+// para que varias terminales vendiendo el mismo producto no se pisen entre sí
+@Service
+public class InventoryService {
+
+    // Variación incondicional: el resultado se valida después con VERIFY_STOCK_SQL, porque el driver de
+    // Oracle puede devolver Statement.SUCCESS_NO_INFO en lugar de las filas afectadas por cada sentencia
+    private static final String APPLY_DELTA_SQL = "UPDATE product SET stock = stock + ? WHERE id = ?";
+    private static final String VERIFY_STOCK_SQL = "SELECT id, stock FROM product WHERE id IN (%s)";
+
+    private final ProductRepo productRepo;
+    private final ProductIndex productIndex;
+    private final JdbcTemplate jdbcTemplate;
+    private final CatalogVersions catalogVersions;
+
+    @Autowired
+    public InventoryService(ProductRepo productRepo, ProductIndex productIndex, JdbcTemplate jdbcTemplate,
+                            CatalogVersions catalogVersions) {
+        this.productRepo = productRepo;
+        this.productIndex = productIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.catalogVersions = catalogVersions;
+    }
+
+    // Descuenta el stock de todos los productos (id -> cantidad) en la transacción en curso.
+    // Las filas se bloquean en orden ascendente de id para evitar interbloqueos entre ventas
+    // concurrentes; si algún producto no alcanza, se lanza InsufficientStockException y la
+    // transacción completa se revierte.
+    @Transactional
+    public void decrementStock(Map<Long, Double> quantities) {
+        SortedMap<Long, Double> ordered = new TreeMap<>(quantities);
+        Map<Long, Double> deltas = new HashMap<>();
+        for (Map.Entry<Long, Double> line : ordered.entrySet()) {
+            Long productId = line.getKey();
+            Double quantity = line.getValue();
+            if (quantity == null || quantity <= 0) {
+                continue;
+            }
+            if (productRepo.decrementStock(productId, quantity) == 0) {
+                Double available = productRepo.findStockById(productId).orElse(0.0);
+                throw new InsufficientStockException(productId, quantity, available);
+            }
+            deltas.put(productId, -quantity);
+        }
+        updateIndexAfterCommit(deltas);
+    }
+
+    // Aplica variaciones de stock (id -> cantidad, positiva o negativa) con un único lote JDBC,
+    // en orden ascendente de id. Se usa para compras (alta, diferencias al editar, reversión al desactivar
+    // o eliminar) y para devolver lo vendido al anular, eliminar o reducir una venta. Si una variación
+    // negativa dejaría el stock en negativo (mercadería ya vendida), se lanza InsufficientStockException
+    // y la transacción se revierte.
+    @Transactional
+    public void applyStockDeltas(Map<Long, Double> deltas) {
+        List<Map.Entry<Long, Double>> rows = new ArrayList<>();
+        for (Map.Entry<Long, Double> delta : new TreeMap<>(deltas).entrySet()) {
+            if (delta.getValue() != null && delta.getValue() != 0) {
+                rows.add(delta);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+        int[] counts = jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, rows.stream()
+                .map(row -> new Object[]{row.getValue(), row.getKey()})
+                .toList());
+        // Con un recuento conocido, 0 filas es un producto inexistente; sin él (SUCCESS_NO_INFO) se
+        // comprueban todas las filas, y las variaciones negativas se comprueban siempre
+        boolean noInfo = false;
+        for (int i = 0; i < rows.size(); i++) {
+            if (counts[i] == 0) {
+                throw new InsufficientStockException(rows.get(i).getKey(), -rows.get(i).getValue(), 0.0);
+            }
+            noInfo |= counts[i] == Statement.SUCCESS_NO_INFO;
+        }
+        Map<Long, Double> applied = new HashMap<>();
+        List<Long> toVerify = new ArrayList<>();
+        for (Map.Entry<Long, Double> row : rows) {
+            applied.put(row.getKey(), row.getValue());
+            if (noInfo || row.getValue() < 0) {
+                toVerify.add(row.getKey());
+            }
+        }
+        if (!toVerify.isEmpty()) {
+            Map<Long, Double> stocks = new HashMap<>();
+            jdbcTemplate.query(String.format(VERIFY_STOCK_SQL, String.join(",", Collections.nCopies(toVerify.size(), "?"))),
+                    rs -> {
+                        stocks.put(rs.getLong("id"), rs.getDouble("stock"));
+                    }, toVerify.toArray());
+            for (Long productId : toVerify) {
+                Double delta = applied.get(productId);
+                Double stock = stocks.get(productId);
+                // La fila sigue bloqueada por este UPDATE: el stock leído es el que dejó la variación.
+                // Al lanzar la excepción la transacción se revierte, incluidas las filas ya actualizadas
+                if (stock == null) {
+                    throw new InsufficientStockException(productId, -delta, 0.0);
+                }
+                if (stock < 0) {
+                    throw new InsufficientStockException(productId, -delta, stock - delta);
+                }
+            }
+        }
+        updateIndexAfterCommit(applied);
+    }
+
+    // Suma las cantidades de varias líneas por producto (las cantidades nulas cuentan como cero)
+    public static <T> Map<Long, Double> quantitiesByProduct(Collection<T> lines,
+                                                            Function<T, Long> productId,
+                                                            Function<T, Double> amount) {
+        Map<Long, Double> quantities = new HashMap<>();
+        if (lines != null) {
+            for (T line : lines) {
+                Double value = amount.apply(line);
+                quantities.merge(productId.apply(line), value == null ? 0.0 : value, Double::sum);
+            }
+        }
+        return quantities;
+    }
+
+    // El índice en memoria solo refleja el stock una vez confirmada la transacción. Cambia la versión
+    // del stock, no la de productos: el catálogo sin stock conserva su ETag
+    private void updateIndexAfterCommit(Map<Long, Double> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        catalogVersions.bump(Catalog.STOCK);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    productIndex.adjustStock(deltas);
+                }
+            });
+        } else {
+            productIndex.adjustStock(deltas);
+        }
+    }
+
+    // Excepción para stock insuficiente de un producto
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public static class InsufficientStockException extends RuntimeException {
+        private final Long productId;
+        private final Double requested;
+        private final Double available;
+
+        public InsufficientStockException(Long productId, Double requested, Double available) {
+            super("Insufficient stock for product " + productId + ": requested " + requested + ", available " + available);
+            this.productId = productId;
+            this.requested = requested;
+            this.available = available;
+        }
+
+        public Long getProductId() {
+            return productId;
+        }
+
+        public Double getRequested() {
+            return requested;
+        }
+
+        public Double getAvailable() {
+            return available;
+        }
+    }
+}
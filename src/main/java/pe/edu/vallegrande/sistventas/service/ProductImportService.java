@@ -0,0 +1,489 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.ss.util.NumberToTextConverter;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import pe.edu.vallegrande.sistventas.dto.ProductImportReport;
+import pe.edu.vallegrande.sistventas.model.CategoryProduct;
+import pe.edu.vallegrande.sistventas.model.Product;
+import pe.edu.vallegrande.sistventas.repository.CategoryRepo;
+import pe.edu.vallegrande.sistventas.repository.ProductRepo;
+import pe.edu.vallegrande.sistventas.service.CatalogVersions.Catalog;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Importación masiva de productos desde CSV o XLSX.
+// El archivo se lee en streaming y se procesa por bloques: cada bloque se valida en un pool de hilos
+// mientras se sigue leyendo, y se guarda en su propia transacción con inserciones en lote.
+// En memoria solo se mantienen unos pocos bloques a la vez, nunca el archivo completo.
+@Service
+public class ProductImportService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+
+    // Menor a 1000 para que las consultas IN de códigos y nombres sean válidas en Oracle
+    private static final int CHUNK_SIZE = 500;
+    private static final int MAX_PENDING_CHUNKS = 4;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final List<DateTimeFormatter> DATE_FORMATS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+
+    // Nombres de columna aceptados en la cabecera (se comparan en minúsculas y sin espacios ni guiones)
+    private static final Map<String, String> COLUMN_ALIASES = Map.ofEntries(
+            Map.entry("code", "code"), Map.entry("codigo", "code"),
+            Map.entry("name", "name"), Map.entry("nombre", "name"),
+            Map.entry("description", "description"), Map.entry("descripcion", "description"),
+            Map.entry("category", "category"), Map.entry("categoria", "category"),
+            Map.entry("priceunit", "priceUnit"), Map.entry("precio", "priceUnit"), Map.entry("preciounitario", "priceUnit"),
+            Map.entry("unitsale", "unitSale"), Map.entry("unidad", "unitSale"), Map.entry("unidadventa", "unitSale"),
+            Map.entry("dateexpiry", "dateExpiry"), Map.entry("vencimiento", "dateExpiry"), Map.entry("fechavencimiento", "dateExpiry"),
+            Map.entry("stock", "stock"));
+    private static final List<String> REQUIRED_COLUMNS = List.of("code", "name", "category", "priceUnit", "unitSale", "stock");
+
+    private final ProductRepo productRepo;
+    private final CategoryRepo categoryRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService validationExecutor;
+    private final ProductIndex productIndex;
+    private final CatalogVersions catalogVersions;
+
+    @Autowired
+    public ProductImportService(ProductRepo productRepo, CategoryRepo categoryRepo,
+                                PlatformTransactionManager transactionManager, ProductIndex productIndex,
+                                CatalogVersions catalogVersions) {
+        this.productRepo = productRepo;
+        this.categoryRepo = categoryRepo;
+        this.productIndex = productIndex;
+        this.catalogVersions = catalogVersions;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.validationExecutor = Executors.newFixedThreadPool(
+                Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "product-import-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        validationExecutor.shutdown();
+    }
+
+    // Importa los productos del archivo y devuelve el resumen con los errores por fila
+    public ProductImportReport importProducts(MultipartFile file) throws IOException {
+        String filename = Optional.ofNullable(file.getOriginalFilename()).orElse("").toLowerCase(Locale.ROOT);
+        ImportRun run = new ImportRun(loadCategoriesByName());
+        if (filename.endsWith(".xlsx")) {
+            readXlsx(file, run);
+        } else if (filename.endsWith(".csv")) {
+            readCsv(file, run);
+        } else {
+            throw new IllegalArgumentException("Formato no soportado: se espera un archivo .csv o .xlsx");
+        }
+        run.finish();
+        logger.info("Importación de productos: {} filas, {} importadas, {} con error",
+                run.report.getTotalRows(), run.report.getImported(), run.report.getFailed());
+        return run.report;
+    }
+
+    // Categorías precargadas por nombre en minúsculas; el mapa no se modifica después de crearlo
+    private Map<String, CategoryProduct> loadCategoriesByName() {
+        Map<String, CategoryProduct> categories = new HashMap<>();
+        for (CategoryProduct category : categoryRepo.findAll()) {
+            if (category.getName() != null) {
+                categories.put(category.getName().trim().toLowerCase(Locale.ROOT), category);
+            }
+        }
+        return categories;
+    }
+
+    private void readCsv(MultipartFile file, ImportRun run) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            if (line == null) {
+                throw new IllegalArgumentException("El archivo está vacío");
+            }
+            // Quitar el BOM que agrega Excel al guardar como CSV UTF-8
+            if (line.startsWith("\uFEFF")) {
+                line = line.substring(1);
+            }
+            char separator = line.indexOf(';') >= 0 && line.indexOf(',') < 0 ? ';' : ',';
+            int rowNumber = 1;
+            while (line != null) {
+                run.accept(rowNumber, parseCsvLine(line, separator));
+                line = reader.readLine();
+                rowNumber++;
+            }
+        }
+    }
+
+    // Separa una línea CSV respetando comillas dobles ("" dentro de un campo entre comillas es una comilla)
+    private List<String> parseCsvLine(String line, char separator) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == separator) {
+                cells.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        cells.add(current.toString());
+        return cells;
+    }
+
+    private void readXlsx(MultipartFile file, ImportRun run) throws IOException {
+        // El lector SAX necesita acceso aleatorio al zip, por eso el archivo se guarda en un temporal
+        Path tempFile = Files.createTempFile("product-import-", ".xlsx");
+        try {
+            file.transferTo(tempFile);
+            try (OPCPackage pkg = OPCPackage.open(tempFile.toFile(), PackageAccess.READ)) {
+                XSSFReader reader = new XSSFReader(pkg);
+                ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+                Iterator<InputStream> sheets = reader.getSheetsData();
+                if (!sheets.hasNext()) {
+                    throw new IllegalArgumentException("El archivo no contiene hojas");
+                }
+                try (InputStream sheet = sheets.next()) {
+                    XMLReader parser = XMLHelper.newXMLReader();
+                    parser.setContentHandler(new XSSFSheetXMLHandler(
+                            reader.getStylesTable(), null, strings, new SheetRowHandler(run), new RawValueFormatter(), false));
+                    parser.parse(new InputSource(sheet));
+                }
+            } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+                throw new IllegalArgumentException("No se pudo leer el archivo XLSX: " + e.getMessage(), e);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    // Entrega las filas de la hoja, ubicando cada celda en su columna aunque haya celdas vacías
+    private static class SheetRowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final ImportRun run;
+        private List<String> cells;
+        private int nextColumn;
+
+        SheetRowHandler(ImportRun run) {
+            this.run = run;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells = new ArrayList<>();
+            nextColumn = 0;
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            run.accept(rowNum + 1, cells);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : nextColumn;
+            while (cells.size() < column) {
+                cells.add("");
+            }
+            cells.add(formattedValue);
+            nextColumn = column + 1;
+        }
+    }
+
+    // Devuelve fechas en ISO y números sin formato de presentación (sin separadores de miles ni moneda)
+    private static class RawValueFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return DateUtil.getLocalDateTime(value, use1904Windowing).toLocalDate().toString();
+            }
+            return NumberToTextConverter.toText(value);
+        }
+    }
+
+    private record RawRow(int rowNumber, List<String> cells) {
+    }
+
+    private record ValidatedRow(int rowNumber, Product product, String error) {
+    }
+
+    // Estado de una importación: cabecera, bloque en construcción y bloques en validación
+    private class ImportRun {
+        private final Map<String, CategoryProduct> categoriesByName;
+        private final ProductImportReport report = new ProductImportReport();
+        private final Deque<Future<List<ValidatedRow>>> pending = new ArrayDeque<>();
+        private Map<String, Integer> columns;
+        private List<RawRow> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        ImportRun(Map<String, CategoryProduct> categoriesByName) {
+            this.categoriesByName = categoriesByName;
+        }
+
+        void accept(int rowNumber, List<String> cells) {
+            if (columns == null) {
+                columns = readHeader(cells);
+                return;
+            }
+            if (cells.stream().allMatch(cell -> cell == null || cell.isBlank())) {
+                return;
+            }
+            report.setTotalRows(report.getTotalRows() + 1);
+            chunk.add(new RawRow(rowNumber, cells));
+            if (chunk.size() == CHUNK_SIZE) {
+                submitChunk();
+            }
+        }
+
+        void finish() {
+            if (columns == null) {
+                throw new IllegalArgumentException("El archivo está vacío");
+            }
+            if (!chunk.isEmpty()) {
+                submitChunk();
+            }
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+        }
+
+        private Map<String, Integer> readHeader(List<String> cells) {
+            Map<String, Integer> header = new HashMap<>();
+            for (int i = 0; i < cells.size(); i++) {
+                String key = cells.get(i) == null ? "" : cells.get(i).trim().toLowerCase(Locale.ROOT)
+                        .replaceAll("[\\s_\\-]", "")
+                        .replace('ó', 'o').replace('í', 'i');
+                String column = COLUMN_ALIASES.get(key);
+                if (column != null) {
+                    header.putIfAbsent(column, i);
+                }
+            }
+            List<String> missing = REQUIRED_COLUMNS.stream().filter(column -> !header.containsKey(column)).toList();
+            if (!missing.isEmpty()) {
+                throw new IllegalArgumentException("Faltan columnas obligatorias en la cabecera: " + String.join(", ", missing));
+            }
+            return header;
+        }
+
+        private void submitChunk() {
+            List<RawRow> rows = chunk;
+            chunk = new ArrayList<>(CHUNK_SIZE);
+            pending.add(validationExecutor.submit(() -> rows.stream().map(this::validate).toList()));
+            // Limitar los bloques en memoria: si hay demasiados pendientes, guardar el más antiguo
+            while (pending.size() >= MAX_PENDING_CHUNKS) {
+                writeNext();
+            }
+        }
+
+        private void writeNext() {
+            List<ValidatedRow> rows;
+            try {
+                rows = pending.poll().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Importación interrumpida", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Error validando productos: " + e.getCause().getMessage(), e.getCause());
+            }
+            write(rows);
+        }
+
+        // Validación sin acceso a base de datos; se ejecuta en paralelo para varios bloques
+        private ValidatedRow validate(RawRow row) {
+            String code = cell(row, "code");
+            String name = cell(row, "name");
+            String categoryName = cell(row, "category");
+            String unitSale = cell(row, "unitSale");
+            if (code.isEmpty()) {
+                return new ValidatedRow(row.rowNumber(), null, "El código es obligatorio");
+            }
+            if (name.isEmpty()) {
+                return new ValidatedRow(row.rowNumber(), null, "El nombre es obligatorio");
+            }
+            if (unitSale.isEmpty()) {
+                return new ValidatedRow(row.rowNumber(), null, "La unidad de venta es obligatoria");
+            }
+            CategoryProduct category = categoriesByName.get(categoryName.toLowerCase(Locale.ROOT));
+            if (category == null) {
+                return new ValidatedRow(row.rowNumber(), null, "No existe la categoría '" + categoryName + "'");
+            }
+            Double priceUnit = parseNumber(cell(row, "priceUnit"));
+            if (priceUnit == null || priceUnit < 0) {
+                return new ValidatedRow(row.rowNumber(), null, "Precio unitario inválido");
+            }
+            Double stock = parseNumber(cell(row, "stock"));
+            if (stock == null || stock < 0) {
+                return new ValidatedRow(row.rowNumber(), null, "Stock inválido");
+            }
+            LocalDate dateExpiry = null;
+            String dateText = cell(row, "dateExpiry");
+            if (!dateText.isEmpty()) {
+                dateExpiry = parseDate(dateText);
+                if (dateExpiry == null) {
+                    return new ValidatedRow(row.rowNumber(), null, "Fecha de vencimiento inválida: " + dateText);
+                }
+            }
+            Product product = new Product();
+            product.setCode(code);
+            product.setName(name);
+            product.setDescription(cell(row, "description"));
+            product.setCategoryProduct(category);
+            product.setPriceUnit(priceUnit);
+            product.setUnitSale(unitSale);
+            product.setDateExpiry(dateExpiry);
+            product.setStock(stock);
+            product.setActive("A");
+            return new ValidatedRow(row.rowNumber(), product, null);
+        }
+
+        // Guarda un bloque validado en una sola transacción, descartando códigos y nombres repetidos. Los
+        // nombres se comparan sin distinguir mayúsculas, como al registrar un producto (findByNameIgnoreCase)
+        private void write(List<ValidatedRow> rows) {
+            List<ProductImportReport.RowError> chunkErrors = new ArrayList<>();
+            List<ValidatedRow> candidates = new ArrayList<>();
+            Set<String> codes = new HashSet<>();
+            Set<String> names = new HashSet<>();
+            for (ValidatedRow row : rows) {
+                if (row.error() != null) {
+                    chunkErrors.add(new ProductImportReport.RowError(row.rowNumber(), row.error()));
+                } else if (!codes.add(row.product().getCode())) {
+                    chunkErrors.add(new ProductImportReport.RowError(row.rowNumber(), "Código repetido en el archivo"));
+                } else if (!names.add(nameKey(row.product().getName()))) {
+                    chunkErrors.add(new ProductImportReport.RowError(row.rowNumber(), "Nombre repetido en el archivo"));
+                } else {
+                    candidates.add(row);
+                }
+            }
+            int saved = 0;
+            if (!candidates.isEmpty()) {
+                List<ProductImportReport.RowError> conflicts = new ArrayList<>();
+                try {
+                    List<Product> savedProducts = transactionTemplate.execute(status -> {
+                        Set<String> existingCodes = new HashSet<>(productRepo.findExistingCodes(codes));
+                        Set<String> existingNames = new HashSet<>(productRepo.findExistingNames(names));
+                        List<Product> toSave = new ArrayList<>();
+                        for (ValidatedRow row : candidates) {
+                            if (existingCodes.contains(row.product().getCode())) {
+                                conflicts.add(new ProductImportReport.RowError(row.rowNumber(), "Ya existe un producto con ese código"));
+                            } else if (existingNames.contains(nameKey(row.product().getName()))) {
+                                conflicts.add(new ProductImportReport.RowError(row.rowNumber(), "Ya existe un producto con ese nombre"));
+                            } else {
+                                toSave.add(row.product());
+                            }
+                        }
+                        return productRepo.saveAll(toSave);
+                    });
+                    // Los productos confirmados pasan al índice de búsqueda por código
+                    productIndex.putAll(savedProducts);
+                    catalogVersions.bump(Catalog.PRODUCTS);
+                    saved = savedProducts.size();
+                    chunkErrors.addAll(conflicts);
+                } catch (RuntimeException e) {
+                    logger.error("Error guardando bloque de productos: {}", e.getMessage(), e);
+                    for (ValidatedRow row : candidates) {
+                        chunkErrors.add(new ProductImportReport.RowError(row.rowNumber(), "No se pudo guardar: " + e.getMessage()));
+                    }
+                    saved = 0;
+                }
+            }
+            chunkErrors.sort(Comparator.comparingInt(ProductImportReport.RowError::getRow));
+            report.setImported(report.getImported() + saved);
+            report.setFailed(report.getFailed() + chunkErrors.size());
+            for (ProductImportReport.RowError error : chunkErrors) {
+                if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+                    report.getErrors().add(error);
+                } else {
+                    report.setErrorsTruncated(true);
+                }
+            }
+        }
+
+        private String cell(RawRow row, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= row.cells().size() || row.cells().get(index) == null) {
+                return "";
+            }
+            return row.cells().get(index).trim();
+        }
+    }
+
+    // Clave de comparación de nombres: sin distinguir mayúsculas
+    private static String nameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static Double parseNumber(String text) {
+        if (text.isEmpty()) {
+            return null;
+        }
+        // Aceptar coma decimal ("12,50") cuando no hay punto
+        String normalized = text.indexOf('.') < 0 ? text.replace(',', '.') : text.replace(",", "");
+        try {
+            return Double.valueOf(normalized);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static LocalDate parseDate(String text) {
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(text, format);
+            } catch (DateTimeParseException ignored) {
+                // probar el siguiente formato
+            }
+        }
+        return null;
+    }
+}
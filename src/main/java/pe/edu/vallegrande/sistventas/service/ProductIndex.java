@@ -0,0 +1,237 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.sistventas.model.CategoryProduct;
+import pe.edu.vallegrande.sistventas.model.Product;
+import pe.edu.vallegrande.sistventas.repository.ProductRepo;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Índice en memoria de los productos activos por código y por nombre normalizado, para que el
+// escaneo de códigos de barra del POS no consulte Oracle. Se construye al arrancar y lo mantiene
+// ProductService (y la importación masiva) en cada alta, modificación, activación y baja, y
+// CategoryService cuando cambia una categoría.
+// Las lecturas no bloquean; las escrituras se serializan para mantener los tres mapas coherentes.
+@Component
+public class ProductIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ProductIndex.class);
+    // Caché negativa: códigos que no existen en la base de datos
+    private static final int MAX_UNKNOWN_CODES = 10_000;
+    private static final long UNKNOWN_CODE_TTL_NANOS = 60_000_000_000L;
+
+    private final ProductRepo productRepo;
+    private final Map<Long, Product> byId = new ConcurrentHashMap<>();
+    private final Map<String, Product> byCode = new ConcurrentHashMap<>();
+    private final Map<String, Product> byName = new ConcurrentHashMap<>();
+    private final Map<String, Long> unknownCodes = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    // Cuenta las escrituras del índice; una búsqueda en la base de datos solo registra su resultado (el
+    // producto leído o el código inexistente) si ninguna escritura ocurrió mientras consultaba
+    private volatile long writeCount;
+
+    @Autowired
+    public ProductIndex(ProductRepo productRepo) {
+        this.productRepo = productRepo;
+    }
+
+    // Carga inicial; si falla, el índice queda vacío y las búsquedas van a la base de datos
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            List<Product> active = productRepo.findByActive("A");
+            synchronized (writeLock) {
+                byId.clear();
+                byCode.clear();
+                byName.clear();
+                unknownCodes.clear();
+                writeCount++;
+                for (Product product : active) {
+                    putLocked(product);
+                }
+            }
+            logger.info("Índice de productos construido con {} productos activos", active.size());
+        } catch (RuntimeException e) {
+            logger.error("No se pudo construir el índice de productos: {}", e.getMessage(), e);
+        }
+    }
+
+    // Producto activo por código; devuelve una copia para que el llamador no altere el índice
+    public Optional<Product> findByCode(String code) {
+        Product product = code == null ? null : byCode.get(code);
+        return Optional.ofNullable(product).map(ProductIndex::copyOf);
+    }
+
+    // Producto activo por nombre, sin distinguir mayúsculas ni espacios en los extremos
+    public Optional<Product> findByName(String name) {
+        Product product = name == null ? null : byName.get(normalizeName(name));
+        return Optional.ofNullable(product).map(ProductIndex::copyOf);
+    }
+
+    // Indica si el código se buscó hace poco en la base de datos y no existía
+    public boolean isKnownMissing(String code) {
+        Long expiresAt = unknownCodes.get(code);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - expiresAt > 0) {
+            unknownCodes.remove(code, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    // Marca para markMissing y putIfUnchanged: se toma antes de buscar el código en la base de datos
+    public long writeStamp() {
+        return writeCount;
+    }
+
+    // Registra un código inexistente en la caché negativa, salvo que el índice haya cambiado desde
+    // writeStamp(): un alta confirmada durante la búsqueda no queda oculta por el "no existe"
+    public void markMissing(String code, long stamp) {
+        synchronized (writeLock) {
+            if (writeCount != stamp) {
+                return;
+            }
+            if (unknownCodes.size() >= MAX_UNKNOWN_CODES) {
+                // Acotada: ante un barrido de códigos desconocidos se descarta la caché completa
+                unknownCodes.clear();
+            }
+            unknownCodes.put(code, System.nanoTime() + UNKNOWN_CODE_TTL_NANOS);
+        }
+    }
+
+    // Agrega o reemplaza un producto; si está inactivo, lo quita del índice
+    public void put(Product product) {
+        synchronized (writeLock) {
+            writeCount++;
+            removeLocked(product.getId());
+            unknownCodes.remove(product.getCode());
+            if ("A".equals(product.getActive())) {
+                putLocked(product);
+            }
+        }
+    }
+
+    // Agrega un producto leído de la base de datos, salvo que el índice haya cambiado desde writeStamp():
+    // una modificación o baja confirmada durante la búsqueda no queda pisada por la fila vencida
+    public void putIfUnchanged(Product product, long stamp) {
+        synchronized (writeLock) {
+            if (writeCount != stamp) {
+                return;
+            }
+            writeCount++;
+            removeLocked(product.getId());
+            unknownCodes.remove(product.getCode());
+            if ("A".equals(product.getActive())) {
+                putLocked(product);
+            }
+        }
+    }
+
+    // Vuelve a leer un producto recién escrito, con su categoría completa, y lo reindexa;
+    // las entidades armadas desde el cuerpo de la petición solo traen el id de la categoría
+    public void refresh(Long productId) {
+        Optional<Product> product = productRepo.findById(productId);
+        if (product.isPresent()) {
+            put(product.get());
+        } else {
+            remove(productId);
+        }
+    }
+
+    // Agrega varios productos recién guardados (importación masiva)
+    public void putAll(Collection<Product> products) {
+        synchronized (writeLock) {
+            writeCount++;
+            for (Product product : products) {
+                removeLocked(product.getId());
+                unknownCodes.remove(product.getCode());
+                if ("A".equals(product.getActive())) {
+                    putLocked(product);
+                }
+            }
+        }
+    }
+
+    // Quita un producto del índice (baja lógica o eliminación)
+    public void remove(Long productId) {
+        synchronized (writeLock) {
+            writeCount++;
+            removeLocked(productId);
+        }
+    }
+
+    // Actualiza la categoría (nombre, descripción, estado) en los productos indexados que la usan
+    public void refreshCategory(CategoryProduct category) {
+        synchronized (writeLock) {
+            writeCount++;
+            for (Product current : new ArrayList<>(byId.values())) {
+                if (current.getCategoryProduct() != null && category.getId().equals(current.getCategoryProduct().getId())) {
+                    Product updated = copyOf(current);
+                    updated.setCategoryProduct(category);
+                    putLocked(updated);
+                }
+            }
+        }
+    }
+
+    // Aplica variaciones de stock ya confirmadas en la base de datos a los productos indexados
+    public void adjustStock(Map<Long, Double> deltas) {
+        synchronized (writeLock) {
+            writeCount++;
+            for (Map.Entry<Long, Double> delta : deltas.entrySet()) {
+                Product current = byId.get(delta.getKey());
+                if (current != null && current.getStock() != null) {
+                    Product updated = copyOf(current);
+                    updated.setStock(current.getStock() + delta.getValue());
+                    putLocked(updated);
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    private void putLocked(Product product) {
+        Product snapshot = copyOf(product);
+        byId.put(snapshot.getId(), snapshot);
+        byCode.put(snapshot.getCode(), snapshot);
+        byName.put(normalizeName(snapshot.getName()), snapshot);
+    }
+
+    private void removeLocked(Long productId) {
+        Product previous = productId == null ? null : byId.remove(productId);
+        if (previous != null) {
+            byCode.remove(previous.getCode(), previous);
+            byName.remove(normalizeName(previous.getName()), previous);
+        }
+    }
+
+    static String normalizeName(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Copia desacoplada de la sesión JPA (incluida la categoría) para compartirla entre hilos
+    private static Product copyOf(Product product) {
+        CategoryProduct category = product.getCategoryProduct();
+        CategoryProduct categoryCopy = null;
+        if (category != null) {
+            categoryCopy = new CategoryProduct();
+            categoryCopy.setId(category.getId());
+            categoryCopy.setName(category.getName());
+            categoryCopy.setDescription(category.getDescription());
+            categoryCopy.setActive(category.getActive());
+        }
+        return new Product(product.getId(), product.getCode(), product.getName(), product.getDescription(),
+                categoryCopy, product.getPriceUnit(), product.getUnitSale(), product.getDateExpiry(),
+                product.getStock(), product.getActive());
+    }
+}
@@ -0,0 +1,86 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductPriceView;
+import pe.edu.vallegrande.sistventas.repository.ProductRepo;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Resuelve los precios de todos los productos de un carrito con una sola consulta IN,
+// apoyado en una caché LRU acotada de Product.priceUnit que se invalida al escribir productos
+@Component
+public class ProductPriceResolver {
+    private static final int MAX_CACHED_PRICES = 10_000;
+    // Oracle no acepta más de 1000 elementos en una lista IN
+    private static final int MAX_IN_LIST_SIZE = 1000;
+
+    private final ProductRepo productRepo;
+    private final Map<Long, Double> priceCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Double> eldest) {
+                    return size() > MAX_CACHED_PRICES;
+                }
+            });
+    // Se incrementa en cada invalidación para descartar lecturas que empezaron antes de ella
+    private final AtomicLong generation = new AtomicLong();
+
+    @Autowired
+    public ProductPriceResolver(ProductRepo productRepo) {
+        this.productRepo = productRepo;
+    }
+
+    // Devuelve el precio unitario por id de producto; los ids inexistentes no aparecen en el mapa
+    public Map<Long, Double> resolvePrices(Collection<Long> productIds) {
+        Map<Long, Double> prices = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(productIds)) {
+            Double price = priceCache.get(id);
+            if (price != null) {
+                prices.put(id, price);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return prices;
+        }
+        long startGeneration = generation.get();
+        for (int from = 0; from < missing.size(); from += MAX_IN_LIST_SIZE) {
+            List<Long> chunk = missing.subList(from, Math.min(from + MAX_IN_LIST_SIZE, missing.size()));
+            for (ProductPriceView view : productRepo.findPricesByIdIn(chunk)) {
+                prices.put(view.getId(), view.getPriceUnit());
+            }
+        }
+        // Solo se guarda en caché si ningún producto cambió mientras se consultaba
+        synchronized (priceCache) {
+            if (generation.get() == startGeneration) {
+                for (Long id : missing) {
+                    Double price = prices.get(id);
+                    if (price != null) {
+                        priceCache.put(id, price);
+                    }
+                }
+            }
+        }
+        return prices;
+    }
+
+    // Invalida el precio de un producto (llamar después de modificarlo o eliminarlo)
+    public void evict(Long productId) {
+        synchronized (priceCache) {
+            generation.incrementAndGet();
+            priceCache.remove(productId);
+        }
+    }
+
+    // Invalida todos los precios en caché
+    public void evictAll() {
+        synchronized (priceCache) {
+            generation.incrementAndGet();
+            priceCache.clear();
+        }
+    }
+}
@@ -7,43 +7,45 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductCatalogSummary;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductStockView;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductSummary;
 import pe.edu.vallegrande.sistventas.model.Product;
 import pe.edu.vallegrande.sistventas.model.Supplier;
 import pe.edu.vallegrande.sistventas.repository.ProductRepo;
+import pe.edu.vallegrande.sistventas.service.CatalogVersions.Catalog;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
-    HashMap<String, Object> datos;
     private final ProductRepo productRepo;
+    private final ProductPriceResolver productPriceResolver;
+    private final ProductIndex productIndex;
+    private final CatalogVersions catalogVersions;
 
     @Autowired
-    public ProductService(ProductRepo productRepo){
+    public ProductService(ProductRepo productRepo, ProductPriceResolver productPriceResolver, ProductIndex productIndex,
+                          CatalogVersions catalogVersions){
         this.productRepo = productRepo;
+        this.productPriceResolver = productPriceResolver;
+        this.productIndex = productIndex;
+        this.catalogVersions = catalogVersions;
     }
-    // Método para formatear la fecha de expiracion
-    private Product formatDateOfDateExpiry(Product product) {
-        if (product != null && product.getDateExpiry() != null) {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MMM-yyyy");
-            String formattedDate = product.getDateExpiry().format(formatter);
-            formattedDate = formattedDate.replace(".", ""); // Eliminar el punto después del mes
-            product.setDateExpiryFormatted(formattedDate);
-        }
-        return product;
-    }
-
-    // Listado completo de productos
-    public ResponseEntity<List<Product>> getProducts() {
-        List<Product> products = productRepo.findAll();
+    // Listado completo de productos (proyección, sin cargar la entidad)
+    public ResponseEntity<List<ProductSummary>> getProducts() {
+        List<ProductSummary> products = productRepo.findAllSummaries();
         return ResponseEntity.ok(products); // Retornar la lista con status 200 OK
     }
     // Método para buscar un producto por nombre sin distinguir mayúsculas y minúsculas
     public List<Product> getExistingProductIgnoreCase(String name) {
-        Optional<Product> productOptional = productRepo.findByNameIgnoreCase(name);
+        // Primero en el índice de activos; si no está, se consulta la base de datos (puede estar inactivo)
+        Optional<Product> productOptional = productIndex.findByName(name);
+        if (productOptional.isEmpty()) {
+            productOptional = productRepo.findByNameIgnoreCase(name);
+        }
         if (productOptional.isPresent()) {
             return Collections.singletonList(productOptional.get());
         } else {
@@ -52,8 +54,20 @@ public class ProductService {
     }
     // Método para buscar un producto por código
     public ResponseEntity<Object> getProductByCode(String code) {
-        Optional<Product> optionalProduct = productRepo.findByCode(code);
-        datos = new HashMap<>();
+        HashMap<String, Object> datos = new HashMap<>();
+        // Acierto en el índice en memoria: no se consulta la base de datos
+        Optional<Product> optionalProduct = productIndex.findByCode(code);
+        if (optionalProduct.isEmpty() && !productIndex.isKnownMissing(code)) {
+            // La marca se toma antes de leer: si el índice cambió durante la consulta, la fila leída puede
+            // estar vencida y no se guarda
+            long stamp = productIndex.writeStamp();
+            optionalProduct = productRepo.findByCode(code);
+            if (optionalProduct.isEmpty()) {
+                productIndex.markMissing(code, stamp);
+            } else {
+                productIndex.putIfUnchanged(optionalProduct.get(), stamp);
+            }
+        }
         if (optionalProduct.isPresent()) {
             datos.put("data", optionalProduct.get());
             return new ResponseEntity<>(datos, HttpStatus.OK);
@@ -67,16 +81,34 @@ public class ProductService {
     // Listar productos activos
     public ResponseEntity<List<Product>> getActiveProducts() {
         List<Product> activeProducts = productRepo.findByActive("A").stream()
-                .map(this::formatDateOfDateExpiry)
                 .sorted(Comparator.comparing(Product::getId).reversed())
                 .collect(Collectors.toList());
         return ResponseEntity.ok(activeProducts);
     }
 
+    // Listado liviano de productos activos (proyección, usado por el listado del POS)
+    public ResponseEntity<List<ProductSummary>> getActiveProductSummaries() {
+        return ResponseEntity.ok(productRepo.findSummariesByActive("A"));
+    }
+
+    // Catálogo de productos activos sin el stock (proyección, usado por el POS junto con getActiveStocks)
+    public ResponseEntity<List<ProductCatalogSummary>> getActiveCatalog() {
+        return ResponseEntity.ok(productRepo.findCatalogByActive("A"));
+    }
+
+    // Stock de los productos activos (id y stock)
+    public ResponseEntity<List<ProductStockView>> getActiveStocks() {
+        return ResponseEntity.ok(productRepo.findStocksByActive("A"));
+    }
+
+    // Listado liviano de productos inactivos (proyección)
+    public ResponseEntity<List<ProductSummary>> getInactiveProductSummaries() {
+        return ResponseEntity.ok(productRepo.findSummariesByActive("I"));
+    }
+
     // Listar productos inactivos
     public ResponseEntity<List<Product>> getInactiveProducts() {
         List<Product> inactiveProducts = productRepo.findByActive("I").stream()
-                .map(this::formatDateOfDateExpiry)
                 .sorted(Comparator.comparing(Product::getId).reversed())
                 .collect(Collectors.toList());
         return ResponseEntity.ok(inactiveProducts);
@@ -85,7 +117,7 @@ public class ProductService {
     //Listado por id
     public ResponseEntity<Object> getProductById(Long id) {
         Optional<Product> optionalProduct = productRepo.findById(id);
-        datos = new HashMap<>();
+        HashMap<String, Object> datos = new HashMap<>();
         if (optionalProduct.isPresent()) {
             datos.put("data", optionalProduct.get());
             return new ResponseEntity<>(datos, HttpStatus.OK);
@@ -102,7 +134,6 @@ public class ProductService {
         List<Product> formattedProducts = productsPage.stream()
                 .skip(pageable.getOffset())
                 .limit(pageable.getPageSize())
-                .map(this::formatDateOfDateExpiry)
                 .collect(Collectors.toList());
         Page<Product> newPage = new PageImpl<>(formattedProducts, pageable, productsPage.size());
         return ResponseEntity.ok(newPage);
@@ -115,7 +146,6 @@ public class ProductService {
         List<Product> formattedProducts = productsPage.stream()
                 .skip(pageable.getOffset())
                 .limit(pageable.getPageSize())
-                .map(this::formatDateOfDateExpiry)
                 .collect(Collectors.toList());
         Page<Product> newPage = new PageImpl<>(formattedProducts, pageable, productsPage.size());
         return ResponseEntity.ok(newPage);
@@ -131,6 +161,8 @@ public class ProductService {
             return new ResponseEntity<>(responseData, HttpStatus.CONFLICT);
         }
         Product savedProduct = productRepo.save(product);
+        productIndex.refresh(savedProduct.getId());
+        catalogVersions.bump(Catalog.PRODUCTS);
         HashMap<String, Object> responseData = new HashMap<>();
         responseData.put("mensaje", "Producto guardado con éxito");
         responseData.put("data", savedProduct);
@@ -145,6 +177,9 @@ public class ProductService {
             Product existingProduct = optionalProduct.get();
             updateExistingProduct(existingProduct, updatedProduct); // Actualizar el producto existente con los datos del producto actualizado
             productRepo.save(existingProduct); // Guardar el producto actualizado en la base de datos
+            productPriceResolver.evict(id); // Invalidar el precio en caché
+            productIndex.refresh(id); // Reindexar por si cambió el código o el nombre
+            catalogVersions.bump(Catalog.PRODUCTS); // Nueva versión del listado (ETag)
             responseData.put("mensaje", "Producto actualizado con éxito");
             responseData.put("data", existingProduct);
             return new ResponseEntity<>(responseData, HttpStatus.OK);
@@ -169,7 +204,7 @@ public class ProductService {
 
     //Eliminar producto
     public ResponseEntity<Object> deleteproduct(Long id){
-        datos = new HashMap<>();
+        HashMap<String, Object> datos = new HashMap<>();
         boolean existe = this.productRepo.existsById(id);
         if(!existe){
             datos.put("error",true);
@@ -177,13 +212,16 @@ public class ProductService {
             return new ResponseEntity<>(datos, HttpStatus.CONFLICT);
         }
         productRepo.deleteById(id);
+        productPriceResolver.evict(id);
+        productIndex.remove(id);
+        catalogVersions.bump(Catalog.PRODUCTS);
         datos.put("messaje","Producto eliminado");
         return new ResponseEntity<>(datos, HttpStatus.ACCEPTED);
     }
     //Eliminar producto Logicamente
     public ResponseEntity<Object> deleteProductById(Long id) {
         Optional<Product> optionalProduct = productRepo.findById(id);
-        datos = new HashMap<>();
+        HashMap<String, Object> datos = new HashMap<>();
         if (optionalProduct.isPresent()) {
             Product existingProduct = optionalProduct.get();
             if (existingProduct.getActive().equals("I")) {
@@ -195,6 +233,8 @@ public class ProductService {
             existingProduct.setActive("I");
             // Guardar el producto actualizado en la base de datos
             productRepo.save(existingProduct);
+            productIndex.remove(id);
+            catalogVersions.bump(Catalog.PRODUCTS);
             datos.put("message", "Producto marcado como inactivo.");
             datos.put("data", existingProduct);
             return new ResponseEntity<>(datos, HttpStatus.OK);
@@ -214,6 +254,8 @@ public class ProductService {
             }
             product.setActive("A");
             productRepo.save(product);
+            productIndex.refresh(id);
+            catalogVersions.bump(Catalog.PRODUCTS);
             return ResponseEntity.ok("{\"message\": \"Producto activado correctamente.\"}");
         } else {
             return ResponseEntity.notFound().build();
@@ -224,7 +266,6 @@ public class ProductService {
     public List<Product> getExpiringProducts(LocalDate currentDate, LocalDate expirationDateLimit) {
         return productRepo.findByDateExpiryBetween(currentDate, expirationDateLimit)
                 .stream()
-                .map(this::formatDateOfDateExpiry)
                 .collect(Collectors.toList());
     }
 
@@ -232,7 +273,6 @@ public class ProductService {
     public List<Product> getProductsLowStock(int stockLimit) {
         return productRepo.findByStockLessThan(stockLimit)
                 .stream()
-                .map(this::formatDateOfDateExpiry)
                 .collect(Collectors.toList());
     }
 }
\ No newline at end of file
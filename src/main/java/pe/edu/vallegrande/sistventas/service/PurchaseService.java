@@ -1,14 +1,19 @@
 package pe.edu.vallegrande.sistventas.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import pe.edu.vallegrande.sistventas.dto.CursorPage;
 import pe.edu.vallegrande.sistventas.dto.Purchase;
 import pe.edu.vallegrande.sistventas.dto.PurchaseDetail;
+import pe.edu.vallegrande.sistventas.dto.projection.PurchaseSummary;
 import pe.edu.vallegrande.sistventas.repository.PurchaseDetailRepo;
 import pe.edu.vallegrande.sistventas.repository.PurchaseRepo;
 
@@ -17,50 +22,60 @@ import java.util.stream.Collectors;
 
 @Service
 public class PurchaseService {
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
     @Autowired
     private PurchaseRepo purchaseRepository;
 
     @Autowired
     private PurchaseDetailRepo purchaseDetailRepo;
 
-    // Método para obtener todas las compras
-    public List<Purchase> getAllPurchases() {
-        List<Purchase> purchases = purchaseRepository.findAll();
-        setTransientFields(purchases);
-        return purchases;
+    @Autowired
+    private InventoryService inventoryService;
+
+    // Método para obtener todas las compras (proyección de listado)
+    public List<PurchaseSummary> getAllPurchases() {
+        return purchaseRepository.findAllSummaries();
     }
 
-    // Nuevo método para obtener compras por estado
-    public List<Purchase> getPurchasesByActiveStatus(String active) {
-        List<Purchase> purchases = purchaseRepository.findByActive(active).stream()
-                .sorted(Comparator.comparing(Purchase::getId).reversed())
-                .collect(Collectors.toList());
-        setTransientFields(purchases);
-        return purchases;
+    // Nuevo método para obtener compras por estado (proyección de listado)
+    public List<PurchaseSummary> getPurchasesByActiveStatus(String active) {
+        return purchaseRepository.findSummariesByActive(active);
     }
 
     // Nuevo método para obtener compras por estado paginador
-    public Page<Purchase> getPurchasesPageableByActiveStatus(String active, Pageable pageable) {
-        List<Purchase> allActivePurchases = purchaseRepository.findByActive(active);
-        allActivePurchases.sort(Comparator.comparing(Purchase::getId).reversed());
-
-        List<Purchase> formattedPurchases = allActivePurchases.stream()
-                .skip(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .collect(Collectors.toList());
+    public Page<PurchaseSummary> getPurchasesPageableByActiveStatus(String active, Pageable pageable) {
+        // La paginación y el orden se resuelven en la base de datos
+        Pageable byIdDesc = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(Sort.Direction.DESC, "id"));
+        return purchaseRepository.findSummariesByActive(active, byIdDesc);
+    }
 
-        setTransientFields(formattedPurchases);
-        return new PageImpl<>(formattedPurchases, pageable, allActivePurchases.size());
+    // Método para obtener compras por estado con paginación por cursor (id < lastId)
+    public CursorPage<PurchaseSummary> getPurchasesByCursor(String active, Long lastId, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        // Se pide un registro extra para saber si existe una página siguiente
+        Limit limit = Limit.of(pageSize + 1);
+        List<PurchaseSummary> purchases = lastId == null
+                ? purchaseRepository.findSummariesByActive(active, limit)
+                : purchaseRepository.findSummariesByActiveAndIdLessThan(active, lastId, limit);
+        boolean hasNext = purchases.size() > pageSize;
+        List<PurchaseSummary> content = hasNext ? purchases.subList(0, pageSize) : purchases;
+        Long nextCursor = hasNext ? content.get(content.size() - 1).id() : null;
+        return new CursorPage<>(content, content.size(), nextCursor, hasNext);
     }
 
     // Método para obtener una compra por su ID
     public Optional<Purchase> getPurchaseById(Long id) {
-        Optional<Purchase> purchase = purchaseRepository.findById(id);
-        purchase.ifPresent(this::setTransientFields);
-        return purchase;
+        return purchaseRepository.findDetailById(id);
+    }
+
+    // Método para obtener una compra con los datos que necesita el reporte
+    public Optional<Purchase> getPurchaseReportById(Long id) {
+        return purchaseRepository.findReportById(id);
     }
 
     // Método para crear una compra
+    @Transactional
     public Purchase createPurchase(Purchase purchase) {
         purchase.setActive("A");
         // Establecer la relación bidireccional y calcular subtotales
@@ -76,22 +91,30 @@ public class PurchaseService {
             purchase.setTotalPurchase(total);
         }
         Purchase savedPurchase = purchaseRepository.save(purchase);
-        setTransientFields(savedPurchase);
+        // Ingresar al stock lo recibido, en un solo lote
+        inventoryService.applyStockDeltas(receivedQuantities(savedPurchase));
         return savedPurchase;
     }
 
-    // Método para eliminar una compra
+    // Método para eliminar una compra (una compra activa retira del stock lo que había ingresado)
+    @Transactional
     public void deletePurchase(Long id) {
+        purchaseRepository.findById(id)
+                .filter(purchase -> "A".equals(purchase.getActive()))
+                .ifPresent(purchase -> inventoryService.applyStockDeltas(negate(receivedQuantities(purchase))));
         purchaseRepository.deleteById(id);
     }
 
     // Método para eliminar una compra de manera lógica (cambia el estado a 'I')
+    @Transactional
     public Purchase logicalDeletPurchase(Long id) {
         return purchaseRepository.findById(id)
                 .map(purchase -> {
                     if ("I".equals(purchase.getActive())) {
                         throw new ResourceConflictException("Purchase with id " + id + " is already inactive");
                     }
+                    // Revertir lo que la compra había ingresado al stock
+                    inventoryService.applyStockDeltas(negate(receivedQuantities(purchase)));
                     purchase.setActive("I");
                     return purchaseRepository.save(purchase);
                 })
@@ -99,12 +122,15 @@ public class PurchaseService {
     }
 
     // Método para activar una compra de manera lógica (cambia el estado 'A')
+    @Transactional
     public Purchase logicalActivarPurchase(Long id) {
         return purchaseRepository.findById(id)
                 .map(purchase -> {
                     if ("A".equals(purchase.getActive())) {
                         throw new ResourceConflictException("Purchase with id " + id + " is already active");
                     }
+                    // Volver a ingresar al stock lo recibido
+                    inventoryService.applyStockDeltas(receivedQuantities(purchase));
                     purchase.setActive("A");
                     return purchaseRepository.save(purchase);
                 })
@@ -112,8 +138,11 @@ public class PurchaseService {
     }
 
     // Método para actualizar una compra
+    @Transactional
     public Purchase updatePurchase(Long id, Purchase purchaseUpdated) {
         Purchase purchase = purchaseRepository.findById(id).orElseThrow(() -> new PurchaseService.ResourceNotFoundException("Purchase not found with id " + id));
+        // Cantidades recibidas antes del cambio, para aplicar solo la diferencia por producto
+        Map<Long, Double> previousQuantities = receivedQuantities(purchase);
         // Actualizar datos de la compra
         purchase.setSupplier(purchaseUpdated.getSupplier());
         purchase.setSeller(purchaseUpdated.getSeller());
@@ -128,7 +157,12 @@ public class PurchaseService {
         updatePurchaseDetails(purchase, purchaseUpdated.getPurchaseDetails());
         // Guardar la compra actualizada
         Purchase savedPurchase = purchaseRepository.save(purchase);
-        setTransientFields(savedPurchase);
+        // Una compra inactiva no tiene stock ingresado, así que no se ajusta
+        if ("A".equals(savedPurchase.getActive())) {
+            Map<Long, Double> deltas = receivedQuantities(savedPurchase);
+            previousQuantities.forEach((productId, amount) -> deltas.merge(productId, -amount, Double::sum));
+            inventoryService.applyStockDeltas(deltas);
+        }
         return savedPurchase;
     }
 
@@ -165,20 +199,16 @@ public class PurchaseService {
         purchase.setTotalPurchase(total);
     }
 
-    // Método para establecer los campos transitorios
-    private void setTransientFields(List<Purchase> purchases) {
-        for (Purchase purchase : purchases) {
-            setTransientFields(purchase);
-        }
+    // Cantidades recibidas por producto; usa solo el id del producto (no carga los productos)
+    private Map<Long, Double> receivedQuantities(Purchase purchase) {
+        return InventoryService.quantitiesByProduct(purchase.getPurchaseDetails(),
+                detail -> detail.getProduct().getId(), PurchaseDetail::getAmount);
     }
 
-    private void setTransientFields(Purchase purchase) {
-        if (purchase.getSupplier() != null) {
-            purchase.setSupplierNames(purchase.getSupplier().getNames() + " " + purchase.getSupplier().getLastName());
-        }
-        if (purchase.getSeller() != null) {
-            purchase.setSellerNames(purchase.getSeller().getNames() + " " + purchase.getSeller().getLastName());
-        }
+    private Map<Long, Double> negate(Map<Long, Double> quantities) {
+        Map<Long, Double> negated = new HashMap<>();
+        quantities.forEach((productId, amount) -> negated.put(productId, -amount));
+        return negated;
     }
 
     // Excepción personalizada para recursos no encontrados
@@ -0,0 +1,197 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.sistventas.dto.Purchase;
+import pe.edu.vallegrande.sistventas.dto.PurchaseDetail;
+import pe.edu.vallegrande.sistventas.dto.Reservation;
+import pe.edu.vallegrande.sistventas.dto.ReservationDetail;
+import pe.edu.vallegrande.sistventas.dto.Sale;
+import pe.edu.vallegrande.sistventas.dto.SaleDetail;
+import pe.edu.vallegrande.sistventas.dto.reports.PurchaseReportData;
+import pe.edu.vallegrande.sistventas.dto.reports.ReservationReportData;
+import pe.edu.vallegrande.sistventas.dto.reports.SaleReportData;
+import pe.edu.vallegrande.sistventas.model.CategoryProduct;
+import pe.edu.vallegrande.sistventas.model.Person;
+import pe.edu.vallegrande.sistventas.model.Product;
+import pe.edu.vallegrande.sistventas.model.Supplier;
+import pe.edu.vallegrande.sistventas.model.reports.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+// Filas de los reportes Jasper (maestros y comprobantes de venta, compra y reserva) armadas en un solo
+// lugar para los endpoints /report de los controladores, la cola de reportes y el lote de comprobantes
+@Service
+public class ReportDataService {
+    private final ProductService productService;
+    private final ClientService clientService;
+    private final SellerService sellerService;
+    private final SupplierService supplierService;
+    private final CategoryService categoryService;
+
+    @Autowired
+    public ReportDataService(ProductService productService, ClientService clientService, SellerService sellerService,
+                             SupplierService supplierService, CategoryService categoryService) {
+        this.productService = productService;
+        this.clientService = clientService;
+        this.sellerService = sellerService;
+        this.supplierService = supplierService;
+        this.categoryService = categoryService;
+    }
+
+    public List<ProductReportData> getProducts(boolean active) {
+        List<Product> products = active
+                ? this.productService.getActiveProducts().getBody()
+                : this.productService.getInactiveProducts().getBody();
+        return products.stream()
+                .map(product -> {
+                    ProductReportData data = new ProductReportData();
+                    data.setPRODUCT_ID(BigDecimal.valueOf(product.getId()));
+                    data.setPRODUCT_NAME(product.getName());
+                    data.setCATEGORY_NAME(product.getCategoryProduct().getName());
+                    data.setPRICE_UNIT(BigDecimal.valueOf(product.getPriceUnit()));
+                    data.setUNIT_SALE(product.getUnitSale());
+                    data.setDATE_EXPIRY(product.getDateExpiryFormatted());
+                    data.setSTOCK(BigDecimal.valueOf(product.getStock()));
+                    data.setACTIVE(product.getActive());
+                    return data;
+                })
+                .toList();
+    }
+
+    public List<ClientReportData> getClients(boolean active) {
+        List<Person> clients = active ? this.clientService.getActiveClients() : this.clientService.getInactiveClients();
+        return clients.stream()
+                .map(client -> {
+                    ClientReportData data = new ClientReportData();
+                    data.setID(BigDecimal.valueOf(client.getId()));
+                    data.setTYPE_DOCUMENT(client.getTypeDocument());
+                    data.setNUMBER_DOCUMENT(client.getNumberDocument());
+                    data.setNAMES(client.getNames());
+                    data.setLAST_NAME(client.getLastName());
+                    data.setCELL_PHONE(client.getCellPhone());
+                    data.setEMAIL(client.getEmail());
+                    data.setBIRTHDATE(client.getBirthdateFormatted());
+                    return data;
+                })
+                .toList();
+    }
+
+    public List<SellerReportData> getSellers(boolean active) {
+        List<Person> sellers = active ? this.sellerService.getActiveSellers() : this.sellerService.getInactiveSellers();
+        return sellers.stream()
+                .map(seller -> {
+                    SellerReportData data = new SellerReportData();
+                    data.setID(BigDecimal.valueOf(seller.getId()));
+                    data.setTYPE_DOCUMENT(seller.getTypeDocument());
+                    data.setNUMBER_DOCUMENT(seller.getNumberDocument());
+                    data.setNAMES(seller.getNames());
+                    data.setLAST_NAME(seller.getLastName());
+                    data.setCELL_PHONE(seller.getCellPhone());
+                    data.setEMAIL(seller.getEmail());
+                    data.setSALARY(BigDecimal.valueOf(seller.getSalary()));
+                    // SELLER_PASSWORD queda vacío: la plantilla declara el campo, pero la contraseña no va al reporte
+                    data.setSELLER_USER(seller.getSellerUser());
+                    return data;
+                })
+                .toList();
+    }
+
+    public List<SupplierReportData> getSuppliers(boolean active) {
+        List<Supplier> suppliers = active ? this.supplierService.getActiveSuppliers() : this.supplierService.getInactiveSuppliers();
+        return suppliers.stream()
+                .map(supplier -> {
+                    SupplierReportData data = new SupplierReportData();
+                    data.setID(BigDecimal.valueOf(supplier.getId()));
+                    data.setRUC(supplier.getRuc());
+                    data.setNAME_COMPANY(supplier.getNameCompany());
+                    data.setNAMES(supplier.getNames());
+                    data.setLAST_NAME(supplier.getLastName());
+                    data.setCELL_PHONE(supplier.getCellPhone());
+                    data.setEMAIL(supplier.getEmail());
+                    return data;
+                })
+                .toList();
+    }
+
+    public List<CategoryReportData> getCategories(boolean active) {
+        List<CategoryProduct> categories = active
+                ? this.categoryService.getActiveCategories().getBody()
+                : this.categoryService.getInactiveCategories().getBody();
+        return categories.stream()
+                .map(category -> {
+                    CategoryReportData data = new CategoryReportData();
+                    data.setID(BigDecimal.valueOf(category.getId()));
+                    data.setNAME(category.getName());
+                    data.setDESCRIPTION(category.getDescription());
+                    return data;
+                })
+                .toList();
+    }
+
+    // Una fila por detalle de la venta (reporte report_ventaUnitaria); la venta debe traer sus detalles
+    public List<SaleReportData> getSaleLines(Sale sale) {
+        List<SaleReportData> saleReportData = new ArrayList<>();
+        for (SaleDetail detail : sale.getSaleDetails()) {
+            SaleReportData data = new SaleReportData();
+            data.setSALE_ID(BigDecimal.valueOf(sale.getId()));
+            data.setSALE_DATE(sale.getFormattedDateTime());
+            data.setCLIENT_NAME(sale.getClient().getNames() + " " + sale.getClient().getLastName());
+            data.setSELLER_NAME(sale.getSeller().getNames() + " " + sale.getSeller().getLastName());
+            data.setPRODUCT_NAME(detail.getProduct().getName());
+            data.setUNIT_SALE(detail.getProduct().getUnitSale());
+            data.setPAYMENT_METHOD(sale.getPaymentMethod().getName());
+            data.setQUANTITY(BigDecimal.valueOf(detail.getAmount()));
+            data.setPRICE_UNIT(BigDecimal.valueOf(detail.getProduct().getPriceUnit()));
+            data.setSUBTOTAL_PRODUCT(BigDecimal.valueOf(detail.getSubtotalSale()));
+            data.setTOTAL(BigDecimal.valueOf(sale.getTotalSale()));
+            saleReportData.add(data);
+        }
+        return saleReportData;
+    }
+
+    // Una fila por detalle de la compra (reporte report_compraUnitaria); la compra debe traer sus detalles
+    public List<PurchaseReportData> getPurchaseLines(Purchase purchase) {
+        List<PurchaseReportData> purchaseReportData = new ArrayList<>();
+        for (PurchaseDetail detail : purchase.getPurchaseDetails()) {
+            PurchaseReportData data = new PurchaseReportData();
+            data.setID_COMPRA(BigDecimal.valueOf(purchase.getId()));
+            data.setEMPRESA(purchase.getSupplier().getNameCompany());
+            data.setFECHA_COMPRA(purchase.getFormattedDateTime());
+            data.setPROVEEDOR(purchase.getSupplier().getNames() + " " + purchase.getSupplier().getLastName());
+            data.setVENDEDOR(purchase.getSeller().getNames() + " " + purchase.getSeller().getLastName());
+            data.setPRODUCTO(detail.getProduct().getName());
+            data.setTIPO_PAGO(purchase.getPaymentMethod().getName());
+            data.setCANTIDAD(BigDecimal.valueOf(detail.getAmount()));
+            data.setPRECIO_UNITARIO(BigDecimal.valueOf(detail.getPriceUnit()));
+            // Subtotal = cantidad * precio unitario de la compra
+            data.setSUBTOTAL(BigDecimal.valueOf(detail.getAmount()).multiply(BigDecimal.valueOf(detail.getPriceUnit())));
+            data.setTOTAL(BigDecimal.valueOf(purchase.getTotalPurchase()));
+            purchaseReportData.add(data);
+        }
+        return purchaseReportData;
+    }
+
+    // One row per reservation detail (report_reservaUnitaria); the reservation must include its details
+    public List<ReservationReportData> getReservationLines(Reservation reservation) {
+        List<ReservationReportData> reservationReportData = new ArrayList<>();
+        for (ReservationDetail detail : reservation.getReservationDetails()) {
+            ReservationReportData data = new ReservationReportData();
+            data.setRESERVATION_ID(BigDecimal.valueOf(reservation.getId()));
+            data.setRESERVATION_DATE(reservation.getFormattedDateTime());
+            data.setCLIENT_NAME(reservation.getClient().getNames() + " " + reservation.getClient().getLastName());
+            data.setSELLER_NAME(reservation.getSeller().getNames() + " " + reservation.getSeller().getLastName());
+            data.setPRODUCT_NAME(detail.getProduct().getName());
+            data.setUNIT_SALE(detail.getProduct().getUnitSale());
+            data.setPAYMENT_METHOD(reservation.getPaymentMethod().getName());
+            data.setQUANTITY(BigDecimal.valueOf(detail.getAmount()));
+            data.setPRICE_UNIT(BigDecimal.valueOf(detail.getProduct().getPriceUnit()));
+            data.setSUBTOTAL_PRODUCT(BigDecimal.valueOf(detail.getSubtotalReservation()));
+            data.setTOTAL(BigDecimal.valueOf(reservation.getTotalReservation()));
+            reservationReportData.add(data);
+        }
+        return reservationReportData;
+    }
+}
@@ -0,0 +1,242 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Cola de reportes asíncronos: POST crea un trabajo y devuelve su id, el reporte se genera en un
+// pool acotado (no ocupa hilos de Tomcat) y el archivo queda en un directorio de spool hasta que vence
+// la retención. Una solicitud idéntica a otra pendiente o en curso se asocia al mismo trabajo.
+@Service
+public class ReportJobService {
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobService.class);
+    private static final String FILE_PREFIX = "report-job-";
+
+    public enum ReportType {
+        PRODUCT("report_product", "product_report"),
+        CLIENT("report_client", "client_report"),
+        SELLER("report_seller", "seller_report"),
+        SUPPLIER("report_supplier", "supplier_report"),
+        CATEGORY("report_category", "category_report");
+
+        private final String template;
+        private final String filename;
+
+        ReportType(String template, String filename) {
+            this.template = template;
+            this.filename = filename;
+        }
+    }
+
+    public enum ReportFormat {
+        PDF("pdf", MediaType.APPLICATION_PDF),
+        XLSX("xlsx", MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+
+        private final String extension;
+        @Getter
+        private final MediaType mediaType;
+
+        ReportFormat(String extension, MediaType mediaType) {
+            this.extension = extension;
+            this.mediaType = mediaType;
+        }
+    }
+
+    public enum JobStatus { PENDING, RUNNING, DONE, FAILED }
+
+    // Estado de un trabajo; lo escribe el hilo del pool y lo leen las consultas de estado
+    @Getter
+    public static class ReportJob {
+        private final String id;
+        private final ReportType type;
+        private final ReportFormat format;
+        private final String active;
+        private final Instant createdAt = Instant.now();
+        private volatile JobStatus status = JobStatus.PENDING;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile Long size;
+        private volatile String error;
+        @JsonIgnore
+        private volatile Path file;
+
+        ReportJob(String id, ReportType type, ReportFormat format, String active) {
+            this.id = id;
+            this.type = type;
+            this.format = format;
+            this.active = active;
+        }
+
+        @JsonIgnore
+        public String getFilename() {
+            return type.filename + ("A".equals(active) ? "" : "_inactive") + "." + format.extension;
+        }
+
+        @JsonIgnore
+        public boolean isFinished() {
+            return status == JobStatus.DONE || status == JobStatus.FAILED;
+        }
+
+        private String dedupKey() {
+            return type + ":" + format + ":" + active;
+        }
+    }
+
+    private final ReportService reportService;
+    private final ReportDataService reportDataService;
+    private final Path spoolDir;
+    private final Duration retention;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    // Trabajos pendientes o en curso por clave (tipo, formato, estado) para deduplicar
+    private final Map<String, ReportJob> activeJobs = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReportJobService(ReportService reportService, ReportDataService reportDataService,
+                            @Value("${report.jobs.spool-dir:${java.io.tmpdir}/sistventas-reports}") String spoolDir,
+                            @Value("${report.jobs.retention:PT1H}") Duration retention,
+                            @Value("${report.jobs.threads:2}") int threads,
+                            @Value("${report.jobs.queue-capacity:20}") int queueCapacity,
+                            Environment environment) {
+        this.reportService = reportService;
+        this.reportDataService = reportDataService;
+        this.spoolDir = Paths.get(spoolDir);
+        this.retention = retention;
+        AtomicInteger threadCount = new AtomicInteger();
+        // En modo de hilos virtuales los trabajadores son virtuales; report.jobs.threads sigue siendo el límite
+        ThreadFactory threadFactory = Threading.VIRTUAL.isActive(environment)
+                ? new VirtualThreadTaskExecutor("report-job-").getVirtualThreadFactory()
+                : runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                };
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Crea el directorio de spool y borra los archivos de una ejecución anterior (sus trabajos ya no existen)
+    @PostConstruct
+    public void initSpool() throws IOException {
+        Files.createDirectories(spoolDir);
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(spoolDir, FILE_PREFIX + "*")) {
+            for (Path file : stale) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Encola un reporte o devuelve el trabajo idéntico pendiente; RejectedExecutionException si la cola está llena
+    public ReportJob submit(ReportType type, ReportFormat format, String active) {
+        ReportJob candidate = new ReportJob(UUID.randomUUID().toString(), type, format, active);
+        ReportJob job = activeJobs.compute(candidate.dedupKey(), (key, existing) -> {
+            if (existing != null && !existing.isFinished()) {
+                return existing;
+            }
+            jobs.put(candidate.getId(), candidate);
+            try {
+                executor.execute(() -> run(candidate));
+            } catch (RejectedExecutionException e) {
+                jobs.remove(candidate.getId());
+                throw e;
+            }
+            return candidate;
+        });
+        if (job != candidate) {
+            logger.debug("Reporte {} asociado al trabajo pendiente {}", candidate.dedupKey(), job.getId());
+        }
+        return job;
+    }
+
+    public Optional<ReportJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    // Quita los trabajos terminados cuya retención venció y borra sus archivos
+    @Scheduled(fixedDelayString = "${report.jobs.cleanup-interval:PT5M}")
+    public void purgeExpired() {
+        Instant limit = Instant.now().minus(retention);
+        for (ReportJob job : jobs.values()) {
+            if (job.isFinished() && job.getFinishedAt().isBefore(limit)) {
+                jobs.remove(job.getId());
+                deleteQuietly(job.getFile());
+            }
+        }
+    }
+
+    private void run(ReportJob job) {
+        job.startedAt = Instant.now();
+        job.status = JobStatus.RUNNING;
+        Path target = spoolDir.resolve(FILE_PREFIX + job.getId() + "." + job.getFormat().extension);
+        Path partial = spoolDir.resolve(FILE_PREFIX + job.getId() + ".part");
+        try {
+            byte[] report = render(job);
+            Files.write(partial, report);
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            job.file = target;
+            job.size = (long) report.length;
+            job.finishedAt = Instant.now();
+            job.status = JobStatus.DONE;
+        } catch (Exception e) {
+            logger.error("Error generating report job {}: {}", job.getId(), e.getMessage(), e);
+            deleteQuietly(partial);
+            job.error = e.getMessage();
+            job.finishedAt = Instant.now();
+            job.status = JobStatus.FAILED;
+        } finally {
+            activeJobs.remove(job.dedupKey(), job);
+        }
+    }
+
+    private byte[] render(ReportJob job) throws JRException {
+        boolean active = "A".equals(job.getActive());
+        List<?> rows = switch (job.getType()) {
+            case PRODUCT -> reportDataService.getProducts(active);
+            case CLIENT -> reportDataService.getClients(active);
+            case SELLER -> reportDataService.getSellers(active);
+            case SUPPLIER -> reportDataService.getSuppliers(active);
+            case CATEGORY -> reportDataService.getCategories(active);
+        };
+        JRBeanCollectionDataSource dataSource = new JRBeanCollectionDataSource(rows);
+        return job.getFormat() == ReportFormat.PDF
+                ? reportService.exportPdf(job.getType().template, dataSource)
+                : reportService.exportXlsx(job.getType().template, dataSource);
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("No se pudo borrar el archivo de reporte {}: {}", file, e.getMessage());
+        }
+    }
+}
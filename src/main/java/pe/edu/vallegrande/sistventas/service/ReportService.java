@@ -0,0 +1,105 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import net.sf.jasperreports.engine.*;
+import net.sf.jasperreports.engine.export.ooxml.JRXlsxExporter;
+import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.export.SimpleExporterInput;
+import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
+import net.sf.jasperreports.export.SimpleXlsxExporterConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Servicio común de reportes: carga cada plantilla .jasper de /reports una sola vez y la reutiliza
+// (un JasperReport es inmutable y se puede llenar desde varios hilos a la vez); solo el llenado y la
+// exportación a PDF o XLSX se hacen por petición.
+@Service
+public class ReportService {
+    private static final Logger logger = LoggerFactory.getLogger(ReportService.class);
+    private static final String TEMPLATE_LOCATION = "/reports/%s.jasper";
+    private static final String TEMPLATE_PATTERN = "classpath:reports/*.jasper";
+
+    static {
+        // Parser XML del JDK para JasperReports; antes se configuraba en cada petición de reporte
+        System.setProperty("javax.xml.parsers.DocumentBuilderFactory",
+                "com.sun.org.apache.xerces.internal.jaxp.DocumentBuilderFactoryImpl");
+    }
+
+    private final Map<String, JasperReport> templates = new ConcurrentHashMap<>();
+
+    // Carga anticipada de las plantillas para que el primer reporte no pague la deserialización;
+    // si alguna falla se vuelve a intentar en su primera petición
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver().getResources(TEMPLATE_PATTERN);
+            for (Resource resource : resources) {
+                String name = resource.getFilename().substring(0, resource.getFilename().length() - ".jasper".length());
+                try {
+                    getTemplate(name);
+                } catch (JRException e) {
+                    logger.error("No se pudo cargar la plantilla {}: {}", name, e.getMessage(), e);
+                }
+            }
+            logger.info("Plantillas de reporte cargadas: {}", templates.keySet());
+        } catch (IOException e) {
+            logger.error("No se pudieron listar las plantillas de reporte: {}", e.getMessage(), e);
+        }
+    }
+
+    // Plantilla compilada por nombre (sin extensión), p. ej. "report_category"
+    public JasperReport getTemplate(String name) throws JRException {
+        JasperReport template = templates.get(name);
+        if (template != null) {
+            return template;
+        }
+        template = loadTemplate(name);
+        JasperReport previous = templates.putIfAbsent(name, template);
+        return previous != null ? previous : template;
+    }
+
+    // Llena la plantilla con los datos, sin parámetros
+    public JasperPrint fill(String name, JRDataSource dataSource) throws JRException {
+        return JasperFillManager.fillReport(getTemplate(name), new HashMap<>(), dataSource);
+    }
+
+    // Llena la plantilla y la exporta a PDF
+    public byte[] exportPdf(String name, JRDataSource dataSource) throws JRException {
+        return JasperExportManager.exportReportToPdf(fill(name, dataSource));
+    }
+
+    // Llena la plantilla y la exporta a XLSX
+    public byte[] exportXlsx(String name, JRDataSource dataSource) throws JRException {
+        JasperPrint jasperPrint = fill(name, dataSource);
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        JRXlsxExporter exporter = new JRXlsxExporter();
+        exporter.setExporterInput(new SimpleExporterInput(jasperPrint));
+        exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(byteArrayOutputStream));
+        exporter.setConfiguration(new SimpleXlsxExporterConfiguration());
+        exporter.exportReport();
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private JasperReport loadTemplate(String name) throws JRException {
+        String location = String.format(TEMPLATE_LOCATION, name);
+        try (InputStream reportStream = getClass().getResourceAsStream(location)) {
+            if (reportStream == null) {
+                throw new JRException("Report template not found: " + location);
+            }
+            return (JasperReport) JRLoader.loadObject(reportStream);
+        } catch (IOException e) {
+            throw new JRException("Error reading report template " + location, e);
+        }
+    }
+}
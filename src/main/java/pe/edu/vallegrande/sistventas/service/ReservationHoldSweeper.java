@@ -0,0 +1,87 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductQuantityView;
+import pe.edu.vallegrande.sistventas.repository.ReservationDetailRepo;
+import pe.edu.vallegrande.sistventas.repository.ReservationRepo;
+
+import java.util.Date;
+import java.util.List;
+
+// Releases the stock of reservations whose hold expired without being confirmed.
+// Works in small batches, each in its own short transaction: the expired ids come from the
+// (hold_status, hold_expires_at) index, the reservations are locked and re-checked, and the stock
+// of the whole batch goes back with one JDBC batch, so product rows are never locked for long.
+@Component
+public class ReservationHoldSweeper {
+    private static final Logger logger = LoggerFactory.getLogger(ReservationHoldSweeper.class);
+
+    private final ReservationRepo reservationRepo;
+    private final ReservationDetailRepo reservationDetailRepo;
+    private final InventoryService inventoryService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    @Autowired
+    public ReservationHoldSweeper(ReservationRepo reservationRepo, ReservationDetailRepo reservationDetailRepo,
+                                  InventoryService inventoryService, PlatformTransactionManager transactionManager,
+                                  @Value("${reservation.hold.sweep-batch-size:500}") int batchSize,
+                                  @Value("${reservation.hold.sweep-max-batches:200}") int maxBatchesPerRun) {
+        this.reservationRepo = reservationRepo;
+        this.reservationDetailRepo = reservationDetailRepo;
+        this.inventoryService = inventoryService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Oracle does not accept more than 1000 elements in an IN list
+        this.batchSize = Math.max(1, Math.min(batchSize, 1000));
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+    }
+
+    // Runs periodically; a backlog larger than one run is picked up by the next one
+    @Scheduled(fixedDelayString = "${reservation.hold.sweep-interval:PT1M}")
+    public void releaseExpiredHolds() {
+        int released = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            Date now = new Date();
+            List<Long> candidates = reservationRepo.findExpiredHoldIds(now, Limit.of(batchSize));
+            if (candidates.isEmpty()) {
+                break;
+            }
+            try {
+                released += transactionTemplate.execute(status -> releaseBatch(candidates, now));
+            } catch (RuntimeException e) {
+                logger.error("Error releasing expired reservation holds: {}", e.getMessage(), e);
+                break;
+            }
+            if (candidates.size() < batchSize) {
+                break;
+            }
+        }
+        if (released > 0) {
+            logger.info("Released {} expired reservation holds", released);
+        }
+    }
+
+    private int releaseBatch(List<Long> candidates, Date now) {
+        // Holds confirmed or cancelled since the candidates were read are left out here
+        List<Long> expired = reservationRepo.lockExpiredHolds(candidates, now).stream()
+                .map(Number::longValue)
+                .toList();
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        List<ProductQuantityView> quantities = reservationDetailRepo.findQuantitiesByReservationIds(expired);
+        reservationRepo.releaseHolds(expired);
+        inventoryService.applyStockDeltas(InventoryService.quantitiesByProduct(quantities,
+                ProductQuantityView::getProductId, ProductQuantityView::getAmount));
+        return expired.size();
+    }
+}
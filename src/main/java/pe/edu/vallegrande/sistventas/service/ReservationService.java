@@ -1,24 +1,32 @@
 package pe.edu.vallegrande.sistventas.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import pe.edu.vallegrande.sistventas.dto.CursorPage;
 import pe.edu.vallegrande.sistventas.dto.Reservation;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import pe.edu.vallegrande.sistventas.dto.ReservationDetail;
-import pe.edu.vallegrande.sistventas.model.Product;
-import pe.edu.vallegrande.sistventas.repository.ProductRepo;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductQuantityView;
+import pe.edu.vallegrande.sistventas.dto.projection.ReservationSummary;
 import pe.edu.vallegrande.sistventas.repository.ReservationDetailRepo;
 import pe.edu.vallegrande.sistventas.repository.ReservationRepo;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 public class ReservationService {
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
     @Autowired
     private ReservationRepo reservationRepo;
 
@@ -26,95 +34,140 @@ public class ReservationService {
     private ReservationDetailRepo reservationDetailRepo;
 
     @Autowired
-    private ProductRepo productRepo;
+    private ProductPriceResolver productPriceResolver;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    // How long a new reservation holds its stock unless it is confirmed
+    @Value("${reservation.hold.ttl:PT30M}")
+    private Duration holdTtl;
 
-    // Method to get all reservations
-    public List<Reservation> getAllReservations() {
-        List<Reservation> reservations = reservationRepo.findAll();
-        setTransientFields(reservations);
-        return reservations;
+    // Method to get all reservations (list projection)
+    public List<ReservationSummary> getAllReservations() {
+        return reservationRepo.findAllSummaries();
     }
 
-    // Method to get reservations by active status
-    public List<Reservation> getReservationsByStatus(String active) {
-        List<Reservation> reservations = reservationRepo.findByActive(active).stream()
-                .sorted(Comparator.comparing(Reservation::getId).reversed())
-                .collect(Collectors.toList());
-        setTransientFields(reservations);
-        return reservations;
+    // Method to get reservations by active status (list projection)
+    public List<ReservationSummary> getReservationsByStatus(String active) {
+        return reservationRepo.findSummariesByActive(active);
     }
 
     // Method to get reservations by active status with pagination
-    public Page<Reservation> getReservationsPageableByStatus(String active, Pageable pageable) {
-        List<Reservation> allActiveReservations = reservationRepo.findByActive(active);
-        allActiveReservations.sort(Comparator.comparing(Reservation::getId).reversed());
-
-        List<Reservation> formattedReservations = allActiveReservations.stream()
-                .skip(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .collect(Collectors.toList());
+    public Page<ReservationSummary> getReservationsPageableByStatus(String active, Pageable pageable) {
+        // Paging and ordering are resolved by the database
+        Pageable byIdDesc = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(Sort.Direction.DESC, "id"));
+        return reservationRepo.findSummariesByActive(active, byIdDesc);
+    }
 
-        setTransientFields(formattedReservations);
-        return new PageImpl<>(formattedReservations, pageable, allActiveReservations.size());
+    // Method to get reservations by active status with cursor pagination (id < lastId)
+    public CursorPage<ReservationSummary> getReservationsByCursor(String active, Long lastId, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        // Fetch one extra row to know whether a next page exists
+        Limit limit = Limit.of(pageSize + 1);
+        List<ReservationSummary> reservations = lastId == null
+                ? reservationRepo.findSummariesByActive(active, limit)
+                : reservationRepo.findSummariesByActiveAndIdLessThan(active, lastId, limit);
+        boolean hasNext = reservations.size() > pageSize;
+        List<ReservationSummary> content = hasNext ? reservations.subList(0, pageSize) : reservations;
+        Long nextCursor = hasNext ? content.get(content.size() - 1).id() : null;
+        return new CursorPage<>(content, content.size(), nextCursor, hasNext);
     }
 
     // Method to get a reservation by its ID
     public Optional<Reservation> getReservationById(Long id) {
-        Optional<Reservation> reservation = reservationRepo.findById(id);
-        reservation.ifPresent(this::setTransientFields);
-        return reservation;
+        return reservationRepo.findDetailById(id);
     }
 
-    // Method to create a new reservation
+    // Method to get a reservation with the data needed by the report
+    public Optional<Reservation> getReservationReportById(Long id) {
+        return reservationRepo.findReportById(id);
+    }
+
+    // Method to create a new reservation; holds its stock until confirmed or expired
+    @Transactional
     public Reservation createReservation(Reservation reservation) {
         reservation.setActive("A");
         // Calculate the subtotals and total of the reservation
         calculateReservationTotals(reservation);
+        // Take the reserved stock; fails with InsufficientStockException if any product runs short
+        inventoryService.decrementStock(reservedQuantities(reservation));
+        reservation.setHoldStatus("P");
+        reservation.setHoldExpiresAt(new Date(System.currentTimeMillis() + holdTtl.toMillis()));
         // Set bidirectional relationship
         if (reservation.getReservationDetails() != null) {
             for (ReservationDetail detail : reservation.getReservationDetails()) {
                 detail.setReservation(reservation);
             }
         }
-        Reservation savedReservation = reservationRepo.save(reservation);
-        setTransientFields(savedReservation);
-        return savedReservation;
+        return reservationRepo.save(reservation);
     }
 
-    // Method to delete a reservation
+    // Method to delete a reservation; gives back the stock it still holds
+    @Transactional
     public void deleteReservation(Long id) {
+        if (reservationRepo.releaseHolds(List.of(id)) > 0) {
+            inventoryService.applyStockDeltas(heldQuantities(id));
+        }
         reservationRepo.deleteById(id);
     }
 
-    // Method to logically delete a reservation (change status to 'canceled')
+    // Method to logically delete a reservation (change status to 'canceled') and release its stock
+    @Transactional
     public Reservation logicalCancelReservation(Long id) {
-        return reservationRepo.findById(id)
-                .map(reservation -> {
-                    if ("I".equals(reservation.getActive())) {
-                        throw new ResourceConflictException("Reservation with id " + id + " is already inactive");
-                    }
-                    reservation.setActive("I");
-                    return reservationRepo.save(reservation);
-                })
+        Reservation reservation = reservationRepo.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Reservation not found with id " + id));
+        if ("I".equals(reservation.getActive())) {
+            throw new ResourceConflictException("Reservation with id " + id + " is already inactive");
+        }
+        if (reservation.getHoldStatus() == null) {
+            // Reservation created before stock holds: nothing to give back
+            reservation.setActive("I");
+            return reservationRepo.save(reservation);
+        }
+        // Conditional update, so a hold released meanwhile by the sweeper is not given back twice
+        if (reservationRepo.releaseHolds(List.of(id)) == 0) {
+            throw new ResourceConflictException("Reservation with id " + id + " is already inactive");
+        }
+        inventoryService.applyStockDeltas(heldQuantities(id));
+        reservation.setActive("I");
+        reservation.setHoldStatus("R");
+        reservation.setHoldExpiresAt(null);
+        return reservation;
     }
 
-    // Method to logically activate a reservation (change status to 'confirmed')
+    // Method to confirm a reservation: keeps a pending stock hold for good, or reactivates a
+    // cancelled/expired reservation taking its stock again (change status to 'confirmed')
+    @Transactional
     public Reservation logicalConfirmReservation(Long id) {
-        return reservationRepo.findById(id)
-                .map(reservation -> {
-                    if ("A".equals(reservation.getActive())) {
-                        throw new ResourceConflictException("Reservation with id " + id + " is already active");
-                    }
-                    reservation.setActive("A");
-                    return reservationRepo.save(reservation);
-                })
+        Reservation reservation = reservationRepo.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Reservation not found with id " + id));
+        if ("A".equals(reservation.getActive())) {
+            if (!"P".equals(reservation.getHoldStatus())) {
+                throw new ResourceConflictException("Reservation with id " + id + " is already active");
+            }
+            if (reservationRepo.confirmHold(id, new Date()) == 0) {
+                throw new ResourceConflictException("Stock hold of reservation with id " + id + " has expired");
+            }
+        } else {
+            if (reservationRepo.reactivateWithHold(id) == 0) {
+                throw new ResourceConflictException("Reservation with id " + id + " is already active");
+            }
+            inventoryService.decrementStock(heldQuantities(id));
+            reservation.setActive("A");
+        }
+        reservation.setHoldStatus("C");
+        reservation.setHoldExpiresAt(null);
+        return reservation;
     }
 
-    // Method to update a reservation
+    // Method to update a reservation; an active hold only moves the per-product difference.
+    // The row stays locked until commit: the sweeper waits and then releases the new quantities,
+    // or it released the hold first and this update sees it and moves no stock
+    @Transactional
     public Reservation updateReservation(Long id, Reservation reservationUpdated) {
-        Reservation reservation = reservationRepo.findById(id).orElseThrow(() -> new ResourceNotFoundException("Reservation not found with id " + id));
+        Reservation reservation = reservationRepo.findForUpdateById(id).orElseThrow(() -> new ResourceNotFoundException("Reservation not found with id " + id));
+        Map<Long, Double> previousQuantities = reservedQuantities(reservation);
         // Update reservation data
         reservation.setClient(reservationUpdated.getClient());
         reservation.setSeller(reservationUpdated.getSeller());
@@ -129,10 +182,15 @@ public class ReservationService {
         updateReservationDetails(reservation, reservationUpdated.getReservationDetails());
         // Calculate the subtotals and total of the reservation
         calculateReservationTotals(reservation);
+        if ("A".equals(reservation.getActive())
+                && ("P".equals(reservation.getHoldStatus()) || "C".equals(reservation.getHoldStatus()))) {
+            // Give back what is no longer reserved and take what was added
+            Map<Long, Double> deltas = new HashMap<>(previousQuantities);
+            reservedQuantities(reservation).forEach((productId, amount) -> deltas.merge(productId, -amount, Double::sum));
+            inventoryService.applyStockDeltas(deltas);
+        }
         // Save the updated reservation
-        Reservation savedReservation = reservationRepo.save(reservation);
-        setTransientFields(savedReservation);
-        return savedReservation;
+        return reservationRepo.save(reservation);
     }
 
     // Method to update reservation details
@@ -163,31 +221,33 @@ public class ReservationService {
 
     // Method to calculate the subtotals and total of the reservation
     private void calculateReservationTotals(Reservation reservation) {
+        // Prices of every product in the cart in a single query
+        Map<Long, Double> prices = productPriceResolver.resolvePrices(reservation.getReservationDetails().stream()
+                .map(detail -> detail.getProduct().getId())
+                .collect(Collectors.toList()));
         double total = 0;
         for (ReservationDetail detail : reservation.getReservationDetails()) {
-            Product product = productRepo.findById(detail.getProduct().getId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with id " + detail.getProduct().getId()));
-            double subtotal = product.getPriceUnit() * detail.getAmount();
+            Double priceUnit = prices.get(detail.getProduct().getId());
+            if (priceUnit == null) {
+                throw new ResourceNotFoundException("Product not found with id " + detail.getProduct().getId());
+            }
+            double subtotal = priceUnit * detail.getAmount();
             detail.setSubtotalReservation(subtotal);
             total += subtotal;
         }
         reservation.setTotalReservation(total);
     }
 
-    // Method to set transient fields
-    private void setTransientFields(List<Reservation> reservations) {
-        for (Reservation reservation : reservations) {
-            setTransientFields(reservation);
-        }
+    // Reserved quantity per product, using only the product id (products are not loaded)
+    private Map<Long, Double> reservedQuantities(Reservation reservation) {
+        return InventoryService.quantitiesByProduct(reservation.getReservationDetails(),
+                detail -> detail.getProduct().getId(), ReservationDetail::getAmount);
     }
 
-    private void setTransientFields(Reservation reservation) {
-        if (reservation.getClient() != null) {
-            reservation.setClientNames(reservation.getClient().getNames() + " " + reservation.getClient().getLastName());
-        }
-        if (reservation.getSeller() != null) {
-            reservation.setSellerNames(reservation.getSeller().getNames() + " " + reservation.getSeller().getLastName());
-        }
+    // Quantity per product held by a stored reservation, read in a single query
+    private Map<Long, Double> heldQuantities(Long reservationId) {
+        return InventoryService.quantitiesByProduct(reservationDetailRepo.findQuantitiesByReservationIds(List.of(reservationId)),
+                ProductQuantityView::getProductId, ProductQuantityView::getAmount);
     }
 
     // Custom exception for resources not found
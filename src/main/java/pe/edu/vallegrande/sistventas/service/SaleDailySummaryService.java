@@ -0,0 +1,249 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import pe.edu.vallegrande.sistventas.dto.Sale;
+import pe.edu.vallegrande.sistventas.dto.SaleDailySummary;
+import pe.edu.vallegrande.sistventas.dto.SaleDetail;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductCategoryView;
+import pe.edu.vallegrande.sistventas.repository.ProductRepo;
+import pe.edu.vallegrande.sistventas.repository.SaleDailySummaryRepo;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+// Mantiene la tabla sale_daily_summary (día, vendedor, método de pago, categoría) de forma incremental:
+// cada alta, edición, baja o activación de una venta suma o resta su aporte con un MERGE atómico,
+// dentro de la transacción de la venta. rebuild() recalcula un rango de días desde sale/sale_detail.
+@Service
+public class SaleDailySummaryService {
+    // Oracle no acepta más de 1000 elementos en una lista IN
+    private static final int MAX_IN_LIST_SIZE = 1000;
+
+    private static final String MERGE_SQL =
+            "MERGE INTO sale_daily_summary s " +
+            "USING (SELECT CAST(? AS DATE) AS summary_date, CAST(? AS NUMBER(19)) AS seller_id, " +
+            "CAST(? AS NUMBER(19)) AS payment_method_id, CAST(? AS NUMBER(19)) AS category_id, " +
+            "CAST(? AS NUMBER) AS total_amount, CAST(? AS NUMBER) AS quantity, " +
+            "CAST(? AS NUMBER(19)) AS line_count, CAST(? AS NUMBER(19)) AS sale_count FROM dual) d " +
+            "ON (s.summary_date = d.summary_date AND s.seller_id = d.seller_id " +
+            "AND s.payment_method_id = d.payment_method_id AND s.category_id = d.category_id) " +
+            "WHEN MATCHED THEN UPDATE SET s.total_amount = s.total_amount + d.total_amount, " +
+            "s.quantity = s.quantity + d.quantity, s.line_count = s.line_count + d.line_count, " +
+            "s.sale_count = s.sale_count + d.sale_count " +
+            "WHEN NOT MATCHED THEN INSERT (summary_date, seller_id, payment_method_id, category_id, " +
+            "total_amount, quantity, line_count, sale_count) " +
+            "VALUES (d.summary_date, d.seller_id, d.payment_method_id, d.category_id, " +
+            "d.total_amount, d.quantity, d.line_count, d.sale_count)";
+
+    private static final String DELETE_RANGE_SQL =
+            "DELETE FROM sale_daily_summary WHERE summary_date >= ? AND summary_date < ?";
+
+    private static final String REBUILD_RANGE_SQL =
+            "INSERT INTO sale_daily_summary (summary_date, seller_id, payment_method_id, category_id, " +
+            "total_amount, quantity, line_count, sale_count) " +
+            "SELECT TRUNC(s.date_time), s.seller_id, s.payment_method_id, NVL(d.category_id, p.category_product_id), " +
+            "SUM(NVL(d.subtotal_sale, 0)), SUM(d.amount), COUNT(*), COUNT(DISTINCT s.id) " +
+            "FROM sale s JOIN sale_detail d ON d.sale_id = s.id JOIN product p ON p.id = d.product_id " +
+            "WHERE s.active = 'A' AND s.date_time >= ? AND s.date_time < ? " +
+            "GROUP BY TRUNC(s.date_time), s.seller_id, s.payment_method_id, NVL(d.category_id, p.category_product_id)";
+
+    private final SaleDailySummaryRepo saleDailySummaryRepo;
+    private final ProductRepo productRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public SaleDailySummaryService(SaleDailySummaryRepo saleDailySummaryRepo, ProductRepo productRepo,
+                                   JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.saleDailySummaryRepo = saleDailySummaryRepo;
+        this.productRepo = productRepo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Línea de una venta tal como aporta al agregado; categoryId es la registrada en la venta (null en
+    // líneas anteriores a la columna, que usan la categoría actual del producto)
+    public record Line(Long productId, Long categoryId, double amount, double subtotal) {
+    }
+
+    // Aporte de una venta al agregado; se toma antes de modificarla para poder restarlo después
+    public record Contribution(LocalDate day, Long sellerId, Long paymentMethodId, List<Line> lines) {
+    }
+
+    // Clave de una fila del agregado, ordenable para bloquear siempre en el mismo orden
+    private record SummaryKey(LocalDate day, Long sellerId, Long paymentMethodId, Long categoryId)
+            implements Comparable<SummaryKey> {
+        private static final Comparator<SummaryKey> ORDER = Comparator.comparing(SummaryKey::day)
+                .thenComparing(SummaryKey::sellerId)
+                .thenComparing(SummaryKey::paymentMethodId)
+                .thenComparing(SummaryKey::categoryId);
+
+        @Override
+        public int compareTo(SummaryKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    // Foto del aporte actual de una venta (usa solo ids, no carga vendedor ni productos)
+    public Contribution snapshot(Sale sale) {
+        List<Line> lines = new ArrayList<>();
+        if (sale.getSaleDetails() != null) {
+            for (SaleDetail detail : sale.getSaleDetails()) {
+                lines.add(new Line(detail.getProduct().getId(), detail.getCategoryId(),
+                        detail.getAmount() == null ? 0 : detail.getAmount(),
+                        detail.getSubtotalSale() == null ? 0 : detail.getSubtotalSale()));
+            }
+        }
+        LocalDate day = sale.getDateTime().toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+        return new Contribution(day, sale.getSeller().getId(), sale.getPaymentMethod().getId(), lines);
+    }
+
+    // Registra en cada línea sin categoría (nueva o con otro producto) la categoría actual de su producto,
+    // en una sola consulta. Se llama al guardar la venta, antes de tomar su aporte
+    public void recordCategories(Collection<SaleDetail> details) {
+        Set<Long> productIds = new HashSet<>();
+        for (SaleDetail detail : details) {
+            if (detail.getCategoryId() == null) {
+                productIds.add(detail.getProduct().getId());
+            }
+        }
+        if (productIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> categories = resolveCategories(productIds);
+        for (SaleDetail detail : details) {
+            if (detail.getCategoryId() == null) {
+                detail.setCategoryId(categories.get(detail.getProduct().getId()));
+            }
+        }
+    }
+
+    // Suma el aporte de una venta (alta o activación)
+    @Transactional
+    public void add(Contribution contribution) {
+        apply(List.of(contribution), List.of());
+    }
+
+    // Resta el aporte de una venta (baja lógica o eliminación)
+    @Transactional
+    public void subtract(Contribution contribution) {
+        apply(List.of(), List.of(contribution));
+    }
+
+    // Reemplaza el aporte anterior de una venta por el nuevo (edición), en un solo paso
+    @Transactional
+    public void replace(Contribution before, Contribution after) {
+        apply(List.of(after), List.of(before));
+    }
+
+    // Filas del agregado para un rango de días
+    public List<SaleDailySummary> getSummaries(LocalDate from, LocalDate to) {
+        return saleDailySummaryRepo.findBySummaryDateBetweenOrderBySummaryDate(from, to);
+    }
+
+    // Recalcula el agregado desde sale/sale_detail para un rango de días (carga inicial o corrección).
+    // Procesa un mes por transacción; conviene ejecutarlo fuera de horario para los días en curso.
+    public int rebuild(LocalDate from, LocalDate to) {
+        int rows = 0;
+        LocalDate start = from;
+        while (!start.isAfter(to)) {
+            LocalDate end = start.plusMonths(1).withDayOfMonth(1);
+            if (end.isAfter(to.plusDays(1))) {
+                end = to.plusDays(1);
+            }
+            LocalDate chunkStart = start;
+            LocalDate chunkEnd = end;
+            rows += transactionTemplate.execute(status -> {
+                jdbcTemplate.update(DELETE_RANGE_SQL, Date.valueOf(chunkStart), Date.valueOf(chunkEnd));
+                return jdbcTemplate.update(REBUILD_RANGE_SQL,
+                        Timestamp.valueOf(chunkStart.atStartOfDay()), Timestamp.valueOf(chunkEnd.atStartOfDay()));
+            });
+            start = end;
+        }
+        return rows;
+    }
+
+    private void apply(List<Contribution> added, List<Contribution> removed) {
+        // Solo las líneas sin categoría registrada consultan la del producto
+        Set<Long> productIds = new HashSet<>();
+        boolean empty = true;
+        for (Contribution contribution : added) {
+            empty &= contribution.lines().isEmpty();
+            contribution.lines().stream().filter(line -> line.categoryId() == null)
+                    .forEach(line -> productIds.add(line.productId()));
+        }
+        for (Contribution contribution : removed) {
+            empty &= contribution.lines().isEmpty();
+            contribution.lines().stream().filter(line -> line.categoryId() == null)
+                    .forEach(line -> productIds.add(line.productId()));
+        }
+        if (empty) {
+            return;
+        }
+        Map<Long, Long> categories = productIds.isEmpty() ? Map.of() : resolveCategories(productIds);
+        // Claves ordenadas: todas las transacciones bloquean las filas del agregado en el mismo orden
+        SortedMap<SummaryKey, double[]> deltas = new TreeMap<>();
+        for (Contribution contribution : added) {
+            accumulate(deltas, contribution, categories, 1);
+        }
+        for (Contribution contribution : removed) {
+            accumulate(deltas, contribution, categories, -1);
+        }
+        for (Map.Entry<SummaryKey, double[]> delta : deltas.entrySet()) {
+            double[] values = delta.getValue();
+            if (values[0] == 0 && values[1] == 0 && values[2] == 0 && values[3] == 0) {
+                continue;
+            }
+            SummaryKey key = delta.getKey();
+            Object[] args = {Date.valueOf(key.day()), key.sellerId(), key.paymentMethodId(), key.categoryId(),
+                    values[0], values[1], (long) values[2], (long) values[3]};
+            try {
+                jdbcTemplate.update(MERGE_SQL, args);
+            } catch (DuplicateKeyException e) {
+                // Otra transacción insertó la misma clave a la vez; ahora existe y el MERGE la actualiza
+                jdbcTemplate.update(MERGE_SQL, args);
+            }
+        }
+    }
+
+    // Clave (día, vendedor, método de pago, categoría) -> {total, cantidad, líneas, ventas}
+    private void accumulate(Map<SummaryKey, double[]> deltas, Contribution contribution,
+                            Map<Long, Long> categories, int sign) {
+        Set<SummaryKey> keysOfSale = new HashSet<>();
+        for (Line line : contribution.lines()) {
+            Long categoryId = line.categoryId() != null ? line.categoryId() : categories.get(line.productId());
+            if (categoryId == null) {
+                throw new IllegalStateException("Product not found with id " + line.productId());
+            }
+            SummaryKey key = new SummaryKey(contribution.day(), contribution.sellerId(), contribution.paymentMethodId(), categoryId);
+            double[] values = deltas.computeIfAbsent(key, k -> new double[4]);
+            values[0] += sign * line.subtotal();
+            values[1] += sign * line.amount();
+            values[2] += sign;
+            if (keysOfSale.add(key)) {
+                values[3] += sign;
+            }
+        }
+    }
+
+    private Map<Long, Long> resolveCategories(Set<Long> productIds) {
+        List<Long> ids = new ArrayList<>(productIds);
+        Map<Long, Long> categories = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + MAX_IN_LIST_SIZE, ids.size()));
+            for (ProductCategoryView view : productRepo.findCategoriesByIdIn(chunk)) {
+                categories.put(view.getId(), view.getCategoryId());
+            }
+        }
+        return categories;
+    }
+}
@@ -0,0 +1,568 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import pe.edu.vallegrande.sistventas.dto.Sale;
+import pe.edu.vallegrande.sistventas.dto.SaleDetail;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Ingesta diferida de ventas (opcional, sale.ingestion.enabled): la venta se valida, se escribe en un
+// journal local (con fsync agrupado) y se responde con un id provisional; un único hilo escritor la
+// inserta después junto con las que llegaron en el mismo intervalo, hasta batch-size ventas o max-delay,
+// en una sola transacción. Si alguna venta del grupo falla se revierte el grupo y se insertan una a una.
+// La cola está acotada (queue-capacity): llena, se responde 503. Al arrancar se reencolan las ventas del
+// journal sin confirmar; la tabla sale_ingestion (db/oracle/008), escrita en la transacción de cada
+// venta, evita insertarlas dos veces. Una venta que agota sus intentos (la base de datos no responde)
+// queda FAILED y se reencola más tarde, con una espera que se duplica hasta max-retry-delay. El stock se
+// descuenta al insertar: una venta aceptada puede quedar rechazada por stock insuficiente, lo que se
+// informa en su estado.
+@Service
+@ConditionalOnProperty(name = "sale.ingestion.enabled", havingValue = "true")
+public class SaleIngestionService {
+    private static final Logger logger = LoggerFactory.getLogger(SaleIngestionService.class);
+    private static final String JOURNAL_FILE = "sale-ingestion.journal";
+    private static final long POLL_MILLIS = 200;
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+
+    private static final String MARK_SQL = "INSERT INTO sale_ingestion (provisional_id, sale_id, committed_at) VALUES (?, ?, ?)";
+    private static final String FIND_SQL = "SELECT sale_id FROM sale_ingestion WHERE provisional_id = ?";
+    private static final String PURGE_SQL = "DELETE FROM sale_ingestion WHERE committed_at < ?";
+
+    public enum IngestionState { QUEUED, COMMITTED, REJECTED, FAILED }
+
+    // Estado de una venta recibida; saleId solo cuando ya está confirmada
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record IngestionStatus(String provisionalId, IngestionState status, Long saleId, String mensaje) {
+    }
+
+    // Línea del journal: A = aceptada (con la venta), C = confirmada, R = rechazada
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record JournalRecord(String type, String id, JsonNode sale, Long saleId, String mensaje) {
+    }
+
+    // Venta pendiente. Un reintento (recuperada del journal o reencolada tras agotar sus intentos) no ocupa
+    // capacidad de la cola y antes de insertarlo se busca su marca; stalls cuenta las veces que se reencoló
+    record Entry(String id, JsonNode sale, boolean retry, int stalls) {
+    }
+
+    // Venta a la espera de reencolarse
+    private record Stalled(Entry entry, long dueNanos) {
+    }
+
+    private final SaleService saleService;
+    private final ProductPriceResolver productPriceResolver;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration maxDelay;
+    private final Duration offerTimeout;
+    private final int maxAttempts;
+    private final Duration retryDelay;
+    private final Duration maxRetryDelay;
+    private final Duration markerRetention;
+    private final Journal journal;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    // Capacidad libre de la cola; se toma antes de escribir en el journal para no aceptar de más
+    private final Semaphore capacity;
+    // Ventas que agotaron sus intentos, por orden de reencolado; solo las usa el hilo escritor
+    private final PriorityQueue<Stalled> stalled = new PriorityQueue<>(Comparator.comparingLong(Stalled::dueNanos));
+    private final Cache<String, IngestionStatus> statuses;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    @Autowired
+    public SaleIngestionService(SaleService saleService, ProductPriceResolver productPriceResolver,
+                                JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                @Value("${sale.ingestion.queue-capacity:5000}") int queueCapacity,
+                                @Value("${sale.ingestion.batch-size:50}") int batchSize,
+                                @Value("${sale.ingestion.max-delay:50ms}") Duration maxDelay,
+                                @Value("${sale.ingestion.offer-timeout:100ms}") Duration offerTimeout,
+                                @Value("${sale.ingestion.max-attempts:5}") int maxAttempts,
+                                @Value("${sale.ingestion.retry-delay:PT5S}") Duration retryDelay,
+                                @Value("${sale.ingestion.max-retry-delay:PT5M}") Duration maxRetryDelay,
+                                @Value("${sale.ingestion.journal-dir:data/sale-ingestion}") String journalDir,
+                                @Value("${sale.ingestion.journal-compact-size:64MB}") DataSize journalCompactSize,
+                                @Value("${sale.ingestion.marker-retention:P7D}") Duration markerRetention) throws IOException {
+        this.saleService = saleService;
+        this.productPriceResolver = productPriceResolver;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxDelay = maxDelay;
+        this.offerTimeout = offerTimeout;
+        this.maxAttempts = maxAttempts;
+        this.retryDelay = retryDelay;
+        this.maxRetryDelay = maxRetryDelay;
+        this.markerRetention = markerRetention;
+        this.capacity = new Semaphore(queueCapacity);
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(Math.max(10_000, queueCapacity * 10L))
+                .expireAfterWrite(Duration.ofHours(1))
+                .build();
+        this.journal = new Journal(Paths.get(journalDir).resolve(JOURNAL_FILE), journalCompactSize.toBytes());
+        this.writer = new Thread(this::writeLoop, "sale-ingestion-writer");
+        this.writer.setDaemon(true);
+        Gauge.builder("sistventas.sale.ingestion.queue", queue, Collection::size)
+                .description("Ventas aceptadas pendientes de insertar")
+                .register(meterRegistry);
+    }
+
+    // Reencola las ventas del journal que no llegaron a confirmarse y arranca el escritor
+    @PostConstruct
+    public void recover() throws IOException {
+        List<Entry> pending = journal.recover(objectMapper);
+        for (Entry entry : pending) {
+            statuses.put(entry.id(), new IngestionStatus(entry.id(), IngestionState.QUEUED, null, null));
+            queue.add(entry);
+        }
+        if (!pending.isEmpty()) {
+            logger.info("Ingesta de ventas: {} ventas del journal reencoladas", pending.size());
+        }
+        writer.start();
+    }
+
+    // Deja de aceptar ventas y espera a que el escritor vacíe la cola; lo que quede se recupera al arrancar
+    @PreDestroy
+    public void shutdown() throws IOException, InterruptedException {
+        running = false;
+        writer.join(Duration.ofSeconds(30).toMillis());
+        if (writer.isAlive()) {
+            logger.warn("Ingesta de ventas detenida con {} ventas en cola; se recuperan del journal", queue.size());
+        }
+        journal.close();
+    }
+
+    // Valida la venta, la guarda en el journal y la encola. InvalidSaleException si los datos no son
+    // válidos; QueueFullException si la cola sigue llena después de offer-timeout
+    public IngestionStatus accept(Sale sale) {
+        validate(sale);
+        if (!running) {
+            throw new QueueFullException("La ingesta de ventas se está deteniendo");
+        }
+        try {
+            if (!capacity.tryAcquire(offerTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new QueueFullException("La cola de ventas está llena, intente nuevamente");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueueFullException("La cola de ventas está llena, intente nuevamente");
+        }
+        // La fecha de la venta es la de recepción, no la de inserción
+        if (sale.getDateTime() == null) {
+            sale.setDateTime(new Date());
+        }
+        Entry entry = new Entry(UUID.randomUUID().toString(), objectMapper.valueToTree(sale), false, 0);
+        try {
+            journal.accepted(entry.id(), toLine(new JournalRecord("A", entry.id(), entry.sale(), null, null)));
+        } catch (IOException e) {
+            capacity.release();
+            throw new UncheckedIOException("Error writing sale ingestion journal", e);
+        }
+        IngestionStatus status = new IngestionStatus(entry.id(), IngestionState.QUEUED, null, null);
+        statuses.put(entry.id(), status);
+        queue.add(entry);
+        return status;
+    }
+
+    // Estado de una venta recibida; tras un reinicio solo se conocen las ya confirmadas
+    public Optional<IngestionStatus> getStatus(String provisionalId) {
+        IngestionStatus status = statuses.getIfPresent(provisionalId);
+        if (status != null) {
+            return Optional.of(status);
+        }
+        return Optional.ofNullable(findCommitted(provisionalId))
+                .map(saleId -> new IngestionStatus(provisionalId, IngestionState.COMMITTED, saleId, null));
+    }
+
+    // Borra las marcas de ventas confirmadas hace más de marker-retention (ya no están en el journal)
+    @Scheduled(fixedDelayString = "${sale.ingestion.cleanup-interval:PT1H}")
+    public void purgeMarkers() {
+        jdbcTemplate.update(PURGE_SQL, Timestamp.from(Instant.now().minus(markerRetention)));
+    }
+
+    // Validación previa a la aceptación: datos obligatorios y productos existentes (precio en caché)
+    private void validate(Sale sale) {
+        if (sale.getClient() == null || sale.getClient().getId() == null
+                || sale.getSeller() == null || sale.getSeller().getId() == null
+                || sale.getPaymentMethod() == null || sale.getPaymentMethod().getId() == null) {
+            throw new InvalidSaleException("La venta debe indicar cliente, vendedor y método de pago");
+        }
+        if (sale.getSaleDetails() == null || sale.getSaleDetails().isEmpty()) {
+            throw new InvalidSaleException("La venta debe tener al menos un detalle");
+        }
+        List<Long> productIds = new ArrayList<>(sale.getSaleDetails().size());
+        for (SaleDetail detail : sale.getSaleDetails()) {
+            if (detail.getProduct() == null || detail.getProduct().getId() == null
+                    || detail.getAmount() == null || detail.getAmount() <= 0) {
+                throw new InvalidSaleException("Cada detalle debe indicar el producto y una cantidad mayor a cero");
+            }
+            productIds.add(detail.getProduct().getId());
+        }
+        Map<Long, Double> prices = productPriceResolver.resolvePrices(productIds);
+        for (Long productId : productIds) {
+            if (!prices.containsKey(productId)) {
+                throw new InvalidSaleException("No existe el producto " + productId);
+            }
+        }
+        // Los ids los asigna la inserción
+        sale.setId(null);
+        sale.getSaleDetails().forEach(detail -> detail.setId(null));
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                if (running) {
+                    requeueDue();
+                }
+                Entry first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                // Grupo: lo que llegue hasta completar batch-size o hasta max-delay desde la primera venta
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelay.toNanos();
+                while (batch.size() < batchSize) {
+                    Entry next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                capacity.release((int) batch.stream().filter(entry -> !entry.retry()).count());
+                persist(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Las ventas del grupo que no llegaron a confirmarse ni rechazarse se reintentan más tarde
+                logger.error("Error inesperado en la ingesta de ventas: {}", e.getMessage(), e);
+                for (Entry entry : batch) {
+                    if (journal.isPending(entry.id())) {
+                        stall(entry, e.getMessage());
+                    }
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Inserta el grupo en una transacción; si falla, se revierte y se inserta cada venta por separado
+    private void persist(List<Entry> batch) {
+        if (batch.size() > 1) {
+            try {
+                List<Long> saleIds = transactionTemplate.execute(status -> {
+                    List<Long> ids = new ArrayList<>(batch.size());
+                    for (Entry entry : batch) {
+                        ids.add(insert(entry, entry.retry()));
+                    }
+                    return ids;
+                });
+                for (int i = 0; i < batch.size(); i++) {
+                    committed(batch.get(i), saleIds.get(i));
+                }
+                return;
+            } catch (RuntimeException e) {
+                logger.debug("Grupo de {} ventas revertido, se insertan una a una: {}", batch.size(), e.getMessage());
+            }
+        }
+        for (Entry entry : batch) {
+            persistOne(entry);
+        }
+    }
+
+    // Una venta en su propia transacción. Los errores de datos la rechazan; los demás (p. ej. la base de
+    // datos no responde) se reintentan con espera creciente hasta max-attempts y luego se reencola más tarde.
+    // Es la vuelta de un grupo revertido o de un reintento: siempre se busca antes la marca de la venta
+    private void persistOne(Entry entry) {
+        long backoff = 100;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                committed(entry, transactionTemplate.execute(status -> insert(entry, true)));
+                return;
+            } catch (DuplicateKeyException e) {
+                // Otro intento de la misma venta ya dejó su marca entre la búsqueda y la inserción: este se
+                // revirtió y vale la venta ya confirmada
+                Long saleId = findCommitted(entry.id());
+                if (saleId != null) {
+                    committed(entry, saleId);
+                } else {
+                    rejected(entry, "Datos de la venta no válidos: " + e.getMessage());
+                }
+                return;
+            } catch (InventoryService.InsufficientStockException e) {
+                rejected(entry, "Stock insuficiente para el producto " + e.getProductId());
+                return;
+            } catch (SaleService.ResourceNotFoundException | DataIntegrityViolationException e) {
+                rejected(entry, "Datos de la venta no válidos: " + e.getMessage());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    logger.error("Venta {} no insertada tras {} intentos: {}", entry.id(), attempt, e.getMessage(), e);
+                    stall(entry, e.getMessage());
+                    return;
+                }
+                logger.warn("Error insertando la venta {} (intento {}): {}", entry.id(), attempt, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    // Inserta la venta y su marca. Con checkMarker, una venta que ya tiene marca no se vuelve a insertar; si
+    // otro intento la deja entre la búsqueda y la inserción, la PK de sale_ingestion revierte este
+    private Long insert(Entry entry, boolean checkMarker) {
+        if (checkMarker) {
+            Long saleId = findCommitted(entry.id());
+            if (saleId != null) {
+                return saleId;
+            }
+        }
+        Sale sale;
+        try {
+            sale = objectMapper.treeToValue(entry.sale(), Sale.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Error reading journaled sale " + entry.id(), e);
+        }
+        Long saleId = saleService.createSale(sale).getId();
+        jdbcTemplate.update(MARK_SQL, entry.id(), saleId, Timestamp.from(Instant.now()));
+        return saleId;
+    }
+
+    // La venta sigue pendiente en el journal; se reencola tras retry-delay, el doble en cada vuelta hasta
+    // max-retry-delay. El estado FAILED se renueva en cada vuelta para que no venza mientras se reintenta
+    private void stall(Entry entry, String message) {
+        int stalls = entry.stalls() + 1;
+        long delay = Math.min(retryDelay.toNanos() << Math.min(stalls - 1, 20), maxRetryDelay.toNanos());
+        stalled.add(new Stalled(new Entry(entry.id(), entry.sale(), true, stalls), System.nanoTime() + delay));
+        statuses.put(entry.id(), new IngestionStatus(entry.id(), IngestionState.FAILED, null, message));
+        logger.warn("Venta {} reencolada en {} ms (vuelta {})", entry.id(), TimeUnit.NANOSECONDS.toMillis(delay), stalls);
+    }
+
+    private void requeueDue() {
+        long now = System.nanoTime();
+        while (!stalled.isEmpty() && stalled.peek().dueNanos() - now <= 0) {
+            queue.add(stalled.poll().entry());
+        }
+    }
+
+    private Long findCommitted(String provisionalId) {
+        List<Long> saleIds = jdbcTemplate.queryForList(FIND_SQL, Long.class, provisionalId);
+        return saleIds.isEmpty() ? null : saleIds.get(0);
+    }
+
+    private void committed(Entry entry, Long saleId) {
+        statuses.put(entry.id(), new IngestionStatus(entry.id(), IngestionState.COMMITTED, saleId, null));
+        complete(entry.id(), new JournalRecord("C", entry.id(), null, saleId, null), false);
+    }
+
+    private void rejected(Entry entry, String message) {
+        logger.warn("Venta {} rechazada: {}", entry.id(), message);
+        statuses.put(entry.id(), new IngestionStatus(entry.id(), IngestionState.REJECTED, null, message));
+        // Sin fsync, un rechazo perdido volvería a intentarse al arrancar
+        complete(entry.id(), new JournalRecord("R", entry.id(), null, null, message), true);
+    }
+
+    private void complete(String id, JournalRecord record, boolean sync) {
+        try {
+            journal.completed(id, toLine(record), sync);
+        } catch (IOException e) {
+            // La marca en sale_ingestion basta para no repetir una venta confirmada
+            logger.warn("No se pudo escribir en el journal de ventas {}: {}", record.id(), e.getMessage());
+        }
+    }
+
+    private byte[] toLine(JournalRecord record) {
+        try {
+            return (objectMapper.writeValueAsString(record) + "\n").getBytes(StandardCharsets.UTF_8);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Error serializing journal record " + record.id(), e);
+        }
+    }
+
+    // Journal de solo anexado. Cada aceptación espera a que su línea esté en disco; el fsync se comparte:
+    // quien lo hace cubre todo lo escrito hasta ese momento. Cuando no quedan ventas pendientes y el
+    // archivo supera compactSize, se trunca
+    static final class Journal implements Closeable {
+        private final Path file;
+        private final FileChannel channel;
+        private final long compactSize;
+        private final Object forceLock = new Object();
+        // Bytes escritos desde el arranque (no se reinicia al truncar) y bytes ya en disco
+        private long written;
+        private long durable;
+        // Ids aceptados sin confirmación ni rechazo
+        private final Set<String> pending = new HashSet<>();
+
+        Journal(Path file, long compactSize) throws IOException {
+            Files.createDirectories(file.getParent());
+            this.file = file;
+            this.compactSize = compactSize;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.channel.position(channel.size());
+        }
+
+        // Ventas aceptadas sin confirmación ni rechazo, en el orden del archivo. Una última línea
+        // incompleta (caída durante la escritura) nunca fue confirmada al cliente: se corta del archivo
+        // para que la siguiente línea no quede pegada a ella
+        synchronized List<Entry> recover(ObjectMapper objectMapper) throws IOException {
+            byte[] content = Files.readAllBytes(file);
+            int end = content.length;
+            while (end > 0 && content[end - 1] != '\n') {
+                end--;
+            }
+            if (end < content.length) {
+                logger.warn("Journal de ventas: se descarta una línea incompleta de {} bytes", content.length - end);
+                channel.truncate(end);
+                channel.force(false);
+            }
+            channel.position(end);
+            Map<String, Entry> entries = new LinkedHashMap<>();
+            for (String line : new String(content, 0, end, StandardCharsets.UTF_8).split("\n")) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JournalRecord record;
+                try {
+                    record = objectMapper.readValue(line, JournalRecord.class);
+                } catch (JsonProcessingException e) {
+                    logger.warn("Línea del journal de ventas ilegible, se omite: {}", e.getOriginalMessage());
+                    continue;
+                }
+                if ("A".equals(record.type())) {
+                    entries.put(record.id(), new Entry(record.id(), record.sale(), true, 0));
+                } else {
+                    entries.remove(record.id());
+                }
+            }
+            pending.clear();
+            pending.addAll(entries.keySet());
+            return new ArrayList<>(entries.values());
+        }
+
+        synchronized boolean isPending(String id) {
+            return pending.contains(id);
+        }
+
+        void accepted(String id, byte[] line) throws IOException {
+            long end;
+            synchronized (this) {
+                write(line);
+                pending.add(id);
+                end = written;
+            }
+            force(end);
+        }
+
+        void completed(String id, byte[] line, boolean sync) throws IOException {
+            long end;
+            synchronized (this) {
+                write(line);
+                pending.remove(id);
+                end = written;
+                if (pending.isEmpty() && channel.size() > compactSize) {
+                    // Todo lo anotado está confirmado en la base de datos
+                    channel.truncate(0);
+                    channel.position(0);
+                }
+            }
+            if (sync) {
+                force(end);
+            }
+        }
+
+        private void write(byte[] line) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            written += line.length;
+        }
+
+        private void force(long end) throws IOException {
+            synchronized (forceLock) {
+                if (durable >= end) {
+                    return;
+                }
+                long target;
+                synchronized (this) {
+                    target = written;
+                }
+                channel.force(false);
+                durable = target;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // Excepción para ventas que no pasan la validación previa
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public static class InvalidSaleException extends RuntimeException {
+        public InvalidSaleException(String message) {
+            super(message);
+        }
+    }
+
+    // Excepción para la cola llena (o la ingesta deteniéndose)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public static class QueueFullException extends RuntimeException {
+        public QueueFullException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import jakarta.annotation.PreDestroy;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperExportManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.data.JRBeanCollectionDataSource;
+import net.sf.jasperreports.engine.export.JRPdfExporter;
+import net.sf.jasperreports.export.SimpleExporterInput;
+import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.sistventas.dto.Sale;
+import pe.edu.vallegrande.sistventas.repository.SaleRepo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Lote de comprobantes de venta (report_ventaUnitaria) para muchas ventas a la vez. Cada venta se carga
+// y se llena en un pool acotado (ForkJoinPool, o hilos virtuales en ese modo); el PDF combinado se exporta en el orden pedido cuando están
+// todas, y el ZIP escribe cada comprobante en cuanto termina, con un máximo de partes en vuelo.
+@Service
+public class SaleReportBundleService {
+    private static final Logger logger = LoggerFactory.getLogger(SaleReportBundleService.class);
+    private static final String TEMPLATE = "report_ventaUnitaria";
+
+    private final SaleService saleService;
+    private final SaleRepo saleRepo;
+    private final ReportService reportService;
+    private final ReportDataService reportDataService;
+    private final ExecutorService pool;
+    private final int parallelism;
+    private final int maxSales;
+
+    @Autowired
+    public SaleReportBundleService(SaleService saleService, SaleRepo saleRepo, ReportService reportService,
+                                   ReportDataService reportDataService,
+                                   @Value("${sale.report.bundle.parallelism:0}") int parallelism,
+                                   @Value("${sale.report.bundle.max-sales:1000}") int maxSales,
+                                   Environment environment) {
+        this.saleService = saleService;
+        this.saleRepo = saleRepo;
+        this.reportService = reportService;
+        this.reportDataService = reportDataService;
+        // 0 = un hilo por núcleo; cada hilo usa una conexión del pool mientras carga su venta, por eso
+        // con hilos virtuales el pool sigue siendo de tamaño fijo
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = Threading.VIRTUAL.isActive(environment)
+                ? Executors.newFixedThreadPool(this.parallelism,
+                        new VirtualThreadTaskExecutor("sale-report-bundle-").getVirtualThreadFactory())
+                : new ForkJoinPool(this.parallelism);
+        this.maxSales = maxSales;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // Ventas del lote: los ids recibidos (sin repetir, en su orden) o las ventas activas del rango.
+    // Del rango se leen como mucho maxSales + 1 ids, lo justo para detectar que excede el máximo
+    public List<Long> resolveSaleIds(List<Long> saleIds, LocalDate from, LocalDate to) {
+        if (saleIds != null && !saleIds.isEmpty()) {
+            return new ArrayList<>(new LinkedHashSet<>(saleIds));
+        }
+        return saleRepo.findActiveIdsByDateTimeRange(Timestamp.valueOf(from.atStartOfDay()),
+                Timestamp.valueOf(to.plusDays(1).atStartOfDay()), Limit.of(maxSales + 1));
+    }
+
+    public int getMaxSales() {
+        return maxSales;
+    }
+
+    // Un solo PDF con los comprobantes en el orden de los ids; las ventas inexistentes se omiten
+    public void writeMergedPdf(List<Long> saleIds, OutputStream out) throws IOException, JRException {
+        List<Future<JasperPrint>> tasks = new ArrayList<>(saleIds.size());
+        for (Long saleId : saleIds) {
+            tasks.add(pool.submit(() -> fill(saleId)));
+        }
+        List<JasperPrint> prints = new ArrayList<>(saleIds.size());
+        for (Future<JasperPrint> task : tasks) {
+            JasperPrint print = get(task);
+            if (print != null) {
+                prints.add(print);
+            }
+        }
+        JRPdfExporter exporter = new JRPdfExporter();
+        exporter.setExporterInput(SimpleExporterInput.getInstance(prints));
+        exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(out));
+        exporter.exportReport();
+    }
+
+    // ZIP con un PDF por venta, escrito en el orden en que terminan; como mucho 2 partes por hilo en vuelo
+    public void writeZip(List<Long> saleIds, OutputStream out) throws IOException {
+        CompletionService<Part> completion = new ExecutorCompletionService<>(pool);
+        int window = parallelism * 2;
+        Iterator<Long> pending = saleIds.iterator();
+        int inFlight = 0;
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            while (pending.hasNext() || inFlight > 0) {
+                while (inFlight < window && pending.hasNext()) {
+                    Long saleId = pending.next();
+                    completion.submit(() -> new Part(saleId, render(saleId)));
+                    inFlight++;
+                }
+                Part part = take(completion);
+                inFlight--;
+                if (part.pdf() == null) {
+                    continue;
+                }
+                zip.putNextEntry(new ZipEntry("sale_" + part.saleId() + ".pdf"));
+                zip.write(part.pdf());
+                zip.closeEntry();
+                // Envía al cliente lo ya comprimido
+                zip.flush();
+            }
+        }
+    }
+
+    private record Part(Long saleId, byte[] pdf) {
+    }
+
+    private Part take(CompletionService<Part> completion) throws IOException {
+        try {
+            return get(completion.take());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Sale report bundle interrupted", e);
+        }
+    }
+
+    private <T> T get(Future<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Sale report bundle interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error rendering sale report: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private byte[] render(Long saleId) throws JRException {
+        JasperPrint print = fill(saleId);
+        return print == null ? null : JasperExportManager.exportReportToPdf(print);
+    }
+
+    // Carga la venta con sus detalles y llena el comprobante; null si la venta no existe
+    private JasperPrint fill(Long saleId) throws JRException {
+        Optional<Sale> sale = saleService.getSaleReportById(saleId);
+        if (sale.isEmpty()) {
+            logger.warn("Sale {} not found, skipped from report bundle", saleId);
+            return null;
+        }
+        return reportService.fill(TEMPLATE, new JRBeanCollectionDataSource(reportDataService.getSaleLines(sale.get())));
+    }
+}
@@ -2,15 +2,18 @@ package pe.edu.vallegrande.sistventas.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import pe.edu.vallegrande.sistventas.dto.CursorPage;
 import pe.edu.vallegrande.sistventas.dto.Sale;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import pe.edu.vallegrande.sistventas.dto.SaleDetail;
-import pe.edu.vallegrande.sistventas.model.Product;
-import pe.edu.vallegrande.sistventas.repository.ProductRepo;
+import pe.edu.vallegrande.sistventas.dto.projection.SaleSummary;
 import pe.edu.vallegrande.sistventas.repository.SaleDetailRepo;
 import pe.edu.vallegrande.sistventas.repository.SaleRepo;
 
@@ -19,6 +22,8 @@ import java.util.stream.Collectors;
 
 @Service
 public class SaleService {
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
     @Autowired
     private SaleRepo saleRepository;
 
@@ -26,50 +31,65 @@ public class SaleService {
     private SaleDetailRepo saleDetailRepo;
 
     @Autowired
-    private ProductRepo productRepo;  // Añadir repositorio de productos
+    private ProductPriceResolver productPriceResolver;
+
+    @Autowired
+    private InventoryService inventoryService;
 
-    // Método para obtener todas las ventas
-    public List<Sale> getAllSales() {
-        List<Sale> sales = saleRepository.findAll();
-        setTransientFields(sales);
-        return sales;
+    @Autowired
+    private SaleDailySummaryService saleDailySummaryService;
+
+    // Método para obtener todas las ventas (proyección de listado)
+    public List<SaleSummary> getAllSales() {
+        return saleRepository.findAllSummaries();
     }
 
-    // Nuevo método para obtener ventas por estado
-    public List<Sale> getSalesByActiveStatus(String active) {
-        List<Sale> sales = saleRepository.findByActive(active).stream()
-                .sorted(Comparator.comparing(Sale::getId).reversed())
-                .collect(Collectors.toList());
-        setTransientFields(sales);
-        return sales;
+    // Nuevo método para obtener ventas por estado (proyección de listado)
+    public List<SaleSummary> getSalesByActiveStatus(String active) {
+        return saleRepository.findSummariesByActive(active);
     }
 
     // Nuevo método para obtener ventas por estado paginador
-    public Page<Sale> getSalesPageableByActiveStatus(String active, Pageable pageable) {
-        List<Sale> allActiveSales = saleRepository.findByActive(active);
-        allActiveSales.sort(Comparator.comparing(Sale::getId).reversed());
-
-        List<Sale> formattedSales = allActiveSales.stream()
-                .skip(pageable.getOffset())
-                .limit(pageable.getPageSize())
-                .collect(Collectors.toList());
+    public Page<SaleSummary> getSalesPageableByActiveStatus(String active, Pageable pageable) {
+        // La paginación y el orden se resuelven en la base de datos
+        Pageable byIdDesc = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(Sort.Direction.DESC, "id"));
+        return saleRepository.findSummariesByActive(active, byIdDesc);
+    }
 
-        setTransientFields(formattedSales);
-        return new PageImpl<>(formattedSales, pageable, allActiveSales.size());
+    // Método para obtener ventas por estado con paginación por cursor (id < lastId)
+    public CursorPage<SaleSummary> getSalesByCursor(String active, Long lastId, int size) {
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        // Se pide un registro extra para saber si existe una página siguiente
+        Limit limit = Limit.of(pageSize + 1);
+        List<SaleSummary> sales = lastId == null
+                ? saleRepository.findSummariesByActive(active, limit)
+                : saleRepository.findSummariesByActiveAndIdLessThan(active, lastId, limit);
+        boolean hasNext = sales.size() > pageSize;
+        List<SaleSummary> content = hasNext ? sales.subList(0, pageSize) : sales;
+        Long nextCursor = hasNext ? content.get(content.size() - 1).id() : null;
+        return new CursorPage<>(content, content.size(), nextCursor, hasNext);
     }
 
     // Método para obtener una venta por su ID
     public Optional<Sale> getSaleById(Long id) {
-        Optional<Sale> sale = saleRepository.findById(id);
-        sale.ifPresent(this::setTransientFields);
-        return sale;
+        return saleRepository.findDetailById(id);
+    }
+
+    // Método para obtener una venta con los datos que necesita el reporte
+    public Optional<Sale> getSaleReportById(Long id) {
+        return saleRepository.findReportById(id);
     }
 
-    // Método para crear una venta
+    // Método para crear una venta (descuenta el stock en la misma transacción)
+    @Transactional
     public Sale createSale(Sale sale) {
         sale.setActive("A");
         // Calcular los subtotales y el total de la venta
         calculateSaleTotals(sale);
+        // Registrar en cada línea la categoría del producto a la fecha de la venta
+        saleDailySummaryService.recordCategories(sale.getSaleDetails());
+        // Descontar el stock de todas las líneas; falla con InsufficientStockException si alguna no alcanza
+        inventoryService.decrementStock(soldQuantities(sale));
         // Establecer la relación bidireccional
         if (sale.getSaleDetails() != null) {
             for (SaleDetail detail : sale.getSaleDetails()) {
@@ -77,22 +97,34 @@ public class SaleService {
             }
         }
         Sale savedSale = saleRepository.save(sale);
-        setTransientFields(savedSale);
+        // Sumar la venta al agregado diario
+        saleDailySummaryService.add(saleDailySummaryService.snapshot(savedSale));
         return savedSale;
     }
 
-    // Método para eliminar una venta
+    // Método para eliminar una venta (una venta activa devuelve su stock)
+    @Transactional
     public void deleteSale(Long id) {
+        saleRepository.findById(id)
+                .filter(sale -> "A".equals(sale.getActive()))
+                .ifPresent(sale -> {
+                    inventoryService.applyStockDeltas(soldQuantities(sale));
+                    saleDailySummaryService.subtract(saleDailySummaryService.snapshot(sale));
+                });
         saleRepository.deleteById(id);
     }
 
     // Método para eliminar una venta de manera lógica (cambia el estado a 'I')
+    @Transactional
     public Sale logicalDeleteSale(Long id) {
         return saleRepository.findById(id)
                 .map(sale -> {
                     if ("I".equals(sale.getActive())) {
                         throw new ResourceConflictException("Sale with id " + id + " is already inactive");
                     }
+                    // Devolver al stock lo vendido
+                    inventoryService.applyStockDeltas(soldQuantities(sale));
+                    saleDailySummaryService.subtract(saleDailySummaryService.snapshot(sale));
                     sale.setActive("I");
                     return saleRepository.save(sale);
                 })
@@ -100,12 +132,16 @@ public class SaleService {
     }
 
     // Método para activar una venta de manera lógica (cambia el estado a 'A')
+    @Transactional
     public Sale logicalActivateSale(Long id) {
         return saleRepository.findById(id)
                 .map(sale -> {
                     if ("A".equals(sale.getActive())) {
                         throw new ResourceConflictException("Sale with id " + id + " is already active");
                     }
+                    // Volver a descontar lo vendido; falla con InsufficientStockException si ya no alcanza
+                    inventoryService.decrementStock(soldQuantities(sale));
+                    saleDailySummaryService.add(saleDailySummaryService.snapshot(sale));
                     sale.setActive("A");
                     return saleRepository.save(sale);
                 })
@@ -113,8 +149,13 @@ public class SaleService {
     }
 
     // Método para actualizar una venta
+    @Transactional
     public Sale updateSale(Long id, Sale saleUpdated) {
         Sale sale = saleRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Sale not found with id " + id));
+        // Aporte anterior al agregado diario, antes de modificar la venta
+        SaleDailySummaryService.Contribution previousContribution = saleDailySummaryService.snapshot(sale);
+        // Cantidades vendidas antes del cambio, para aplicar solo la diferencia por producto
+        Map<Long, Double> previousQuantities = soldQuantities(sale);
         // Actualizar datos de la venta
         sale.setClient(saleUpdated.getClient());
         sale.setSeller(saleUpdated.getSeller());
@@ -129,12 +170,43 @@ public class SaleService {
         updateSaleDetails(sale, saleUpdated.getSaleDetails());
         // Calcular los subtotales y el total de la venta
         calculateSaleTotals(sale);
+        // Las líneas nuevas o con otro producto registran la categoría actual; las demás conservan la suya
+        saleDailySummaryService.recordCategories(sale.getSaleDetails());
         // Guardar la venta actualizada
         Sale savedSale = saleRepository.save(sale);
-        setTransientFields(savedSale);
+        // Una venta inactiva ya devolvió su stock, así que no se ajusta
+        if ("A".equals(savedSale.getActive())) {
+            adjustStock(previousQuantities, soldQuantities(savedSale));
+            saleDailySummaryService.replace(previousContribution, saleDailySummaryService.snapshot(savedSale));
+        }
         return savedSale;
     }
 
+    // Lo que la venta toma de más se descuenta con la actualización condicional (puede fallar con
+    // InsufficientStockException); lo que deja de tomar se devuelve al stock
+    private void adjustStock(Map<Long, Double> previousQuantities, Map<Long, Double> quantities) {
+        Map<Long, Double> taken = new HashMap<>();
+        Map<Long, Double> returned = new HashMap<>();
+        Set<Long> productIds = new HashSet<>(previousQuantities.keySet());
+        productIds.addAll(quantities.keySet());
+        for (Long productId : productIds) {
+            double delta = quantities.getOrDefault(productId, 0.0) - previousQuantities.getOrDefault(productId, 0.0);
+            if (delta > 0) {
+                taken.put(productId, delta);
+            } else if (delta < 0) {
+                returned.put(productId, -delta);
+            }
+        }
+        inventoryService.decrementStock(taken);
+        inventoryService.applyStockDeltas(returned);
+    }
+
+    // Cantidades vendidas por producto; usa solo el id del producto (no carga los productos)
+    private Map<Long, Double> soldQuantities(Sale sale) {
+        return InventoryService.quantitiesByProduct(sale.getSaleDetails(),
+                detail -> detail.getProduct().getId(), SaleDetail::getAmount);
+    }
+
     // Método para actualizar los detalles de la venta
     private void updateSaleDetails(Sale sale, List<SaleDetail> updatedDetails) {
         // Mapa de detalles actuales para una búsqueda rápida por ID
@@ -149,6 +221,9 @@ public class SaleService {
             } else if (currentDetailsMap.containsKey(detail.getId())) {
                 // Detalle existente, actualizar
                 SaleDetail existingDetail = currentDetailsMap.get(detail.getId());
+                if (!Objects.equals(existingDetail.getProduct().getId(), detail.getProduct().getId())) {
+                    existingDetail.setCategoryId(null);
+                }
                 existingDetail.setProduct(detail.getProduct());
                 existingDetail.setAmount(detail.getAmount());
                 // No es necesario eliminarlo del mapa porque no es un detalle que vamos a eliminar
@@ -163,33 +238,23 @@ public class SaleService {
 
     // Método para calcular los subtotales y el total de la venta
     private void calculateSaleTotals(Sale sale) {
+        // Precios de todos los productos del carrito en una sola consulta
+        Map<Long, Double> prices = productPriceResolver.resolvePrices(sale.getSaleDetails().stream()
+                .map(detail -> detail.getProduct().getId())
+                .collect(Collectors.toList()));
         double total = 0;
         for (SaleDetail detail : sale.getSaleDetails()) {
-            Product product = productRepo.findById(detail.getProduct().getId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with id " + detail.getProduct().getId()));
-            double subtotal = product.getPriceUnit() * detail.getAmount();
+            Double priceUnit = prices.get(detail.getProduct().getId());
+            if (priceUnit == null) {
+                throw new ResourceNotFoundException("Product not found with id " + detail.getProduct().getId());
+            }
+            double subtotal = priceUnit * detail.getAmount();
             detail.setSubtotalSale(subtotal);
             total += subtotal;
         }
         sale.setTotalSale(total);
     }
 
-    // Método para establecer los campos transitorios
-    private void setTransientFields(List<Sale> sales) {
-        for (Sale sale : sales) {
-            setTransientFields(sale);
-        }
-    }
-
-    private void setTransientFields(Sale sale) {
-        if (sale.getClient() != null) {
-            sale.setClientNames(sale.getClient().getNames() + " " + sale.getClient().getLastName());
-        }
-        if (sale.getSeller() != null) {
-            sale.setSellerNames(sale.getSeller().getNames() + " " + sale.getSeller().getLastName());
-        }
-    }
-
     // Excepción personalizada para recursos no encontrados
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public static class ResourceNotFoundException extends RuntimeException {
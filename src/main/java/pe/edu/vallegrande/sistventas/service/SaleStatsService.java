@@ -0,0 +1,98 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.sistventas.dto.stats.SalesCategoryTotal;
+import pe.edu.vallegrande.sistventas.dto.stats.SalesGroupTotal;
+import pe.edu.vallegrande.sistventas.dto.stats.SalesPeriodTotal;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+
+// Estadísticas de ventas activas calculadas en la base de datos con GROUP BY sobre sale/sale_detail.
+// Los filtros por fecha usan el índice (active, date_time, ...) de sale; solo viajan las filas agregadas.
+@Service
+public class SaleStatsService {
+
+    // Agrupación por periodo; la expresión va en el texto SQL (no como parámetro) porque Oracle
+    // exige que la expresión del SELECT y la del GROUP BY sean idénticas
+    public enum Granularity {
+        DAY("TRUNC(s.date_time)"), WEEK("TRUNC(s.date_time, 'IW')"), MONTH("TRUNC(s.date_time, 'MM')");
+
+        private final String periodExpression;
+
+        Granularity(String periodExpression) {
+            this.periodExpression = periodExpression;
+        }
+    }
+
+    private static final String RANGE_FILTER = "s.active = 'A' AND s.date_time >= ? AND s.date_time < ?";
+
+    private static final String BY_SELLER_SQL =
+            "SELECT x.seller_id, p.names || ' ' || p.last_name AS seller_name, x.sale_count, x.total " +
+            "FROM (SELECT s.seller_id, COUNT(*) AS sale_count, SUM(s.total_sale) AS total " +
+            "FROM sale s WHERE " + RANGE_FILTER + " GROUP BY s.seller_id) x " +
+            "JOIN person p ON p.id = x.seller_id ORDER BY x.total DESC";
+
+    private static final String BY_PAYMENT_METHOD_SQL =
+            "SELECT x.payment_method_id, pm.name, x.sale_count, x.total " +
+            "FROM (SELECT s.payment_method_id, COUNT(*) AS sale_count, SUM(s.total_sale) AS total " +
+            "FROM sale s WHERE " + RANGE_FILTER + " GROUP BY s.payment_method_id) x " +
+            "JOIN payment_method pm ON pm.id = x.payment_method_id ORDER BY x.total DESC";
+
+    private static final String BY_CATEGORY_SQL =
+            "SELECT x.category_id, c.name, x.sale_count, x.line_count, x.quantity, x.total " +
+            "FROM (SELECT NVL(d.category_id, p.category_product_id) AS category_id, COUNT(DISTINCT s.id) AS sale_count, " +
+            "COUNT(*) AS line_count, SUM(d.amount) AS quantity, SUM(d.subtotal_sale) AS total " +
+            "FROM sale s JOIN sale_detail d ON d.sale_id = s.id JOIN product p ON p.id = d.product_id " +
+            "WHERE " + RANGE_FILTER + " GROUP BY NVL(d.category_id, p.category_product_id)) x " +
+            "JOIN category_product c ON c.id = x.category_id ORDER BY x.total DESC";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public SaleStatsService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Totales por día, semana (ISO, desde el lunes) o mes entre dos fechas inclusive
+    public List<SalesPeriodTotal> getTotalsByPeriod(Granularity granularity, LocalDate from, LocalDate to) {
+        String period = granularity.periodExpression;
+        String sql = "SELECT " + period + " AS period_start, COUNT(*) AS sale_count, SUM(s.total_sale) AS total " +
+                "FROM sale s WHERE " + RANGE_FILTER + " GROUP BY " + period + " ORDER BY period_start";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new SalesPeriodTotal(
+                rs.getTimestamp("period_start").toLocalDateTime().toLocalDate(),
+                rs.getLong("sale_count"),
+                rs.getDouble("total")), rangeStart(from), rangeEnd(to));
+    }
+
+    // Totales por vendedor, de mayor a menor
+    public List<SalesGroupTotal> getTotalsBySeller(LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(BY_SELLER_SQL, (rs, rowNum) -> new SalesGroupTotal(
+                rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getDouble(4)), rangeStart(from), rangeEnd(to));
+    }
+
+    // Totales por método de pago, de mayor a menor
+    public List<SalesGroupTotal> getTotalsByPaymentMethod(LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(BY_PAYMENT_METHOD_SQL, (rs, rowNum) -> new SalesGroupTotal(
+                rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getDouble(4)), rangeStart(from), rangeEnd(to));
+    }
+
+    // Totales por categoría de producto (a partir de las líneas de venta), de mayor a menor
+    public List<SalesCategoryTotal> getTotalsByCategory(LocalDate from, LocalDate to) {
+        return jdbcTemplate.query(BY_CATEGORY_SQL, (rs, rowNum) -> new SalesCategoryTotal(
+                rs.getLong(1), rs.getString(2), rs.getLong(3), rs.getLong(4), rs.getDouble(5), rs.getDouble(6)),
+                rangeStart(from), rangeEnd(to));
+    }
+
+    private static Timestamp rangeStart(LocalDate from) {
+        return Timestamp.valueOf(from.atStartOfDay());
+    }
+
+    // Fin exclusivo: el día siguiente a "to" a las 00:00, para que el rango use el índice sin TRUNC
+    private static Timestamp rangeEnd(LocalDate to) {
+        return Timestamp.valueOf(to.plusDays(1).atStartOfDay());
+    }
+}
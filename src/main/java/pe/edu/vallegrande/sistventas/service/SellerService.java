@@ -7,6 +7,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import pe.edu.vallegrande.sistventas.dto.projection.PersonSummary;
 import pe.edu.vallegrande.sistventas.model.Person;
 import pe.edu.vallegrande.sistventas.repository.PersonRepo;
 
@@ -33,11 +34,17 @@ public class SellerService {
     public List<Person> getExistingSellers(String numberDocument) {
         return personRepo.findByRolPersonAndNumberDocument("V", numberDocument);
     }
-    // Listar vendedores activos (rolPerson = "V")
-    public List<Person> getSellers() {
-        return this.personRepo.findByRolPerson("V").stream()
-                .sorted(Comparator.comparing(Person::getId).reversed())
-                .collect(Collectors.toList());
+    // Listar vendedores (rolPerson = "V"), proyección de listado sin salario ni contraseña
+    public List<PersonSummary> getSellers() {
+        return this.personRepo.findSummariesByRolPerson("V");
+    }
+    // Listado liviano de vendedores activos (proyección)
+    public List<PersonSummary> getActiveSellerSummaries() {
+        return this.personRepo.findSummariesByRolPersonAndActive("V", "A");
+    }
+    // Listado liviano de vendedores inactivos (proyección)
+    public List<PersonSummary> getInactiveSellerSummaries() {
+        return this.personRepo.findSummariesByRolPersonAndActive("V", "I");
     }
     // Listar vendedores activos (rolPerson = "V")
     public List<Person> getActiveSellers() {
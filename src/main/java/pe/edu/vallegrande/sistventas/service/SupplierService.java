@@ -57,7 +57,8 @@ public class SupplierService {
     // Listado con paginador en proveedores activos
     public Page<Supplier> listPageableSuppliersA(Pageable pageable){
         // Obtiene todos los vendedores activos
-        List<Supplier> allActiveSellers = this.supplierRepo.findByActive("A");
+        // Copia: la lista del repositorio viene de la caché compartida y no debe ordenarse en sitio
+        List<Supplier> allActiveSellers = new ArrayList<>(this.supplierRepo.findByActive("A"));
         // Ordena toda la lista por ID
         allActiveSellers.sort(Comparator.comparing(Supplier::getId).reversed());
         // Aplica la paginación
@@ -70,7 +71,8 @@ public class SupplierService {
     // Listado con paginador en proveedores inactivos
     public Page<Supplier> listPageableSuppliersI(Pageable pageable){
         // Obtiene todos los vendedores activos
-        List<Supplier> allActiveSellers = this.supplierRepo.findByActive("I");
+        // Copia: la lista del repositorio viene de la caché compartida y no debe ordenarse en sitio
+        List<Supplier> allActiveSellers = new ArrayList<>(this.supplierRepo.findByActive("I"));
         // Ordena toda la lista por ID
         allActiveSellers.sort(Comparator.comparing(Supplier::getId).reversed());
         // Aplica la paginación
@@ -0,0 +1,31 @@
+package pe.edu.vallegrande.sistventas.util;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+// Formatos de presentación compartidos por entidades, proyecciones y reportes. Los DateTimeFormatter
+// son inmutables y seguros entre hilos, así que se crean una sola vez en lugar de uno por fila.
+public final class DisplayFormats {
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("dd-MMM-yyyy HH:mm");
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd-MMM-yyyy");
+
+    private DisplayFormats() {
+    }
+
+    // Fecha y hora en la zona del servidor, p. ej. 05-mar-2024 14:30
+    public static String dateTime(Date date) {
+        return date == null ? null : DATE_TIME.format(date.toInstant().atZone(ZoneId.systemDefault()));
+    }
+
+    // Fecha sin hora y sin el punto de la abreviatura del mes, p. ej. 05-mar-2024
+    public static String date(LocalDate date) {
+        return date == null ? null : DATE.format(date).replace(".", "");
+    }
+
+    // Nombre completo como se muestra en listados y comprobantes
+    public static String fullName(String names, String lastName) {
+        return names + " " + lastName;
+    }
+}
@@ -0,0 +1,6 @@
+-- Índices (active, id desc) para la paginación por estado de ventas, compras y reservas.
+-- Permiten resolver "WHERE active = ? AND id < ? ORDER BY id DESC FETCH FIRST n ROWS" con un
+-- recorrido de rango sobre el índice, sin ordenar ni leer la tabla completa.
+CREATE INDEX idx_sale_active_id ON sale (active, id DESC);
+CREATE INDEX idx_purchase_active_id ON purchase (active, id DESC);
+CREATE INDEX idx_reservation_active_id ON reservation (active, id DESC);
@@ -0,0 +1,34 @@
+-- Migra los ids IDENTITY a secuencias con optimizador "pooled" (allocationSize = 50 en las entidades).
+-- Con IDENTITY Hibernate no puede agrupar inserciones; con secuencias reserva 50 ids por llamada
+-- y envía los INSERT en lotes JDBC (hibernate.jdbc.batch_size).
+--
+-- INCREMENT BY debe coincidir con allocationSize. El optimizador pooled usa el valor devuelto por la
+-- secuencia como límite superior del bloque (valor - 49 .. valor), por eso cada secuencia empieza en
+-- MAX(id) + 50: el primer bloque asignado es MAX(id) + 1 .. MAX(id) + 50 y no choca con filas existentes.
+--
+-- Ejecutar con la aplicación detenida. DROP IDENTITY conserva la columna y sus datos, solo quita el
+-- generador; si se necesita volver atrás basta con recrear la identidad con START WITH el siguiente id.
+DECLARE
+    c_allocation_size CONSTANT NUMBER := 50;
+
+    PROCEDURE migrate(p_table VARCHAR2, p_sequence VARCHAR2) IS
+        v_max_id NUMBER;
+    BEGIN
+        EXECUTE IMMEDIATE 'SELECT NVL(MAX(id), 0) FROM ' || p_table INTO v_max_id;
+        EXECUTE IMMEDIATE 'CREATE SEQUENCE ' || p_sequence
+            || ' START WITH ' || (v_max_id + c_allocation_size)
+            || ' INCREMENT BY ' || c_allocation_size
+            || ' CACHE 20 NOCYCLE';
+        EXECUTE IMMEDIATE 'ALTER TABLE ' || p_table || ' MODIFY id DROP IDENTITY';
+    END;
+BEGIN
+    migrate('person', 'person_seq');
+    migrate('product', 'product_seq');
+    migrate('sale', 'sale_seq');
+    migrate('sale_detail', 'sale_detail_seq');
+    migrate('purchase', 'purchase_seq');
+    migrate('purchase_detail', 'purchase_detail_seq');
+    migrate('reservation', 'reservation_seq');
+    migrate('reservation_detail', 'reservation_detail_seq');
+END;
+/
@@ -0,0 +1,9 @@
+-- Retención de stock de las reservas: estado de la retención y vencimiento.
+-- hold_status: 'P' pendiente (se libera en hold_expires_at si no se confirma), 'C' confirmada,
+-- 'R' liberada. Las reservas existentes quedan en NULL: nunca descontaron stock y no se devuelve nada.
+ALTER TABLE reservation ADD (
+    hold_status     VARCHAR2(1 CHAR),
+    hold_expires_at TIMESTAMP(6)
+);
+-- El liberador busca "hold_status = 'P' AND hold_expires_at <= ?" por este índice, sin recorrer la tabla.
+CREATE INDEX idx_reservation_hold ON reservation (hold_status, hold_expires_at);
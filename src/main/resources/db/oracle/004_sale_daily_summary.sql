@@ -0,0 +1,24 @@
+-- Agregado diario de ventas activas por vendedor, método de pago y categoría de producto.
+-- Se mantiene de forma incremental desde la aplicación (MERGE en la transacción de cada venta).
+-- Después de crearla, cargar el histórico con POST /api/sales/summary/rebuild?from=...&to=...
+CREATE TABLE sale_daily_summary (
+    summary_date      DATE          NOT NULL,
+    seller_id         NUMBER(19)    NOT NULL,
+    payment_method_id NUMBER(19)    NOT NULL,
+    category_id       NUMBER(19)    NOT NULL,
+    total_amount      NUMBER        DEFAULT 0 NOT NULL,
+    quantity          NUMBER        DEFAULT 0 NOT NULL,
+    line_count        NUMBER(19)    DEFAULT 0 NOT NULL,
+    sale_count        NUMBER(19)    DEFAULT 0 NOT NULL,
+    CONSTRAINT pk_sale_daily_summary PRIMARY KEY (summary_date, seller_id, payment_method_id, category_id)
+);
+-- Categoría del producto registrada en cada línea de venta al momento de la venta. sale_daily_summary
+-- suma y resta con ella, así que el agregado no se desvía cuando un producto cambia de categoría.
+ALTER TABLE sale_detail ADD (
+    category_id NUMBER(19)
+);
+-- Las líneas existentes toman la categoría actual de su producto (la misma que usaba el agregado hasta ahora)
+UPDATE sale_detail d
+   SET category_id = (SELECT p.category_product_id FROM product p WHERE p.id = d.product_id)
+ WHERE d.category_id IS NULL;
+COMMIT;
@@ -0,0 +1,8 @@
+-- Índices para las estadísticas de ventas (/api/sales/stats).
+-- idx_sale_active_date cubre los GROUP BY por periodo, vendedor y método de pago: el filtro
+-- "active = 'A' AND date_time BETWEEN ..." es un recorrido de rango y no se lee la tabla sale.
+-- idx_sale_detail_sale resuelve la unión sale -> sale_detail del GROUP BY por categoría y trae la
+-- categoría registrada en la línea (category_id, de 004): no se lee la tabla sale_detail. La unión con
+-- product, por su PK, queda como respaldo para líneas sin categoría.
+CREATE INDEX idx_sale_active_date ON sale (active, date_time, seller_id, payment_method_id, total_sale);
+CREATE INDEX idx_sale_detail_sale ON sale_detail (sale_id, category_id, product_id, amount, subtotal_sale);
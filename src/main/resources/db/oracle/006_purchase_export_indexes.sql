@@ -0,0 +1,6 @@
+-- Índices para la exportación contable de compras (/api/purchases/export.csv).
+-- idx_purchase_active_date: recorrido por rango de fechas de las compras activas.
+-- idx_purchase_detail_purchase: unión purchase -> purchase_detail (Oracle no indexa las claves foráneas).
+-- Las ventas ya usan idx_sale_active_date e idx_sale_detail_sale (005).
+CREATE INDEX idx_purchase_active_date ON purchase (active, date_time);
+CREATE INDEX idx_purchase_detail_purchase ON purchase_detail (purchase_id);
@@ -0,0 +1,16 @@
+-- Claves de idempotencia compartidas entre instancias (solo con idempotency.jdbc.enabled=true).
+-- La PK hace de candado: la primera instancia que inserta la clave ejecuta la operación; status queda
+-- en NULL mientras está en curso y expires_at es entonces el plazo para darla por abandonada.
+-- Al terminar se guardan el estado HTTP, el cuerpo JSON y la cabecera Location, que se repiten hasta
+-- expires_at.
+CREATE TABLE idempotency_key (
+    id           VARCHAR2(120 CHAR) NOT NULL,
+    request_hash VARCHAR2(64 CHAR)  NOT NULL,
+    status       NUMBER(3),
+    body         CLOB,
+    location     VARCHAR2(1000 CHAR),
+    expires_at   TIMESTAMP(6)       NOT NULL,
+    CONSTRAINT pk_idempotency_key PRIMARY KEY (id)
+);
+-- La purga periódica borra "expires_at < ?" por este índice
+CREATE INDEX idx_idempotency_key_expires ON idempotency_key (expires_at);
@@ -0,0 +1,12 @@
+-- Ventas de la ingesta diferida ya confirmadas (solo con sale.ingestion.enabled=true). La fila se inserta
+-- en la misma transacción que la venta: al recuperar el journal local tras una caída, una venta cuyo id
+-- provisional ya está aquí no se vuelve a insertar. Sin FK a sale: la venta se escribe recién en el
+-- flush del commit, después de esta fila.
+CREATE TABLE sale_ingestion (
+    provisional_id VARCHAR2(36 CHAR) NOT NULL,
+    sale_id        NUMBER(19)        NOT NULL,
+    committed_at   TIMESTAMP(6)      NOT NULL,
+    CONSTRAINT pk_sale_ingestion PRIMARY KEY (provisional_id)
+);
+-- La purga periódica borra "committed_at < ?" por este índice
+CREATE INDEX idx_sale_ingestion_committed ON sale_ingestion (committed_at);
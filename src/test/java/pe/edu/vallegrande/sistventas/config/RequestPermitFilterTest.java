@@ -0,0 +1,62 @@
+package pe.edu.vallegrande.sistventas.config;
+
+import jakarta.servlet.AsyncContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestPermitFilterTest {
+
+    // Una petición síncrona devuelve el permiso al terminar
+    @Test
+    void releasesThePermitAfterASynchronousRequest() throws Exception {
+        RequestPermitFilter filter = new RequestPermitFilter(1, Duration.ofMillis(50));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/products"), response, (req, res) -> {
+        });
+
+        assertEquals(HttpStatus.OK.value(), response.getStatus());
+        assertEquals(1, filter.availablePermits());
+    }
+
+    // Una exportación en streaming conserva el permiso hasta que termina la parte asíncrona
+    @Test
+    void keepsThePermitUntilAsyncProcessingCompletes() throws Exception {
+        RequestPermitFilter filter = new RequestPermitFilter(1, Duration.ofMillis(50));
+        MockHttpServletRequest streaming = new MockHttpServletRequest("GET", "/api/v1/sales/export/csv");
+        streaming.setAsyncSupported(true);
+        AsyncContext[] asyncContext = new AsyncContext[1];
+
+        filter.doFilter(streaming, new MockHttpServletResponse(), (req, res) -> asyncContext[0] = req.startAsync());
+
+        assertEquals(0, filter.availablePermits());
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/v1/products"), rejected, (req, res) -> {
+        });
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+
+        asyncContext[0].complete();
+
+        assertEquals(1, filter.availablePermits());
+    }
+
+    // Si la cadena falla el permiso se devuelve igual
+    @Test
+    void releasesThePermitWhenTheChainFails() {
+        RequestPermitFilter filter = new RequestPermitFilter(1, Duration.ofMillis(50));
+
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(
+                new MockHttpServletRequest("GET", "/api/v1/products"), new MockHttpServletResponse(), (req, res) -> {
+                    throw new IllegalStateException("falla");
+                }));
+
+        assertEquals(1, filter.availablePermits());
+    }
+}
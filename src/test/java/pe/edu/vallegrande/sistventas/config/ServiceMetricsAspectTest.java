@@ -0,0 +1,51 @@
+package pe.edu.vallegrande.sistventas.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import pe.edu.vallegrande.sistventas.service.CategoryService;
+import pe.edu.vallegrande.sistventas.service.ProductIndex;
+import pe.edu.vallegrande.sistventas.service.ProductPriceResolver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ServiceMetricsAspectTest {
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private ProductIndex productIndex;
+    @Autowired
+    private ProductPriceResolver productPriceResolver;
+
+    // Los @Service se miden y cada llamada suma en el mismo Timer
+    @Test
+    void servicesAreTimed() {
+        categoryService.getCategories();
+        Timer timer = meterRegistry.find("sistventas.service.invocations")
+                .tags("service", "CategoryService", "method", "getCategories", "exception", "None").timer();
+        assertNotNull(timer);
+        long count = timer.count();
+
+        categoryService.getCategories();
+
+        assertEquals(count + 1, timer.count());
+    }
+
+    // Los componentes en memoria del paquete service no llevan proxy ni Timer
+    @Test
+    void inMemoryComponentsAreNotProxied() {
+        productIndex.findByCode("775999");
+
+        assertFalse(AopUtils.isAopProxy(productIndex));
+        assertFalse(AopUtils.isAopProxy(productPriceResolver));
+        assertNull(meterRegistry.find("sistventas.service.invocations").tag("service", "ProductIndex").timer());
+    }
+}
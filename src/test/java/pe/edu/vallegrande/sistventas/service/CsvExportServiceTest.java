@@ -0,0 +1,102 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import pe.edu.vallegrande.sistventas.dto.Sale;
+import pe.edu.vallegrande.sistventas.dto.SaleDetail;
+import pe.edu.vallegrande.sistventas.model.*;
+import pe.edu.vallegrande.sistventas.repository.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CsvExportServiceTest {
+    @Autowired
+    private CsvExportService csvExportService;
+    @Autowired
+    private SaleService saleService;
+    @Autowired
+    private ProductPriceResolver productPriceResolver;
+    @Autowired
+    private CategoryRepo categoryRepo;
+    @Autowired
+    private ProductRepo productRepo;
+    @Autowired
+    private PersonRepo personRepo;
+    @Autowired
+    private PaymentMethodRepo paymentMethodRepo;
+    @Autowired
+    private SupplierRepo supplierRepo;
+
+    // La columna price_unit es el precio cobrado en la venta, aunque el catálogo haya cambiado después
+    @Test
+    void saleLinesReportThePriceChargedAtSaleTime() throws Exception {
+        TestCatalog catalog = new TestCatalog(categoryRepo, productRepo, personRepo, paymentMethodRepo, supplierRepo);
+        Person person = catalog.person();
+        Product product = catalog.product(catalog.category(), 2.5, 100.0);
+        Sale sale = new Sale();
+        sale.setClient(person);
+        sale.setSeller(person);
+        sale.setPaymentMethod(catalog.paymentMethod());
+        SaleDetail detail = new SaleDetail();
+        detail.setProduct(product);
+        detail.setAmount(4.0);
+        sale.setSaleDetails(new ArrayList<>(List.of(detail)));
+        Long saleId = saleService.createSale(sale).getId();
+
+        product.setPriceUnit(9.0);
+        productRepo.save(product);
+        productPriceResolver.evict(product.getId());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        csvExportService.export(CsvExportService.Dataset.SALE_LINES, LocalDate.now(), LocalDate.now(), out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        List<String> header = Arrays.asList(lines[0].replace("\uFEFF", "").split(","));
+        String[] row = Arrays.stream(lines).skip(1).map(line -> line.split(","))
+                .filter(fields -> fields[0].equals(String.valueOf(saleId)))
+                .findFirst().orElseThrow();
+        assertEquals("2.5", row[header.indexOf("price_unit")]);
+        assertEquals("10", row[header.indexOf("subtotal")]);
+    }
+
+    // Los textos que Excel tomaría por fórmulas salen con un apóstrofo delante; los demás, sin cambios
+    @Test
+    void formulaLikeTextIsNeutralized() throws Exception {
+        TestCatalog catalog = new TestCatalog(categoryRepo, productRepo, personRepo, paymentMethodRepo, supplierRepo);
+        Person person = catalog.person();
+        person.setNames("=HYPERLINK(\"http://x\";\"pagar\")");
+        person.setLastName("@SUMA");
+        personRepo.save(person);
+        Product product = catalog.product(100.0);
+        product.setName("-Arroz " + product.getCode());
+        productRepo.save(product);
+        Sale sale = new Sale();
+        sale.setClient(person);
+        sale.setSeller(person);
+        sale.setPaymentMethod(catalog.paymentMethod());
+        SaleDetail detail = new SaleDetail();
+        detail.setProduct(product);
+        detail.setAmount(1.0);
+        sale.setSaleDetails(new ArrayList<>(List.of(detail)));
+        Long saleId = saleService.createSale(sale).getId();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        csvExportService.export(CsvExportService.Dataset.SALE_LINES, LocalDate.now(), LocalDate.now(), out);
+        String line = Arrays.stream(out.toString(StandardCharsets.UTF_8).split("\r\n"))
+                .filter(row -> row.startsWith(saleId + ","))
+                .findFirst().orElseThrow();
+        assertTrue(line.contains(",\"'=HYPERLINK(\"\"http://x\"\";\"\"pagar\"\") @SUMA\","), line);
+        assertTrue(line.contains(",'-Arroz " + product.getCode() + ","), line);
+        assertFalse(line.contains(",=") || line.contains(",\"=") || line.contains(",@") || line.contains(",-"), line);
+    }
+}
@@ -0,0 +1,214 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotencyServiceTest {
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Un reintento con la misma clave y los mismos datos recibe la respuesta original sin repetir la operación
+    @Test
+    void retryWithTheSameKeyReplaysTheOriginalResponse() throws Exception {
+        IdempotencyService idempotencyService = service(false);
+        AtomicInteger executions = new AtomicInteger();
+        Map<String, Object> request = Map.of("total", 10.0);
+
+        ResponseEntity<Object> first = idempotencyService.execute("sale", "clave-1", request, created(executions));
+        ResponseEntity<Object> retry = idempotencyService.execute("sale", "clave-1", request, created(executions));
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals("true", retry.getHeaders().getFirst("Idempotent-Replayed"));
+        assertNull(first.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals(1, objectMapper.readTree((String) retry.getBody()).get("id").asInt());
+    }
+
+    // La cabecera Location de la respuesta original (p. ej. el 202 de la ingesta) también se repite, en
+    // memoria y desde la tabla compartida en otra instancia
+    @Test
+    void replayKeepsTheLocationHeader() {
+        IdempotencyService inMemory = service(false);
+        assertLocationReplayed(inMemory, inMemory, "clave-9");
+        assertLocationReplayed(service(true), service(true), "clave-10");
+    }
+
+    // La misma clave con otros datos es un error del cliente: 422 y la operación no se ejecuta
+    @Test
+    void sameKeyWithAnotherRequestIsRejected() {
+        IdempotencyService idempotencyService = service(false);
+        AtomicInteger executions = new AtomicInteger();
+
+        idempotencyService.execute("sale", "clave-2", Map.of("total", 10.0), created(executions));
+        ResponseEntity<Object> conflicting = idempotencyService.execute("sale", "clave-2", Map.of("total", 99.0),
+                created(executions));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, conflicting.getStatusCode());
+        assertEquals(1, executions.get());
+    }
+
+    // La clave se separa por operación: la misma clave en compras no repite la respuesta de ventas
+    @Test
+    void keysAreScopedByOperation() {
+        IdempotencyService idempotencyService = service(false);
+        AtomicInteger executions = new AtomicInteger();
+        Map<String, Object> request = Map.of("total", 10.0);
+
+        idempotencyService.execute("sale", "clave-3", request, created(executions));
+        idempotencyService.execute("purchase", "clave-3", request, created(executions));
+
+        assertEquals(2, executions.get());
+    }
+
+    // Los 5xx no se guardan: el siguiente reintento vuelve a ejecutar la operación
+    @Test
+    void serverErrorsAreNotStored() {
+        IdempotencyService idempotencyService = service(false);
+        AtomicInteger executions = new AtomicInteger();
+        Map<String, Object> request = Map.of("total", 10.0);
+
+        ResponseEntity<Object> failed = idempotencyService.execute("sale", "clave-4", request, () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        });
+        ResponseEntity<Object> retry = idempotencyService.execute("sale", "clave-4", request, created(executions));
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, failed.getStatusCode());
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals(2, executions.get());
+    }
+
+    // Peticiones simultáneas con la misma clave: una ejecuta, las demás esperan y reciben su respuesta
+    @Test
+    void concurrentRequestsWithTheSameKeyExecuteOnce() throws Exception {
+        IdempotencyService idempotencyService = service(false);
+        assertExecutesOnceUnderConcurrency(() -> idempotencyService, "clave-5");
+    }
+
+    // Con la tabla compartida, dos instancias se comportan como una: la segunda repite la respuesta de la primera
+    @Test
+    void sharedTableReplaysAcrossInstances() {
+        IdempotencyService first = service(true);
+        IdempotencyService second = service(true);
+        AtomicInteger executions = new AtomicInteger();
+        Map<String, Object> request = Map.of("total", 10.0);
+
+        ResponseEntity<Object> original = first.execute("sale", "clave-6", request, created(executions));
+        ResponseEntity<Object> replayed = second.execute("sale", "clave-6", request, created(executions));
+        ResponseEntity<Object> conflicting = second.execute("sale", "clave-6", Map.of("total", 1.0), created(executions));
+
+        assertEquals(1, executions.get());
+        assertEquals(original.getBody(), replayed.getBody());
+        assertEquals("true", replayed.getHeaders().getFirst("Idempotent-Replayed"));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, conflicting.getStatusCode());
+    }
+
+    // Con la tabla compartida la clave también es un candado entre instancias
+    @Test
+    void sharedTableExecutesOnceAcrossInstances() throws Exception {
+        List<IdempotencyService> instances = List.of(service(true), service(true), service(true));
+        AtomicInteger next = new AtomicInteger();
+        assertExecutesOnceUnderConcurrency(() -> instances.get(next.getAndIncrement() % instances.size()), "clave-7");
+    }
+
+    // Una respuesta 5xx en modo compartido libera la fila para el siguiente intento
+    @Test
+    void sharedTableReleasesTheKeyAfterAServerError() {
+        IdempotencyService idempotencyService = service(true);
+        AtomicInteger executions = new AtomicInteger();
+        Map<String, Object> request = Map.of("total", 10.0);
+
+        idempotencyService.execute("sale", "clave-8", request,
+                () -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_key WHERE id = ?", Integer.class,
+                "sale:clave-8"));
+        ResponseEntity<Object> retry = service(true).execute("sale", "clave-8", request, created(executions));
+        assertEquals(HttpStatus.CREATED, retry.getStatusCode());
+        assertEquals(1, executions.get());
+    }
+
+    private void assertLocationReplayed(IdempotencyService original, IdempotencyService retrying, String key) {
+        URI location = URI.create("http://localhost/api/v1/sales/ingest/" + key);
+        Map<String, Object> request = Map.of("total", 10.0);
+        original.execute("sale-ingest", key, request,
+                () -> ResponseEntity.accepted().location(location).body(Map.of("status", "QUEUED")));
+
+        ResponseEntity<Object> retry = retrying.execute("sale-ingest", key, request,
+                () -> ResponseEntity.internalServerError().build());
+
+        assertEquals(HttpStatus.ACCEPTED, retry.getStatusCode());
+        assertEquals(location, retry.getHeaders().getLocation());
+        assertEquals("true", retry.getHeaders().getFirst("Idempotent-Replayed"));
+    }
+
+    private void assertExecutesOnceUnderConcurrency(Supplier<IdempotencyService> services, String key) throws Exception {
+        int requests = 8;
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Map<String, Object> request = Map.of("total", 10.0);
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<ResponseEntity<Object>>> responses = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                IdempotencyService idempotencyService = services.get();
+                responses.add(executor.submit(() -> {
+                    start.await();
+                    return idempotencyService.execute("sale", key, request, () -> {
+                        sleep(200);
+                        return created(executions).get();
+                    });
+                }));
+            }
+            start.countDown();
+            Set<Object> bodies = new HashSet<>();
+            for (Future<ResponseEntity<Object>> response : responses) {
+                ResponseEntity<Object> result = response.get(30, TimeUnit.SECONDS);
+                assertEquals(HttpStatus.CREATED, result.getStatusCode());
+                bodies.add(result.getBody());
+            }
+            assertEquals(1, executions.get());
+            assertEquals(1, bodies.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private IdempotencyService service(boolean jdbcEnabled) {
+        return new IdempotencyService(objectMapper, jdbcTemplate, Duration.ofMinutes(5), 100,
+                Duration.ofSeconds(10), jdbcEnabled);
+    }
+
+    // Simula la creación: 201 con el número de ejecución como id
+    private static Supplier<ResponseEntity<Object>> created(AtomicInteger executions) {
+        return () -> ResponseEntity.status(HttpStatus.CREATED).body(Map.of("id", executions.incrementAndGet()));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pe.edu.vallegrande.sistventas.dto.Purchase;
+import pe.edu.vallegrande.sistventas.dto.PurchaseDetail;
+import pe.edu.vallegrande.sistventas.dto.Sale;
+import pe.edu.vallegrande.sistventas.dto.SaleDetail;
+import pe.edu.vallegrande.sistventas.model.*;
+import pe.edu.vallegrande.sistventas.repository.*;
+
+import javax.sql.DataSource;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class InventoryServiceTest {
+    @Autowired
+    private InventoryService inventoryService;
+    @Autowired
+    private SaleService saleService;
+    @Autowired
+    private PurchaseService purchaseService;
+    @Autowired
+    private ProductRepo productRepo;
+    @Autowired
+    private ProductIndex productIndex;
+    @Autowired
+    private CatalogVersions catalogVersions;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private CategoryRepo categoryRepo;
+    @Autowired
+    private PersonRepo personRepo;
+    @Autowired
+    private PaymentMethodRepo paymentMethodRepo;
+    @Autowired
+    private SupplierRepo supplierRepo;
+
+    private TestCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new TestCatalog(categoryRepo, productRepo, personRepo, paymentMethodRepo, supplierRepo);
+    }
+
+    @Test
+    void saleDecrementsStockOfEveryLine() {
+        Product rice = catalog.product(10.0);
+        Product sugar = catalog.product(10.0);
+        Person person = catalog.person();
+
+        saleService.createSale(sale(person, catalog.paymentMethod(), saleLine(rice, 2.0), saleLine(rice, 3.0), saleLine(sugar, 1.0)));
+        assertEquals(5.0, catalog.stockOf(rice));
+        assertEquals(9.0, catalog.stockOf(sugar));
+    }
+
+    @Test
+    void insufficientStockRollsBackEveryLine() {
+        Product plenty = catalog.product(10.0);
+        Product scarce = catalog.product(1.0);
+        Person person = catalog.person();
+        Sale sale = sale(person, catalog.paymentMethod(), saleLine(plenty, 4.0), saleLine(scarce, 2.0));
+
+        InventoryService.InsufficientStockException e = assertThrows(InventoryService.InsufficientStockException.class,
+                () -> saleService.createSale(sale));
+        assertEquals(scarce.getId(), e.getProductId());
+        assertEquals(1.0, e.getAvailable());
+        assertEquals(10.0, catalog.stockOf(plenty));
+        assertEquals(1.0, catalog.stockOf(scarce));
+    }
+
+    // Muchas ventas simultáneas sobre los mismos productos, con las líneas en distinto orden: ninguna
+    // vende de más y el orden ascendente de bloqueo evita interbloqueos
+    @Test
+    void concurrentSalesNeverOversell() throws Exception {
+        List<Product> products = List.of(catalog.product(20.0), catalog.product(20.0), catalog.product(20.0));
+        Person person = catalog.person();
+        PaymentMethod paymentMethod = catalog.paymentMethod();
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 60; i++) {
+                List<Product> lines = new ArrayList<>(products);
+                if (i % 2 == 1) {
+                    Collections.reverse(lines);
+                }
+                futures.add(executor.submit(() -> {
+                    Sale sale = sale(person, paymentMethod, lines.stream().map(p -> saleLine(p, 1.0)).toArray(SaleDetail[]::new));
+                    try {
+                        saleService.createSale(sale);
+                        sold.incrementAndGet();
+                    } catch (InventoryService.InsufficientStockException e) {
+                        rejected.incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(20, sold.get());
+        assertEquals(40, rejected.get());
+        for (Product product : products) {
+            assertEquals(0.0, catalog.stockOf(product));
+        }
+    }
+
+    // Una venta cambia la versión del stock, no la del catálogo: el catálogo de los POS sigue en 304
+    @Test
+    void stockMovementsLeaveTheCatalogEtag() {
+        Product rice = catalog.product(10.0);
+        Person person = catalog.person();
+        PaymentMethod paymentMethod = catalog.paymentMethod();
+        String catalogEtag = catalogVersions.etag(CatalogVersions.Catalog.PRODUCTS, CatalogVersions.Catalog.CATEGORIES);
+        String stockEtag = catalogVersions.etag(CatalogVersions.Catalog.PRODUCTS, CatalogVersions.Catalog.STOCK);
+
+        saleService.createSale(sale(person, paymentMethod, saleLine(rice, 1.0)));
+
+        assertEquals(catalogEtag, catalogVersions.etag(CatalogVersions.Catalog.PRODUCTS, CatalogVersions.Catalog.CATEGORIES));
+        assertNotEquals(stockEtag, catalogVersions.etag(CatalogVersions.Catalog.PRODUCTS, CatalogVersions.Catalog.STOCK));
+    }
+
+    @Test
+    void saleLifecycleAppliesOnlyTheDifferences() {
+        Product rice = catalog.product(10.0);
+        Product sugar = catalog.product(10.0);
+        Product salt = catalog.product(10.0);
+        Person person = catalog.person();
+        PaymentMethod paymentMethod = catalog.paymentMethod();
+
+        Sale saved = saleService.createSale(sale(person, paymentMethod, saleLine(rice, 2.0), saleLine(sugar, 2.0)));
+        assertEquals(8.0, catalog.stockOf(rice));
+        assertEquals(8.0, catalog.stockOf(sugar));
+
+        // El arroz sube a 5 unidades, se quita el azúcar y se agrega sal: -3 de arroz, +2 de azúcar, -1 de sal
+        SaleDetail kept = saleLine(rice, 5.0);
+        kept.setId(detailOf(saved, rice).getId());
+        saleService.updateSale(saved.getId(), sale(person, paymentMethod, kept, saleLine(salt, 1.0)));
+        assertEquals(5.0, catalog.stockOf(rice));
+        assertEquals(10.0, catalog.stockOf(sugar));
+        assertEquals(9.0, catalog.stockOf(salt));
+
+        saleService.logicalDeleteSale(saved.getId());
+        assertEquals(10.0, catalog.stockOf(rice));
+        assertEquals(10.0, catalog.stockOf(salt));
+        saleService.logicalActivateSale(saved.getId());
+        assertEquals(5.0, catalog.stockOf(rice));
+        assertEquals(9.0, catalog.stockOf(salt));
+
+        saleService.deleteSale(saved.getId());
+        assertEquals(10.0, catalog.stockOf(rice));
+        assertEquals(10.0, catalog.stockOf(salt));
+    }
+
+    @Test
+    void saleEditOrReactivationBeyondTheStockIsRejected() {
+        Product rice = catalog.product(5.0);
+        Person person = catalog.person();
+        PaymentMethod paymentMethod = catalog.paymentMethod();
+        Sale saved = saleService.createSale(sale(person, paymentMethod, saleLine(rice, 2.0)));
+
+        SaleDetail raised = saleLine(rice, 6.0);
+        raised.setId(detailOf(saved, rice).getId());
+        assertThrows(InventoryService.InsufficientStockException.class,
+                () -> saleService.updateSale(saved.getId(), sale(person, paymentMethod, raised)));
+        assertEquals(3.0, catalog.stockOf(rice));
+
+        // Mientras la venta está anulada otra venta se lleva el stock: la venta no se puede reactivar
+        saleService.logicalDeleteSale(saved.getId());
+        saleService.createSale(sale(person, paymentMethod, saleLine(rice, 4.0)));
+        assertThrows(InventoryService.InsufficientStockException.class, () -> saleService.logicalActivateSale(saved.getId()));
+        assertEquals(1.0, catalog.stockOf(rice));
+        assertEquals("I", saleService.getSaleById(saved.getId()).orElseThrow().getActive());
+    }
+
+    @Test
+    void purchaseLifecycleAppliesOnlyTheDifferences() {
+        Product rice = catalog.product(1.0);
+        Product sugar = catalog.product(1.0);
+        Supplier supplier = catalog.supplier();
+        Person seller = catalog.person();
+        PaymentMethod paymentMethod = catalog.paymentMethod();
+
+        Purchase purchase = purchase(supplier, seller, paymentMethod, line(rice, 5.0), line(rice, 5.0), line(sugar, 5.0));
+        Purchase saved = purchaseService.createPurchase(purchase);
+        assertEquals(11.0, catalog.stockOf(rice));
+        assertEquals(6.0, catalog.stockOf(sugar));
+
+        // Se queda una sola línea de arroz con 8 unidades: -2 de arroz y -5 de azúcar
+        PurchaseDetail kept = line(rice, 8.0);
+        kept.setId(saved.getPurchaseDetails().get(0).getId());
+        purchaseService.updatePurchase(saved.getId(), purchase(supplier, seller, paymentMethod, kept));
+        assertEquals(9.0, catalog.stockOf(rice));
+        assertEquals(1.0, catalog.stockOf(sugar));
+
+        purchaseService.logicalDeletPurchase(saved.getId());
+        assertEquals(1.0, catalog.stockOf(rice));
+        purchaseService.logicalActivarPurchase(saved.getId());
+        assertEquals(9.0, catalog.stockOf(rice));
+
+        purchaseService.deletePurchase(saved.getId());
+        assertEquals(1.0, catalog.stockOf(rice));
+        assertEquals(1.0, catalog.stockOf(sugar));
+    }
+
+    // Una compra inactiva ya retiró su stock: eliminarla no lo vuelve a retirar
+    @Test
+    void deletingAnInactivePurchaseLeavesTheStock() {
+        Product rice = catalog.product(1.0);
+        Purchase saved = purchaseService.createPurchase(purchase(catalog.supplier(), catalog.person(),
+                catalog.paymentMethod(), line(rice, 5.0)));
+        purchaseService.logicalDeletPurchase(saved.getId());
+
+        purchaseService.deletePurchase(saved.getId());
+        assertEquals(1.0, catalog.stockOf(rice));
+        assertTrue(purchaseService.getPurchaseById(saved.getId()).isEmpty());
+    }
+
+    @Test
+    void negativeDeltaBelowZeroRollsBackTheWholeBatch() {
+        Product first = catalog.product(10.0);
+        Product second = catalog.product(3.0);
+        Map<Long, Double> deltas = new HashMap<>();
+        deltas.put(first.getId(), 4.0);
+        deltas.put(second.getId(), -5.0);
+
+        InventoryService.InsufficientStockException e = assertThrows(InventoryService.InsufficientStockException.class,
+                () -> inventoryService.applyStockDeltas(deltas));
+        assertEquals(second.getId(), e.getProductId());
+        assertEquals(5.0, e.getRequested());
+        assertEquals(3.0, e.getAvailable());
+        assertEquals(10.0, catalog.stockOf(first));
+        assertEquals(3.0, catalog.stockOf(second));
+    }
+
+    @Test
+    void unknownProductFailsTheBatch() {
+        Product product = catalog.product(10.0);
+        Map<Long, Double> deltas = Map.of(product.getId(), 2.0, -1L, 2.0);
+
+        InventoryService.InsufficientStockException e = assertThrows(InventoryService.InsufficientStockException.class,
+                () -> inventoryService.applyStockDeltas(deltas));
+        assertEquals(-1L, e.getProductId());
+        assertEquals(10.0, catalog.stockOf(product));
+    }
+
+    // El driver de Oracle puede responder SUCCESS_NO_INFO por cada sentencia del lote: el resultado
+    // se comprueba leyendo el stock y no se confunde con "0 filas"
+    @Test
+    void successNoInfoCountsAreVerifiedAgainstTheTable() {
+        InventoryService noInfo = new InventoryService(productRepo, productIndex, new NoInfoJdbcTemplate(dataSource),
+                catalogVersions);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Product product = catalog.product(3.0);
+        Product other = catalog.product(3.0);
+
+        tx.executeWithoutResult(status -> noInfo.applyStockDeltas(Map.of(product.getId(), 2.0, other.getId(), -1.0)));
+        assertEquals(5.0, catalog.stockOf(product));
+        assertEquals(2.0, catalog.stockOf(other));
+
+        assertThrows(InventoryService.InsufficientStockException.class, () -> tx.executeWithoutResult(
+                status -> noInfo.applyStockDeltas(Map.of(product.getId(), 1.0, other.getId(), -3.0))));
+        assertEquals(5.0, catalog.stockOf(product));
+        assertEquals(2.0, catalog.stockOf(other));
+
+        assertThrows(InventoryService.InsufficientStockException.class, () -> tx.executeWithoutResult(
+                status -> noInfo.applyStockDeltas(Map.of(product.getId(), 1.0, -1L, 1.0))));
+        assertEquals(5.0, catalog.stockOf(product));
+    }
+
+    private static Purchase purchase(Supplier supplier, Person seller, PaymentMethod paymentMethod, PurchaseDetail... lines) {
+        Purchase purchase = new Purchase();
+        purchase.setSupplier(supplier);
+        purchase.setSeller(seller);
+        purchase.setPaymentMethod(paymentMethod);
+        purchase.setPurchaseDetails(new ArrayList<>(List.of(lines)));
+        return purchase;
+    }
+
+    private static Sale sale(Person person, PaymentMethod paymentMethod, SaleDetail... lines) {
+        Sale sale = new Sale();
+        sale.setClient(person);
+        sale.setSeller(person);
+        sale.setPaymentMethod(paymentMethod);
+        sale.setSaleDetails(new ArrayList<>(List.of(lines)));
+        return sale;
+    }
+
+    private static SaleDetail detailOf(Sale sale, Product product) {
+        return sale.getSaleDetails().stream()
+                .filter(detail -> detail.getProduct().getId().equals(product.getId()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static SaleDetail saleLine(Product product, double amount) {
+        SaleDetail detail = new SaleDetail();
+        detail.setProduct(product);
+        detail.setAmount(amount);
+        return detail;
+    }
+
+    private static PurchaseDetail line(Product product, double amount) {
+        PurchaseDetail detail = new PurchaseDetail();
+        detail.setProduct(product);
+        detail.setAmount(amount);
+        detail.setPriceUnit(1.0);
+        return detail;
+    }
+
+    // Ejecuta el lote de verdad, pero responde como el driver de Oracle sin recuento por sentencia
+    private static class NoInfoJdbcTemplate extends JdbcTemplate {
+        NoInfoJdbcTemplate(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            int[] counts = super.batchUpdate(sql, batchArgs);
+            Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+            return counts;
+        }
+    }
+}
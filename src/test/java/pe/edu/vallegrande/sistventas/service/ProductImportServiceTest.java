@@ -0,0 +1,65 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import pe.edu.vallegrande.sistventas.dto.ProductImportReport;
+import pe.edu.vallegrande.sistventas.model.CategoryProduct;
+import pe.edu.vallegrande.sistventas.model.Product;
+import pe.edu.vallegrande.sistventas.repository.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ProductImportServiceTest {
+    @Autowired
+    private ProductImportService productImportService;
+    @Autowired
+    private CategoryRepo categoryRepo;
+    @Autowired
+    private ProductRepo productRepo;
+    @Autowired
+    private PersonRepo personRepo;
+    @Autowired
+    private PaymentMethodRepo paymentMethodRepo;
+    @Autowired
+    private SupplierRepo supplierRepo;
+
+    private TestCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new TestCatalog(categoryRepo, productRepo, personRepo, paymentMethodRepo, supplierRepo);
+    }
+
+    // Los nombres repetidos se detectan sin distinguir mayúsculas, en el archivo y contra la base de datos,
+    // igual que al registrar un producto
+    @Test
+    void duplicateNamesAreRejectedIgnoringCase() throws Exception {
+        CategoryProduct category = catalog.category();
+        Product existing = catalog.product(category, 2.0, 1.0);
+        String suffix = existing.getCode();
+        String csv = String.join("\n",
+                "code,name,category,priceUnit,unitSale,stock",
+                "A" + suffix + ",Arroz " + suffix + "," + category.getName() + ",3.5,UND,10",
+                "B" + suffix + ",ARROZ " + suffix + "," + category.getName() + ",3.5,UND,10",
+                "C" + suffix + "," + existing.getName().toUpperCase() + "," + category.getName() + ",3.5,UND,10");
+
+        ProductImportReport report = productImportService.importProducts(
+                new MockMultipartFile("file", "productos.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, report.getImported());
+        assertEquals(List.of("Nombre repetido en el archivo", "Ya existe un producto con ese nombre"),
+                report.getErrors().stream().map(ProductImportReport.RowError::getMessage).toList());
+        assertTrue(productRepo.findByCode("A" + suffix).isPresent());
+        assertTrue(productRepo.findByCode("B" + suffix).isEmpty());
+        assertTrue(productRepo.findByCode("C" + suffix).isEmpty());
+    }
+}
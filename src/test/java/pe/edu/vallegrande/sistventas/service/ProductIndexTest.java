@@ -0,0 +1,96 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import org.junit.jupiter.api.Test;
+import pe.edu.vallegrande.sistventas.model.CategoryProduct;
+import pe.edu.vallegrande.sistventas.model.Product;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Pruebas del índice sin base de datos: put/putIfUnchanged/markMissing/refreshCategory no usan el repositorio
+class ProductIndexTest {
+
+    @Test
+    void missingCodeIsCachedWhenNothingChangedDuringTheLookup() {
+        ProductIndex index = new ProductIndex(null);
+        long stamp = index.writeStamp();
+        index.markMissing("775001", stamp);
+        assertTrue(index.isKnownMissing("775001"));
+    }
+
+    // La búsqueda en la base de datos no encontró el código, pero el alta se indexó antes de registrar
+    // el "no existe": la caché negativa no debe ocultar el producto recién creado
+    @Test
+    void createDuringTheLookupDiscardsTheStaleMissingEntry() {
+        ProductIndex index = new ProductIndex(null);
+        long stamp = index.writeStamp();
+        index.put(product(1L, "775001", category(10L, "Bebidas")));
+        index.markMissing("775001", stamp);
+        assertFalse(index.isKnownMissing("775001"));
+        assertTrue(index.findByCode("775001").isPresent());
+    }
+
+    @Test
+    void createRemovesAnEarlierMissingEntry() {
+        ProductIndex index = new ProductIndex(null);
+        index.markMissing("775001", index.writeStamp());
+        index.put(product(1L, "775001", category(10L, "Bebidas")));
+        assertFalse(index.isKnownMissing("775001"));
+    }
+
+    // Un escaneo leyó el producto antes de que se confirmara un cambio de precio: la fila vencida no
+    // reemplaza a la que ya indexó la modificación
+    @Test
+    void updateDuringTheLookupKeepsTheStaleRowOut() {
+        ProductIndex index = new ProductIndex(null);
+        long stamp = index.writeStamp();
+        Product stale = product(1L, "775001", category(10L, "Bebidas"));
+        Product updated = product(1L, "775001", category(10L, "Bebidas"));
+        updated.setPriceUnit(3.5);
+        index.put(updated);
+        index.putIfUnchanged(stale, stamp);
+        assertEquals(3.5, index.findByCode("775001").orElseThrow().getPriceUnit());
+    }
+
+    // Lo mismo con una baja: el producto desactivado durante la búsqueda no vuelve a poder escanearse
+    @Test
+    void removalDuringTheLookupKeepsTheStaleRowOut() {
+        ProductIndex index = new ProductIndex(null);
+        index.put(product(1L, "775001", category(10L, "Bebidas")));
+        long stamp = index.writeStamp();
+        Product stale = index.findByCode("775001").orElseThrow();
+        index.remove(1L);
+        index.putIfUnchanged(stale, stamp);
+        assertTrue(index.findByCode("775001").isEmpty());
+    }
+
+    @Test
+    void lookupWithoutConcurrentWritesIsIndexed() {
+        ProductIndex index = new ProductIndex(null);
+        index.putIfUnchanged(product(1L, "775001", category(10L, "Bebidas")), index.writeStamp());
+        assertTrue(index.findByCode("775001").isPresent());
+    }
+
+    @Test
+    void categoryChangesReachTheIndexedProducts() {
+        ProductIndex index = new ProductIndex(null);
+        index.put(product(1L, "775001", category(10L, "Bebidas")));
+        index.put(product(2L, "775002", category(20L, "Snacks")));
+
+        CategoryProduct renamed = category(10L, "Bebidas frías");
+        index.refreshCategory(renamed);
+        renamed.setName("modificada por el llamador");
+
+        assertEquals("Bebidas frías", index.findByCode("775001").orElseThrow().getCategoryProduct().getName());
+        assertEquals("Snacks", index.findByCode("775002").orElseThrow().getCategoryProduct().getName());
+    }
+
+    private static CategoryProduct category(Long id, String name) {
+        return new CategoryProduct(id, name, "Prueba", "A");
+    }
+
+    private static Product product(Long id, String code, CategoryProduct category) {
+        return new Product(id, code, "Producto " + code, "Prueba", category, 2.0, "UND", LocalDate.now(), 10.0, "A");
+    }
+}
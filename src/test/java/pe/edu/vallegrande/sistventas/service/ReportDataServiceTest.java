@@ -0,0 +1,63 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import pe.edu.vallegrande.sistventas.model.Person;
+import pe.edu.vallegrande.sistventas.model.Product;
+import pe.edu.vallegrande.sistventas.model.reports.ProductReportData;
+import pe.edu.vallegrande.sistventas.model.reports.SellerReportData;
+import pe.edu.vallegrande.sistventas.repository.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReportDataServiceTest {
+    @Autowired
+    private ReportDataService reportDataService;
+    @Autowired
+    private CategoryRepo categoryRepo;
+    @Autowired
+    private ProductRepo productRepo;
+    @Autowired
+    private PersonRepo personRepo;
+    @Autowired
+    private PaymentMethodRepo paymentMethodRepo;
+    @Autowired
+    private SupplierRepo supplierRepo;
+
+    // El reporte de vendedores lleva el usuario, pero nunca la contraseña
+    @Test
+    void sellerReportOmitsThePassword() {
+        TestCatalog catalog = new TestCatalog(categoryRepo, productRepo, personRepo, paymentMethodRepo, supplierRepo);
+        Person seller = catalog.person();
+
+        SellerReportData data = reportDataService.getSellers(true).stream()
+                .filter(row -> row.getID().equals(BigDecimal.valueOf(seller.getId())))
+                .findFirst().orElseThrow();
+
+        assertEquals(seller.getSellerUser(), data.getSELLER_USER());
+        assertNull(data.getSELLER_PASSWORD());
+    }
+
+    // El reporte de inactivos trae los productos inactivos, no los activos
+    @Test
+    void inactiveProductReportListsInactiveProducts() {
+        TestCatalog catalog = new TestCatalog(categoryRepo, productRepo, personRepo, paymentMethodRepo, supplierRepo);
+        Product active = catalog.product(10.0);
+        Product inactive = catalog.product(10.0);
+        inactive.setActive("I");
+        productRepo.save(inactive);
+
+        List<BigDecimal> inactiveIds = reportDataService.getProducts(false).stream()
+                .map(ProductReportData::getPRODUCT_ID).toList();
+
+        assertTrue(inactiveIds.contains(BigDecimal.valueOf(inactive.getId())));
+        assertFalse(inactiveIds.contains(BigDecimal.valueOf(active.getId())));
+    }
+}
@@ -0,0 +1,212 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pe.edu.vallegrande.sistventas.dto.Reservation;
+import pe.edu.vallegrande.sistventas.dto.ReservationDetail;
+import pe.edu.vallegrande.sistventas.model.*;
+import pe.edu.vallegrande.sistventas.repository.*;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReservationServiceTest {
+    @Autowired
+    private ReservationService reservationService;
+    @Autowired
+    private ReservationHoldSweeper reservationHoldSweeper;
+    @Autowired
+    private ReservationRepo reservationRepo;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private CategoryRepo categoryRepo;
+    @Autowired
+    private ProductRepo productRepo;
+    @Autowired
+    private PersonRepo personRepo;
+    @Autowired
+    private PaymentMethodRepo paymentMethodRepo;
+    @Autowired
+    private SupplierRepo supplierRepo;
+
+    private TestCatalog catalog;
+    private Person person;
+    private PaymentMethod paymentMethod;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new TestCatalog(categoryRepo, productRepo, personRepo, paymentMethodRepo, supplierRepo);
+        person = catalog.person();
+        paymentMethod = catalog.paymentMethod();
+    }
+
+    @Test
+    void holdIsTakenOnCreateAndGivenBackOnCancel() {
+        Product product = catalog.product(10.0);
+        Reservation reservation = reservationService.createReservation(reservation(line(product, 4.0)));
+        assertEquals(6.0, catalog.stockOf(product));
+        assertEquals("P", reservation.getHoldStatus());
+        assertNotNull(reservation.getHoldExpiresAt());
+
+        reservationService.logicalCancelReservation(reservation.getId());
+        assertEquals(10.0, catalog.stockOf(product));
+        assertThrows(ReservationService.ResourceConflictException.class,
+                () -> reservationService.logicalCancelReservation(reservation.getId()));
+        assertEquals(10.0, catalog.stockOf(product));
+    }
+
+    @Test
+    void sweeperReleasesOnlyExpiredPendingHolds() {
+        Product product = catalog.product(10.0);
+        Reservation expired = reservationService.createReservation(reservation(line(product, 2.0)));
+        Reservation confirmed = reservationService.createReservation(reservation(line(product, 3.0)));
+        Reservation pending = reservationService.createReservation(reservation(line(product, 1.0)));
+        reservationService.logicalConfirmReservation(confirmed.getId());
+        expire(expired.getId());
+        expire(confirmed.getId());
+        assertEquals(4.0, catalog.stockOf(product));
+
+        reservationHoldSweeper.releaseExpiredHolds();
+        assertEquals(6.0, catalog.stockOf(product));
+        assertHold(expired.getId(), "I", "R");
+        assertHold(confirmed.getId(), "A", "C");
+        assertHold(pending.getId(), "A", "P");
+
+        // Una segunda pasada no encuentra nada que devolver
+        reservationHoldSweeper.releaseExpiredHolds();
+        assertEquals(6.0, catalog.stockOf(product));
+    }
+
+    @Test
+    void expiredHoldCannotBeConfirmedButCanBeReactivated() {
+        Product product = catalog.product(10.0);
+        Reservation reservation = reservationService.createReservation(reservation(line(product, 4.0)));
+        expire(reservation.getId());
+        assertThrows(ReservationService.ResourceConflictException.class,
+                () -> reservationService.logicalConfirmReservation(reservation.getId()));
+        assertEquals(6.0, catalog.stockOf(product));
+
+        reservationHoldSweeper.releaseExpiredHolds();
+        assertEquals(10.0, catalog.stockOf(product));
+        // Reactivar vuelve a tomar el stock una sola vez
+        reservationService.logicalConfirmReservation(reservation.getId());
+        assertEquals(6.0, catalog.stockOf(product));
+        assertHold(reservation.getId(), "A", "C");
+        assertThrows(ReservationService.ResourceConflictException.class,
+                () -> reservationService.logicalConfirmReservation(reservation.getId()));
+        assertEquals(6.0, catalog.stockOf(product));
+    }
+
+    @Test
+    void reactivationNeverTakesStockOfAHoldStillInPlace() {
+        Product product = catalog.product(10.0);
+        Reservation reservation = reservationService.createReservation(reservation(line(product, 4.0)));
+        // Fila inconsistente (inactiva pero con la retención vigente): no se descuenta otra vez
+        jdbcTemplate.update("UPDATE reservation SET active = 'I' WHERE id = ?", reservation.getId());
+        assertThrows(ReservationService.ResourceConflictException.class,
+                () -> reservationService.logicalConfirmReservation(reservation.getId()));
+        assertEquals(6.0, catalog.stockOf(product));
+    }
+
+    @Test
+    void updateMovesOnlyTheDifferenceOfAnActiveHold() {
+        Product product = catalog.product(10.0);
+        Reservation created = reservationService.createReservation(reservation(line(product, 4.0)));
+        ReservationDetail kept = line(product, 6.0);
+        kept.setId(created.getReservationDetails().get(0).getId());
+        reservationService.updateReservation(created.getId(), reservation(kept));
+        assertEquals(4.0, catalog.stockOf(product));
+        assertHold(created.getId(), "A", "P");
+    }
+
+    @Test
+    void updateAfterTheSweeperReleasedTheHoldMovesNoStock() {
+        Product product = catalog.product(10.0);
+        Reservation created = reservationService.createReservation(reservation(line(product, 4.0)));
+        expire(created.getId());
+        reservationHoldSweeper.releaseExpiredHolds();
+        assertEquals(10.0, catalog.stockOf(product));
+
+        ReservationDetail kept = line(product, 6.0);
+        kept.setId(created.getReservationDetails().get(0).getId());
+        reservationService.updateReservation(created.getId(), reservation(kept));
+        assertEquals(10.0, catalog.stockOf(product));
+        assertHold(created.getId(), "I", "R");
+    }
+
+    // La actualización tiene la fila bloqueada cuando corre el liberador: este espera y luego devuelve
+    // las cantidades nuevas, de modo que el stock vuelve exactamente a su valor inicial
+    @Test
+    void sweeperWaitsForAConcurrentUpdate() throws Exception {
+        Product product = catalog.product(10.0);
+        Reservation created = reservationService.createReservation(reservation(line(product, 4.0)));
+        expire(created.getId());
+        ReservationDetail kept = line(product, 6.0);
+        kept.setId(created.getReservationDetails().get(0).getId());
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        CompletableFuture<Void> sweep = new CompletableFuture<>();
+        tx.executeWithoutResult(status -> {
+            reservationService.updateReservation(created.getId(), reservation(kept));
+            CompletableFuture.runAsync(reservationHoldSweeper::releaseExpiredHolds)
+                    .whenComplete((ignored, error) -> sweep.complete(null));
+            sleep();
+            assertFalse(sweep.isDone());
+        });
+        sweep.get(30, TimeUnit.SECONDS);
+        assertEquals(10.0, catalog.stockOf(product));
+        assertHold(created.getId(), "I", "R");
+    }
+
+    private void expire(Long reservationId) {
+        jdbcTemplate.update("UPDATE reservation SET hold_expires_at = ? WHERE id = ?",
+                Timestamp.from(Instant.now().minusSeconds(60)), reservationId);
+    }
+
+    private void assertHold(Long reservationId, String active, String holdStatus) {
+        Reservation stored = reservationRepo.findById(reservationId).orElseThrow();
+        assertEquals(active, stored.getActive());
+        assertEquals(holdStatus, stored.getHoldStatus());
+    }
+
+    private Reservation reservation(ReservationDetail... lines) {
+        Reservation reservation = new Reservation();
+        reservation.setClient(person);
+        reservation.setSeller(person);
+        reservation.setPaymentMethod(paymentMethod);
+        reservation.setReservationDetails(new ArrayList<>(List.of(lines)));
+        return reservation;
+    }
+
+    private static ReservationDetail line(Product product, double amount) {
+        ReservationDetail detail = new ReservationDetail();
+        detail.setProduct(product);
+        detail.setAmount(amount);
+        return detail;
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import pe.edu.vallegrande.sistventas.dto.Sale;
+import pe.edu.vallegrande.sistventas.dto.SaleDailySummary;
+import pe.edu.vallegrande.sistventas.dto.SaleDetail;
+import pe.edu.vallegrande.sistventas.model.*;
+import pe.edu.vallegrande.sistventas.repository.*;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SaleDailySummaryServiceTest {
+    @Autowired
+    private SaleService saleService;
+    @Autowired
+    private SaleDailySummaryService saleDailySummaryService;
+    @Autowired
+    private CategoryRepo categoryRepo;
+    @Autowired
+    private ProductRepo productRepo;
+    @Autowired
+    private PersonRepo personRepo;
+    @Autowired
+    private PaymentMethodRepo paymentMethodRepo;
+    @Autowired
+    private SupplierRepo supplierRepo;
+
+    private TestCatalog catalog;
+    // Cada prueba vende con un vendedor propio y solo mira sus filas del agregado
+    private Person seller;
+    private PaymentMethod paymentMethod;
+    private CategoryProduct drinks;
+    private CategoryProduct snacks;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new TestCatalog(categoryRepo, productRepo, personRepo, paymentMethodRepo, supplierRepo);
+        seller = catalog.person();
+        paymentMethod = catalog.paymentMethod();
+        drinks = catalog.category();
+        snacks = catalog.category();
+    }
+
+    @Test
+    void saleLifecycleKeepsTheAggregateInStep() {
+        Product water = catalog.product(drinks, 2.0, 100.0);
+        Product chips = catalog.product(snacks, 5.0, 100.0);
+        Sale saved = saleService.createSale(sale(line(water, 3.0), line(chips, 1.0), line(water, 1.0)));
+        assertEquals(Map.of(drinks.getId(), "8.0/4.0/2/1", snacks.getId(), "5.0/1.0/1/1"), summary());
+
+        // Queda una sola línea de agua con 10 unidades
+        SaleDetail kept = line(water, 10.0);
+        kept.setId(saved.getSaleDetails().get(0).getId());
+        Sale updated = sale(kept);
+        updated.setDateTime(saved.getDateTime());
+        saleService.updateSale(saved.getId(), updated);
+        assertEquals(Map.of(drinks.getId(), "20.0/10.0/1/1", snacks.getId(), "0.0/0.0/0/0"), summary());
+
+        saleService.logicalDeleteSale(saved.getId());
+        assertEquals(Map.of(drinks.getId(), "0.0/0.0/0/0", snacks.getId(), "0.0/0.0/0/0"), summary());
+        saleService.logicalActivateSale(saved.getId());
+        assertEquals(Map.of(drinks.getId(), "20.0/10.0/1/1", snacks.getId(), "0.0/0.0/0/0"), summary());
+        saleService.deleteSale(saved.getId());
+        assertEquals(Map.of(drinks.getId(), "0.0/0.0/0/0", snacks.getId(), "0.0/0.0/0/0"), summary());
+    }
+
+    // La venta se restó con la categoría que tenía el producto al venderse, no con la actual
+    @Test
+    void categoryChangeAfterTheSaleDoesNotDriftTheAggregate() {
+        Product water = catalog.product(drinks, 2.0, 100.0);
+        Sale saved = saleService.createSale(sale(line(water, 3.0)));
+        assertEquals(drinks.getId(), saved.getSaleDetails().get(0).getCategoryId());
+
+        water.setCategoryProduct(snacks);
+        productRepo.save(water);
+        saleService.logicalDeleteSale(saved.getId());
+        assertEquals(Map.of(drinks.getId(), "0.0/0.0/0/0"), summary());
+
+        saleService.logicalActivateSale(saved.getId());
+        assertEquals(Map.of(drinks.getId(), "6.0/3.0/1/1"), summary());
+        // El recálculo desde las tablas usa también la categoría registrada en la línea
+        saleDailySummaryService.rebuild(LocalDate.now(), LocalDate.now());
+        assertEquals(Map.of(drinks.getId(), "6.0/3.0/1/1"), summary());
+    }
+
+    @Test
+    void lineMovedToAnotherProductTakesItsCurrentCategory() {
+        Product water = catalog.product(drinks, 2.0, 100.0);
+        Product chips = catalog.product(snacks, 5.0, 100.0);
+        Sale saved = saleService.createSale(sale(line(water, 1.0)));
+
+        SaleDetail moved = line(chips, 2.0);
+        moved.setId(saved.getSaleDetails().get(0).getId());
+        Sale updated = sale(moved);
+        updated.setDateTime(saved.getDateTime());
+        Sale result = saleService.updateSale(saved.getId(), updated);
+        assertEquals(snacks.getId(), result.getSaleDetails().get(0).getCategoryId());
+        assertEquals(Map.of(drinks.getId(), "0.0/0.0/0/0", snacks.getId(), "10.0/2.0/1/1"), summary());
+    }
+
+    // Filas del vendedor de la prueba: categoría -> "total/cantidad/líneas/ventas"
+    private Map<Long, String> summary() {
+        Map<Long, String> rows = new HashMap<>();
+        for (SaleDailySummary row : saleDailySummaryService.getSummaries(LocalDate.now().minusDays(1), LocalDate.now().plusDays(1))) {
+            if (seller.getId().equals(row.getSellerId())) {
+                rows.put(row.getCategoryId(), row.getTotalAmount() + "/" + row.getQuantity() + "/"
+                        + row.getLineCount() + "/" + row.getSaleCount());
+            }
+        }
+        return rows;
+    }
+
+    private Sale sale(SaleDetail... lines) {
+        Sale sale = new Sale();
+        sale.setClient(seller);
+        sale.setSeller(seller);
+        sale.setPaymentMethod(paymentMethod);
+        sale.setSaleDetails(new ArrayList<>(List.of(lines)));
+        return sale;
+    }
+
+    private static SaleDetail line(Product product, double amount) {
+        SaleDetail detail = new SaleDetail();
+        detail.setProduct(product);
+        detail.setAmount(amount);
+        return detail;
+    }
+}
@@ -0,0 +1,233 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+import pe.edu.vallegrande.sistventas.dto.Sale;
+import pe.edu.vallegrande.sistventas.dto.SaleDetail;
+import pe.edu.vallegrande.sistventas.model.*;
+import pe.edu.vallegrande.sistventas.repository.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// La ingesta se arma a mano (no depende de sale.ingestion.enabled) con un JdbcTemplate que puede fallar
+// al escribir la marca o no encontrarla, para simular la base de datos caída y la carrera entre intentos
+@SpringBootTest
+@ActiveProfiles("test")
+class SaleIngestionServiceTest {
+    private static final String JOURNAL_FILE = "sale-ingestion.journal";
+
+    @Autowired
+    private SaleService saleService;
+    @Autowired
+    private ProductPriceResolver productPriceResolver;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private CategoryRepo categoryRepo;
+    @Autowired
+    private ProductRepo productRepo;
+    @Autowired
+    private PersonRepo personRepo;
+    @Autowired
+    private PaymentMethodRepo paymentMethodRepo;
+    @Autowired
+    private SupplierRepo supplierRepo;
+
+    @TempDir
+    private Path journalDir;
+
+    private TestCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new TestCatalog(categoryRepo, productRepo, personRepo, paymentMethodRepo, supplierRepo);
+    }
+
+    // Una línea a medio escribir se corta al recuperar: lo que se anota después queda en su propia línea
+    @Test
+    void tornTailIsCutSoLaterLinesSurviveTheNextRecovery() throws Exception {
+        Path file = journalDir.resolve(JOURNAL_FILE);
+        byte[] complete = line("A", "venta-1", Optional.empty());
+        Files.write(file, complete);
+        Files.write(file, "{\"type\":\"A\",\"id\":\"venta-2\",\"sa".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        try (SaleIngestionService.Journal journal = new SaleIngestionService.Journal(file, DataSize.ofMegabytes(64).toBytes())) {
+            assertEquals(List.of("venta-1"), ids(journal.recover(objectMapper)));
+            assertEquals(complete.length, Files.size(file));
+            journal.accepted("venta-3", line("A", "venta-3", Optional.empty()));
+        }
+
+        try (SaleIngestionService.Journal journal = new SaleIngestionService.Journal(file, DataSize.ofMegabytes(64).toBytes())) {
+            assertEquals(List.of("venta-1", "venta-3"), ids(journal.recover(objectMapper)));
+            assertTrue(journal.isPending("venta-3"));
+        }
+    }
+
+    // Con la base de datos caída la venta agota sus intentos, queda FAILED sin vencer y se reencola hasta
+    // confirmarse una sola vez; el journal ya no la tiene pendiente
+    @Test
+    void failedSaleIsRedrivenUntilCommitted() throws Exception {
+        FlakyJdbcTemplate flaky = new FlakyJdbcTemplate(jdbcTemplate);
+        flaky.markFailures.set(4);
+        Person person = catalog.person();
+        Product product = catalog.product(10.0);
+        SaleIngestionService ingestion = ingestion(flaky, 2);
+        ingestion.recover();
+        try {
+            String provisionalId = ingestion.accept(sale(person, product)).provisionalId();
+
+            boolean sawFailed = false;
+            long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+            SaleIngestionService.IngestionStatus status;
+            do {
+                status = ingestion.getStatus(provisionalId).orElseThrow();
+                sawFailed |= status.status() == SaleIngestionService.IngestionState.FAILED;
+                Thread.sleep(10);
+            } while (status.status() != SaleIngestionService.IngestionState.COMMITTED && System.nanoTime() < deadline);
+
+            assertEquals(SaleIngestionService.IngestionState.COMMITTED, status.status());
+            assertTrue(sawFailed);
+            assertEquals(1, salesOf(person));
+            assertEquals(9.0, catalog.stockOf(product));
+            assertEquals(status.saleId(), jdbcTemplate.queryForObject(
+                    "SELECT sale_id FROM sale_ingestion WHERE provisional_id = ?", Long.class, provisionalId));
+        } finally {
+            ingestion.shutdown();
+        }
+        try (SaleIngestionService.Journal journal = new SaleIngestionService.Journal(journalDir.resolve(JOURNAL_FILE),
+                DataSize.ofMegabytes(64).toBytes())) {
+            assertTrue(journal.recover(objectMapper).isEmpty());
+        }
+    }
+
+    // Si otro intento deja la marca entre la búsqueda y la inserción, la PK revierte esta inserción y la
+    // venta queda COMMITTED con el id ya confirmado, no REJECTED
+    @Test
+    void duplicateMarkerCountsAsCommitted() throws Exception {
+        Person person = catalog.person();
+        Product product = catalog.product(10.0);
+        Long existingSaleId = saleService.createSale(sale(person, product)).getId();
+        String provisionalId = UUID.randomUUID().toString();
+        jdbcTemplate.update("INSERT INTO sale_ingestion (provisional_id, sale_id, committed_at) VALUES (?, ?, ?)",
+                provisionalId, existingSaleId, Timestamp.from(Instant.now()));
+        Files.write(journalDir.resolve(JOURNAL_FILE), line("A", provisionalId, Optional.of(sale(person, product))));
+
+        FlakyJdbcTemplate flaky = new FlakyJdbcTemplate(jdbcTemplate);
+        flaky.hideMarkerOnce.set(true);
+        SaleIngestionService ingestion = ingestion(flaky, 2);
+        ingestion.recover();
+        try {
+            SaleIngestionService.IngestionStatus status = awaitFinal(ingestion, provisionalId);
+
+            assertEquals(SaleIngestionService.IngestionState.COMMITTED, status.status());
+            assertEquals(existingSaleId, status.saleId());
+            assertFalse(flaky.hideMarkerOnce.get());
+            assertEquals(1, salesOf(person));
+            assertEquals(9.0, catalog.stockOf(product));
+        } finally {
+            ingestion.shutdown();
+        }
+    }
+
+    private SaleIngestionService ingestion(JdbcTemplate jdbc, int maxAttempts) throws IOException {
+        return new SaleIngestionService(saleService, productPriceResolver, jdbc, objectMapper, transactionManager,
+                new SimpleMeterRegistry(), 100, 10, Duration.ofMillis(10), Duration.ofMillis(100), maxAttempts,
+                Duration.ofMillis(50), Duration.ofMillis(200), journalDir.toString(), DataSize.ofMegabytes(64),
+                Duration.ofDays(7));
+    }
+
+    private SaleIngestionService.IngestionStatus awaitFinal(SaleIngestionService ingestion, String provisionalId)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        SaleIngestionService.IngestionStatus status;
+        do {
+            Thread.sleep(10);
+            status = ingestion.getStatus(provisionalId).orElseThrow();
+        } while (status.status() == SaleIngestionService.IngestionState.QUEUED && System.nanoTime() < deadline);
+        return status;
+    }
+
+    private Sale sale(Person person, Product product) {
+        Sale sale = new Sale();
+        sale.setClient(person);
+        sale.setSeller(person);
+        sale.setPaymentMethod(catalog.paymentMethod());
+        SaleDetail detail = new SaleDetail();
+        detail.setProduct(product);
+        detail.setAmount(1.0);
+        sale.setSaleDetails(new ArrayList<>(List.of(detail)));
+        return sale;
+    }
+
+    private int salesOf(Person person) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sale WHERE client_id = ?", Integer.class, person.getId());
+    }
+
+    private byte[] line(String type, String id, Optional<Sale> sale) {
+        ObjectNode record = objectMapper.createObjectNode().put("type", type).put("id", id);
+        sale.ifPresent(value -> record.set("sale", objectMapper.valueToTree(value)));
+        return (record + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> ids(List<SaleIngestionService.Entry> entries) {
+        return entries.stream().map(SaleIngestionService.Entry::id).toList();
+    }
+
+    // Falla las primeras markFailures escrituras de la marca (base de datos no disponible) y, con
+    // hideMarkerOnce, la primera búsqueda de una marca no la encuentra
+    private static class FlakyJdbcTemplate extends JdbcTemplate {
+        final AtomicInteger markFailures = new AtomicInteger();
+        final AtomicBoolean hideMarkerOnce = new AtomicBoolean();
+
+        FlakyJdbcTemplate(JdbcTemplate delegate) {
+            super(delegate.getDataSource());
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (sql.startsWith("INSERT INTO sale_ingestion") && markFailures.getAndDecrement() > 0) {
+                throw new TransientDataAccessResourceException("Base de datos no disponible");
+            }
+            return super.update(sql, args);
+        }
+
+        @Override
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            if (sql.contains("FROM sale_ingestion") && hideMarkerOnce.getAndSet(false)) {
+                return List.of();
+            }
+            return super.queryForList(sql, elementType, args);
+        }
+    }
+}
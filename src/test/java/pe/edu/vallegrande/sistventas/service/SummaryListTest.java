@@ -0,0 +1,131 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import pe.edu.vallegrande.sistventas.dto.CursorPage;
+import pe.edu.vallegrande.sistventas.dto.Sale;
+import pe.edu.vallegrande.sistventas.dto.SaleDetail;
+import pe.edu.vallegrande.sistventas.dto.projection.PersonSummary;
+import pe.edu.vallegrande.sistventas.dto.projection.ProductSummary;
+import pe.edu.vallegrande.sistventas.dto.projection.SaleSummary;
+import pe.edu.vallegrande.sistventas.model.*;
+import pe.edu.vallegrande.sistventas.repository.*;
+import pe.edu.vallegrande.sistventas.util.DisplayFormats;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Los listados paginados devuelven proyecciones: nunca datos privados de las personas (clave, sueldo)
+@SpringBootTest
+@ActiveProfiles("test")
+class SummaryListTest {
+    @Autowired
+    private SaleService saleService;
+    @Autowired
+    private PurchaseService purchaseService;
+    @Autowired
+    private ReservationService reservationService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private CategoryRepo categoryRepo;
+    @Autowired
+    private ProductRepo productRepo;
+    @Autowired
+    private PersonRepo personRepo;
+    @Autowired
+    private PaymentMethodRepo paymentMethodRepo;
+    @Autowired
+    private SupplierRepo supplierRepo;
+
+    private TestCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new TestCatalog(categoryRepo, productRepo, personRepo, paymentMethodRepo, supplierRepo);
+    }
+
+    @Test
+    void saleCursorWalksEveryPageInDescendingOrder() {
+        Person person = catalog.person();
+        PaymentMethod paymentMethod = catalog.paymentMethod();
+        Product product = catalog.product(100.0);
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Sale sale = new Sale();
+            sale.setClient(person);
+            sale.setSeller(person);
+            sale.setPaymentMethod(paymentMethod);
+            SaleDetail detail = new SaleDetail();
+            detail.setProduct(product);
+            detail.setAmount(1.0);
+            sale.setSaleDetails(new ArrayList<>(List.of(detail)));
+            created.add(saleService.createSale(sale).getId());
+        }
+
+        List<Long> seen = new ArrayList<>();
+        Long lastId = null;
+        do {
+            CursorPage<SaleSummary> page = saleService.getSalesByCursor("A", lastId, 2);
+            page.getContent().forEach(summary -> seen.add(summary.id()));
+            lastId = page.getNextCursor();
+        } while (lastId != null);
+        List<Long> expected = new ArrayList<>(created);
+        Collections.reverse(expected);
+        assertEquals(expected, seen.stream().filter(created::contains).toList());
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(seen.get(i - 1) > seen.get(i));
+        }
+
+        Page<SaleSummary> first = saleService.getSalesPageableByActiveStatus("A", PageRequest.of(0, 2));
+        assertEquals(2, first.getContent().size());
+        assertTrue(first.getTotalElements() >= 5);
+        assertEquals(seen.get(0), first.getContent().get(0).id());
+    }
+
+    @Test
+    void listsNeverSerializePersonalData() throws Exception {
+        catalog.product(1.0);
+        String json = objectMapper.writeValueAsString(List.of(
+                saleService.getSalesPageableByActiveStatus("A", PageRequest.of(0, 20)),
+                saleService.getSalesByCursor("A", null, 20),
+                purchaseService.getPurchasesPageableByActiveStatus("A", PageRequest.of(0, 20)),
+                purchaseService.getPurchasesByCursor("A", null, 20),
+                reservationService.getReservationsPageableByStatus("A", PageRequest.of(0, 20)),
+                reservationService.getReservationsByCursor("A", null, 20),
+                productService.getProducts().getBody()));
+        assertFalse(json.contains("sellerPassword"));
+        assertFalse(json.contains("salary"));
+        assertFalse(json.contains("secreto"));
+    }
+
+    // Los campos formateados se calculan al serializar, pero el JSON conserva los mismos nombres
+    @Test
+    void summariesSerializeTheFormattedFields() throws Exception {
+        Date dateTime = new Date();
+        LocalDate date = LocalDate.of(2024, 3, 5);
+
+        JsonNode sale = objectMapper.valueToTree(new SaleSummary(1L, dateTime, "Ana López", "Luis Quispe",
+                "Efectivo", 10.0, "A"));
+        JsonNode product = objectMapper.valueToTree(new ProductSummary(2L, "P1", "Arroz", 3L, "Abarrotes", 4.5,
+                "KG", date, 20.0, "A"));
+        JsonNode person = objectMapper.valueToTree(new PersonSummary(4L, "C", "DNI", "12345678", "Ana", "López",
+                null, null, date, null, null, "A"));
+
+        assertEquals(DisplayFormats.dateTime(dateTime), sale.get("formattedDateTime").asText());
+        assertEquals("Ana López", sale.get("clientNames").asText());
+        assertEquals(DisplayFormats.date(date), product.get("dateExpiryFormatted").asText());
+        assertEquals(DisplayFormats.date(date), person.get("birthdateFormatted").asText());
+    }
+}
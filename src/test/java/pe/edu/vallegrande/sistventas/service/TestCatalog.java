@@ -0,0 +1,66 @@
+package pe.edu.vallegrande.sistventas.service;
+
+import pe.edu.vallegrande.sistventas.model.*;
+import pe.edu.vallegrande.sistventas.repository.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Datos maestros para las pruebas de servicios. Las pruebas comparten el contexto (y la base H2), así que
+// códigos, nombres y documentos llevan un sufijo único en lugar de limpiar las tablas
+class TestCatalog {
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final CategoryRepo categoryRepo;
+    private final ProductRepo productRepo;
+    private final PersonRepo personRepo;
+    private final PaymentMethodRepo paymentMethodRepo;
+    private final SupplierRepo supplierRepo;
+
+    TestCatalog(CategoryRepo categoryRepo, ProductRepo productRepo, PersonRepo personRepo,
+                PaymentMethodRepo paymentMethodRepo, SupplierRepo supplierRepo) {
+        this.categoryRepo = categoryRepo;
+        this.productRepo = productRepo;
+        this.personRepo = personRepo;
+        this.paymentMethodRepo = paymentMethodRepo;
+        this.supplierRepo = supplierRepo;
+    }
+
+    CategoryProduct category() {
+        return categoryRepo.save(new CategoryProduct(null, "Categoría " + next(), "Prueba", "A"));
+    }
+
+    Product product(double stock) {
+        return product(category(), 2.0, stock);
+    }
+
+    Product product(CategoryProduct category, double priceUnit, double stock) {
+        int n = next();
+        return productRepo.save(new Product(null, "P" + n, "Producto " + n, "Prueba", category, priceUnit, "UND",
+                LocalDate.now().plusYears(1), stock, "A"));
+    }
+
+    Person person() {
+        int n = next();
+        return personRepo.save(new Person(null, "V", "DNI", String.format("%08d", n), "Ana", "López", null, null,
+                LocalDate.of(1990, 1, 1), 1000.0, "V", "ana" + n, "secreto", "A", null));
+    }
+
+    PaymentMethod paymentMethod() {
+        return paymentMethodRepo.save(new PaymentMethod(null, "Efectivo " + next(), "Prueba", "A"));
+    }
+
+    Supplier supplier() {
+        int n = next();
+        return supplierRepo.save(new Supplier(null, "Abarrotes", "Proveedor " + n, "RUC", String.format("20%09d", n),
+                "Luis", "Quispe", null, null, "A"));
+    }
+
+    double stockOf(Product product) {
+        return productRepo.findStockById(product.getId()).orElseThrow();
+    }
+
+    private static int next() {
+        return SEQUENCE.incrementAndGet();
+    }
+}